@@ -0,0 +1,258 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * BenchmarkScenarios.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2022 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+
+package org.matsim.benchmark;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.TransportMode;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.NetworkFactory;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.api.core.v01.population.Activity;
+import org.matsim.api.core.v01.population.Leg;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Plan;
+import org.matsim.api.core.v01.population.Population;
+import org.matsim.api.core.v01.population.PopulationFactory;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.config.groups.PlanCalcScoreConfigGroup.ActivityParams;
+import org.matsim.core.population.routes.RouteUtils;
+import org.matsim.core.router.costcalculators.FreespeedTravelTimeAndDisutility;
+import org.matsim.core.router.speedy.SpeedyDijkstra;
+import org.matsim.core.router.speedy.SpeedyGraph;
+import org.matsim.core.router.util.LeastCostPathCalculator;
+import org.matsim.core.router.util.LeastCostPathCalculator.Path;
+import org.matsim.core.scenario.ScenarioUtils;
+import org.matsim.pt.transitSchedule.api.Departure;
+import org.matsim.pt.transitSchedule.api.TransitLine;
+import org.matsim.pt.transitSchedule.api.TransitRoute;
+import org.matsim.pt.transitSchedule.api.TransitRouteStop;
+import org.matsim.pt.transitSchedule.api.TransitSchedule;
+import org.matsim.pt.transitSchedule.api.TransitScheduleFactory;
+import org.matsim.pt.transitSchedule.api.TransitStopFacility;
+
+/**
+ * Generates synthetic scenarios of configurable size for the benchmarks, so no input files are required and the
+ * size of the problem can be chosen with a JMH parameter.
+ * <p>
+ * The network is a square grid of <code>gridSize</code> x <code>gridSize</code> nodes with links in both directions.
+ * Link lengths and speeds are drawn from a seeded random generator, so all benchmarks see the same scenario for
+ * the same size.
+ */
+public final class BenchmarkScenarios {
+
+	public static final double NODE_DISTANCE = 200.0;
+	private static final long SEED = 4711;
+
+	private BenchmarkScenarios() {
+	}
+
+	/**
+	 * @return an empty scenario, with scoring parameters for the activity types of {@link #createPopulation}.
+	 */
+	public static Scenario createScenario() {
+		Config config = ConfigUtils.createConfig();
+		for (String actType : new String[] {"home", "work"}) {
+			ActivityParams params = new ActivityParams(actType);
+			params.setTypicalDuration(actType.equals("home") ? 16 * 3600 : 8 * 3600);
+			config.planCalcScore().addActivityParams(params);
+		}
+		return ScenarioUtils.createScenario(config);
+	}
+
+	public static Node getNode(Network network, int x, int y) {
+		return network.getNodes().get(Id.createNodeId(x + "_" + y));
+	}
+
+	public static void createGridNetwork(Network network, int gridSize) {
+		Random random = new Random(SEED);
+		NetworkFactory nf = network.getFactory();
+		Node[][] nodes = new Node[gridSize][gridSize];
+		for (int x = 0; x < gridSize; x++) {
+			for (int y = 0; y < gridSize; y++) {
+				nodes[x][y] = nf.createNode(Id.createNodeId(x + "_" + y), new Coord(x * NODE_DISTANCE, y * NODE_DISTANCE));
+				network.addNode(nodes[x][y]);
+			}
+		}
+		for (int x = 0; x < gridSize; x++) {
+			for (int y = 0; y < gridSize; y++) {
+				if (x + 1 < gridSize) {
+					addLink(network, nodes[x][y], nodes[x + 1][y], random);
+					addLink(network, nodes[x + 1][y], nodes[x][y], random);
+				}
+				if (y + 1 < gridSize) {
+					addLink(network, nodes[x][y], nodes[x][y + 1], random);
+					addLink(network, nodes[x][y + 1], nodes[x][y], random);
+				}
+			}
+		}
+	}
+
+	private static void addLink(Network network, Node fromNode, Node toNode, Random random) {
+		Link link = network.getFactory().createLink(Id.createLinkId(fromNode.getId() + "-" + toNode.getId()), fromNode, toNode);
+		link.setLength(NODE_DISTANCE * (1.0 + 0.5 * random.nextDouble()));
+		link.setFreespeed(random.nextBoolean() ? 13.89 : 8.33);
+		link.setCapacity(random.nextBoolean() ? 1800 : 900);
+		link.setNumberOfLanes(1);
+		network.addLink(link);
+	}
+
+	/**
+	 * Creates persons with a home-work-home plan each, with car legs routed on the free speed network. The network
+	 * must already exist in the scenario.
+	 */
+	public static void createPopulation(Scenario scenario, int personCount) {
+		Random random = new Random(SEED);
+		Network network = scenario.getNetwork();
+		Population population = scenario.getPopulation();
+		PopulationFactory pf = population.getFactory();
+		List<Link> links = new ArrayList<>(network.getLinks().values());
+		FreespeedTravelTimeAndDisutility tc = new FreespeedTravelTimeAndDisutility(scenario.getConfig().planCalcScore());
+		LeastCostPathCalculator router = new SpeedyDijkstra(new SpeedyGraph(network), tc, tc);
+
+		for (int i = 0; i < personCount; i++) {
+			Person person = pf.createPerson(Id.createPersonId(i));
+			Plan plan = pf.createPlan();
+			Link homeLink = links.get(random.nextInt(links.size()));
+			Link workLink = links.get(random.nextInt(links.size()));
+			double departure = 6 * 3600 + random.nextInt(3 * 3600);
+
+			Activity home = pf.createActivityFromLinkId("home", homeLink.getId());
+			home.setCoord(homeLink.getCoord());
+			home.setEndTime(departure);
+			plan.addActivity(home);
+			plan.addLeg(createCarLeg(pf, router, homeLink, workLink, departure));
+			Activity work = pf.createActivityFromLinkId("work", workLink.getId());
+			work.setCoord(workLink.getCoord());
+			work.setEndTime(departure + 8 * 3600);
+			plan.addActivity(work);
+			plan.addLeg(createCarLeg(pf, router, workLink, homeLink, departure + 8 * 3600));
+			Activity home2 = pf.createActivityFromLinkId("home", homeLink.getId());
+			home2.setCoord(homeLink.getCoord());
+			plan.addActivity(home2);
+
+			person.addPlan(plan);
+			population.addPerson(person);
+		}
+	}
+
+	private static Leg createCarLeg(PopulationFactory pf, LeastCostPathCalculator router, Link fromLink, Link toLink, double departure) {
+		Leg leg = pf.createLeg(TransportMode.car);
+		leg.setDepartureTime(departure);
+		if (fromLink == toLink) {
+			leg.setRoute(RouteUtils.createLinkNetworkRouteImpl(fromLink.getId(), toLink.getId()));
+			return leg;
+		}
+		Path path = router.calcLeastCostPath(fromLink.getToNode(), toLink.getFromNode(), departure, null, null);
+		List<Id<Link>> linkIds = new ArrayList<>(path.links.size());
+		for (Link link : path.links) {
+			linkIds.add(link.getId());
+		}
+		leg.setRoute(RouteUtils.createLinkNetworkRouteImpl(fromLink.getId(), linkIds, toLink.getId()));
+		leg.setTravelTime(path.travelTime);
+		return leg;
+	}
+
+	/**
+	 * Creates a transit line along every <code>lineSpacing</code>-th row and column of the grid, in both directions,
+	 * with a stop at every node. Lines cross at shared stops, so routes with transfers are possible. The grid network
+	 * must already exist in the scenario.
+	 */
+	public static void createTransitSchedule(Scenario scenario, int gridSize, int lineSpacing, double headway) {
+		Network network = scenario.getNetwork();
+		TransitSchedule schedule = scenario.getTransitSchedule();
+		TransitScheduleFactory sf = schedule.getFactory();
+		TransitStopFacility[][] stops = new TransitStopFacility[gridSize][gridSize];
+		for (int x = 0; x < gridSize; x++) {
+			for (int y = 0; y < gridSize; y++) {
+				Node node = getNode(network, x, y);
+				TransitStopFacility stop = sf.createTransitStopFacility(Id.create(node.getId(), TransitStopFacility.class), node.getCoord(), false);
+				schedule.addStopFacility(stop);
+				stops[x][y] = stop;
+			}
+		}
+		int lineIndex = 0;
+		for (int i = 0; i < gridSize; i += lineSpacing) {
+			List<Node> row = new ArrayList<>();
+			List<Node> column = new ArrayList<>();
+			for (int j = 0; j < gridSize; j++) {
+				row.add(getNode(network, j, i));
+				column.add(getNode(network, i, j));
+			}
+			addLine(schedule, stops, "line" + (lineIndex++), row, headway);
+			addLine(schedule, stops, "line" + (lineIndex++), column, headway);
+		}
+	}
+
+	private static void addLine(TransitSchedule schedule, TransitStopFacility[][] stops, String lineId, List<Node> nodes, double headway) {
+		TransitScheduleFactory sf = schedule.getFactory();
+		TransitLine line = sf.createTransitLine(Id.create(lineId, TransitLine.class));
+		for (int direction = 0; direction < 2; direction++) {
+			List<Node> routeNodes = new ArrayList<>(nodes);
+			if (direction == 1) {
+				Collections.reverse(routeNodes);
+			}
+			List<Id<Link>> linkIds = new ArrayList<>();
+			List<TransitRouteStop> routeStops = new ArrayList<>();
+			double offset = 0;
+			for (int i = 0; i < routeNodes.size(); i++) {
+				Node node = routeNodes.get(i);
+				if (i > 0) {
+					Link link = findLink(routeNodes.get(i - 1), node);
+					linkIds.add(link.getId());
+					offset += Math.ceil(link.getLength() / link.getFreespeed()) + 30;
+				}
+				TransitStopFacility stop = stops[(int) (node.getCoord().getX() / NODE_DISTANCE)][(int) (node.getCoord().getY() / NODE_DISTANCE)];
+				routeStops.add(sf.createTransitRouteStop(stop, offset, offset));
+			}
+			Id<Link> startLinkId = linkIds.get(0);
+			Id<Link> endLinkId = linkIds.get(linkIds.size() - 1);
+			TransitRoute route = sf.createTransitRoute(Id.create(lineId + "_" + direction, TransitRoute.class),
+					RouteUtils.createLinkNetworkRouteImpl(startLinkId, linkIds.subList(1, Math.max(1, linkIds.size() - 1)), endLinkId),
+					routeStops, "bus");
+			int departureIndex = 0;
+			for (double time = 5 * 3600; time < 24 * 3600; time += headway) {
+				route.addDeparture(sf.createDeparture(Id.create(departureIndex++, Departure.class), time));
+			}
+			line.addRoute(route);
+		}
+		schedule.addTransitLine(line);
+	}
+
+	private static Link findLink(Node fromNode, Node toNode) {
+		for (Link link : fromNode.getOutLinks().values()) {
+			if (link.getToNode() == toNode) {
+				return link;
+			}
+		}
+		throw new IllegalArgumentException("no link from " + fromNode.getId() + " to " + toNode.getId());
+	}
+
+}
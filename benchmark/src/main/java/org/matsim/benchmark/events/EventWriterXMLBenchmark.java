@@ -0,0 +1,109 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * EventWriterXMLBenchmark.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2022 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+
+package org.matsim.benchmark.events;
+
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.api.core.v01.events.LinkEnterEvent;
+import org.matsim.api.core.v01.events.LinkLeaveEvent;
+import org.matsim.api.core.v01.events.PersonDepartureEvent;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.events.algorithms.EventWriterXML;
+import org.matsim.vehicles.Vehicle;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Measures how many events per second {@link EventWriterXML} can format. The output is discarded, so the
+ * measurement does not depend on the speed of the disk.
+ * <p>
+ * Run with <code>java -cp matsim-benchmark.jar org.matsim.benchmark.events.EventWriterXMLBenchmark</code>.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EventWriterXMLBenchmark {
+
+	private static final int EVENTS = 10000;
+
+	private EventWriterXML writer;
+	private Event[] events;
+
+	@Setup
+	public void setup() {
+		this.writer = new EventWriterXML(new NullOutputStream());
+		this.events = new Event[EVENTS];
+		for (int i = 0; i < EVENTS; i += 3) {
+			Id<Vehicle> vehicleId = Id.create(i % 1000, Vehicle.class);
+			Id<Link> linkId = Id.create(i % 5000, Link.class);
+			this.events[i] = new LinkEnterEvent(i, vehicleId, linkId);
+			if (i + 1 < EVENTS) {
+				this.events[i + 1] = new LinkLeaveEvent(i + 1, vehicleId, linkId);
+			}
+			if (i + 2 < EVENTS) {
+				this.events[i + 2] = new PersonDepartureEvent(i + 2, Id.create(i % 1000, Person.class), linkId, "car");
+			}
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(EVENTS)
+	public void writeEvents() {
+		for (Event event : this.events) {
+			this.writer.handleEvent(event);
+		}
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		new Runner(new OptionsBuilder().include(EventWriterXMLBenchmark.class.getSimpleName()).build()).run();
+	}
+
+	private static class NullOutputStream extends OutputStream {
+		@Override
+		public void write(int b) {
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) {
+		}
+	}
+
+}
@@ -0,0 +1,176 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * EventsManagerBenchmark.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2022 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+
+package org.matsim.benchmark.events;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.concurrent.TimeUnit;
+
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.api.core.v01.events.LinkEnterEvent;
+import org.matsim.api.core.v01.events.handler.LinkEnterEventHandler;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.events.EventsManagerImpl;
+import org.matsim.core.events.handler.EventHandler;
+import org.matsim.vehicles.Vehicle;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Measures how many events per second {@link EventsManagerImpl} passes to its handlers, for a core event type and
+ * for an event type defined outside of the core (as all events of contribs are).
+ * <p>
+ * The <code>reflection*</code> benchmarks call the handlers the way <code>EventsManagerImpl</code> used to for all
+ * events not known to the core: within a lock on the handler, through {@link Method#invoke}. They serve as baseline.
+ * <p>
+ * Run with <code>java -cp matsim-benchmark.jar org.matsim.benchmark.events.EventsManagerBenchmark</code>.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EventsManagerBenchmark {
+
+	private static final int EVENTS = 10000;
+
+	private EventsManager eventsManager;
+	private LinkEnterEvent[] linkEnterEvents;
+	private CustomEvent[] customEvents;
+
+	private CountingHandler handler;
+	private Method linkEnterMethod;
+	private Method customMethod;
+
+	@Setup
+	public void setup() throws NoSuchMethodException {
+		this.handler = new CountingHandler();
+		this.eventsManager = new EventsManagerImpl();
+		this.eventsManager.addHandler(this.handler);
+
+		this.linkEnterEvents = new LinkEnterEvent[EVENTS];
+		this.customEvents = new CustomEvent[EVENTS];
+		for (int i = 0; i < EVENTS; i++) {
+			this.linkEnterEvents[i] = new LinkEnterEvent(i, Id.create(i % 100, Vehicle.class), Id.create(i % 1000, Link.class));
+			this.customEvents[i] = new CustomEvent(i);
+		}
+
+		this.linkEnterMethod = LinkEnterEventHandler.class.getMethod("handleEvent", LinkEnterEvent.class);
+		this.customMethod = CustomEventHandler.class.getMethod("handleEvent", CustomEvent.class);
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(EVENTS)
+	public int eventsManagerCoreEvents() {
+		for (LinkEnterEvent event : this.linkEnterEvents) {
+			this.eventsManager.processEvent(event);
+		}
+		return this.handler.count;
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(EVENTS)
+	public int eventsManagerCustomEvents() {
+		for (CustomEvent event : this.customEvents) {
+			this.eventsManager.processEvent(event);
+		}
+		return this.handler.count;
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(EVENTS)
+	public int reflectionCoreEvents() throws InvocationTargetException, IllegalAccessException {
+		for (LinkEnterEvent event : this.linkEnterEvents) {
+			synchronized (this.handler) {
+				this.linkEnterMethod.invoke(this.handler, event);
+			}
+		}
+		return this.handler.count;
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(EVENTS)
+	public int reflectionCustomEvents() throws InvocationTargetException, IllegalAccessException {
+		for (CustomEvent event : this.customEvents) {
+			synchronized (this.handler) {
+				this.customMethod.invoke(this.handler, event);
+			}
+		}
+		return this.handler.count;
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		new Runner(new OptionsBuilder().include(EventsManagerBenchmark.class.getSimpleName()).build()).run();
+	}
+
+	public static class CustomEvent extends Event {
+
+		public CustomEvent(double time) {
+			super(time);
+		}
+
+		@Override
+		public String getEventType() {
+			return "custom";
+		}
+	}
+
+	public interface CustomEventHandler extends EventHandler {
+		void handleEvent(CustomEvent event);
+	}
+
+	public static class CountingHandler implements LinkEnterEventHandler, CustomEventHandler {
+
+		private int count = 0;
+
+		@Override
+		public void handleEvent(LinkEnterEvent event) {
+			this.count++;
+		}
+
+		@Override
+		public void handleEvent(CustomEvent event) {
+			this.count++;
+		}
+
+		@Override
+		public void reset(int iteration) {
+			this.count = 0;
+		}
+	}
+
+}
@@ -0,0 +1,98 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * QSimBenchmark.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2022 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+
+package org.matsim.benchmark.mobsim;
+
+import java.util.concurrent.TimeUnit;
+
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.benchmark.BenchmarkScenarios;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.controler.PrepareForSimUtils;
+import org.matsim.core.events.EventsUtils;
+import org.matsim.core.mobsim.qsim.QSim;
+import org.matsim.core.mobsim.qsim.QSimBuilder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Measures the duration of a complete QSim run with car traffic on a grid network. No event handlers are registered,
+ * so the run time is dominated by moving vehicles through the links (<code>QueueWithBuffer</code>) and across the
+ * nodes (<code>QNodeImpl.moveNode</code>), which cannot be measured in isolation as they are internal to the QSim.
+ * <p>
+ * Run with <code>java -cp matsim-benchmark.jar org.matsim.benchmark.mobsim.QSimBenchmark</code>.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class QSimBenchmark {
+
+	@Param({"50"})
+	public int gridSize;
+
+	@Param({"10000", "50000"})
+	public int agents;
+
+	@Param({"1", "4"})
+	public int numberOfThreads;
+
+	private Scenario scenario;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		this.scenario = BenchmarkScenarios.createScenario();
+		this.scenario.getConfig().qsim().setNumberOfThreads(this.numberOfThreads);
+		BenchmarkScenarios.createGridNetwork(this.scenario.getNetwork(), this.gridSize);
+		BenchmarkScenarios.createPopulation(this.scenario, this.agents);
+		PrepareForSimUtils.createDefaultPrepareForSim(this.scenario).run();
+	}
+
+	@Benchmark
+	public double runQSim() {
+		EventsManager events = EventsUtils.createEventsManager(this.scenario.getConfig());
+		QSim qsim = new QSimBuilder(this.scenario.getConfig())
+				.useDefaults()
+				.build(this.scenario, events);
+		qsim.run();
+		return qsim.getSimTimer().getTimeOfDay();
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		new Runner(new OptionsBuilder().include(QSimBenchmark.class.getSimpleName()).build()).run();
+	}
+
+}
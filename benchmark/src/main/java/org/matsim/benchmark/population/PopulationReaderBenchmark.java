@@ -0,0 +1,97 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * PopulationReaderBenchmark.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2022 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+
+package org.matsim.benchmark.population;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.benchmark.BenchmarkScenarios;
+import org.matsim.core.population.io.PopulationReader;
+import org.matsim.core.population.io.PopulationWriter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Measures how long it takes to parse a population file with routed car plans. The file is generated before the
+ * measurement and is written uncompressed, so the measurement does not include decompression.
+ * <p>
+ * Run with <code>java -cp matsim-benchmark.jar org.matsim.benchmark.population.PopulationReaderBenchmark</code>.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class PopulationReaderBenchmark {
+
+	@Param({"50"})
+	public int gridSize;
+
+	@Param({"10000", "100000"})
+	public int persons;
+
+	private File populationFile;
+
+	@Setup(Level.Trial)
+	public void setup() throws IOException {
+		Scenario scenario = BenchmarkScenarios.createScenario();
+		BenchmarkScenarios.createGridNetwork(scenario.getNetwork(), this.gridSize);
+		BenchmarkScenarios.createPopulation(scenario, this.persons);
+		this.populationFile = Files.createTempFile("matsim-benchmark-plans", ".xml").toFile();
+		new PopulationWriter(scenario.getPopulation()).write(this.populationFile.getAbsolutePath());
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		this.populationFile.delete();
+	}
+
+	@Benchmark
+	public int readPopulation() {
+		Scenario scenario = BenchmarkScenarios.createScenario();
+		new PopulationReader(scenario).readFile(this.populationFile.getAbsolutePath());
+		return scenario.getPopulation().getPersons().size();
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		new Runner(new OptionsBuilder().include(PopulationReaderBenchmark.class.getSimpleName()).build()).run();
+	}
+
+}
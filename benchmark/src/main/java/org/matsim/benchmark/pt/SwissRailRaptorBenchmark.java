@@ -0,0 +1,127 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * SwissRailRaptorBenchmark.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2022 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+
+package org.matsim.benchmark.pt;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.population.Leg;
+import org.matsim.benchmark.BenchmarkScenarios;
+import org.matsim.facilities.ActivityFacilitiesFactory;
+import org.matsim.facilities.ActivityFacility;
+import org.matsim.facilities.FacilitiesUtils;
+import org.matsim.facilities.Facility;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import ch.sbb.matsim.routing.pt.raptor.RaptorUtils;
+import ch.sbb.matsim.routing.pt.raptor.SwissRailRaptor;
+import ch.sbb.matsim.routing.pt.raptor.SwissRailRaptorData;
+
+/**
+ * Measures the time of a transit route query between random coordinates with {@link SwissRailRaptor}, on a grid of
+ * bus lines generated by {@link BenchmarkScenarios#createTransitSchedule}. The preparation of the
+ * {@link SwissRailRaptorData} is not part of the measurement.
+ * <p>
+ * Run with <code>java -cp matsim-benchmark.jar org.matsim.benchmark.pt.SwissRailRaptorBenchmark</code>.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SwissRailRaptorBenchmark {
+
+	private static final int QUERIES = 100;
+
+	@Param({"20", "50"})
+	public int gridSize;
+
+	/** every how many rows and columns of the grid a bus line runs */
+	@Param({"2"})
+	public int lineSpacing;
+
+	private SwissRailRaptor raptor;
+	private Facility[] fromFacilities;
+	private Facility[] toFacilities;
+	private double[] departureTimes;
+
+	@Setup
+	public void setup() {
+		Scenario scenario = BenchmarkScenarios.createScenario();
+		BenchmarkScenarios.createGridNetwork(scenario.getNetwork(), this.gridSize);
+		BenchmarkScenarios.createTransitSchedule(scenario, this.gridSize, this.lineSpacing, 600);
+		SwissRailRaptorData data = SwissRailRaptorData.create(scenario.getTransitSchedule(), null,
+				RaptorUtils.createStaticConfig(scenario.getConfig()), scenario.getNetwork(), null);
+		this.raptor = new SwissRailRaptor.Builder(data, scenario.getConfig()).build();
+
+		ActivityFacilitiesFactory ff = FacilitiesUtils.createActivityFacilities().getFactory();
+		Random random = new Random(20221018);
+		double extent = (this.gridSize - 1) * BenchmarkScenarios.NODE_DISTANCE;
+		this.fromFacilities = new Facility[QUERIES];
+		this.toFacilities = new Facility[QUERIES];
+		this.departureTimes = new double[QUERIES];
+		for (int i = 0; i < QUERIES; i++) {
+			this.fromFacilities[i] = ff.createActivityFacility(Id.create("from" + i, ActivityFacility.class),
+					new Coord(random.nextDouble() * extent, random.nextDouble() * extent));
+			this.toFacilities[i] = ff.createActivityFacility(Id.create("to" + i, ActivityFacility.class),
+					new Coord(random.nextDouble() * extent, random.nextDouble() * extent));
+			this.departureTimes[i] = 6 * 3600 + random.nextInt(12 * 3600);
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(QUERIES)
+	public int calcRoute() {
+		int legs = 0;
+		for (int i = 0; i < QUERIES; i++) {
+			List<Leg> route = this.raptor.calcRoute(this.fromFacilities[i], this.toFacilities[i], this.departureTimes[i], null);
+			if (route != null) {
+				legs += route.size();
+			}
+		}
+		return legs;
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		new Runner(new OptionsBuilder().include(SwissRailRaptorBenchmark.class.getSimpleName()).build()).run();
+	}
+
+}
@@ -0,0 +1,126 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * LeastCostPathBenchmark.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2022 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+
+package org.matsim.benchmark.router;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.benchmark.BenchmarkScenarios;
+import org.matsim.core.config.groups.PlanCalcScoreConfigGroup;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.router.costcalculators.FreespeedTravelTimeAndDisutility;
+import org.matsim.core.router.speedy.SpeedyALTFactory;
+import org.matsim.core.router.speedy.SpeedyCHFactory;
+import org.matsim.core.router.speedy.SpeedyDijkstraFactory;
+import org.matsim.core.router.util.LeastCostPathCalculator;
+import org.matsim.core.router.util.LeastCostPathCalculator.Path;
+import org.matsim.core.router.util.LeastCostPathCalculatorFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Measures the time of a least cost path query between random nodes of a grid network, for the different speedy
+ * routing algorithms. The preprocessing of the algorithms (landmarks, contraction) is done in the setup and is not
+ * part of the measurement.
+ * <p>
+ * Run with <code>java -cp matsim-benchmark.jar org.matsim.benchmark.router.LeastCostPathBenchmark</code>.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LeastCostPathBenchmark {
+
+	private static final int QUERIES = 100;
+
+	@Param({"50", "200"})
+	public int gridSize;
+
+	@Param({"SpeedyDijkstra", "SpeedyALT", "SpeedyCH"})
+	public String algorithm;
+
+	private LeastCostPathCalculator router;
+	private Node[] fromNodes;
+	private Node[] toNodes;
+
+	@Setup
+	public void setup() {
+		Network network = NetworkUtils.createNetwork();
+		BenchmarkScenarios.createGridNetwork(network, this.gridSize);
+		FreespeedTravelTimeAndDisutility tc = new FreespeedTravelTimeAndDisutility(new PlanCalcScoreConfigGroup());
+		this.router = createFactory(this.algorithm).createPathCalculator(network, tc, tc);
+
+		Random random = new Random(20221018);
+		this.fromNodes = new Node[QUERIES];
+		this.toNodes = new Node[QUERIES];
+		for (int i = 0; i < QUERIES; i++) {
+			this.fromNodes[i] = BenchmarkScenarios.getNode(network, random.nextInt(this.gridSize), random.nextInt(this.gridSize));
+			this.toNodes[i] = BenchmarkScenarios.getNode(network, random.nextInt(this.gridSize), random.nextInt(this.gridSize));
+		}
+	}
+
+	private static LeastCostPathCalculatorFactory createFactory(String algorithm) {
+		switch (algorithm) {
+			case "SpeedyDijkstra":
+				return new SpeedyDijkstraFactory();
+			case "SpeedyALT":
+				return new SpeedyALTFactory();
+			case "SpeedyCH":
+				return new SpeedyCHFactory();
+			default:
+				throw new IllegalArgumentException("unknown routing algorithm: " + algorithm);
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(QUERIES)
+	public double calcLeastCostPath() {
+		double sum = 0;
+		for (int i = 0; i < QUERIES; i++) {
+			Path path = this.router.calcLeastCostPath(this.fromNodes[i], this.toNodes[i], 8 * 3600, null, null);
+			sum += path.travelCost;
+		}
+		return sum;
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		new Runner(new OptionsBuilder().include(LeastCostPathBenchmark.class.getSimpleName()).build()).run();
+	}
+
+}
@@ -20,6 +20,9 @@
 
 package org.matsim.contrib.drt.optimizer;
 
+import java.util.Collections;
+
+import org.matsim.analysis.IterationMetrics;
 import org.matsim.api.core.v01.network.Network;
 import org.matsim.contrib.drt.optimizer.depot.DepotFinder;
 import org.matsim.contrib.drt.optimizer.depot.NearestStartLinkAsDepot;
@@ -28,6 +31,7 @@ import org.matsim.contrib.drt.optimizer.insertion.DefaultUnplannedRequestInserte
 import org.matsim.contrib.drt.optimizer.insertion.DrtInsertionSearch;
 import org.matsim.contrib.drt.optimizer.insertion.ExtensiveInsertionSearchParams;
 import org.matsim.contrib.drt.optimizer.insertion.ExtensiveInsertionSearchQSimModule;
+import org.matsim.contrib.drt.optimizer.insertion.ParallelInsertionSearches;
 import org.matsim.contrib.drt.optimizer.insertion.SelectiveInsertionSearchParams;
 import org.matsim.contrib.drt.optimizer.insertion.SelectiveInsertionSearchQSimModule;
 import org.matsim.contrib.drt.optimizer.insertion.UnplannedRequestInserter;
@@ -87,13 +91,30 @@ public class DrtModeOptimizerQSimModule extends AbstractDvrpModeQSimModule {
 		addModalComponent(QSimScopeForkJoinPoolHolder.class,
 				() -> new QSimScopeForkJoinPoolHolder(drtCfg.getNumberOfThreads()));
 
-		bindModal(UnplannedRequestInserter.class).toProvider(modalProvider(
-				getter -> new DefaultUnplannedRequestInserter(drtCfg, getter.getModal(Fleet.class),
-						getter.get(MobsimTimer.class), getter.get(EventsManager.class),
-						getter.getModal(RequestInsertionScheduler.class),
-						getter.getModal(VehicleEntry.EntryFactory.class),
-						getter.getModal(new TypeLiteral<DrtInsertionSearch<PathData>>() {
-						}), getter.getModal(QSimScopeForkJoinPoolHolder.class).getPool()))).asEagerSingleton();
+		bindModal(UnplannedRequestInserter.class).toProvider(new ModalProviders.AbstractProvider<>(drtCfg.getMode()) {
+			@Inject
+			private MobsimTimer timer;
+
+			@Inject
+			private EventsManager eventsManager;
+
+			// not bound when running without controler; a disabled instance does not record anything
+			@Inject(optional = true)
+			private IterationMetrics iterationMetrics = new IterationMetrics();
+
+			@Override
+			public UnplannedRequestInserter get() {
+				return new DefaultUnplannedRequestInserter(drtCfg, getModalInstance(Fleet.class), timer, eventsManager,
+						getModalInstance(RequestInsertionScheduler.class),
+						getModalInstance(VehicleEntry.EntryFactory.class),
+						getModalInstance(new TypeLiteral<DrtInsertionSearch<PathData>>() {
+						}), getModalInstance(QSimScopeForkJoinPoolHolder.class).getPool(),
+						drtCfg.getNumberOfParallelInsertionSearches() > 1 ?
+								getModalInstance(ParallelInsertionSearches.class).getSearches() :
+								Collections.emptyList(),
+						iterationMetrics);
+			}
+		}).asEagerSingleton();
 
 		install(getInsertionSearchQSimModule(drtCfg));
 
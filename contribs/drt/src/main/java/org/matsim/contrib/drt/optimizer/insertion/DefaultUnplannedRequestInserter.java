@@ -19,17 +19,22 @@
 
 package org.matsim.contrib.drt.optimizer.insertion;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
 import java.util.concurrent.ForkJoinPool;
 import java.util.function.DoubleSupplier;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import org.apache.log4j.Logger;
+import org.matsim.analysis.IterationMetrics;
 import org.matsim.api.core.v01.Id;
 import org.matsim.contrib.drt.optimizer.VehicleEntry;
 import org.matsim.contrib.drt.passenger.DrtRequest;
@@ -63,13 +68,35 @@ public class DefaultUnplannedRequestInserter implements UnplannedRequestInserter
 	private final ForkJoinPool forkJoinPool;
 	private final DrtInsertionSearch<PathData> insertionSearch;
 
+	// independent searches to process the requests of one time step in parallel; empty if requests are inserted one by one
+	private final List<DrtInsertionSearch<PathData>> parallelInsertionSearches;
+	private final IterationMetrics iterationMetrics;
+	private final String insertionTimeMetric;
+	private final String batchSizeMetric;
+	private final String conflictsMetric;
+
 	public DefaultUnplannedRequestInserter(DrtConfigGroup drtCfg, Fleet fleet, MobsimTimer mobsimTimer,
 			EventsManager eventsManager, RequestInsertionScheduler insertionScheduler,
 			VehicleEntry.EntryFactory vehicleEntryFactory, DrtInsertionSearch<PathData> insertionSearch,
 			ForkJoinPool forkJoinPool) {
+		this(drtCfg, fleet, mobsimTimer, eventsManager, insertionScheduler, vehicleEntryFactory, insertionSearch,
+				forkJoinPool, Collections.emptyList(), new IterationMetrics());
+	}
+
+	/**
+	 * @param parallelInsertionSearches if not empty, all requests of a time step are searched in parallel with these
+	 *                                  searches (see {@link ParallelInsertionSearches})
+	 * @param iterationMetrics          receives the time spent per time step and the batch sizes
+	 */
+	public DefaultUnplannedRequestInserter(DrtConfigGroup drtCfg, Fleet fleet, MobsimTimer mobsimTimer,
+			EventsManager eventsManager, RequestInsertionScheduler insertionScheduler,
+			VehicleEntry.EntryFactory vehicleEntryFactory, DrtInsertionSearch<PathData> insertionSearch,
+			ForkJoinPool forkJoinPool, List<DrtInsertionSearch<PathData>> parallelInsertionSearches,
+			IterationMetrics iterationMetrics) {
 		this(drtCfg.getMode(), fleet, mobsimTimer::getTimeOfDay, eventsManager, insertionScheduler, vehicleEntryFactory,
 				new DrtRequestInsertionRetryQueue(drtCfg.getDrtRequestInsertionRetryParams().
-						orElse(new DrtRequestInsertionRetryParams())), forkJoinPool, insertionSearch);
+						orElse(new DrtRequestInsertionRetryParams())), forkJoinPool, insertionSearch,
+				parallelInsertionSearches, iterationMetrics);
 	}
 
 	@VisibleForTesting
@@ -77,6 +104,16 @@ public class DefaultUnplannedRequestInserter implements UnplannedRequestInserter
 			RequestInsertionScheduler insertionScheduler, VehicleEntry.EntryFactory vehicleEntryFactory,
 			DrtRequestInsertionRetryQueue insertionRetryQueue, ForkJoinPool forkJoinPool,
 			DrtInsertionSearch<PathData> insertionSearch) {
+		this(mode, fleet, timeOfDay, eventsManager, insertionScheduler, vehicleEntryFactory, insertionRetryQueue,
+				forkJoinPool, insertionSearch, Collections.emptyList(), new IterationMetrics());
+	}
+
+	@VisibleForTesting
+	DefaultUnplannedRequestInserter(String mode, Fleet fleet, DoubleSupplier timeOfDay, EventsManager eventsManager,
+			RequestInsertionScheduler insertionScheduler, VehicleEntry.EntryFactory vehicleEntryFactory,
+			DrtRequestInsertionRetryQueue insertionRetryQueue, ForkJoinPool forkJoinPool,
+			DrtInsertionSearch<PathData> insertionSearch, List<DrtInsertionSearch<PathData>> parallelInsertionSearches,
+			IterationMetrics iterationMetrics) {
 		this.mode = mode;
 		this.fleet = fleet;
 		this.timeOfDay = timeOfDay;
@@ -86,6 +123,11 @@ public class DefaultUnplannedRequestInserter implements UnplannedRequestInserter
 		this.insertionRetryQueue = insertionRetryQueue;
 		this.forkJoinPool = forkJoinPool;
 		this.insertionSearch = insertionSearch;
+		this.parallelInsertionSearches = List.copyOf(parallelInsertionSearches);
+		this.iterationMetrics = iterationMetrics;
+		this.insertionTimeMetric = "drt." + mode + ".insertion";
+		this.batchSizeMetric = "drt." + mode + ".insertionBatchSize";
+		this.conflictsMetric = "drt." + mode + ".insertionConflicts";
 	}
 
 	@Override
@@ -96,6 +138,7 @@ public class DefaultUnplannedRequestInserter implements UnplannedRequestInserter
 		if (unplannedRequests.isEmpty() && requestsToRetry.isEmpty()) {
 			return;
 		}
+		long start = System.nanoTime();
 
 		var vehicleEntries = forkJoinPool.submit(() -> fleet.getVehicles()
 				.values()
@@ -104,20 +147,82 @@ public class DefaultUnplannedRequestInserter implements UnplannedRequestInserter
 				.filter(Objects::nonNull)
 				.collect(Collectors.toMap(e -> e.vehicle.getId(), e -> e))).join();
 
-		//first retry scheduling old requests
-		requestsToRetry.forEach(req -> scheduleUnplannedRequest(req, vehicleEntries, now));
+		if (parallelInsertionSearches.isEmpty()) {
+			//first retry scheduling old requests
+			requestsToRetry.forEach(req -> scheduleUnplannedRequest(req, vehicleEntries, now));
 
-		//then schedule new requests
-		for (var reqIter = unplannedRequests.iterator(); reqIter.hasNext(); ) {
-			scheduleUnplannedRequest(reqIter.next(), vehicleEntries, now);
-			reqIter.remove();
+			//then schedule new requests
+			for (var reqIter = unplannedRequests.iterator(); reqIter.hasNext(); ) {
+				scheduleUnplannedRequest(reqIter.next(), vehicleEntries, now);
+				reqIter.remove();
+			}
+		} else {
+			// same order as above: first the old requests, then the new ones
+			List<DrtRequest> requests = new ArrayList<>(requestsToRetry.size() + unplannedRequests.size());
+			requests.addAll(requestsToRetry);
+			requests.addAll(unplannedRequests);
+			unplannedRequests.clear();
+			scheduleRequestBatch(requests, vehicleEntries, now);
 		}
+
+		iterationMetrics.addTime(insertionTimeMetric, System.nanoTime() - start);
 	}
 
 	private void scheduleUnplannedRequest(DrtRequest req, Map<Id<DvrpVehicle>, VehicleEntry> vehicleEntries,
 			double now) {
 		Optional<InsertionWithDetourData<PathData>> best = insertionSearch.findBestInsertion(req,
 				Collections.unmodifiableCollection(vehicleEntries.values()));
+		scheduleInsertion(req, best, vehicleEntries, now);
+	}
+
+	/**
+	 * Searches the best insertions of all requests in parallel, all against the vehicle entries at the beginning of
+	 * the time step. The requests are then scheduled in their original order. If the vehicle of the found insertion
+	 * was already assigned another request of the batch, its entry has changed and the insertion may not be valid
+	 * any more, so the search is repeated for this request with the updated entries. A request without any insertion
+	 * at the beginning of the time step is searched again as well once another request was scheduled, as the changed
+	 * schedule of that vehicle might allow an insertion now (e.g. by sharing a stop). Thus, a request is only
+	 * rejected if the sequential insertion would reject it, too. Each search only depends on its request and the
+	 * entries, so the assignments do not depend on the thread scheduling.
+	 * <p>
+	 * The assignments may still differ from the sequential insertion: an insertion found into a vehicle which was not
+	 * modified in the meantime is kept, even if a modified vehicle would now offer a cheaper insertion.
+	 */
+	private void scheduleRequestBatch(List<DrtRequest> requests, Map<Id<DvrpVehicle>, VehicleEntry> vehicleEntries,
+			double now) {
+		Collection<VehicleEntry> initialEntries = Collections.unmodifiableCollection(new ArrayList<>(vehicleEntries.values()));
+		List<Optional<InsertionWithDetourData<PathData>>> results = new ArrayList<>(
+				Collections.nCopies(requests.size(), Optional.empty()));
+		int searchCount = Math.min(parallelInsertionSearches.size(), requests.size());
+		forkJoinPool.submit(() -> IntStream.range(0, searchCount).parallel().forEach(s -> {
+			DrtInsertionSearch<PathData> search = parallelInsertionSearches.get(s);
+			for (int i = s; i < requests.size(); i += searchCount) {
+				results.set(i, search.findBestInsertion(requests.get(i), initialEntries));
+			}
+		})).join();
+
+		Set<Id<DvrpVehicle>> modifiedVehicles = new HashSet<>();
+		int conflicts = 0;
+		for (int i = 0; i < requests.size(); i++) {
+			DrtRequest req = requests.get(i);
+			Optional<InsertionWithDetourData<PathData>> best = results.get(i);
+			boolean outdated = best.isPresent() ?
+					modifiedVehicles.contains(best.get().getVehicleEntry().vehicle.getId()) :
+					!modifiedVehicles.isEmpty();
+			if (outdated) {
+				conflicts++;
+				best = insertionSearch.findBestInsertion(req, Collections.unmodifiableCollection(vehicleEntries.values()));
+			}
+			best.ifPresent(insertion -> modifiedVehicles.add(insertion.getVehicleEntry().vehicle.getId()));
+			scheduleInsertion(req, best, vehicleEntries, now);
+		}
+
+		iterationMetrics.addValue(batchSizeMetric, requests.size());
+		iterationMetrics.addValue(conflictsMetric, conflicts);
+	}
+
+	private void scheduleInsertion(DrtRequest req, Optional<InsertionWithDetourData<PathData>> best,
+			Map<Id<DvrpVehicle>, VehicleEntry> vehicleEntries, double now) {
 		if (best.isEmpty()) {
 			if (!insertionRetryQueue.tryAddFailedRequest(req, now)) {
 				eventsManager.processEvent(
@@ -75,5 +75,11 @@ public class ExtensiveInsertionSearchQSimModule extends AbstractDvrpModeQSimModu
 			}
 		});
 		bindModal(DetourPathCalculator.class).to(modalKey(MultiInsertionDetourPathCalculator.class));
+
+		if (drtCfg.getNumberOfParallelInsertionSearches() > 1) {
+			addModalComponent(ParallelInsertionSearches.class, modalProvider(
+					getter -> ParallelInsertionSearches.create(drtCfg, getter, ExtensiveInsertionProvider::create,
+							MultiInsertionDetourPathCalculator::createSharingGraphAndExecutor)));
+		}
 	}
 }
@@ -27,6 +27,7 @@ import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.stream.Stream;
 
 import javax.inject.Named;
@@ -61,19 +62,43 @@ public class MultiInsertionDetourPathCalculator implements DetourPathCalculator,
 	private final OneToManyPathSearch fromDropoffPathSearch;
 
 	private final ExecutorService executorService;
+	private final boolean ownsExecutorService;
 
 	public MultiInsertionDetourPathCalculator(Network network,
 			@Named(DvrpTravelTimeModule.DVRP_ESTIMATED) TravelTime travelTime, TravelDisutility travelDisutility,
 			DrtConfigGroup drtCfg) {
-		SpeedyGraph graph = new SpeedyGraph(network);
-		IdMap<Node, Node> nodeMap = new IdMap<>(Node.class);
-		nodeMap.putAll(network.getNodes());
+		this(new SpeedyGraph(network), createNodeMap(network), travelTime, travelDisutility,
+				Executors.newFixedThreadPool(Math.min(drtCfg.getNumberOfThreads(), MAX_THREADS)), true);
+	}
 
+	private MultiInsertionDetourPathCalculator(SpeedyGraph graph, IdMap<Node, Node> nodeMap, TravelTime travelTime,
+			TravelDisutility travelDisutility, ExecutorService executorService, boolean ownsExecutorService) {
 		toPickupPathSearch = OneToManyPathSearch.createSearch(graph, nodeMap, travelTime, travelDisutility, true);
 		fromPickupPathSearch = OneToManyPathSearch.createSearch(graph, nodeMap, travelTime, travelDisutility, true);
 		toDropoffPathSearch = OneToManyPathSearch.createSearch(graph, nodeMap, travelTime, travelDisutility, true);
 		fromDropoffPathSearch = OneToManyPathSearch.createSearch(graph, nodeMap, travelTime, travelDisutility, true);
-		executorService = Executors.newFixedThreadPool(Math.min(drtCfg.getNumberOfThreads(), MAX_THREADS));
+		this.executorService = executorService;
+		this.ownsExecutorService = ownsExecutorService;
+	}
+
+	/**
+	 * Returns a factory for calculators which share the routing graph and the given executor, e.g. for
+	 * {@link ParallelInsertionSearches}. Every calculator has its own path searches, so different calculators can be
+	 * used concurrently. The executor is not shut down by the calculators.
+	 */
+	static Supplier<MultiInsertionDetourPathCalculator> createSharingGraphAndExecutor(Network network,
+			TravelTime travelTime, TravelDisutility travelDisutility, DrtConfigGroup drtCfg,
+			ExecutorService executorService) {
+		SpeedyGraph graph = new SpeedyGraph(network);
+		IdMap<Node, Node> nodeMap = createNodeMap(network);
+		return () -> new MultiInsertionDetourPathCalculator(graph, nodeMap, travelTime, travelDisutility,
+				executorService, false);
+	}
+
+	private static IdMap<Node, Node> createNodeMap(Network network) {
+		IdMap<Node, Node> nodeMap = new IdMap<>(Node.class);
+		nodeMap.putAll(network.getNodes());
+		return nodeMap;
 	}
 
 	@VisibleForTesting
@@ -84,6 +109,7 @@ public class MultiInsertionDetourPathCalculator implements DetourPathCalculator,
 		this.toDropoffPathSearch = toDropoffPathSearch;
 		this.fromDropoffPathSearch = fromDropoffPathSearch;
 		executorService = Executors.newFixedThreadPool(Math.min(numberOfThreads, MAX_THREADS));
+		ownsExecutorService = true;
 	}
 
 	@Override
@@ -146,6 +172,8 @@ public class MultiInsertionDetourPathCalculator implements DetourPathCalculator,
 
 	@Override
 	public void notifyMobsimBeforeCleanup(@SuppressWarnings("rawtypes") MobsimBeforeCleanupEvent e) {
-		executorService.shutdown();
+		if (ownsExecutorService) {
+			executorService.shutdown();
+		}
 	}
 }
@@ -0,0 +1,112 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * ParallelInsertionSearches.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2022 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.contrib.drt.optimizer.insertion;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Supplier;
+
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.contrib.drt.optimizer.QSimScopeForkJoinPoolHolder;
+import org.matsim.contrib.drt.optimizer.insertion.DefaultDrtInsertionSearch.InsertionProvider;
+import org.matsim.contrib.drt.run.DrtConfigGroup;
+import org.matsim.contrib.dvrp.path.OneToManyPathSearch.PathData;
+import org.matsim.contrib.dvrp.run.ModalProviders;
+import org.matsim.contrib.dvrp.trafficmonitoring.DvrpTravelTimeModule;
+import org.matsim.contrib.zone.skims.DvrpTravelTimeMatrix;
+import org.matsim.core.mobsim.framework.MobsimTimer;
+import org.matsim.core.mobsim.framework.events.MobsimBeforeCleanupEvent;
+import org.matsim.core.mobsim.framework.listeners.MobsimBeforeCleanupListener;
+import org.matsim.core.router.costcalculators.TravelDisutilityFactory;
+import org.matsim.core.router.util.TravelDisutility;
+import org.matsim.core.router.util.TravelTime;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Independent insertion searches, used by {@link DefaultUnplannedRequestInserter} to find the insertions of a batch
+ * of requests in parallel. The detour path calculators are not thread-safe, so every search has its own one, and
+ * every search must only be used by one thread at a time. The calculators share one executor (and their routing
+ * data, see the factories passed to {@link #create}), so the number of path calculation threads does not grow with
+ * the number of searches.
+ */
+public class ParallelInsertionSearches implements MobsimBeforeCleanupListener {
+	public interface InsertionProviderFactory {
+		InsertionProvider create(DrtConfigGroup drtCfg, MobsimTimer timer, CostCalculationStrategy costCalculator,
+				DvrpTravelTimeMatrix dvrpTravelTimeMatrix, ForkJoinPool forkJoinPool);
+	}
+
+	public interface DetourPathCalculatorFactory {
+		/**
+		 * @return a factory for detour path calculators which use (but do not shut down) the given executor
+		 */
+		Supplier<? extends DetourPathCalculator> create(Network network, TravelTime travelTime,
+				TravelDisutility travelDisutility, DrtConfigGroup drtCfg, ExecutorService executorService);
+	}
+
+	private final List<DrtInsertionSearch<PathData>> searches;
+	private final ExecutorService executorService;
+
+	public static ParallelInsertionSearches create(DrtConfigGroup drtCfg, ModalProviders.InstanceGetter getter,
+			InsertionProviderFactory insertionProviderFactory,
+			DetourPathCalculatorFactory detourPathCalculatorFactory) {
+		int count = drtCfg.getNumberOfParallelInsertionSearches();
+		Preconditions.checkArgument(count > 0, "at least one insertion search is required");
+
+		var costCalculator = getter.getModal(CostCalculationStrategy.class);
+		var timer = getter.get(MobsimTimer.class);
+		var provider = insertionProviderFactory.create(drtCfg, timer, costCalculator,
+				getter.getModal(DvrpTravelTimeMatrix.class),
+				getter.getModal(QSimScopeForkJoinPoolHolder.class).getPool());
+		Network network = getter.getModal(Network.class);
+		TravelTime travelTime = getter.getNamed(TravelTime.class, DvrpTravelTimeModule.DVRP_ESTIMATED);
+		TravelDisutility travelDisutility = getter.getModal(TravelDisutilityFactory.class)
+				.createTravelDisutility(travelTime);
+
+		ExecutorService executorService = Executors.newFixedThreadPool(drtCfg.getNumberOfThreads());
+		var detourPathCalculators = detourPathCalculatorFactory.create(network, travelTime, travelDisutility, drtCfg,
+				executorService);
+		List<DrtInsertionSearch<PathData>> searches = new ArrayList<>(count);
+		for (int i = 0; i < count; i++) {
+			searches.add(new DefaultDrtInsertionSearch(provider, detourPathCalculators.get(), costCalculator, drtCfg,
+					timer));
+		}
+		return new ParallelInsertionSearches(searches, executorService);
+	}
+
+	ParallelInsertionSearches(List<DrtInsertionSearch<PathData>> searches, ExecutorService executorService) {
+		this.searches = Collections.unmodifiableList(searches);
+		this.executorService = executorService;
+	}
+
+	public List<DrtInsertionSearch<PathData>> getSearches() {
+		return searches;
+	}
+
+	@Override
+	public void notifyMobsimBeforeCleanup(@SuppressWarnings("rawtypes") MobsimBeforeCleanupEvent e) {
+		executorService.shutdown();
+	}
+}
@@ -75,5 +75,11 @@ public class SelectiveInsertionSearchQSimModule extends AbstractDvrpModeQSimModu
 			}
 		});
 		bindModal(DetourPathCalculator.class).to(modalKey(SingleInsertionDetourPathCalculator.class));
+
+		if (drtCfg.getNumberOfParallelInsertionSearches() > 1) {
+			addModalComponent(ParallelInsertionSearches.class, modalProvider(
+					getter -> ParallelInsertionSearches.create(drtCfg, getter, SelectiveInsertionProvider::create,
+							SingleInsertionDetourPathCalculator::createSharingLandmarksAndExecutor)));
+		}
 	}
 }
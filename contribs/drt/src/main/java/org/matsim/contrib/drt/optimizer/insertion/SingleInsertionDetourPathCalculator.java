@@ -30,6 +30,7 @@ import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.function.Supplier;
 
 import javax.inject.Named;
 
@@ -67,6 +68,7 @@ public class SingleInsertionDetourPathCalculator implements DetourPathCalculator
 	private final LeastCostPathCalculator fromDropoffPathSearch;
 
 	private final ExecutorService executorService;
+	private final boolean ownsExecutorService;
 
 	public SingleInsertionDetourPathCalculator(Network network,
 			@Named(DvrpTravelTimeModule.DVRP_ESTIMATED) TravelTime travelTime, TravelDisutility travelDisutility,
@@ -78,11 +80,33 @@ public class SingleInsertionDetourPathCalculator implements DetourPathCalculator
 	@VisibleForTesting
 	SingleInsertionDetourPathCalculator(Network network, TravelTime travelTime, TravelDisutility travelDisutility,
 			int numberOfThreads, LeastCostPathCalculatorFactory pathCalculatorFactory) {
+		this(network, travelTime, travelDisutility, pathCalculatorFactory,
+				Executors.newFixedThreadPool(Math.min(numberOfThreads, MAX_THREADS)), true);
+	}
+
+	private SingleInsertionDetourPathCalculator(Network network, TravelTime travelTime,
+			TravelDisutility travelDisutility, LeastCostPathCalculatorFactory pathCalculatorFactory,
+			ExecutorService executorService, boolean ownsExecutorService) {
 		toPickupPathSearch = pathCalculatorFactory.createPathCalculator(network, travelDisutility, travelTime);
 		fromPickupPathSearch = pathCalculatorFactory.createPathCalculator(network, travelDisutility, travelTime);
 		toDropoffPathSearch = pathCalculatorFactory.createPathCalculator(network, travelDisutility, travelTime);
 		fromDropoffPathSearch = pathCalculatorFactory.createPathCalculator(network, travelDisutility, travelTime);
-		executorService = Executors.newFixedThreadPool(Math.min(numberOfThreads, MAX_THREADS));
+		this.executorService = executorService;
+		this.ownsExecutorService = ownsExecutorService;
+	}
+
+	/**
+	 * Returns a factory for calculators which share the landmarks and the given executor, e.g. for
+	 * {@link ParallelInsertionSearches}. Every calculator has its own routers, so different calculators can be used
+	 * concurrently. The executor is not shut down by the calculators.
+	 */
+	static Supplier<SingleInsertionDetourPathCalculator> createSharingLandmarksAndExecutor(Network network,
+			TravelTime travelTime, TravelDisutility travelDisutility, DrtConfigGroup drtCfg,
+			ExecutorService executorService) {
+		// the factory caches the landmarks per network
+		LeastCostPathCalculatorFactory pathCalculatorFactory = new FastAStarLandmarksFactory(drtCfg.getNumberOfThreads());
+		return () -> new SingleInsertionDetourPathCalculator(network, travelTime, travelDisutility,
+				pathCalculatorFactory, executorService, false);
 	}
 
 	@Override
@@ -131,7 +155,9 @@ public class SingleInsertionDetourPathCalculator implements DetourPathCalculator
 
 	@Override
 	public void notifyMobsimBeforeCleanup(@SuppressWarnings("rawtypes") MobsimBeforeCleanupEvent e) {
-		executorService.shutdown();
+		if (ownsExecutorService) {
+			executorService.shutdown();
+		}
 	}
 
 	private PathData calcPathData(LeastCostPathCalculator router, Link fromLink, Link toLink, double departureTime) {
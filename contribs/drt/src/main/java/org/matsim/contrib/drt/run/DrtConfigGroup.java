@@ -142,6 +142,13 @@ public final class DrtConfigGroup extends ReflectiveConfigGroupWithConfigurableP
 					+ " Scales well up to 4, due to path data provision, the most computationally intensive part,"
 					+ " using up to 4 threads. Default value is 'min(4, no. of cores available to JVM)'";
 
+	public static final String NUMBER_OF_PARALLEL_INSERTION_SEARCHES = "numberOfParallelInsertionSearches";
+	static final String NUMBER_OF_PARALLEL_INSERTION_SEARCHES_EXP =
+			"Number of independent insertion searches used to find the insertions of all requests submitted in the"
+					+ " same time step in parallel. Conflicts (several requests choosing the same vehicle) are resolved"
+					+ " in the order of submission, so the assignments are reproducible. Each search has its own path"
+					+ " calculators. 1 (default) means that requests are inserted one after another.";
+
 	@NotBlank
 	private String mode = TransportMode.drt; // travel mode (passengers'/customers' perspective)
 
@@ -188,6 +195,9 @@ public final class DrtConfigGroup extends ReflectiveConfigGroupWithConfigurableP
 	@Positive
 	private int numberOfThreads = Runtime.getRuntime().availableProcessors();
 
+	@Positive
+	private int numberOfParallelInsertionSearches = 1;
+
 	@PositiveOrZero
 	private double advanceRequestPlanningHorizon = 0; // beta-feature; planning horizon for advance (prebooked) requests
 
@@ -318,6 +328,7 @@ public final class DrtConfigGroup extends ReflectiveConfigGroupWithConfigurableP
 		map.put(MAX_WALK_DISTANCE, MAX_WALK_DISTANCE_EXP);
 		map.put(TRANSIT_STOP_FILE, TRANSIT_STOP_FILE_EXP);
 		map.put(NUMBER_OF_THREADS, NUMBER_OF_THREADS_EXP);
+		map.put(NUMBER_OF_PARALLEL_INSERTION_SEARCHES, NUMBER_OF_PARALLEL_INSERTION_SEARCHES_EXP);
 		map.put(REJECT_REQUEST_IF_MAX_WAIT_OR_TRAVEL_TIME_VIOLATED,
 				REJECT_REQUEST_IF_MAX_WAIT_OR_TRAVEL_TIME_VIOLATED_EXP);
 		map.put(DRT_SERVICE_AREA_SHAPE_FILE, DRT_SERVICE_AREA_SHAPE_FILE_EXP);
@@ -616,6 +627,23 @@ public final class DrtConfigGroup extends ReflectiveConfigGroupWithConfigurableP
 		return this;
 	}
 
+	/**
+	 * @return -- {@value #NUMBER_OF_PARALLEL_INSERTION_SEARCHES_EXP}
+	 */
+	@StringGetter(NUMBER_OF_PARALLEL_INSERTION_SEARCHES)
+	public int getNumberOfParallelInsertionSearches() {
+		return numberOfParallelInsertionSearches;
+	}
+
+	/**
+	 * @param-- {@value #NUMBER_OF_PARALLEL_INSERTION_SEARCHES_EXP}
+	 */
+	@StringSetter(NUMBER_OF_PARALLEL_INSERTION_SEARCHES)
+	public DrtConfigGroup setNumberOfParallelInsertionSearches(final int numberOfParallelInsertionSearches) {
+		this.numberOfParallelInsertionSearches = numberOfParallelInsertionSearches;
+		return this;
+	}
+
 	public double getAdvanceRequestPlanningHorizon() {
 		return advanceRequestPlanningHorizon;
 	}
@@ -28,13 +28,16 @@ import static org.mockito.Mockito.*;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 import org.apache.commons.lang3.mutable.MutableInt;
 import org.junit.Rule;
 import org.junit.Test;
+import org.matsim.analysis.IterationMetrics;
 import org.matsim.api.core.v01.Id;
 import org.matsim.api.core.v01.Identifiable;
+import org.matsim.api.core.v01.events.Event;
 import org.matsim.api.core.v01.network.Link;
 import org.matsim.contrib.drt.optimizer.VehicleEntry;
 import org.matsim.contrib.drt.passenger.DrtRequest;
@@ -242,6 +245,101 @@ public class DefaultUnplannedRequestInserterTest {
 		assertThat(createEntryCounter.getValue()).isEqualTo(2);
 	}
 
+	@Test
+	public void batch_conflictsResolvedInSubmissionOrder() {
+		var vehicle1 = vehicle("1");
+		var fleet = fleet(vehicle1);
+		var request2 = request("r2", "from2", "to2");
+		var unplannedRequests = requests(request1, request2);
+		double now = 15;
+
+		VehicleEntry.EntryFactory entryFactory = (vehicle, currentTime) -> new VehicleEntry(vehicle, null, null);
+		DrtRequestInsertionRetryQueue retryQueue = new DrtRequestInsertionRetryQueue(
+				new DrtRequestInsertionRetryParams());//retry OFF, empty queue
+
+		//at the beginning of the time step, both requests can be inserted into vehicle1
+		DrtInsertionSearch<PathData> parallelSearch = (drtRequest, vEntries) -> Optional.of(
+				new InsertionWithDetourData<PathData>(
+						new InsertionGenerator.Insertion(vEntries.iterator().next(), null, null), null, null, null,
+						null));
+		//request1 comes first and gets vehicle1, request2 is searched again with the updated entries
+		DrtInsertionSearch<PathData> insertionSearch = (drtRequest, vEntries) -> drtRequest == request2 ?
+				Optional.empty() :
+				fail("request2 expected");
+
+		RequestInsertionScheduler insertionScheduler = (request, insertion) -> {
+			assertThat(request).isSameAs(request1);
+			var pickupTask = new DrtStopTask(now, now + 10, request.getFromLink());
+			var dropoffTask = new DrtStopTask(now + 20, now + 30, request.getToLink());
+			return new PickupDropoffTaskPair(pickupTask, dropoffTask);
+		};
+
+		//call insertion
+		new DefaultUnplannedRequestInserter(mode, fleet, () -> now, eventsManager, insertionScheduler, entryFactory,
+				retryQueue, rule.forkJoinPool, insertionSearch, List.of(parallelSearch, parallelSearch),
+				new IterationMetrics()).scheduleUnplannedRequests(unplannedRequests);
+
+		//requests are removed from unplanned requests
+		assertThat(unplannedRequests).isEmpty();
+
+		//request1 is scheduled, request2 is rejected
+		ArgumentCaptor<Event> captor = ArgumentCaptor.forClass(Event.class);
+		verify(eventsManager, times(2)).processEvent(captor.capture());
+		assertThat(captor.getAllValues().get(0)).isEqualToComparingFieldByField(
+				new PassengerRequestScheduledEvent(now, mode, request1.getId(), request1.getPassengerId(),
+						vehicle1.getId(), now + 10, now + 20));
+		assertThat(captor.getAllValues().get(1)).isEqualToComparingFieldByField(
+				new PassengerRequestRejectedEvent(now, mode, request2.getId(), request2.getPassengerId(),
+						NO_INSERTION_FOUND_CAUSE));
+	}
+
+	@Test
+	public void batch_requestWithoutInsertionSearchedAgainAfterOtherRequestScheduled() {
+		var vehicle1 = vehicle("1");
+		var fleet = fleet(vehicle1);
+		var request2 = request("r2", "from2", "to2");
+		var unplannedRequests = requests(request1, request2);
+		double now = 15;
+
+		VehicleEntry.EntryFactory entryFactory = (vehicle, currentTime) -> new VehicleEntry(vehicle, null, null);
+		DrtRequestInsertionRetryQueue retryQueue = new DrtRequestInsertionRetryQueue(
+				new DrtRequestInsertionRetryParams());//retry OFF, empty queue
+
+		//at the beginning of the time step, only request1 can be inserted
+		DrtInsertionSearch<PathData> parallelSearch = (drtRequest, vEntries) -> drtRequest == request1 ?
+				Optional.of(new InsertionWithDetourData<PathData>(
+						new InsertionGenerator.Insertion(vEntries.iterator().next(), null, null), null, null, null,
+						null)) :
+				Optional.empty();
+		//after scheduling request1, request2 can be inserted into vehicle1 as well (as the sequential insertion would do)
+		DrtInsertionSearch<PathData> insertionSearch = (drtRequest, vEntries) -> drtRequest == request2 ?
+				Optional.of(new InsertionWithDetourData<PathData>(
+						new InsertionGenerator.Insertion(vEntries.iterator().next(), null, null), null, null, null,
+						null)) :
+				fail("request2 expected");
+
+		RequestInsertionScheduler insertionScheduler = (request, insertion) -> {
+			var pickupTask = new DrtStopTask(now, now + 10, request.getFromLink());
+			var dropoffTask = new DrtStopTask(now + 20, now + 30, request.getToLink());
+			return new PickupDropoffTaskPair(pickupTask, dropoffTask);
+		};
+
+		//call insertion
+		new DefaultUnplannedRequestInserter(mode, fleet, () -> now, eventsManager, insertionScheduler, entryFactory,
+				retryQueue, rule.forkJoinPool, insertionSearch, List.of(parallelSearch, parallelSearch),
+				new IterationMetrics()).scheduleUnplannedRequests(unplannedRequests);
+
+		//both requests are scheduled
+		ArgumentCaptor<Event> captor = ArgumentCaptor.forClass(Event.class);
+		verify(eventsManager, times(2)).processEvent(captor.capture());
+		assertThat(captor.getAllValues().get(0)).isEqualToComparingFieldByField(
+				new PassengerRequestScheduledEvent(now, mode, request1.getId(), request1.getPassengerId(),
+						vehicle1.getId(), now + 10, now + 20));
+		assertThat(captor.getAllValues().get(1)).isEqualToComparingFieldByField(
+				new PassengerRequestScheduledEvent(now, mode, request2.getId(), request2.getPassengerId(),
+						vehicle1.getId(), now + 10, now + 20));
+	}
+
 	private Collection<DrtRequest> requests(DrtRequest... requests) {
 		return new ArrayList<>(Arrays.asList(requests));//returned collection needs to be modifiable
 	}
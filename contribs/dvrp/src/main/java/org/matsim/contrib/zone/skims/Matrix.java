@@ -23,14 +23,18 @@ package org.matsim.contrib.zone.skims;
 import static com.google.common.base.Preconditions.checkArgument;
 
 import java.util.Arrays;
+import java.util.LinkedHashSet;
 import java.util.NoSuchElementException;
 import java.util.Set;
 
 import org.matsim.api.core.v01.Id;
 import org.matsim.contrib.zone.Zone;
 
+import ch.sbb.matsim.analysis.skims.FloatMatrix;
+
 /**
- * Based on FloatMatrix from sbb-matsim-extensions
+ * Based on FloatMatrix from sbb-matsim-extensions. Can be converted from and to a {@link FloatMatrix}, e.g. to store
+ * it in (or load it from) the binary format of {@link ch.sbb.matsim.analysis.skims.FloatMatrixBinaryIO}.
  *
  * @author Michal Maciejewski (michalm)
  */
@@ -59,6 +63,43 @@ public final class Matrix {
 		}
 	}
 
+	/**
+	 * Creates a matrix with the values of a FloatMatrix identified by zone ids. NaN values are treated as not set.
+	 */
+	public static Matrix fromFloatMatrix(Set<Zone> zones, FloatMatrix<Id<Zone>> floatMatrix) {
+		Matrix matrix = new Matrix(zones);
+		for (Zone fromZone : zones) {
+			for (Zone toZone : zones) {
+				float value = floatMatrix.get(fromZone.getId(), toZone.getId());
+				if (!Float.isNaN(value)) {
+					matrix.set(fromZone, toZone, value);
+				}
+			}
+		}
+		return matrix;
+	}
+
+	/**
+	 * Copies the values for the given zones into a FloatMatrix identified by zone ids. Values not set are NaN.
+	 */
+	public FloatMatrix<Id<Zone>> toFloatMatrix(Set<Zone> zones) {
+		Set<Id<Zone>> zoneIds = new LinkedHashSet<>();
+		for (Zone zone : zones) {
+			zoneIds.add(zone.getId());
+		}
+		FloatMatrix<Id<Zone>> floatMatrix = new FloatMatrix<>(zoneIds, Float.NaN);
+		for (Zone fromZone : zones) {
+			short[] row = matrix[matrixIndex(fromZone)];
+			for (Zone toZone : zones) {
+				short shortValue = row[matrixIndex(toZone)];
+				if (shortValue != -1) {
+					floatMatrix.set(fromZone.getId(), toZone.getId(), Short.toUnsignedInt(shortValue));
+				}
+			}
+		}
+		return floatMatrix;
+	}
+
 	public int get(Zone fromZone, Zone toZone) {
 		short shortValue = matrix[matrixIndex(fromZone)][matrixIndex(toZone)];
 		if (shortValue == -1) {
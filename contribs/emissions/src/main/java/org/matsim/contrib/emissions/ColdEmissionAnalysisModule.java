@@ -74,7 +74,13 @@ final class ColdEmissionAnalysisModule {
 	private final EventsManager eventsManager;
 	private final EmissionsConfigGroup ecg;
 
-	private final Set<Pollutant> coldPollutants;
+	private static final int NUMBER_OF_POLLUTANTS = Pollutant.values().length;
+	private final Pollutant[] coldPollutantArray;
+	private static final HbefaVehicleAttributes AVERAGE_VEHICLE_ATTRIBUTES = new HbefaVehicleAttributes();
+	// emission factors per vehicle and parking time, for the distance classes 1 and 2 km.  Filled in the constructor and not changed
+	// afterwards, see WarmEmissionAnalysisModule.  Only the factors found by the first lookup in getEmissionsFactor() are stored.
+	private final HbefaEmissionFactorLookup factorLookup;
+	private final EmissionsConfigGroup.DetailedVsAverageLookupBehavior factorLookupBehavior;
 
 	private int detailedReadingInfoCnt = 0;
 	private int detailedTransformToHbefa4Cnt = 0;
@@ -92,15 +98,44 @@ final class ColdEmissionAnalysisModule {
 		this.avgHbefaColdTable = avgHbefaColdTable;
 		this.detailedHbefaColdTable = detailedHbefaColdTable;
 		this.ecg = ecg;
-		this.coldPollutants = coldPollutants;
+		this.coldPollutantArray = coldPollutants.toArray(new Pollutant[0]);
 
 		Gbl.assertNotNull( eventsManager );
 		this.eventsManager = eventsManager;
+
+		// the table of the first lookup in getEmissionsFactor():
+		this.factorLookupBehavior = ecg.getDetailedVsAverageLookupBehavior();
+		Map<HbefaColdEmissionFactorKey, HbefaColdEmissionFactor> firstLookupTable =
+				this.factorLookupBehavior == EmissionsConfigGroup.DetailedVsAverageLookupBehavior.directlyTryAverageTable ? avgHbefaColdTable : detailedHbefaColdTable;
+		HbefaEmissionFactorLookup.Builder factors = new HbefaEmissionFactorLookup.Builder(2, NUMBER_OF_POLLUTANTS);
+		if (firstLookupTable != null) {
+			for (Map.Entry<HbefaColdEmissionFactorKey, HbefaColdEmissionFactor> e : firstLookupTable.entrySet()) {
+				HbefaColdEmissionFactorKey key = e.getKey();
+				if ((key.getDistance() == 1 || key.getDistance() == 2) && key.getParkingTime() >= 0) {
+					factors.set(key.getVehicleCategory(), key.getVehicleAttributes(), key.getParkingTime(), key.getDistance() - 1,
+							key.getComponent().ordinal(), e.getValue().getFactor());
+				}
+			}
+		}
+		this.factorLookup = factors.build();
 	}
 
 	/*package-private*/ Map<Pollutant, Double> checkVehicleInfoAndCalculateWColdEmissions(
 			VehicleType vehicleType, Id<Vehicle> vehicleId, Id<Link> coldEmissionEventLinkId,
 			double eventTime, double parkingDuration, int distance_km) {
+		double[] coldEmissionValues = checkVehicleInfoAndCalculateColdEmissionValues(vehicleType, vehicleId, parkingDuration, distance_km);
+		final Map<Pollutant, Double> coldEmissionsOfEvent = new EnumMap<>( Pollutant.class );
+		for ( Pollutant coldPollutant : coldPollutantArray) {
+			coldEmissionsOfEvent.put( coldPollutant, coldEmissionValues[coldPollutant.ordinal()] );
+		}
+		return coldEmissionsOfEvent;
+	}
+
+	/**
+	 * @return the cold emissions, indexed by {@link Pollutant#ordinal()}; pollutants which are not calculated are <code>NaN</code>.
+	 */
+	/*package-private*/ double[] checkVehicleInfoAndCalculateColdEmissionValues(
+			VehicleType vehicleType, Id<Vehicle> vehicleId, double parkingDuration, int distance_km) {
 
 		{
 			String hbefaVehicleTypeDescription = EmissionUtils.getHbefaVehicleDescription( vehicleType, this.ecg );
@@ -116,7 +151,7 @@ final class ColdEmissionAnalysisModule {
 					EmissionsConfigGroup.GROUP_NAME + " config group are met. Aborting...");
 		}
 
-		return calculateColdEmissions(vehicleId, parkingDuration, vehicleInformationTuple, distance_km);
+		return calculateColdEmissionValues(vehicleId, parkingDuration, vehicleInformationTuple, distance_km);
 	}
 
 	/*package-private*/ void throwColdEmissionEvent(Id<Vehicle> vehicleId, Id<Link> coldEmissionEventLinkId, double eventTime, Map<Pollutant, Double> coldEmissions) {
@@ -124,16 +159,22 @@ final class ColdEmissionAnalysisModule {
 		this.eventsManager.processEvent(coldEmissionEvent);
 	}
 
+	/*package-private*/ void throwColdEmissionEvent(Id<Vehicle> vehicleId, Id<Link> coldEmissionEventLinkId, double eventTime, double[] coldEmissions) {
+		Event coldEmissionEvent = ColdEmissionEvent.createFromValues(eventTime, coldEmissionEventLinkId, vehicleId, coldPollutantArray, coldEmissions);
+		this.eventsManager.processEvent(coldEmissionEvent);
+	}
+
 	private static int cnt =10;
-	private Map<Pollutant, Double> calculateColdEmissions(Id<Vehicle> vehicleId, double parkingDuration, Tuple<HbefaVehicleCategory, HbefaVehicleAttributes> vehicleInformationTuple, int distance_km ) {
+	private double[] calculateColdEmissionValues(Id<Vehicle> vehicleId, double parkingDuration, Tuple<HbefaVehicleCategory, HbefaVehicleAttributes> vehicleInformationTuple, int distance_km ) {
 
-		final Map<Pollutant, Double> coldEmissionsOfEvent = new EnumMap<>( Pollutant.class );
+		final double[] coldEmissionsOfEvent = new double[NUMBER_OF_POLLUTANTS];
+		Arrays.fill(coldEmissionsOfEvent, Double.NaN);
 
 		logger.debug("VehId: " + vehicleId + " ; Tuple.first = " +vehicleInformationTuple.getFirst());
 		// fallback vehicle types that we cannot or do not want to map onto a hbefa vehicle type:
 		if ( vehicleInformationTuple.getFirst()==HbefaVehicleCategory.NON_HBEFA_VEHICLE ) {
-			for ( Pollutant coldPollutant : coldPollutants) {
-				coldEmissionsOfEvent.put( coldPollutant, 0.0 );
+			for ( Pollutant coldPollutant : coldPollutantArray) {
+				coldEmissionsOfEvent[coldPollutant.ordinal()] = 0.0;
 				// yyyyyy todo replace by something more meaningful. kai, jan'20
 			}
 			if ( cnt >0 ) {
@@ -147,9 +188,7 @@ final class ColdEmissionAnalysisModule {
 			return coldEmissionsOfEvent;
 		}
 
-		// translate vehicle information type into factor key.  yyyy maybe combine these two? kai, jan'20
-		HbefaColdEmissionFactorKey key = new HbefaColdEmissionFactorKey();
-		key.setVehicleCategory(vehicleInformationTuple.getFirst());
+		HbefaVehicleCategory vehicleCategory = vehicleInformationTuple.getFirst();
 
 		//HBEFA 3 provide cold start emissions for "pass. car" and Light_Commercial_Vehicles (LCV) only.
 		//HBEFA 4.1 provide cold start emissions for "pass. car" and Light_Commercial_Vehicles (LCV) only.
@@ -157,7 +196,7 @@ final class ColdEmissionAnalysisModule {
 		//Mapping everything except "motorcycle" to "pass.car", since this was done in the last years for HGV.
 		//This may can be improved: What should be better set to LGV or zero???? kturner, may'20
 		if (vehicleInformationTuple.getFirst().equals(HbefaVehicleCategory.HEAVY_GOODS_VEHICLE)) {
-			key.setVehicleCategory(HbefaVehicleCategory.PASSENGER_CAR);
+			vehicleCategory = HbefaVehicleCategory.PASSENGER_CAR;
 			if (vehInfoWarnHDVCnt < maxWarnCnt) {
 				vehInfoWarnHDVCnt++;
 				logger.warn("HBEFA does not provide cold start emission factors for " +
@@ -167,7 +206,7 @@ final class ColdEmissionAnalysisModule {
 			}
 		}
 		if (vehicleInformationTuple.getFirst().equals(HbefaVehicleCategory.URBAN_BUS)) {
-			key.setVehicleCategory(HbefaVehicleCategory.PASSENGER_CAR);
+			vehicleCategory = HbefaVehicleCategory.PASSENGER_CAR;
 			if (vehInfoWarnHDVCnt < maxWarnCnt) {
 				vehInfoWarnHDVCnt++;
 				logger.warn("HBEFA does not provide cold start emission factors for " +
@@ -177,7 +216,7 @@ final class ColdEmissionAnalysisModule {
 			}
 		}
 		if (vehicleInformationTuple.getFirst().equals(HbefaVehicleCategory.COACH)) {
-			key.setVehicleCategory(HbefaVehicleCategory.PASSENGER_CAR);
+			vehicleCategory = HbefaVehicleCategory.PASSENGER_CAR;
 			if (vehInfoWarnHDVCnt < maxWarnCnt) {
 				vehInfoWarnHDVCnt++;
 				logger.warn("HBEFA does not provide cold start emission factors for " +
@@ -187,8 +226,8 @@ final class ColdEmissionAnalysisModule {
 			}
 		}
 		if (vehicleInformationTuple.getFirst().equals(HbefaVehicleCategory.MOTORCYCLE)){
-			for ( Pollutant coldPollutant : coldPollutants) {
-				coldEmissionsOfEvent.put( coldPollutant, 0.0 );
+			for ( Pollutant coldPollutant : coldPollutantArray) {
+				coldEmissionsOfEvent[coldPollutant.ordinal()] = 0.0;
 				// yyyyyy todo replace by something more meaningful. kai, jan'20
 			}
 			if(vehInfoWarnHDVCnt < maxWarnCnt) {
@@ -203,32 +242,49 @@ final class ColdEmissionAnalysisModule {
 			return coldEmissionsOfEvent;
 		}
 
-		if(this.detailedHbefaColdTable != null) {
-			HbefaVehicleAttributes hbefaVehicleAttributes = new HbefaVehicleAttributes();
-			hbefaVehicleAttributes.setHbefaTechnology(vehicleInformationTuple.getSecond().getHbefaTechnology());
-			hbefaVehicleAttributes.setHbefaSizeClass(vehicleInformationTuple.getSecond().getHbefaSizeClass());
-			hbefaVehicleAttributes.setHbefaEmConcept(vehicleInformationTuple.getSecond().getHbefaEmConcept());
-			key.setVehicleAttributes(hbefaVehicleAttributes);
-		}
-
 		int parkingDuration_h = Math.max(1, (int) (parkingDuration / 3600));
 		if (parkingDuration_h >= 12) parkingDuration_h = 13;
 
-		key.setParkingTime(parkingDuration_h);
+		int vehicleCode = -1;
+		if (this.factorLookupBehavior == ecg.getDetailedVsAverageLookupBehavior()) {
+			// (otherwise the lookup behavior was changed after the construction, and all factors are looked up in the hbefa tables)
+			HbefaVehicleAttributes attributes = this.factorLookupBehavior == EmissionsConfigGroup.DetailedVsAverageLookupBehavior.directlyTryAverageTable ?
+					AVERAGE_VEHICLE_ATTRIBUTES : vehicleInformationTuple.getSecond();
+			vehicleCode = this.factorLookup.getVehicleCode(vehicleCategory, attributes);
+		}
+		double[] factors1km = this.factorLookup.get(vehicleCode, parkingDuration_h, 0);
+		double[] factors2km = distance_km == 1 ? null : this.factorLookup.get(vehicleCode, parkingDuration_h, 1);
 
-		for (Pollutant coldPollutant : coldPollutants) {
+		for (Pollutant coldPollutant : coldPollutantArray) {
 			double generatedEmissions;
 			// this is a really weird logic. Probably a million ways how this could fail janek jan'21
 			if (distance_km == 1) {
-				generatedEmissions = getEmissionsFactor(vehicleInformationTuple, 1, key, coldPollutant).getFactor();
+				generatedEmissions = getFactor(factors1km, vehicleInformationTuple, vehicleCategory, parkingDuration_h, 1, coldPollutant);
 			} else {
-				generatedEmissions = getEmissionsFactor(vehicleInformationTuple, 2, key, coldPollutant).getFactor() - getEmissionsFactor(vehicleInformationTuple, 1, key, coldPollutant).getFactor();
+				generatedEmissions = getFactor(factors2km, vehicleInformationTuple, vehicleCategory, parkingDuration_h, 2, coldPollutant)
+						- getFactor(factors1km, vehicleInformationTuple, vehicleCategory, parkingDuration_h, 1, coldPollutant);
 			}
-			coldEmissionsOfEvent.put(coldPollutant, generatedEmissions);
+			coldEmissionsOfEvent[coldPollutant.ordinal()] = generatedEmissions;
 		}
 		return coldEmissionsOfEvent;
 	}
 
+	/**
+	 * Returns the emission factor from the given entry of the {@link HbefaEmissionFactorLookup} (which may be <code>null</code>), and
+	 * looks it up in the hbefa tables if it is not stored there.
+	 */
+	private double getFactor(double[] factors, Tuple<HbefaVehicleCategory, HbefaVehicleAttributes> vehicleInformationTuple,
+							 HbefaVehicleCategory vehicleCategory, int parkingDuration_h, int distance_km, Pollutant coldPollutant) {
+		if (factors != null && !Double.isNaN(factors[coldPollutant.ordinal()])) {
+			return factors[coldPollutant.ordinal()];
+		}
+		// translate vehicle information type into factor key.  yyyy maybe combine these two? kai, jan'20
+		HbefaColdEmissionFactorKey key = new HbefaColdEmissionFactorKey();
+		key.setVehicleCategory(vehicleCategory);
+		key.setParkingTime(parkingDuration_h);
+		return getEmissionsFactor(vehicleInformationTuple, distance_km, key, coldPollutant).getFactor();
+	}
+
 	private HbefaColdEmissionFactor getEmissionsFactor(Tuple<HbefaVehicleCategory, HbefaVehicleAttributes> vehicleInformationTuple, int distance_km, HbefaColdEmissionFactorKey efkey, Pollutant coldPollutant) {
 
 		efkey.setDistance(distance_km);
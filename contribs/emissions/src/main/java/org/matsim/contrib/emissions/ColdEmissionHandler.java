@@ -103,7 +103,6 @@ final class ColdEmissionHandler implements LinkLeaveEventHandler, VehicleLeavesT
         if (previousDistance != null) {
             double distance = previousDistance + linkLength;
             double parkingDuration = this.vehicleId2parkingDuration.get(vehicleId);
-            Id<Link> coldEmissionEventLinkId = this.vehicleId2coldEmissionEventLinkId.get(vehicleId);
 
             Vehicle vehicle = VehicleUtils.findVehicle( event.getVehicleId(), scenario );
 
@@ -112,10 +111,8 @@ final class ColdEmissionHandler implements LinkLeaveEventHandler, VehicleLeavesT
             } else{
 
                 if( (distance / 1000) > 1.0 ){
-                    Map<Pollutant, Double> coldEmissions = coldEmissionAnalysisModule.checkVehicleInfoAndCalculateWColdEmissions(vehicle.getType(),
+                    double[] coldEmissions = coldEmissionAnalysisModule.checkVehicleInfoAndCalculateColdEmissionValues(vehicle.getType(),
                             vehicleId,
-                            coldEmissionEventLinkId,
-                            event.getTime(),
                             parkingDuration, 2);
 
                     coldEmissionAnalysisModule.throwColdEmissionEvent(vehicle.getId(), linkId, event.getTime(), coldEmissions);
@@ -192,8 +189,8 @@ final class ColdEmissionHandler implements LinkLeaveEventHandler, VehicleLeavesT
         if ( vehicle==null ) {
             handleNullVehicle( vehicleId, emissionsConfigGroup );
         } else{
-            Map<Pollutant, Double> coldEmissions = coldEmissionAnalysisModule.checkVehicleInfoAndCalculateWColdEmissions(
-                    vehicle.getType(), vehicleId, linkId, startEngineTime, parkingDuration, 1);
+            double[] coldEmissions = coldEmissionAnalysisModule.checkVehicleInfoAndCalculateColdEmissionValues(
+                    vehicle.getType(), vehicleId, parkingDuration, 1);
 
             coldEmissionAnalysisModule.throwColdEmissionEvent(vehicleId, linkId, startEngineTime, coldEmissions);
             // yyyy again, I do not know what the "distance" does.  kai, jan'20
@@ -0,0 +1,134 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * HbefaEmissionFactorLookup.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2022 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+
+package org.matsim.contrib.emissions;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Emission factors which were already looked up in the hbefa tables, stored as dense arrays over the pollutants.
+ * <p></p>
+ * Entries are addressed by integer codes: a vehicle code for each combination of vehicle category and attributes, a
+ * context code (e.g. the road type for warm emissions) and a sub-index (e.g. the traffic situation). Each entry is a
+ * <code>double[]</code> of a fixed width, normally indexed by {@link Pollutant#ordinal()}, in which values that are not
+ * given are <code>NaN</code>. This makes the lookup of known values free of allocations.
+ * <p></p>
+ * The lookup is filled by a {@link Builder} and cannot be changed afterwards, so it can be used by several threads.
+ */
+final class HbefaEmissionFactorLookup {
+
+	private final int subCount;
+	private final Map<HbefaVehicleAttributes, int[]> vehicleCodes;
+	private final double[][][] entries;
+
+	private HbefaEmissionFactorLookup(int subCount, Map<HbefaVehicleAttributes, int[]> vehicleCodes, List<double[][]> entries) {
+		this.subCount = subCount;
+		this.vehicleCodes = vehicleCodes;
+		this.entries = entries.toArray(new double[0][][]);
+	}
+
+	/**
+	 * @return the code of the vehicle, or -1 if there are no entries for it
+	 */
+	int getVehicleCode(HbefaVehicleCategory category, HbefaVehicleAttributes attributes) {
+		int[] codes = this.vehicleCodes.get(attributes);
+		return codes == null ? -1 : codes[category.ordinal()];
+	}
+
+	/**
+	 * @return the entry for the given codes, or <code>null</code> if there is none. Negative codes are allowed and
+	 * 		never have an entry.
+	 */
+	double[] get(int vehicleCode, int context, int sub) {
+		if (vehicleCode < 0 || context < 0) {
+			return null;
+		}
+		double[][] vehicleEntries = this.entries[vehicleCode];
+		int index = context * this.subCount + sub;
+		return index < vehicleEntries.length ? vehicleEntries[index] : null;
+	}
+
+	static final class Builder {
+
+		private final int subCount;
+		private final int width;
+
+		private final Map<HbefaVehicleAttributes, int[]> vehicleCodes = new HashMap<>();
+		private final List<double[][]> entries = new ArrayList<>();
+
+		/**
+		 * @param subCount the number of sub-indices per context
+		 * @param width the length of the arrays stored per entry
+		 */
+		Builder(int subCount, int width) {
+			this.subCount = subCount;
+			this.width = width;
+		}
+
+		Builder set(HbefaVehicleCategory category, HbefaVehicleAttributes attributes, int context, int sub, int index, double value) {
+			getEntry(getVehicleCode(category, attributes), context * this.subCount + sub)[index] = value;
+			return this;
+		}
+
+		private int getVehicleCode(HbefaVehicleCategory category, HbefaVehicleAttributes attributes) {
+			int[] codes = this.vehicleCodes.get(attributes);
+			if (codes == null) {
+				codes = new int[HbefaVehicleCategory.values().length];
+				Arrays.fill(codes, -1);
+				// the attributes are mutable, so we store a copy
+				HbefaVehicleAttributes key = ColdEmissionAnalysisModule.createHbefaVehicleAttributes(
+						attributes.getHbefaTechnology(), attributes.getHbefaSizeClass(), attributes.getHbefaEmConcept());
+				this.vehicleCodes.put(key, codes);
+			}
+			int code = codes[category.ordinal()];
+			if (code < 0) {
+				code = this.entries.size();
+				this.entries.add(new double[0][]);
+				codes[category.ordinal()] = code;
+			}
+			return code;
+		}
+
+		private double[] getEntry(int vehicleCode, int index) {
+			double[][] vehicleEntries = this.entries.get(vehicleCode);
+			if (index >= vehicleEntries.length) {
+				vehicleEntries = Arrays.copyOf(vehicleEntries, Math.max(index + 1, 2 * vehicleEntries.length));
+				this.entries.set(vehicleCode, vehicleEntries);
+			}
+			double[] values = vehicleEntries[index];
+			if (values == null) {
+				values = new double[this.width];
+				Arrays.fill(values, Double.NaN);
+				vehicleEntries[index] = values;
+			}
+			return values;
+		}
+
+		HbefaEmissionFactorLookup build() {
+			return new HbefaEmissionFactorLookup(this.subCount, this.vehicleCodes, this.entries);
+		}
+	}
+
+}
@@ -34,6 +34,7 @@ import org.matsim.vehicles.Vehicle;
 import org.matsim.vehicles.VehicleType;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 import static org.matsim.contrib.emissions.HbefaTrafficSituation.*;
 import static org.matsim.contrib.emissions.utils.EmissionsConfigGroup.EmissionsComputationMethod.AverageSpeed;
@@ -50,12 +51,25 @@ public final class WarmEmissionAnalysisModule implements LinkEmissionsCalculator
 
 	private final Map<HbefaWarmEmissionFactorKey, HbefaWarmEmissionFactor>  avgHbefaWarmTable;
 	private final Map<HbefaWarmEmissionFactorKey, HbefaWarmEmissionFactor> detailedHbefaWarmTable;
-	private final Map<HbefaRoadVehicleCategoryKey, Map<HbefaTrafficSituation, Double>> hbefaRoadTrafficSpeeds;
-	private final Set<Pollutant> warmPollutants;
 
 	private final EventsManager eventsManager;
 	private final EmissionsConfigGroup ecg;
 
+	private static final int NUMBER_OF_POLLUTANTS = Pollutant.values().length;
+	private final Pollutant[] warmPollutantArray;
+	private static final HbefaVehicleAttributes AVERAGE_VEHICLE_ATTRIBUTES = new HbefaVehicleAttributes();
+
+	// The following tables are filled in the constructor and not changed afterwards, as the emissions are also calculated
+	// concurrently, e.g. by the emission toll travel disutilities of the router threads.
+	private final Map<String, Integer> roadTypeCodes;
+	// emission factors per vehicle, road type and traffic situation: [0, n) factors in g/km, [n, 2n) speeds from the table in km/h.
+	// Only the factors found by the first lookup in getEf() are stored, factors which need a fallback are looked up for every use.
+	private final HbefaEmissionFactorLookup factorLookup;
+	private final EmissionsConfigGroup.DetailedVsAverageLookupBehavior factorLookupBehavior;
+	// speeds per vehicle category and road type, indexed by traffic situation (NaN if not given); null if there are no speeds
+	private final double[][][] trafficSpeeds;
+	private final Map<VehicleType, Tuple<HbefaVehicleCategory, HbefaVehicleAttributes>> vehicleInformationTuples = new ConcurrentHashMap<>();
+
 	private int detailedReadingInfoCnt = 0;
 	private int detailedTransformToHbefa4Cnt = 0;
 	private int detailedFallbackTechAverageWarnCnt = 0;
@@ -91,8 +105,7 @@ public final class WarmEmissionAnalysisModule implements LinkEmissionsCalculator
 		Gbl.assertIf( avgHbefaWarmTable!=null || detailedHbefaWarmTable!=null );
 		this.avgHbefaWarmTable = avgHbefaWarmTable;
 		this.detailedHbefaWarmTable = detailedHbefaWarmTable;
-		this.hbefaRoadTrafficSpeeds = hbefaRoadTrafficSpeeds;
-		this.warmPollutants = warmPollutants;
+		this.warmPollutantArray = warmPollutants.toArray(new Pollutant[0]);
 
 		Gbl.assertNotNull( eventsManager );
 		this.eventsManager = eventsManager;
@@ -183,6 +196,46 @@ public final class WarmEmissionAnalysisModule implements LinkEmissionsCalculator
 					throw new IllegalStateException("Unexpected value: " + ecg.getHbefaTableConsistencyCheckingLevel());
 			}
 		}
+
+		// the table of the first lookup in getEf():
+		this.factorLookupBehavior = ecg.getDetailedVsAverageLookupBehavior();
+		Map<HbefaWarmEmissionFactorKey, HbefaWarmEmissionFactor> firstLookupTable =
+				this.factorLookupBehavior == EmissionsConfigGroup.DetailedVsAverageLookupBehavior.directlyTryAverageTable ? avgHbefaWarmTable : detailedHbefaWarmTable;
+
+		Map<String, Integer> roadTypeCodes = new HashMap<>();
+		if (firstLookupTable != null) {
+			for (HbefaWarmEmissionFactorKey key : firstLookupTable.keySet()) {
+				roadTypeCodes.putIfAbsent(key.getRoadCategory(), roadTypeCodes.size());
+			}
+		}
+		for (HbefaRoadVehicleCategoryKey key : hbefaRoadTrafficSpeeds.keySet()) {
+			roadTypeCodes.putIfAbsent(key.getHbefaRoadCategory(), roadTypeCodes.size());
+		}
+		this.roadTypeCodes = roadTypeCodes;
+
+		HbefaEmissionFactorLookup.Builder factors = new HbefaEmissionFactorLookup.Builder(HbefaTrafficSituation.values().length, 2 * NUMBER_OF_POLLUTANTS);
+		if (firstLookupTable != null) {
+			for (Map.Entry<HbefaWarmEmissionFactorKey, HbefaWarmEmissionFactor> e : firstLookupTable.entrySet()) {
+				HbefaWarmEmissionFactorKey key = e.getKey();
+				int roadTypeCode = roadTypeCodes.get(key.getRoadCategory());
+				int trafficSituation = key.getTrafficSituation().ordinal();
+				int pollutant = key.getComponent().ordinal();
+				factors.set(key.getVehicleCategory(), key.getVehicleAttributes(), roadTypeCode, trafficSituation, pollutant, e.getValue().getFactor());
+				factors.set(key.getVehicleCategory(), key.getVehicleAttributes(), roadTypeCode, trafficSituation, NUMBER_OF_POLLUTANTS + pollutant, e.getValue().getSpeed());
+			}
+		}
+		this.factorLookup = factors.build();
+
+		this.trafficSpeeds = new double[HbefaVehicleCategory.values().length][roadTypeCodes.size()][];
+		for (Map.Entry<HbefaRoadVehicleCategoryKey, Map<HbefaTrafficSituation, Double>> e : hbefaRoadTrafficSpeeds.entrySet()) {
+			double[] speeds = new double[HbefaTrafficSituation.values().length];
+			Arrays.fill(speeds, Double.NaN);
+			for (Map.Entry<HbefaTrafficSituation, Double> speed : e.getValue().entrySet()) {
+				speeds[speed.getKey().ordinal()] = speed.getValue();
+			}
+			int roadTypeCode = roadTypeCodes.get(e.getKey().getHbefaRoadCategory());
+			this.trafficSpeeds[e.getKey().getHbefaVehicleCategory().ordinal()][roadTypeCode] = speeds;
+		}
 	}
 
 	void reset() {
@@ -202,6 +255,8 @@ public final class WarmEmissionAnalysisModule implements LinkEmissionsCalculator
 		fractionCounter = 0;
 		stopGoKmCounter = 0.0;
 		heavyStopGoKmCounter = 0.0;
+
+		vehicleInformationTuples.clear();
 	}
 
 	void throwWarmEmissionEvent(double leaveTime, Id<Link> linkId, Id<Vehicle> vehicleId, Map<Pollutant, Double> warmEmissions) {
@@ -209,6 +264,11 @@ public final class WarmEmissionAnalysisModule implements LinkEmissionsCalculator
 		this.eventsManager.processEvent(warmEmissionEvent);
 	}
 
+	void throwWarmEmissionEvent(double leaveTime, Id<Link> linkId, Id<Vehicle> vehicleId, double[] warmEmissions) {
+		Event warmEmissionEvent = WarmEmissionEvent.createFromValues(leaveTime, linkId, vehicleId, warmPollutantArray, warmEmissions);
+		this.eventsManager.processEvent(warmEmissionEvent);
+	}
+
 	@Override
 	public Map<Pollutant, Double> checkVehicleInfoAndCalculateWarmEmissions(Vehicle vehicle, Link link, double travelTime) {
 		return checkVehicleInfoAndCalculateWarmEmissions(vehicle.getType(), vehicle.getId(), link, travelTime);
@@ -218,6 +278,28 @@ public final class WarmEmissionAnalysisModule implements LinkEmissionsCalculator
 
 	/*package-private*/ Map<Pollutant, Double> checkVehicleInfoAndCalculateWarmEmissions(VehicleType vehicleType, Id<Vehicle> vehicleId,
 																						 Link link, double travelTime) {
+		Tuple<HbefaVehicleCategory, HbefaVehicleAttributes> vehicleInformationTuple = getVehicleInformationTuple(vehicleType);
+
+		double freeVelocity = link.getFreespeed(); //TODO: what about time dependence
+
+		return calculateWarmEmissions(travelTime, EmissionUtils.getHbefaRoadType(link), freeVelocity, link.getLength(), vehicleInformationTuple);
+	}
+
+	/**
+	 * Same as {@link #checkVehicleInfoAndCalculateWarmEmissions(VehicleType, Id, Link, double)}, but returns the emissions as array
+	 * (see {@link #calculateWarmEmissionValues(double, String, double, double, Tuple)}) and remembers the vehicle information per
+	 * vehicle type until the next {@link #reset()}.  This is the path used when handling link leave events.
+	 */
+	/*package-private*/ double[] calculateWarmEmissionValues(VehicleType vehicleType, Link link, double travelTime) {
+		Tuple<HbefaVehicleCategory, HbefaVehicleAttributes> vehicleInformationTuple = this.vehicleInformationTuples.get(vehicleType);
+		if (vehicleInformationTuple == null) {
+			vehicleInformationTuple = getVehicleInformationTuple(vehicleType);
+			this.vehicleInformationTuples.put(vehicleType, vehicleInformationTuple);
+		}
+		return calculateWarmEmissionValues(travelTime, EmissionUtils.getHbefaRoadType(link), link.getFreespeed(), link.getLength(), vehicleInformationTuple);
+	}
+
+	private Tuple<HbefaVehicleCategory, HbefaVehicleAttributes> getVehicleInformationTuple(VehicleType vehicleType) {
 		{
 			String hbefaVehicleTypeDescription = EmissionUtils.getHbefaVehicleDescription(vehicleType, this.ecg);
 			// (this will, importantly, repair the hbefa description in the vehicle type. kai/kai, jan'20)
@@ -231,21 +313,36 @@ public final class WarmEmissionAnalysisModule implements LinkEmissionsCalculator
 					"Please make sure that requirements for emission vehicles in " +
 					EmissionsConfigGroup.GROUP_NAME + " config group are met. Aborting...");
 		}
-
-		double freeVelocity = link.getFreespeed(); //TODO: what about time dependence
-
-		return calculateWarmEmissions(travelTime, EmissionUtils.getHbefaRoadType(link), freeVelocity, link.getLength(), vehicleInformationTuple);
+		return vehicleInformationTuple;
 	}
 
 	Map<Pollutant, Double> calculateWarmEmissions(double travelTime_sec, String roadType, double freeVelocity_ms,
 												  double linkLength_m, Tuple<HbefaVehicleCategory, HbefaVehicleAttributes> vehicleInformationTuple) {
-
+		double[] warmEmissionValues = calculateWarmEmissionValues(travelTime_sec, roadType, freeVelocity_ms, linkLength_m, vehicleInformationTuple);
 		Map<Pollutant, Double> warmEmissionsOfEvent = new EnumMap<>(Pollutant.class);
+		for (Pollutant warmPollutant : this.warmPollutantArray) {
+			warmEmissionsOfEvent.put(warmPollutant, warmEmissionValues[warmPollutant.ordinal()]);
+		}
+		return warmEmissionsOfEvent;
+	}
+
+	/**
+	 * Calculates the warm emissions of a vehicle on a link.  Emission factors are taken from the {@link HbefaEmissionFactorLookup}
+	 * if possible, so apart from the result no objects are created.  Only factors which need a fallback are looked up in the hbefa
+	 * tables.
+	 *
+	 * @return the emissions, indexed by {@link Pollutant#ordinal()}; pollutants which are not calculated are <code>NaN</code>.
+	 */
+	double[] calculateWarmEmissionValues(double travelTime_sec, String roadType, double freeVelocity_ms,
+										 double linkLength_m, Tuple<HbefaVehicleCategory, HbefaVehicleAttributes> vehicleInformationTuple) {
+
+		double[] warmEmissionsOfEvent = new double[NUMBER_OF_POLLUTANTS];
+		Arrays.fill(warmEmissionsOfEvent, Double.NaN);
 
 		// fallback vehicle types that we cannot or do not want to map onto a hbefa vehicle type:
 		if (vehicleInformationTuple.getFirst() == HbefaVehicleCategory.NON_HBEFA_VEHICLE) {
-			for (Pollutant warmPollutant : warmPollutants) {
-				warmEmissionsOfEvent.put(warmPollutant, 0.0);
+			for (Pollutant warmPollutant : warmPollutantArray) {
+				warmEmissionsOfEvent[warmPollutant.ordinal()] = 0.0;
 				// yyyyyy todo replace by something more meaningful. kai, jan'20
 			}
 			if (cnt > 0) {
@@ -259,19 +356,6 @@ public final class WarmEmissionAnalysisModule implements LinkEmissionsCalculator
 			return warmEmissionsOfEvent;
 		}
 
-		// translate vehicle information type into factor key.  yyyy maybe combine these two? kai, jan'20
-		HbefaWarmEmissionFactorKey efkey = new HbefaWarmEmissionFactorKey();
-		efkey.setVehicleCategory(vehicleInformationTuple.getFirst());
-		efkey.setRoadCategory(roadType);
-		if (this.detailedHbefaWarmTable != null) {
-			HbefaVehicleAttributes hbefaVehicleAttributes = new HbefaVehicleAttributes();
-			hbefaVehicleAttributes.setHbefaTechnology(vehicleInformationTuple.getSecond().getHbefaTechnology());
-			hbefaVehicleAttributes.setHbefaSizeClass(vehicleInformationTuple.getSecond().getHbefaSizeClass());
-			hbefaVehicleAttributes.setHbefaEmConcept(vehicleInformationTuple.getSecond().getHbefaEmConcept());
-			efkey.setVehicleAttributes(hbefaVehicleAttributes);
-		}
-
-
 		double averageSpeed_kmh = (linkLength_m / 1000) / (travelTime_sec / 3600);
 
 		// hedge against odd average speeds:
@@ -287,41 +371,53 @@ public final class WarmEmissionAnalysisModule implements LinkEmissionsCalculator
 			}
 		}
 
+		int vehicleCode = -1;
+		if (this.factorLookupBehavior == ecg.getDetailedVsAverageLookupBehavior()) {
+			// (otherwise the lookup behavior was changed after the construction, and all factors are looked up in the hbefa tables)
+			HbefaVehicleAttributes attributes = this.factorLookupBehavior == EmissionsConfigGroup.DetailedVsAverageLookupBehavior.directlyTryAverageTable ?
+					AVERAGE_VEHICLE_ATTRIBUTES : vehicleInformationTuple.getSecond();
+			vehicleCode = this.factorLookup.getVehicleCode(vehicleInformationTuple.getFirst(), attributes);
+		}
+		int roadTypeCode = getRoadTypeCode(roadType);
+
 		// for the average speed method, the traffic situation is already known here:
+		HbefaTrafficSituation trafficSituation = null;
+		double[] factors = null;
+		double[] stopGoFactors = null;
+		double[] freeFlowFactors = null;
 		if (ecg.getEmissionsComputationMethod() == AverageSpeed) {
-			final HbefaTrafficSituation trafficSituation = getTrafficSituation(efkey, averageSpeed_kmh, freeVelocity_ms * 3.6);
-//			logger.warn( "trafficSituation=" + trafficSituation );
-			efkey.setTrafficSituation(trafficSituation);
+			trafficSituation = getTrafficSituation(vehicleInformationTuple, roadType, roadTypeCode, averageSpeed_kmh, freeVelocity_ms * 3.6);
+			factors = this.factorLookup.get(vehicleCode, roadTypeCode, trafficSituation.ordinal());
+		} else if (ecg.getEmissionsComputationMethod() == StopAndGoFraction) {
+			stopGoFactors = this.factorLookup.get(vehicleCode, roadTypeCode, STOPANDGO.ordinal());
+			freeFlowFactors = this.factorLookup.get(vehicleCode, roadTypeCode, FREEFLOW.ordinal());
 		}
 
 		double fractionStopGo = 0;
 
 		// for each pollutant, compute and memorize emissions:
-		for ( Pollutant warmPollutant : warmPollutants) {
+		for ( Pollutant warmPollutant : warmPollutantArray) {
 			double generatedEmissions;
 
-			efkey.setComponent(warmPollutant);
-
 			double ef_gpkm;
 			if (ecg.getEmissionsComputationMethod() == StopAndGoFraction) {
 
-				// compute faction.  This cannot be done earlier since efkey.component is needed.
-				fractionStopGo = getFractionStopAndGo(freeVelocity_ms * 3.6, averageSpeed_kmh, vehicleInformationTuple, efkey);
+				// compute faction.  This cannot be done earlier since the speed is given per pollutant.
+				double stopGoSpeedFromTable_kmh = getSpeed(stopGoFactors, vehicleInformationTuple, roadType, STOPANDGO, warmPollutant);
+				fractionStopGo = getFractionStopAndGo(freeVelocity_ms * 3.6, averageSpeed_kmh, stopGoSpeedFromTable_kmh);
 				logger.info("fractionStopGo is: " + fractionStopGo);
 
 				double efStopGo_gpkm = 0.;
 				if (fractionStopGo > 0) {
 					// compute emissions from stop-go fraction:
-					efkey.setTrafficSituation(STOPANDGO);
-					efStopGo_gpkm = getEf(vehicleInformationTuple, efkey).getFactor();
+					efStopGo_gpkm = getFactor(stopGoFactors, vehicleInformationTuple, roadType, STOPANDGO, warmPollutant);
 					logger.warn("pollutant=" + warmPollutant + "; efStopGo=" + efStopGo_gpkm);
 				}
 
 				double efFreeFlow_gpkm = 0. ;
 				if ( fractionStopGo<1.) {
 					// compute emissions for free-flow fraction:
-					efkey.setTrafficSituation(FREEFLOW);
-					efFreeFlow_gpkm = getEf(vehicleInformationTuple, efkey).getFactor();
+					efFreeFlow_gpkm = getFactor(freeFlowFactors, vehicleInformationTuple, roadType, FREEFLOW, warmPollutant);
 					logger.warn("pollutant=" + warmPollutant + "; efFreeFlow=" + efFreeFlow_gpkm);
 				}
 
@@ -330,13 +426,13 @@ public final class WarmEmissionAnalysisModule implements LinkEmissionsCalculator
 				ef_gpkm = (fractionFreeFlow * efFreeFlow_gpkm) + (fractionStopGo * efStopGo_gpkm);
 
 			} else if (ecg.getEmissionsComputationMethod() == AverageSpeed) {
-				ef_gpkm = getEf(vehicleInformationTuple, efkey).getFactor();
+				ef_gpkm = getFactor(factors, vehicleInformationTuple, roadType, trafficSituation, warmPollutant);
 			} else {
 				throw new RuntimeException( Gbl.NOT_IMPLEMENTED );
 			}
 
 			generatedEmissions = (linkLength_m / 1000) * ef_gpkm;
-			warmEmissionsOfEvent.put(warmPollutant, generatedEmissions);
+			warmEmissionsOfEvent[warmPollutant.ordinal()] = generatedEmissions;
 		}
 
 		// update counters:
@@ -345,7 +441,7 @@ public final class WarmEmissionAnalysisModule implements LinkEmissionsCalculator
 			incrementCountersFractional( linkLength_m / 1000, fractionStopGo );
 		}
 		else if (ecg.getEmissionsComputationMethod() == AverageSpeed) {
-			incrementCountersAverage(efkey.getTrafficSituation(), linkLength_m / 1000);
+			incrementCountersAverage(trafficSituation, linkLength_m / 1000);
 		} else {
 			throw new RuntimeException( Gbl.NOT_IMPLEMENTED );
 		}
@@ -353,12 +449,54 @@ public final class WarmEmissionAnalysisModule implements LinkEmissionsCalculator
 		return warmEmissionsOfEvent;
 	}
 
-	private double getFractionStopAndGo(double freeFlowSpeed_kmh, double averageSpeed_kmh,
-										Tuple<HbefaVehicleCategory, HbefaVehicleAttributes> vehicleInformationTuple,
-										HbefaWarmEmissionFactorKey efkey) {
+	private int getRoadTypeCode(String roadType) {
+		Integer code = this.roadTypeCodes.get(roadType);
+		return code == null ? -1 : code;
+	}
+
+	private HbefaWarmEmissionFactorKey createEfKey(Tuple<HbefaVehicleCategory, HbefaVehicleAttributes> vehicleInformationTuple, String roadType) {
+		// translate vehicle information type into factor key.  yyyy maybe combine these two? kai, jan'20
+		HbefaWarmEmissionFactorKey efkey = new HbefaWarmEmissionFactorKey();
+		efkey.setVehicleCategory(vehicleInformationTuple.getFirst());
+		efkey.setRoadCategory(roadType);
+		if (this.detailedHbefaWarmTable != null) {
+			HbefaVehicleAttributes hbefaVehicleAttributes = new HbefaVehicleAttributes();
+			hbefaVehicleAttributes.setHbefaTechnology(vehicleInformationTuple.getSecond().getHbefaTechnology());
+			hbefaVehicleAttributes.setHbefaSizeClass(vehicleInformationTuple.getSecond().getHbefaSizeClass());
+			hbefaVehicleAttributes.setHbefaEmConcept(vehicleInformationTuple.getSecond().getHbefaEmConcept());
+			efkey.setVehicleAttributes(hbefaVehicleAttributes);
+		}
+		return efkey;
+	}
+
+	/**
+	 * @param factors the entry of the {@link HbefaEmissionFactorLookup}, may be <code>null</code>
+	 */
+	private double getFactor(double[] factors, Tuple<HbefaVehicleCategory, HbefaVehicleAttributes> vehicleInformationTuple, String roadType,
+							 HbefaTrafficSituation trafficSituation, Pollutant pollutant) {
+		if (factors != null && !Double.isNaN(factors[pollutant.ordinal()])) {
+			return factors[pollutant.ordinal()];
+		}
+		return lookupEf(vehicleInformationTuple, roadType, trafficSituation, pollutant).getFactor();
+	}
 
-		efkey.setTrafficSituation(STOPANDGO);
-		double stopGoSpeedFromTable_kmh = getEf(vehicleInformationTuple, efkey).getSpeed();
+	private double getSpeed(double[] factors, Tuple<HbefaVehicleCategory, HbefaVehicleAttributes> vehicleInformationTuple, String roadType,
+							HbefaTrafficSituation trafficSituation, Pollutant pollutant) {
+		if (factors != null && !Double.isNaN(factors[NUMBER_OF_POLLUTANTS + pollutant.ordinal()])) {
+			return factors[NUMBER_OF_POLLUTANTS + pollutant.ordinal()];
+		}
+		return lookupEf(vehicleInformationTuple, roadType, trafficSituation, pollutant).getSpeed();
+	}
+
+	private HbefaWarmEmissionFactor lookupEf(Tuple<HbefaVehicleCategory, HbefaVehicleAttributes> vehicleInformationTuple, String roadType,
+											 HbefaTrafficSituation trafficSituation, Pollutant pollutant) {
+		HbefaWarmEmissionFactorKey efkey = createEfKey(vehicleInformationTuple, roadType);
+		efkey.setTrafficSituation(trafficSituation);
+		efkey.setComponent(pollutant);
+		return getEf(vehicleInformationTuple, efkey);
+	}
+
+	private static double getFractionStopAndGo(double freeFlowSpeed_kmh, double averageSpeed_kmh, double stopGoSpeedFromTable_kmh) {
 
 		double fractionStopGo;
 
@@ -557,28 +695,27 @@ public final class WarmEmissionAnalysisModule implements LinkEmissionsCalculator
 
 
 	//TODO: this is based on looking at the speeds in the HBEFA files, using an MFP, maybe from A.Loder would be nicer, jm  oct'18
-	private HbefaTrafficSituation getTrafficSituation(HbefaWarmEmissionFactorKey efkey, double averageSpeed_kmh, double freeFlowSpeed_kmh) {
-		//TODO: should this be generated only once much earlier?
-		HbefaRoadVehicleCategoryKey hbefaRoadVehicleCategoryKey = new HbefaRoadVehicleCategoryKey(efkey);
-		Map<HbefaTrafficSituation, Double> trafficSpeeds = this.hbefaRoadTrafficSpeeds.get(hbefaRoadVehicleCategoryKey);
-
-		//TODO: Hier die Berechunung einfügen, die die trafficSpeedTabelle entsprechend aus den Werten erstellt?
-		//Frage Laufzeit: Einmal berechnen ha
+	private HbefaTrafficSituation getTrafficSituation(Tuple<HbefaVehicleCategory, HbefaVehicleAttributes> vehicleInformationTuple, String roadType,
+													  int roadTypeCode, double averageSpeed_kmh, double freeFlowSpeed_kmh) {
+		// the speeds per traffic situation, NaN if the situation is not given in the table:
+		double[] trafficSpeeds = roadTypeCode < 0 ? null : this.trafficSpeeds[vehicleInformationTuple.getFirst().ordinal()][roadTypeCode];
 
-		if (trafficSpeeds == null || !trafficSpeeds.containsKey(FREEFLOW)) {
+		if (trafficSpeeds == null || Double.isNaN(trafficSpeeds[FREEFLOW.ordinal()])) {
+			HbefaWarmEmissionFactorKey efkey = createEfKey(vehicleInformationTuple, roadType);
 			throw new RuntimeException("At least the FREEFLOW condition must be specified for all emission factor keys. " +
 					"It was not found for " + efkey);
 		}
 
+		// (comparisons with NaN are always false, so missing traffic situations are skipped)
 		HbefaTrafficSituation trafficSituation  = FREEFLOW;
-		if (trafficSpeeds.containsKey(HEAVY) && averageSpeed_kmh <= trafficSpeeds.get(HEAVY)) {
+		if (averageSpeed_kmh <= trafficSpeeds[HEAVY.ordinal()]) {
 			trafficSituation = HEAVY;
 		}
-		if (trafficSpeeds.containsKey(SATURATED) && averageSpeed_kmh <= trafficSpeeds.get(SATURATED)) {
+		if (averageSpeed_kmh <= trafficSpeeds[SATURATED.ordinal()]) {
 			trafficSituation = SATURATED;
 		}
-		if (trafficSpeeds.containsKey(STOPANDGO) && averageSpeed_kmh <= trafficSpeeds.get(STOPANDGO)) {
-			if (averageSpeed_kmh != trafficSpeeds.get(FREEFLOW)) { //handle case testCheckVehicleInfoAndCalculateWarmEmissions_and_throwWarmEmissionEvent6
+		if (averageSpeed_kmh <= trafficSpeeds[STOPANDGO.ordinal()]) {
+			if (averageSpeed_kmh != trafficSpeeds[FREEFLOW.ordinal()]) { //handle case testCheckVehicleInfoAndCalculateWarmEmissions_and_throwWarmEmissionEvent6
 				trafficSituation = STOPANDGO;
 			}
 		}
@@ -64,7 +64,8 @@ class WarmEmissionHandler implements LinkEnterEventHandler, LinkLeaveEventHandle
 	private int nonCarWarn = 0;
 	private int noVehWarnCnt = 0;
 
-	private final Map<Id<Vehicle>, Tuple<Id<Link>, Double>> linkenter = new HashMap<>();
+	// one mutable entry per vehicle, so that link enter events do not create any objects
+	private final Map<Id<Vehicle>, LinkEnter> linkenter = new HashMap<>();
 	private final Map<Id<Vehicle>, Tuple<Id<Link>, Double>> vehicleLeavesTraffic = new HashMap<>();
 	private final Map<Id<Vehicle>, Tuple<Id<Link>, Double>> vehicleEntersTraffic = new HashMap<>();
 
@@ -127,8 +128,13 @@ class WarmEmissionHandler implements LinkEnterEventHandler, LinkLeaveEventHandle
 
 	@Override
 	public void handleEvent(LinkEnterEvent event) {
-		Tuple<Id<Link>, Double> linkId2Time = new Tuple<>(event.getLinkId(), event.getTime());
-		this.linkenter.put(event.getVehicleId(), linkId2Time);
+		LinkEnter linkEnter = this.linkenter.get(event.getVehicleId());
+		if (linkEnter == null) {
+			linkEnter = new LinkEnter();
+			this.linkenter.put(event.getVehicleId(), linkEnter);
+		}
+		linkEnter.linkId = event.getLinkId();
+		linkEnter.time = event.getTime();
 	}
 
 	@Override
@@ -151,7 +157,8 @@ class WarmEmissionHandler implements LinkEnterEventHandler, LinkLeaveEventHandle
 		// excluding links with zero lengths from leaveCnt. Amit July'17
 		linkLeaveCnt++;
 
-		if(!this.linkenter.containsKey(vehicleId)){
+		LinkEnter linkEnter = this.linkenter.get(vehicleId);
+		if(linkEnter == null){
 			int maxLinkLeaveFirstActWarnCnt = 3;
 			if(linkLeaveFirstActWarnCnt < maxLinkLeaveFirstActWarnCnt){
 				logger.info("Vehicle " + vehicleId + " is ending its first activity of the day and leaving link " + linkId + " without having entered.");
@@ -160,7 +167,7 @@ class WarmEmissionHandler implements LinkEnterEventHandler, LinkLeaveEventHandle
 				if (linkLeaveFirstActWarnCnt == maxLinkLeaveFirstActWarnCnt) logger.warn(Gbl.FUTURE_SUPPRESSED);
 			}
 			linkLeaveFirstActWarnCnt++;
-		} else if (!this.linkenter.get(vehicleId).getFirst().equals(linkId)){
+		} else if (!linkEnter.linkId.equals(linkId)){
 			int maxLinkLeaveSomeActWarnCnt = 3;
 			if(linkLeaveSomeActWarnCnt < maxLinkLeaveSomeActWarnCnt){
 				logger.warn("Vehicle " + vehicleId + " is ending an activity other than the first and leaving link " + linkId + " without having entered.");
@@ -170,7 +177,7 @@ class WarmEmissionHandler implements LinkEnterEventHandler, LinkLeaveEventHandle
 			}
 			linkLeaveSomeActWarnCnt++;
 		} else {
-			double enterTime = this.linkenter.get(vehicleId).getSecond();
+			double enterTime = linkEnter.time;
 			double travelTime;
 			if(!this.vehicleLeavesTraffic.containsKey(vehicleId) || !this.vehicleEntersTraffic.containsKey(vehicleId)){
 				travelTime = leaveTime - enterTime;
@@ -216,12 +223,17 @@ class WarmEmissionHandler implements LinkEnterEventHandler, LinkLeaveEventHandle
 
 			} else {
 				VehicleType vehicleType = vehicle.getType() ;
-				Map<Pollutant, Double> warmEmissions = warmEmissionAnalysisModule.checkVehicleInfoAndCalculateWarmEmissions(vehicleType, vehicleId, link, travelTime );
+				double[] warmEmissions = warmEmissionAnalysisModule.calculateWarmEmissionValues(vehicleType, link, travelTime );
 				warmEmissionAnalysisModule.throwWarmEmissionEvent(leaveTime, linkId, vehicleId, warmEmissions);
 			}
 		}
 	}
 
+	private static final class LinkEnter {
+		private Id<Link> linkId;
+		private double time;
+	}
+
 	/*package-private*/ int getLinkLeaveCnt() {
 		return linkLeaveCnt;
 	}
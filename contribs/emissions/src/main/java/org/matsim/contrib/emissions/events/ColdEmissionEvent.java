@@ -25,6 +25,7 @@ import org.matsim.api.core.v01.network.Link;
 import org.matsim.contrib.emissions.Pollutant;
 import org.matsim.vehicles.Vehicle;
 
+import java.util.EnumMap;
 import java.util.Map;
 import java.util.Map.Entry;
 
@@ -41,13 +42,36 @@ public final class ColdEmissionEvent extends Event {
     public final static String ATTRIBUTE_VEHICLE_ID = "vehicleId";
     private final Id<Link> linkId;
 	private final Id<Vehicle> vehicleId;
-	private final Map<Pollutant, Double> coldEmissions;
+	private final Pollutant[] coldPollutants;
+	private final double[] coldEmissionValues;
+	private volatile Map<Pollutant, Double> coldEmissions;
 	
 	public ColdEmissionEvent( double time, Id<Link> linkId, Id<Vehicle> vehicleId, Map<Pollutant, Double> coldEmissions ) {
         super(time);
         this.linkId = linkId;
 		this.vehicleId = vehicleId;
 		this.coldEmissions = coldEmissions;
+		this.coldPollutants = null;
+		this.coldEmissionValues = null;
+	}
+
+	private ColdEmissionEvent( double time, Id<Link> linkId, Id<Vehicle> vehicleId, Pollutant[] coldPollutants, double[] coldEmissionValues ) {
+		super(time);
+		this.linkId = linkId;
+		this.vehicleId = vehicleId;
+		this.coldEmissions = null;
+		this.coldPollutants = coldPollutants;
+		this.coldEmissionValues = coldEmissionValues;
+	}
+
+	/**
+	 * Creates the event from the emissions per pollutant, indexed by {@link Pollutant#ordinal()}. Exactly the given
+	 * pollutants are part of the event, with their values as given (which might be <code>NaN</code>); the values of all
+	 * other pollutants must be <code>NaN</code>. The arrays are not copied and must not be changed afterwards.
+	 */
+	public static ColdEmissionEvent createFromValues( double time, Id<Link> linkId, Id<Vehicle> vehicleId, Pollutant[] coldPollutants,
+			double[] coldEmissionValues ) {
+		return new ColdEmissionEvent(time, linkId, vehicleId, coldPollutants, coldEmissionValues);
 	}
 
 	public Id<Link> getLinkId() {
@@ -59,7 +83,27 @@ public final class ColdEmissionEvent extends Event {
 	}
 	
 	public Map<Pollutant, Double> getColdEmissions() {
-		return coldEmissions;
+		Map<Pollutant, Double> emissions = this.coldEmissions;
+		if (emissions == null) {
+			// created from an array; only build the map if someone asks for it
+			emissions = new EnumMap<>(Pollutant.class);
+			for (Pollutant pollutant : this.coldPollutants) {
+				emissions.put(pollutant, this.coldEmissionValues[pollutant.ordinal()]);
+			}
+			this.coldEmissions = emissions;
+		}
+		return emissions;
+	}
+
+	/**
+	 * @return the emission of the given pollutant, or <code>NaN</code> if the pollutant is not part of this event.
+	 */
+	public double getColdEmission(Pollutant pollutant) {
+		if (this.coldEmissionValues != null) {
+			return this.coldEmissionValues[pollutant.ordinal()];
+		}
+		Double value = getColdEmissions().get(pollutant);
+		return value == null ? Double.NaN : value;
 	}
 
 	@Override
@@ -67,7 +111,7 @@ public final class ColdEmissionEvent extends Event {
 		Map<String, String> attributes = super.getAttributes();
 		attributes.put(ATTRIBUTE_LINK_ID, this.linkId.toString());
 		attributes.put(ATTRIBUTE_VEHICLE_ID, this.vehicleId.toString());
-		for( Entry<Pollutant, Double> entry : coldEmissions.entrySet()){
+		for( Entry<Pollutant, Double> entry : getColdEmissions().entrySet()){
 			Pollutant pollutant = entry.getKey();
 			Double value = entry.getValue();
 			attributes.put(pollutant.name(), value.toString());
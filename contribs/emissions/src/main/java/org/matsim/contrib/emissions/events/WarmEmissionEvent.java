@@ -25,6 +25,7 @@ import org.matsim.api.core.v01.network.Link;
 import org.matsim.contrib.emissions.Pollutant;
 import org.matsim.vehicles.Vehicle;
 
+import java.util.EnumMap;
 import java.util.Map;
 import java.util.Map.Entry;
 
@@ -42,7 +43,9 @@ public final class WarmEmissionEvent extends Event {
     public final static String ATTRIBUTE_VEHICLE_ID = "vehicleId";
     private final Id<Link> linkId;
 	private final Id<Vehicle> vehicleId;
-	private final Map<Pollutant, Double> warmEmissions;
+	private final Pollutant[] warmPollutants;
+	private final double[] warmEmissionValues;
+	private volatile Map<Pollutant, Double> warmEmissions;
 
 	public WarmEmissionEvent( double time, Id<Link> linkId, Id<Vehicle> vehicleId, Map<Pollutant, Double> warmEmissions ) {
 		// this is a WARM emission event, and so can accept the typed map. kai, jan'20
@@ -50,6 +53,27 @@ public final class WarmEmissionEvent extends Event {
 		this.linkId = linkId;
 		this.vehicleId = vehicleId;
 		this.warmEmissions = warmEmissions;
+		this.warmPollutants = null;
+		this.warmEmissionValues = null;
+	}
+
+	private WarmEmissionEvent( double time, Id<Link> linkId, Id<Vehicle> vehicleId, Pollutant[] warmPollutants, double[] warmEmissionValues ) {
+		super(time);
+		this.linkId = linkId;
+		this.vehicleId = vehicleId;
+		this.warmEmissions = null;
+		this.warmPollutants = warmPollutants;
+		this.warmEmissionValues = warmEmissionValues;
+	}
+
+	/**
+	 * Creates the event from the emissions per pollutant, indexed by {@link Pollutant#ordinal()}. Exactly the given
+	 * pollutants are part of the event, with their values as given (which might be <code>NaN</code>); the values of all
+	 * other pollutants must be <code>NaN</code>. The arrays are not copied and must not be changed afterwards.
+	 */
+	public static WarmEmissionEvent createFromValues( double time, Id<Link> linkId, Id<Vehicle> vehicleId, Pollutant[] warmPollutants,
+			double[] warmEmissionValues ) {
+		return new WarmEmissionEvent(time, linkId, vehicleId, warmPollutants, warmEmissionValues);
 	}
 
 	public Id<Link> getLinkId() {
@@ -61,7 +85,27 @@ public final class WarmEmissionEvent extends Event {
 	}
 	
 	public Map<Pollutant, Double> getWarmEmissions() {
-		return warmEmissions;
+		Map<Pollutant, Double> emissions = this.warmEmissions;
+		if (emissions == null) {
+			// created from an array; only build the map if someone asks for it
+			emissions = new EnumMap<>(Pollutant.class);
+			for (Pollutant pollutant : this.warmPollutants) {
+				emissions.put(pollutant, this.warmEmissionValues[pollutant.ordinal()]);
+			}
+			this.warmEmissions = emissions;
+		}
+		return emissions;
+	}
+
+	/**
+	 * @return the emission of the given pollutant, or <code>NaN</code> if the pollutant is not part of this event.
+	 */
+	public double getWarmEmission(Pollutant pollutant) {
+		if (this.warmEmissionValues != null) {
+			return this.warmEmissionValues[pollutant.ordinal()];
+		}
+		Double value = getWarmEmissions().get(pollutant);
+		return value == null ? Double.NaN : value;
 	}
 
 	@Override
@@ -69,7 +113,7 @@ public final class WarmEmissionEvent extends Event {
 		Map<String, String> attributes = super.getAttributes();
 		attributes.put(ATTRIBUTE_LINK_ID, this.linkId.toString());
 		attributes.put(ATTRIBUTE_VEHICLE_ID, this.vehicleId.toString());
-		for( Entry<Pollutant, Double> entry : warmEmissions.entrySet()){
+		for( Entry<Pollutant, Double> entry : getWarmEmissions().entrySet()){
 			String pollutant = entry.getKey().name();
 			Double value = entry.getValue();
 			attributes.put(pollutant, value.toString());
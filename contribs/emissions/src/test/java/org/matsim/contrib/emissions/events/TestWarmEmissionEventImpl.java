@@ -102,6 +102,29 @@ public class TestWarmEmissionEventImpl {
 				Double.parseDouble(weg.get(SO2.name())), so, MatsimTestUtils.EPSILON);
 	}
 
+	@Test
+	public final void testCreateFromValues(){
+		double[] values = new double[Pollutant.values().length];
+		Arrays.fill(values, Double.NaN);
+		values[CO.ordinal()] = co;
+		values[NOx.ordinal()] = nx;
+
+		WarmEmissionEvent we = WarmEmissionEvent.createFromValues(0.0, linkId, vehicleId, new Pollutant[]{CO, NOx, SO2}, values);
+
+		Assert.assertEquals(co, we.getWarmEmission(CO), MatsimTestUtils.EPSILON);
+		Assert.assertEquals(nx, we.getWarmEmission(NOx), MatsimTestUtils.EPSILON);
+		Assert.assertTrue(Double.isNaN(we.getWarmEmission(PM)));
+
+		// the given pollutants are part of the event, even if their value is NaN
+		Assert.assertEquals(3, we.getWarmEmissions().size());
+		Assert.assertEquals(co, we.getWarmEmissions().get(CO), MatsimTestUtils.EPSILON);
+		Assert.assertTrue(Double.isNaN(we.getWarmEmissions().get(SO2)));
+		Map<String, String> weg = we.getAttributes();
+		Assert.assertEquals(nx, Double.parseDouble(weg.get(NOx.name())), MatsimTestUtils.EPSILON);
+		Assert.assertEquals("NaN", weg.get(SO2.name()));
+		Assert.assertNull(weg.get(PM.name()));
+	}
+
 	@Test
 		public final void testGetAttributesForIncompleteMaps(){
 			//the getAttributesMethod should
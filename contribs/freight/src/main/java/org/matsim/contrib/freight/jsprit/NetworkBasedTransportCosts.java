@@ -22,7 +22,11 @@ import org.matsim.api.core.v01.Id;
 import org.matsim.api.core.v01.network.Link;
 import org.matsim.api.core.v01.network.Network;
 import org.matsim.api.core.v01.population.Person;
+import org.matsim.contrib.freight.carrier.Carrier;
+import org.matsim.contrib.freight.carrier.CarrierService;
+import org.matsim.contrib.freight.carrier.CarrierShipment;
 import org.matsim.contrib.freight.carrier.CarrierVehicle;
+import org.matsim.contrib.freight.carrier.Carriers;
 import org.matsim.core.router.FastDijkstraFactory;
 import org.matsim.core.router.util.LeastCostPathCalculator;
 import org.matsim.core.router.util.LeastCostPathCalculator.Path;
@@ -69,6 +73,13 @@ import java.util.concurrent.ConcurrentHashMap;
  * Keep in mind that if you have many locations, small time-bins and many
  * vehicleTypes, calculations get very time- and memory-consuming.
  *
+ * <p>
+ * For large problems, the values between all locations of the carriers can
+ * be precomputed in parallel when building (see
+ * {@link Builder#setPrecomputedLocations(Collection, double, int)}), and the
+ * size of the cache for all other requests can be limited (see
+ * {@link Builder#setCacheSize(int)}).
+ *
  * @author stefan schröder
  *
  */
@@ -400,6 +411,16 @@ public class NetworkBasedTransportCosts implements VehicleRoutingTransportCosts
 
 		private String defaultTypeId = UUID.randomUUID().toString();
 
+		private final Collection<VehicleType> vehicleTypes;
+
+		private Collection<String> precomputedLocationIds = null;
+
+		private double precomputedLatestDepartureTime = 0;
+
+		private int numberOfThreads = 1;
+
+		private int cacheSize = Integer.MAX_VALUE;
+
 		/**
 		 * Creates the builder requiring {@link Network} and a collection of
 		 * {@link VehicleType}.
@@ -410,6 +431,7 @@ public class NetworkBasedTransportCosts implements VehicleRoutingTransportCosts
 		 */
 		private Builder(Network network, Collection<VehicleType> vehicleTypes) {
 			this.network = network;
+			this.vehicleTypes = vehicleTypes;
 			retrieveTypeSpecificCosts(vehicleTypes);
 		}
 
@@ -489,6 +511,69 @@ public class NetworkBasedTransportCosts implements VehicleRoutingTransportCosts
 			return this;
 		}
 
+		/**
+		 * Precomputes transport-costs, -times and distances between all pairs of the
+		 * given locations when building, for all vehicleTypes given to this builder
+		 * and all time-bins up to the given latest departure time. Every
+		 * from-location is calculated with one least-cost-path-tree, using the given
+		 * number of threads. Requests between these locations are then answered from
+		 * the precomputed matrix, all other requests are calculated on demand and
+		 * cached as before.
+		 * <p>
+		 * The matrix requires 24 bytes per pair of locations, vehicleType and
+		 * time-bin. It is calculated for departures at the start of every time-bin
+		 * with least-cost-path-trees, independent of the
+		 * leastCostPathCalculatorFactory. The matsim vehicleTypes must have the same
+		 * maximum velocity as the jsprit vehicleTypes with the same id, as it is the
+		 * case for types created by {@link MatsimJspritFactory}.
+		 *
+		 * @param locationIds the ids of the links of the locations
+		 * @return this builder
+		 */
+		public Builder setPrecomputedLocations(Collection<String> locationIds, double latestDepartureTime,
+				int numberOfThreads) {
+			this.precomputedLocationIds = locationIds;
+			this.precomputedLatestDepartureTime = latestDepartureTime;
+			this.numberOfThreads = numberOfThreads;
+			return this;
+		}
+
+		/**
+		 * Precomputes the transport data between the locations of all services,
+		 * shipments and vehicles of the given carriers, see
+		 * {@link #setPrecomputedLocations(Collection, double, int)}.
+		 *
+		 * @return this builder
+		 */
+		public Builder setPrecomputedLocations(Carriers carriers, double latestDepartureTime, int numberOfThreads) {
+			Set<String> locationIds = new LinkedHashSet<>();
+			for (Carrier carrier : carriers.getCarriers().values()) {
+				for (CarrierVehicle vehicle : carrier.getCarrierCapabilities().getCarrierVehicles().values()) {
+					locationIds.add(vehicle.getLocation().toString());
+				}
+				for (CarrierService service : carrier.getServices().values()) {
+					locationIds.add(service.getLocationLinkId().toString());
+				}
+				for (CarrierShipment shipment : carrier.getShipments().values()) {
+					locationIds.add(shipment.getFrom().toString());
+					locationIds.add(shipment.getTo().toString());
+				}
+			}
+			return setPrecomputedLocations(locationIds, latestDepartureTime, numberOfThreads);
+		}
+
+		/**
+		 * Sets the maximum number of transport-data entries cached for requests which
+		 * are not covered by the precomputed locations. If the cache is full, the
+		 * least recently used entry is removed. By default the cache is unbounded.
+		 *
+		 * @return this builder
+		 */
+		public Builder setCacheSize(int cacheSize) {
+			this.cacheSize = cacheSize;
+			return this;
+		}
+
 		/**
 		 * Builds the network-based transport costs which are the basis for solving the
 		 * {@link VehicleRoutingProblem}.
@@ -539,7 +624,13 @@ public class NetworkBasedTransportCosts implements VehicleRoutingTransportCosts
 	 * cost-cache to cache transport-costs and transport-times (see
 	 * {@link TransportData}) according to {@link TransportDataKey}
 	 */
-	private final ConcurrentHashMap<TransportDataKey, TransportData> costCache = new ConcurrentHashMap<TransportDataKey, TransportData>();
+	private final Map<TransportDataKey, TransportData> costCache;
+
+	/**
+	 * precomputed transport-data, <code>null</code> if there are no precomputed
+	 * locations
+	 */
+	private final TransportCostMatrix transportCostMatrix;
 
 	/**
 	 * caches leastCostPathCalculators according to
@@ -584,6 +675,41 @@ public class NetworkBasedTransportCosts implements VehicleRoutingTransportCosts
 		this.defaultTypeId = builder.defaultTypeId;
 		this.ttMemorizedCounter = new Counter("#TransportCostValues cached ");
 		this.ttRequestedCounter = new Counter("numTravelCosts requested ");
+		if (builder.cacheSize == Integer.MAX_VALUE) {
+			this.costCache = new ConcurrentHashMap<TransportDataKey, TransportData>();
+		} else {
+			final int cacheSize = builder.cacheSize;
+			this.costCache = Collections.synchronizedMap(new LinkedHashMap<TransportDataKey, TransportData>(16, 0.75f, true) {
+				@Override
+				protected boolean removeEldestEntry(Map.Entry<TransportDataKey, TransportData> eldest) {
+					return size() > cacheSize;
+				}
+			});
+		}
+		if (builder.precomputedLocationIds == null) {
+			this.transportCostMatrix = null;
+		} else {
+			List<org.matsim.vehicles.Vehicle> vehicles = new ArrayList<org.matsim.vehicles.Vehicle>();
+			for (VehicleType type : builder.vehicleTypes) {
+				vehicles.add(VehicleUtils.createVehicle(Id.create(type.getId(), org.matsim.vehicles.Vehicle.class), type));
+			}
+			// the type of the vehicle that is used if jsprit does not provide one
+			vehicles.add(new MatsimVehicleWrapper(getDefaultVehicle(Location.newInstance(defaultTypeId))));
+			this.transportCostMatrix = TransportCostMatrix.calculate(network, travelTime, travelDisutility,
+					builder.precomputedLocationIds, vehicles, timeSliceWidth,
+					getTimeSlice(builder.precomputedLatestDepartureTime) + 1, builder.numberOfThreads);
+		}
+	}
+
+	/**
+	 * @return the value from the precomputed matrix, or <code>Double.NaN</code> if
+	 *         it does not cover the request
+	 */
+	private double getPrecomputedValue(Location fromId, Location toId, int timeSlice, String typeId, int valueIndex) {
+		if (transportCostMatrix == null) {
+			return Double.NaN;
+		}
+		return transportCostMatrix.getValue(fromId.getId(), toId.getId(), timeSlice, typeId, valueIndex);
 	}
 
 	/**
@@ -609,6 +735,10 @@ public class NetworkBasedTransportCosts implements VehicleRoutingTransportCosts
 		}
 		String typeId = vehicle.getType().getTypeId();
 		int timeSlice = getTimeSlice(departureTime);
+		double precomputedTime = getPrecomputedValue(fromId, toId, timeSlice, typeId, TransportCostMatrix.TIME);
+		if (!Double.isNaN(precomputedTime)) {
+			return precomputedTime;
+		}
 		TransportDataKey transportDataKey = makeKey(fromId.getId(), toId.getId(), timeSlice, typeId);
 		TransportData data = costCache.get(transportDataKey);
 		double transportTime;
@@ -693,14 +823,12 @@ public class NetworkBasedTransportCosts implements VehicleRoutingTransportCosts
 		if (vehicle == null) {
 			vehicle = getDefaultVehicle(fromId);
 		}
-		Id<Link> fromLinkId = Id.create(fromId.getId(), Link.class);
-		Id<Link> toLinkId = Id.create(toId.getId(), Link.class);
-		Link fromLink = network.getLinks().get(fromLinkId);
-		Link toLink = network.getLinks().get(toLinkId);
-		LeastCostPathCalculator router = createLeastCostPathCalculator();
-
 		int timeSlice = getTimeSlice(departureTime);
 		String typeId = vehicle.getType().getTypeId();
+		double precomputedCost = getPrecomputedValue(fromId, toId, timeSlice, typeId, TransportCostMatrix.COST);
+		if (!Double.isNaN(precomputedCost)) {
+			return precomputedCost;
+		}
 		TransportDataKey transportDataKey = makeKey(fromId.getId(), toId.getId(), timeSlice, typeId);
 		TransportData data = costCache.get(transportDataKey);
 		double transportCost;
@@ -709,6 +837,11 @@ public class NetworkBasedTransportCosts implements VehicleRoutingTransportCosts
 			transportCost = data.transportCosts;
 		} else {
 			informStartCalc();
+			Id<Link> fromLinkId = Id.create(fromId.getId(), Link.class);
+			Id<Link> toLinkId = Id.create(toId.getId(), Link.class);
+			Link fromLink = network.getLinks().get(fromLinkId);
+			Link toLink = network.getLinks().get(toLinkId);
+			LeastCostPathCalculator router = createLeastCostPathCalculator();
 			org.matsim.vehicles.Vehicle matsimVehicle = getMatsimVehicle(vehicle);
 			Path path = router.calcLeastCostPath(fromLink.getToNode(), toLink.getFromNode(), departureTime, null,
 					matsimVehicle);
@@ -760,6 +893,10 @@ public class NetworkBasedTransportCosts implements VehicleRoutingTransportCosts
 		}
 		String typeId = vehicle.getType().getTypeId();
 		int timeSlice = getTimeSlice(departureTime);
+		double precomputedDistance = getPrecomputedValue(fromId, toId, timeSlice, typeId, TransportCostMatrix.DISTANCE);
+		if (!Double.isNaN(precomputedDistance)) {
+			return precomputedDistance;
+		}
 		TransportDataKey transportDataKey = makeKey(fromId.getId(), toId.getId(), timeSlice, typeId);
 		TransportData data = costCache.get(transportDataKey);
 		double travelDistance;
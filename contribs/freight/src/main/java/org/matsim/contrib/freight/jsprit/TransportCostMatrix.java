@@ -0,0 +1,184 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * TransportCostMatrix.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2022 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.contrib.freight.jsprit;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.core.router.speedy.LeastCostPathTree;
+import org.matsim.core.router.speedy.SpeedyGraph;
+import org.matsim.core.router.util.TravelDisutility;
+import org.matsim.core.router.util.TravelTime;
+import org.matsim.core.utils.misc.OptionalTime;
+import org.matsim.vehicles.Vehicle;
+
+/**
+ * Transport costs, times and distances between all pairs of a fixed set of locations, precomputed for a fixed set of
+ * vehicle types and time slices.
+ * <p>
+ * The values are calculated the same way as in {@link NetworkBasedTransportCosts}: the path starts at the to-node of
+ * the from-link and ends at the from-node of the to-link, the to-link is added to costs and time, the from-link to the
+ * distance.  Each time slice is calculated for a departure at the start of the slice.  Every row of the matrix is
+ * calculated with one least-cost path tree from the from-location, and the rows are calculated in parallel.
+ * <p>
+ * The values are stored in primitive arrays, requiring 24 bytes per pair of locations, vehicle type and time slice.
+ * Unreachable locations get infinite values.
+ */
+final class TransportCostMatrix {
+
+	private static final Logger log = Logger.getLogger(TransportCostMatrix.class);
+
+	static final int COST = 0;
+	static final int TIME = 1;
+	static final int DISTANCE = 2;
+	private static final int VALUES_PER_ENTRY = 3;
+
+	private final Map<String, Integer> locationIndices;
+	private final Map<String, Integer> typeIndices;
+	private final int timeSliceCount;
+	private final int size;
+	private final double[][] rows; // per vehicle type, time slice and from-location: all values to every to-location
+
+	private TransportCostMatrix(Map<String, Integer> locationIndices, Map<String, Integer> typeIndices, int timeSliceCount) {
+		this.locationIndices = locationIndices;
+		this.typeIndices = typeIndices;
+		this.timeSliceCount = timeSliceCount;
+		this.size = locationIndices.size();
+		this.rows = new double[typeIndices.size() * timeSliceCount * this.size][];
+	}
+
+	/**
+	 * @param locationIds the ids of the links to calculate the matrix for
+	 * @param vehicles one vehicle per vehicle type to calculate the matrix for
+	 * @param timeSliceCount the number of time slices, starting at time 0
+	 */
+	static TransportCostMatrix calculate(Network network, TravelTime travelTime, TravelDisutility travelDisutility,
+			Collection<String> locationIds, Collection<Vehicle> vehicles, int timeSliceWidth, int timeSliceCount, int numberOfThreads) {
+		Map<String, Integer> locationIndices = new HashMap<>();
+		List<Link> links = new ArrayList<>();
+		for (String locationId : locationIds) {
+			Link link = network.getLinks().get(Id.createLinkId(locationId));
+			if (link == null) {
+				throw new IllegalArgumentException("location " + locationId + " is not a link of the network.");
+			}
+			if (!locationIndices.containsKey(locationId)) {
+				locationIndices.put(locationId, links.size());
+				links.add(link);
+			}
+		}
+		Map<String, Integer> typeIndices = new HashMap<>();
+		List<Vehicle> typeVehicles = new ArrayList<>();
+		for (Vehicle vehicle : vehicles) {
+			String typeId = vehicle.getType().getId().toString();
+			if (!typeIndices.containsKey(typeId)) {
+				typeIndices.put(typeId, typeVehicles.size());
+				typeVehicles.add(vehicle);
+			}
+		}
+
+		TransportCostMatrix matrix = new TransportCostMatrix(locationIndices, typeIndices, timeSliceCount);
+		log.info("calculating transport cost matrix for " + links.size() + " locations, " + typeVehicles.size() + " vehicle types and "
+				+ timeSliceCount + " time slices with " + numberOfThreads + " threads...");
+
+		SpeedyGraph graph = new SpeedyGraph(network);
+		AtomicInteger nextRow = new AtomicInteger(0);
+		ExecutorService executor = Executors.newFixedThreadPool(numberOfThreads);
+		List<Future<?>> futures = new ArrayList<>();
+		for (int i = 0; i < numberOfThreads; i++) {
+			futures.add(executor.submit(() -> {
+				LeastCostPathTree tree = new LeastCostPathTree(graph, travelTime, travelDisutility);
+				int row;
+				while ((row = nextRow.getAndIncrement()) < matrix.rows.length) {
+					matrix.calculateRow(row, tree, links, typeVehicles, timeSliceWidth, travelTime, travelDisutility);
+				}
+			}));
+		}
+		executor.shutdown();
+		try {
+			for (Future<?> future : futures) {
+				future.get();
+			}
+		} catch (InterruptedException | ExecutionException e) {
+			throw new RuntimeException(e);
+		}
+		log.info("transport cost matrix done.");
+		return matrix;
+	}
+
+	private void calculateRow(int row, LeastCostPathTree tree, List<Link> links, List<Vehicle> vehicles, int timeSliceWidth,
+			TravelTime travelTime, TravelDisutility travelDisutility) {
+		int from = row % this.size;
+		int timeSlice = (row / this.size) % this.timeSliceCount;
+		Vehicle vehicle = vehicles.get(row / this.size / this.timeSliceCount);
+		Link fromLink = links.get(from);
+		double departureTime = timeSlice * (double) timeSliceWidth;
+
+		tree.calculate(fromLink.getToNode().getId().index(), departureTime, null, vehicle);
+
+		double[] values = new double[this.size * VALUES_PER_ENTRY];
+		for (int to = 0; to < this.size; to++) {
+			Link toLink = links.get(to);
+			int node = toLink.getFromNode().getId().index();
+			int offset = to * VALUES_PER_ENTRY;
+			OptionalTime arrivalTime = tree.getTime(node);
+			if (arrivalTime.isUndefined()) {
+				Arrays.fill(values, offset, offset + VALUES_PER_ENTRY, Double.POSITIVE_INFINITY);
+				continue;
+			}
+			double pathTime = arrivalTime.seconds() - departureTime;
+			values[offset + COST] = tree.getCost(node) + travelDisutility.getLinkTravelDisutility(toLink, arrivalTime.seconds(), null, vehicle);
+			values[offset + TIME] = pathTime + travelTime.getLinkTravelTime(toLink, arrivalTime.seconds(), null, vehicle);
+			values[offset + DISTANCE] = fromLink.getLength() + tree.getDistance(node);
+		}
+		this.rows[row] = values;
+	}
+
+	/**
+	 * @return the requested value, or <code>Double.NaN</code> if the matrix does not contain the locations, the time slice or the vehicle type
+	 */
+	double getValue(String fromId, String toId, int timeSlice, String typeId, int valueIndex) {
+		if (timeSlice < 0 || timeSlice >= this.timeSliceCount) {
+			return Double.NaN;
+		}
+		Integer typeIndex = this.typeIndices.get(typeId);
+		Integer from = this.locationIndices.get(fromId);
+		Integer to = this.locationIndices.get(toId);
+		if (typeIndex == null || from == null || to == null) {
+			return Double.NaN;
+		}
+		double[] row = this.rows[(typeIndex * this.timeSliceCount + timeSlice) * this.size + from];
+		return row[to * VALUES_PER_ENTRY + valueIndex];
+	}
+
+}
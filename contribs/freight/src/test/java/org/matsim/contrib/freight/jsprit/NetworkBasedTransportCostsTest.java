@@ -151,4 +151,56 @@ public class NetworkBasedTransportCostsTest extends MatsimTestCase{
 		assertEquals(20000.0, networkBasedTransportCosts.getDistance(Location.newInstance("6"), Location.newInstance("21"), 0.0, vehicle2), 0.01);
 	}
 
+	@Test
+	public void test_whenPrecomputingLocations_itMustReturnTheSameValues(){
+		Config config = new Config();
+		config.addCoreModules();
+		Scenario scenario = ScenarioUtils.createScenario(config);
+		String NETWORK_FILENAME = getClassInputDirectory() + "network.xml";
+		new MatsimNetworkReader(scenario.getNetwork()).readFile(NETWORK_FILENAME);
+
+		VehicleType vtype1 = VehicleUtils.getFactory().createVehicleType( Id.create( "type1", VehicleType.class ) );
+		vtype1.getCostInformation().setFixedCost( 0.0 ).setCostsPerMeter( 2.0 ).setCostsPerSecond( 0.0 );
+		VehicleType vtype2 = VehicleUtils.getFactory().createVehicleType( Id.create( "type2", VehicleType.class ) );
+		vtype2.getCostInformation().setFixedCost( 0.0 ).setCostsPerMeter( 4.0 ).setCostsPerSecond( 0.0 );
+
+		Network network = scenario.getNetwork();
+		NetworkBasedTransportCosts onDemand = NetworkBasedTransportCosts.Builder.newInstance(network, Arrays.asList(vtype1, vtype2)).build();
+		NetworkBasedTransportCosts precomputed = NetworkBasedTransportCosts.Builder.newInstance(network, Arrays.asList(vtype1, vtype2))
+				.setPrecomputedLocations(Arrays.asList("6", "20", "21"), 24 * 3600, 2)
+				.setCacheSize(1)
+				.build();
+
+		Vehicle vehicle1 = mock(Vehicle.class);
+		com.graphhopper.jsprit.core.problem.vehicle.VehicleType type1 = mock( com.graphhopper.jsprit.core.problem.vehicle.VehicleType.class );
+		when(type1.getMaxVelocity()).thenReturn(5.0);
+		when(type1.getTypeId()).thenReturn("type1");
+		when(vehicle1.getType()).thenReturn(type1);
+		when(vehicle1.getId()).thenReturn("vehicle1");
+
+		Vehicle vehicle2 = mock(Vehicle.class);
+		com.graphhopper.jsprit.core.problem.vehicle.VehicleType type2 = mock( com.graphhopper.jsprit.core.problem.vehicle.VehicleType.class );
+		when(type2.getMaxVelocity()).thenReturn(5.0);
+		when(type2.getTypeId()).thenReturn("type2");
+		when(vehicle2.getType()).thenReturn(type2);
+		when(vehicle2.getId()).thenReturn("vehicle2");
+
+		assertEquals(20000.0, precomputed.getTransportCost(Location.newInstance("20"), Location.newInstance("21"), 0.0, mock(Driver.class), vehicle1), 0.01);
+		assertEquals(40000.0, precomputed.getTransportCost(Location.newInstance("20"), Location.newInstance("21"), 0.0, mock(Driver.class), vehicle2), 0.01);
+		assertEquals(20000.0, precomputed.getDistance(Location.newInstance("6"), Location.newInstance("21"), 0.0, vehicle1), 0.01);
+
+		// locations which are not precomputed are calculated on demand
+		String[] locations = { "1", "6", "12", "20", "21" };
+		for (String from : locations) {
+			for (String to : locations) {
+				Location fromLocation = Location.newInstance(from);
+				Location toLocation = Location.newInstance(to);
+				assertEquals(onDemand.getTransportCost(fromLocation, toLocation, 3600.0, mock(Driver.class), vehicle2),
+						precomputed.getTransportCost(fromLocation, toLocation, 3600.0, mock(Driver.class), vehicle2), 0.01);
+				assertEquals(onDemand.getDistance(fromLocation, toLocation, 3600.0, vehicle1),
+						precomputed.getDistance(fromLocation, toLocation, 3600.0, vehicle1), 0.01);
+			}
+		}
+	}
+
 }
@@ -27,4 +27,17 @@ public interface NoiseImmission {
     double calculateCorrection(double projectedDistance, NoiseReceiverPoint nrp, Link candidateLink);
 
     void setCurrentRp(NoiseReceiverPoint nrp);
+
+    /**
+     * Returns the contribution of a single link to the immission at a receiver point. The immission at a receiver point
+     * is the energetic sum of these independent contributions: the contributions of all relevant links are summed up,
+     * the resulting immission is 10 * log10 of the sum (or 0 if the sum is 0). This allows to compute immissions with
+     * a precomputed {@link NoiseImmissionMatrix} instead of calling
+     * {@link #calculateImmission(NoiseReceiverPoint, double)} for every receiver point.
+     * @param emission The noise emission of the link in dB(A).
+     * @param correction The correction term of the link-receiver point relation, see
+     *                   {@link #calculateCorrection(double, NoiseReceiverPoint, Link)}.
+     * @return the energetic contribution of the link, not negative.
+     */
+    double calculateLinkContribution(double emission, double correction);
 }
@@ -0,0 +1,204 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * NoiseImmissionMatrix.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2022 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.contrib.noise;
+
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+/**
+ * The correction terms of all relevant receiver point-link relations, stored as sparse matrix in compressed row
+ * format (one row per receiver point, one column per link which is relevant for at least one receiver point).
+ * <p>
+ * The immissions of a time bin are computed as sparse matrix-vector product of the correction terms with the link
+ * emissions, see {@link NoiseImmission#calculateLinkContribution(double, double)}. The emissions of the previous time
+ * bin are remembered, and only receiver points with at least one relevant link whose emission changed are
+ * recomputed. To find these, the matrix is additionally stored in compressed column format.
+ * <p>
+ * Tunnel links do not contribute to any immission and are not part of the matrix.
+ */
+final class NoiseImmissionMatrix {
+
+	private static final int CHUNK_SIZE = 1024;
+
+	private final NoiseReceiverPoint[] receiverPoints;
+	private final List<Id<Link>> linkIds;
+
+	// compressed rows: the entries of row r are in [rowStart[r], rowStart[r+1])
+	private final int[] rowStart;
+	private final int[] columns;
+	private final double[] corrections;
+
+	// compressed columns: the rows in which column c has an entry are in [columnStart[c], columnStart[c+1])
+	private final int[] columnStart;
+	private final int[] columnRows;
+
+	private final double[] emissions;
+	private final double[] immissions;
+	private final boolean[] changed;
+
+	NoiseImmissionMatrix(Collection<NoiseReceiverPoint> receiverPoints, Set<Id<Link>> linksToIgnore) {
+		this.receiverPoints = receiverPoints.toArray(new NoiseReceiverPoint[0]);
+		this.linkIds = new ArrayList<>();
+		Map<Id<Link>, Integer> linkColumns = new HashMap<>();
+
+		int entryCount = 0;
+		for (NoiseReceiverPoint rp : this.receiverPoints) {
+			entryCount += rp.getRelevantLinks().size();
+		}
+		this.rowStart = new int[this.receiverPoints.length + 1];
+		int[] columns = new int[entryCount];
+		double[] corrections = new double[entryCount];
+		int entry = 0;
+		for (int row = 0; row < this.receiverPoints.length; row++) {
+			NoiseReceiverPoint rp = this.receiverPoints[row];
+			this.rowStart[row] = entry;
+			for (Id<Link> linkId : rp.getRelevantLinks()) {
+				if (linksToIgnore.contains(linkId)) {
+					continue;
+				}
+				Integer column = linkColumns.get(linkId);
+				if (column == null) {
+					column = this.linkIds.size();
+					this.linkIds.add(linkId);
+					linkColumns.put(linkId, column);
+				}
+				columns[entry] = column;
+				corrections[entry] = rp.getLinkCorrection(linkId);
+				entry++;
+			}
+			sortRow(columns, corrections, this.rowStart[row], entry);
+		}
+		this.rowStart[this.receiverPoints.length] = entry;
+		this.columns = Arrays.copyOf(columns, entry);
+		this.corrections = Arrays.copyOf(corrections, entry);
+
+		int columnCount = this.linkIds.size();
+		this.columnStart = new int[columnCount + 1];
+		for (int column : this.columns) {
+			this.columnStart[column + 1]++;
+		}
+		for (int column = 0; column < columnCount; column++) {
+			this.columnStart[column + 1] += this.columnStart[column];
+		}
+		this.columnRows = new int[entry];
+		int[] next = Arrays.copyOf(this.columnStart, columnCount);
+		for (int row = 0; row < this.receiverPoints.length; row++) {
+			for (int i = this.rowStart[row]; i < this.rowStart[row + 1]; i++) {
+				this.columnRows[next[this.columns[i]]++] = row;
+			}
+		}
+
+		this.emissions = new double[columnCount];
+		this.immissions = new double[this.receiverPoints.length];
+		this.changed = new boolean[this.receiverPoints.length];
+		reset();
+	}
+
+	private static void sortRow(int[] columns, double[] corrections, int from, int to) {
+		// insertion sort, rows are short. Sorted columns make the access to the emissions more local.
+		for (int i = from + 1; i < to; i++) {
+			int column = columns[i];
+			double correction = corrections[i];
+			int j = i - 1;
+			while (j >= from && columns[j] > column) {
+				columns[j + 1] = columns[j];
+				corrections[j + 1] = corrections[j];
+				j--;
+			}
+			columns[j + 1] = column;
+			corrections[j + 1] = correction;
+		}
+	}
+
+	/**
+	 * Forgets the emissions of the previous time bin, so the next update recomputes all immissions.
+	 */
+	void reset() {
+		Arrays.fill(this.emissions, Double.NaN);
+		Arrays.fill(this.immissions, 0.);
+	}
+
+	int getReceiverPointCount() {
+		return this.receiverPoints.length;
+	}
+
+	NoiseReceiverPoint getReceiverPoint(int row) {
+		return this.receiverPoints[row];
+	}
+
+	double getImmission(int row) {
+		return this.immissions[row];
+	}
+
+	/**
+	 * Updates the immissions of all receiver points which are affected by a changed link emission.
+	 *
+	 * @param noiseLinks the noise links of the current time bin; links without noise link have an emission of 0.
+	 * @return the number of receiver points whose immission was recomputed.
+	 */
+	int updateImmissions(Map<Id<Link>, NoiseLink> noiseLinks, NoiseImmission immissionModule) {
+		Arrays.fill(this.changed, false);
+		for (int column = 0; column < this.emissions.length; column++) {
+			NoiseLink noiseLink = noiseLinks.get(this.linkIds.get(column));
+			double emission = noiseLink == null ? 0. : noiseLink.getEmission();
+			// (NaN is never equal, so the first update marks all rows)
+			if (emission != this.emissions[column]) {
+				this.emissions[column] = emission;
+				for (int i = this.columnStart[column]; i < this.columnStart[column + 1]; i++) {
+					this.changed[this.columnRows[i]] = true;
+				}
+			}
+		}
+
+		int chunkCount = (this.receiverPoints.length + CHUNK_SIZE - 1) / CHUNK_SIZE;
+		return IntStream.range(0, chunkCount).parallel().map(chunk -> {
+			int updated = 0;
+			for (int row = chunk * CHUNK_SIZE, end = Math.min(row + CHUNK_SIZE, this.receiverPoints.length); row < end; row++) {
+				if (this.changed[row]) {
+					this.immissions[row] = calculateImmission(row, immissionModule);
+					updated++;
+				}
+			}
+			return updated;
+		}).sum();
+	}
+
+	private double calculateImmission(int row, NoiseImmission immissionModule) {
+		double sum = 0.;
+		for (int i = this.rowStart[row], end = this.rowStart[row + 1]; i < end; i++) {
+			sum += immissionModule.calculateLinkContribution(this.emissions[this.columns[i]], this.corrections[i]);
+		}
+		if (sum > 0.) {
+			return 10 * Math.log10(sum);
+		}
+		return 0.;
+	}
+
+}
@@ -87,6 +87,15 @@ public class NoiseReceiverPoint extends ReceiverPoint {
 		infos.add(info);
 	}
 
+	void removeActivityInfosEndedBefore(double time) {
+		if(personId2actInfos == null) {
+			return;
+		}
+		for (List<PersonActivityInfo> infos : personId2actInfos.values()) {
+			infos.removeIf(personActivityInfo -> personActivityInfo.getEndTime() < time);
+		}
+	}
+
 	Collection<Id<Link>> getRelevantLinks() {
 		if(linkId2Correction == null) {
 			return Collections.emptySet();
@@ -34,7 +34,6 @@ import org.matsim.api.core.v01.events.handler.PersonEntersVehicleEventHandler;
 import org.matsim.api.core.v01.events.handler.TransitDriverStartsEventHandler;
 import org.matsim.api.core.v01.events.handler.VehicleEntersTrafficEventHandler;
 import org.matsim.api.core.v01.network.Link;
-import org.matsim.api.core.v01.population.Person;
 import org.matsim.core.utils.geometry.CoordUtils;
 import org.matsim.core.utils.misc.Counter;
 import org.matsim.core.utils.misc.Time;
@@ -45,6 +44,7 @@ import java.util.HashMap;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.IntStream;
 
 /**
  * A handler which computes noise emissions, immisions, affected agent units and damages for each receiver point and time interval.
@@ -74,6 +74,7 @@ class NoiseTimeTracker implements VehicleEntersTrafficEventHandler, PersonEnters
     private final NoiseVehicleIdentifier vehicleIdentifier;
 	private final Set<NoiseVehicleType> vehicleTypes;
 	private String networkModesToIgnore;
+	private NoiseImmissionMatrix immissionMatrix = null;
 
 	@Inject
 	NoiseTimeTracker(NoiseContext context, NoiseEmission emission, NoiseImmission immissionModule,
@@ -120,6 +121,14 @@ class NoiseTimeTracker implements VehicleEntersTrafficEventHandler, PersonEnters
 		}
 		cnt.printCounter();
 		MemoryObserver.stop();
+
+		// the per link immissions are only needed to find the causing agents, otherwise the immission of a receiver
+		// point only changes if a relevant link emission changes.
+		if (!noiseParams.isComputeCausingAgents()) {
+			log.info("Building immission matrix...");
+			this.immissionMatrix = new NoiseImmissionMatrix(noiseContext.getReceiverPoints().values(), noiseParams.getTunnelLinkIDsSet());
+			log.info("Building immission matrix... Done.");
+		}
 	}
 
 
@@ -142,6 +151,9 @@ class NoiseTimeTracker implements VehicleEntersTrafficEventHandler, PersonEnters
 		for (NoiseReceiverPoint rp : this.noiseContext.getReceiverPoints().values()) {
 			rp.reset();
 		}
+		if (this.immissionMatrix != null) {
+			this.immissionMatrix.reset();
+		}
 	}
 	
 	private void resetCurrentTimeIntervalInfo() {
@@ -181,9 +193,7 @@ class NoiseTimeTracker implements VehicleEntersTrafficEventHandler, PersonEnters
 	private void updateActivityInformation() {
 		double timeBinEnd = this.noiseContext.getCurrentTimeBinEndTime() - this.noiseContext.getNoiseParams().getTimeBinSizeNoiseComputation() ;
 		for (NoiseReceiverPoint rp : this.noiseContext.getReceiverPoints().values()) {
-			for (Id<Person> personId : rp.getPersonId2actInfos().keySet()) {
-				rp.getPersonId2actInfos().get(personId).removeIf(personActivityInfo -> personActivityInfo.getEndTime() < (timeBinEnd));
-			}				
+			rp.removeActivityInfosEndedBefore(timeBinEnd);
 		}
 	}
 
@@ -251,6 +261,10 @@ class NoiseTimeTracker implements VehicleEntersTrafficEventHandler, PersonEnters
 	 * Immissions and damages
 	 */
 	private void calculateNoiseImmissionsAndDamages() {
+		if (this.immissionMatrix != null) {
+			calculateNoiseImmissionsFromMatrixAndDamages();
+			return;
+		}
 		Counter cnt = new Counter("process noise receiver point # ");
 		this.noiseContext.getReceiverPoints().values().parallelStream().forEach( rp -> {
 			immissionModule.calculateImmission(rp, this.noiseContext.getCurrentTimeBinEndTime());
@@ -266,6 +280,23 @@ class NoiseTimeTracker implements VehicleEntersTrafficEventHandler, PersonEnters
 		damageCalculation.finishNoiseDamageCosts();
 	}
 
+	private void calculateNoiseImmissionsFromMatrixAndDamages() {
+		final double time = this.noiseContext.getCurrentTimeBinEndTime();
+		int updated = this.immissionMatrix.updateImmissions(this.noiseContext.getNoiseLinks(), this.immissionModule);
+		log.info("Recomputed the immissions of " + updated + " of " + this.immissionMatrix.getReceiverPointCount() + " receiver points.");
+
+		Counter cnt = new Counter("process noise receiver point # ");
+		IntStream.range(0, this.immissionMatrix.getReceiverPointCount()).parallel().forEach(row -> {
+			NoiseReceiverPoint rp = this.immissionMatrix.getReceiverPoint(row);
+			rp.setCurrentImmission(this.immissionMatrix.getImmission(row), time);
+			damageCalculation.calculateDamages(rp);
+			cnt.incCounter();
+		});
+		cnt.printCounter();
+		log.info("Done processing receiver points.");
+		damageCalculation.finishNoiseDamageCosts();
+	}
+
 	void computeFinalTimeIntervals() {
 		while (this.noiseContext.getCurrentTimeBinEndTime() <= Math.max(24. * 3600., this.noiseContext.getScenario().getConfig().qsim().getEndTime().orElse(0))) {
 			processTimeBin();			
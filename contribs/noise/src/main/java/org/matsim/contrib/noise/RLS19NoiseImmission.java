@@ -103,6 +103,19 @@ public class RLS19NoiseImmission implements NoiseImmission {
         reflection.setCurrentReceiver(nrp);
     }
 
+    @Override
+    public double calculateLinkContribution(double emission, double correction) {
+        // same as calculateLinkImmission
+        if (emission == 0.) {
+            return 0.;
+        }
+        double noiseImmission = Math.pow(10, 0.1 * emission) * correction;
+        if (noiseImmission < 0.) {
+            noiseImmission = 0.;
+        }
+        return noiseImmission;
+    }
+
     private double getSectionsCorrection(NoiseReceiverPoint nrp, Link link) {
 
         Coordinate nrpCoordinate = CoordUtils.createGeotoolsCoordinate(nrp.getCoord());
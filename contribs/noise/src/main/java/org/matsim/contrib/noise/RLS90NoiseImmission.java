@@ -148,6 +148,19 @@ class RLS90NoiseImmission implements NoiseImmission {
 
     }
 
+    @Override
+    public double calculateLinkContribution(double emission, double correction) {
+        // same as calculateIsolatedLinkImmission
+        if (emission == 0.) {
+            return 0.;
+        }
+        double noiseImmission = emission + correction;
+        if (noiseImmission > 0.) {
+            return Math.pow(10, (0.1 * noiseImmission));
+        }
+        return 0.;
+    }
+
     static double calculateDistanceCorrection(double distance) {
         double correctionTermDs = 15.8 - (10 * Math.log10(distance)) - (0.0142 * (Math.pow(distance, 0.9)));
         return correctionTermDs;
@@ -0,0 +1,121 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * NoiseImmissionMatrixTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2022 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.contrib.noise;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.scenario.ScenarioUtils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.DoubleSupplier;
+
+/**
+ * The immission matrix is only used if the causing agents are not computed. Its immissions must be the same as the
+ * ones calculated receiver point by receiver point.
+ */
+public class NoiseImmissionMatrixTest {
+
+	@Test
+	public void testSameImmissionsAsRLS90() {
+		Random random = new Random(4711);
+		NoiseContextStub noiseContext = createNoiseContext();
+		RLS90NoiseImmission immission = new RLS90NoiseImmission(noiseContext, null);
+		// corrections in dB(A)
+		compareImmissions(noiseContext, immission, RLS90VehicleType.values(), () -> -20. + 25. * random.nextDouble(), random);
+	}
+
+	@Test
+	public void testSameImmissionsAsRLS19() {
+		Random random = new Random(4712);
+		NoiseContextStub noiseContext = createNoiseContext();
+		RLS19NoiseImmission immission = new RLS19NoiseImmission(noiseContext, null, null, null);
+		// corrections are factors for the energetic emission
+		compareImmissions(noiseContext, immission, RLS19VehicleType.values(), () -> 1e-4 + random.nextDouble() * 0.1, random);
+	}
+
+	private static NoiseContextStub createNoiseContext() {
+		Config config = ConfigUtils.createConfig();
+		NoiseConfigGroup noiseParams = ConfigUtils.addOrGetModule(config, NoiseConfigGroup.class);
+		noiseParams.setComputeCausingAgents(false);
+		noiseParams.setTunnelLinkIDsSet(Collections.singleton(Id.createLinkId("matrix_0")));
+		Scenario scenario = ScenarioUtils.createScenario(config);
+		return new NoiseContextStub(scenario);
+	}
+
+	private static void compareImmissions(NoiseContextStub noiseContext, NoiseImmission immission,
+			NoiseVehicleType[] vehicleTypes, DoubleSupplier corrections, Random random) {
+		List<Id<Link>> linkIds = new ArrayList<>();
+		for (int i = 0; i < 30; i++) {
+			linkIds.add(Id.createLinkId("matrix_" + i));
+		}
+		// the last links never get a noise link, i.e. they have no emission
+		Map<Id<Link>, NoiseLink> noiseLinks = noiseContext.getNoiseLinks();
+		for (Id<Link> linkId : linkIds.subList(0, 25)) {
+			noiseLinks.put(linkId, new NoiseLink(linkId));
+		}
+
+		List<NoiseReceiverPoint> receiverPoints = new ArrayList<>();
+		for (int i = 0; i < 200; i++) {
+			NoiseReceiverPoint rp = new NoiseReceiverPoint(Id.create("matrix_" + i, ReceiverPoint.class), new Coord(i, i));
+			// some receiver points without any relevant link
+			int relevantLinks = random.nextInt(8);
+			for (int l = 0; l < relevantLinks; l++) {
+				rp.setLinkId2Correction(linkIds.get(random.nextInt(linkIds.size())), corrections.getAsDouble());
+			}
+			receiverPoints.add(rp);
+		}
+
+		NoiseImmissionMatrix matrix = new NoiseImmissionMatrix(receiverPoints, noiseContext.getNoiseParams().getTunnelLinkIDsSet());
+		Assert.assertEquals(receiverPoints.size(), matrix.getReceiverPointCount());
+
+		for (int timeBin = 1; timeBin <= 6; timeBin++) {
+			// only some emissions change, so only some immissions are recomputed
+			for (NoiseLink noiseLink : noiseLinks.values()) {
+				if (timeBin == 1 || random.nextDouble() < 0.3) {
+					double emission = random.nextDouble() < 0.2 ? 0. : 40. + 40. * random.nextDouble();
+					noiseLink.setEmission(emission);
+					for (NoiseVehicleType type : vehicleTypes) {
+						noiseLink.setEmissionPlusOneVehicle(type, emission + 1.);
+					}
+				}
+			}
+			matrix.updateImmissions(noiseLinks, immission);
+
+			for (int row = 0; row < matrix.getReceiverPointCount(); row++) {
+				NoiseReceiverPoint rp = matrix.getReceiverPoint(row);
+				immission.calculateImmission(rp, timeBin * 3600.);
+				Assert.assertEquals("time bin " + timeBin + ", receiver point " + rp.getId(),
+						rp.getCurrentImmission(), matrix.getImmission(row), 1e-9);
+			}
+		}
+	}
+
+}
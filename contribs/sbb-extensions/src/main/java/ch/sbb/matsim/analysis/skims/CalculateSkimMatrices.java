@@ -17,6 +17,7 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Random;
@@ -88,12 +89,16 @@ public class CalculateSkimMatrices {
     public static final String PT_TRANSFERCOUNTS_FILENAME = "pt_transfercounts.csv.gz";
     public static final String BEELINE_DISTANCE_FILENAME = "beeline_distances.csv.gz";
     public static final String ZONE_LOCATIONS_FILENAME = "zone_coordinates.csv";
+    public static final String CAR_MATRICES_FILENAME = "car_matrices.bin";
+    public static final String PT_MATRICES_FILENAME = "pt_matrices.bin";
     private static final Logger log = Logger.getLogger(CalculateSkimMatrices.class);
     private final static GeometryFactory GEOMETRY_FACTORY = new GeometryFactory();
 
     private final String outputDirectory;
     private final int numberOfThreads;
     private Map<String, Coord[]> coordsPerZone = null;
+    private boolean writeBinaryMatrices = false;
+    private boolean compressBinaryMatrices = false;
 
     public CalculateSkimMatrices(String outputDirectory, int numberOfThreads) {
         this.outputDirectory = outputDirectory;
@@ -113,6 +118,16 @@ public class CalculateSkimMatrices {
         this.numberOfThreads = numberOfThreads;
     }
 
+    /**
+     * Additionally writes all car and all pt matrices into one binary file each (see {@link FloatMatrixBinaryIO}), which can be opened much faster than the CSV files.
+     *
+     * @param compressRows whether the rows should be compressed. Compressed files are smaller, but cannot be memory-mapped when reading them.
+     */
+    public void setWriteBinaryMatrices(boolean writeBinaryMatrices, boolean compressRows) {
+        this.writeBinaryMatrices = writeBinaryMatrices;
+        this.compressBinaryMatrices = compressRows;
+    }
+
     private static <T> void combineMatrices(FloatMatrix<T> matrix1, FloatMatrix<T> matrix2) {
         Set<T> ids = matrix2.id2index.keySet();
         for (T fromId : ids) {
@@ -372,6 +387,12 @@ public class CalculateSkimMatrices {
         log.info("write CAR matrices to " + outputDirectory + (prefix.isEmpty() ? "" : (" with prefix " + prefix)));
         FloatMatrixIO.writeAsCSV(netIndicators.travelTimeMatrix, outputDirectory + "/" + prefix + CAR_TRAVELTIMES_FILENAME);
         FloatMatrixIO.writeAsCSV(netIndicators.distanceMatrix, outputDirectory + "/" + prefix + CAR_DISTANCES_FILENAME);
+        if (this.writeBinaryMatrices) {
+            Map<String, FloatMatrix<String>> binaryMatrices = new LinkedHashMap<>();
+            binaryMatrices.put("traveltimes", netIndicators.travelTimeMatrix);
+            binaryMatrices.put("distances", netIndicators.distanceMatrix);
+            FloatMatrixBinaryIO.write(binaryMatrices, outputDirectory + "/" + prefix + CAR_MATRICES_FILENAME, this.compressBinaryMatrices);
+        }
     }
 
     private Network extractXy2LinksNetwork(Network network, Predicate<Link> xy2linksPredicate) {
@@ -432,6 +453,19 @@ public class CalculateSkimMatrices {
         FloatMatrixIO.writeAsCSV(matrices.transferCountMatrix, outputDirectory + "/" + prefix + PT_TRANSFERCOUNTS_FILENAME);
         FloatMatrixIO.writeAsCSV(matrices.trainTravelTimeShareMatrix, outputDirectory + "/" + prefix + PT_TRAINSHARE_BYTIME_FILENAME);
         FloatMatrixIO.writeAsCSV(matrices.trainDistanceShareMatrix, outputDirectory + "/" + prefix + PT_TRAINSHARE_BYDISTANCE_FILENAME);
+        if (this.writeBinaryMatrices) {
+            Map<String, FloatMatrix<String>> binaryMatrices = new LinkedHashMap<>();
+            binaryMatrices.put("adaptiontimes", matrices.adaptionTimeMatrix);
+            binaryMatrices.put("frequencies", matrices.frequencyMatrix);
+            binaryMatrices.put("distances", matrices.distanceMatrix);
+            binaryMatrices.put("traveltimes", matrices.travelTimeMatrix);
+            binaryMatrices.put("accesstimes", matrices.accessTimeMatrix);
+            binaryMatrices.put("egresstimes", matrices.egressTimeMatrix);
+            binaryMatrices.put("transfercounts", matrices.transferCountMatrix);
+            binaryMatrices.put("trainshare_bytime", matrices.trainTravelTimeShareMatrix);
+            binaryMatrices.put("trainshare_bydistance", matrices.trainDistanceShareMatrix);
+            FloatMatrixBinaryIO.write(binaryMatrices, outputDirectory + "/" + prefix + PT_MATRICES_FILENAME, this.compressBinaryMatrices);
+        }
     }
 
     private String findZone(Coord coord, SpatialIndex zonesQt, String zonesIdAttributeName) {
@@ -4,6 +4,7 @@
 
 package ch.sbb.matsim.analysis.skims;
 
+import java.nio.FloatBuffer;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
@@ -26,18 +27,30 @@ import java.util.Set;
  *         So, as long as the matrix has entries in at least 1/16.5 = 6% or 1/25 = 4% of all cells, the simple float array should be more efficient.
  *         <p>
  *         For larger matrices the absolute volumes become even more impressive. For an 8000x8000 matrix, the float array will use 250MB, while the alternatives will use 4.5 or 6.5 GB respectively.
+ *         <p>
+ *         The values are accessed through a {@link FloatBuffer}, which either wraps a heap array or, for matrices opened with {@link FloatMatrixBinaryIO}, a read-only memory-mapped file. In the latter
+ *         case, the matrix does not use any heap memory for its values, and trying to modify it results in a {@link java.nio.ReadOnlyBufferException}.
  */
 public class FloatMatrix<T> {
 
     final Map<T, Integer> id2index;
     private final int size;
-    private final float[] data;
+    private final FloatBuffer data;
 
     public FloatMatrix(Set<T> zones, float defaultValue) {
+        this(zones, createData(zones.size(), defaultValue));
+    }
+
+    /**
+     * Creates a matrix using the given buffer for its values, in row-major order of the zones.
+     */
+    FloatMatrix(Set<T> zones, FloatBuffer data) {
         this.size = zones.size();
+        if (data.capacity() != this.size * this.size) {
+            throw new IllegalArgumentException("Expected " + this.size * this.size + " values, but the buffer has a capacity of " + data.capacity());
+        }
         this.id2index = new HashMap<>((int) (this.size * 1.5));
-        this.data = new float[this.size * this.size];
-        Arrays.fill(this.data, defaultValue);
+        this.data = data;
         int index = 0;
         for (T t : zones) {
             this.id2index.put(t, index);
@@ -45,23 +58,29 @@ public class FloatMatrix<T> {
         }
     }
 
+    private static FloatBuffer createData(int size, float defaultValue) {
+        float[] data = new float[size * size];
+        Arrays.fill(data, defaultValue);
+        return FloatBuffer.wrap(data);
+    }
+
     public float set(T from, T to, float value) {
         int index = getIndex(from, to);
-        float oldValue = this.data[index];
-        this.data[index] = value;
+        float oldValue = this.data.get(index);
+        this.data.put(index, value);
         return oldValue;
     }
 
     public float get(T from, T to) {
         int index = getIndex(from, to);
-        return this.data[index];
+        return this.data.get(index);
     }
 
     public float add(T from, T to, float value) {
         int index = getIndex(from, to);
-        float oldValue = this.data[index];
+        float oldValue = this.data.get(index);
         float newValue = oldValue + value;
-        this.data[index] = newValue;
+        this.data.put(index, newValue);
         return newValue;
     }
 
@@ -73,9 +92,9 @@ public class FloatMatrix<T> {
      */
     public float multiply(T from, T to, float factor) {
         int index = getIndex(from, to);
-        float oldValue = this.data[index];
+        float oldValue = this.data.get(index);
         float newValue = oldValue * factor;
-        this.data[index] = newValue;
+        this.data.put(index, newValue);
         return newValue;
     }
 
@@ -85,11 +104,20 @@ public class FloatMatrix<T> {
      * @param factor the multiplication factor
      */
     public void multiply(float factor) {
-        for (int i = 0; i < this.data.length; i++) {
-            this.data[i] *= factor;
+        for (int i = 0, n = this.data.capacity(); i < n; i++) {
+            this.data.put(i, this.data.get(i) * factor);
         }
     }
 
+    /**
+     * Copies the values of the row with the given index into <code>row</code>.
+     */
+    void getRow(int rowIndex, float[] row) {
+        FloatBuffer buffer = this.data.duplicate();
+        buffer.position(rowIndex * this.size);
+        buffer.get(row, 0, this.size);
+    }
+
     private int getIndex(T from, T to) {
         int fromIndex = this.id2index.get(from);
         int toIndex = this.id2index.get(to);
@@ -0,0 +1,263 @@
+package ch.sbb.matsim.analysis.skims;
+
+import ch.sbb.matsim.analysis.skims.FloatMatrixIO.IdConverter;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Writes and reads multiple named {@link FloatMatrix}es with the same zones in one binary file.
+ * <p>
+ * Reading a CSV matrix of a large region takes minutes and needs several times the memory of the matrix itself. The binary format stores the values as they are kept in memory, so uncompressed
+ * matrices are memory-mapped when reading: opening the file is instantaneous, the operating system only loads the pages that are actually accessed, and multiple processes working with the same
+ * file share the same physical memory. Optionally, every row can be compressed individually, which makes the files much smaller for matrices with many repeated values, but such matrices have to be
+ * inflated onto the heap when reading.
+ * <p>
+ * File layout:
+ * <ul>
+ * <li>header (big-endian, as written by {@link DataOutputStream}): magic number, version, number of zones, zone ids (in matrix order, as UTF strings), number of matrices and per matrix its name, its
+ * storage type, and the offset and length of its data block in the file.</li>
+ * <li>one data block per matrix, aligned to 8 bytes, with little-endian values:
+ * <ul>
+ * <li>uncompressed: all values as 4-byte floats in row-major order.</li>
+ * <li>compressed: the offsets of all rows (and the end of the last row) relative to the start of the block as 8-byte longs, followed by the deflated values of each row.</li>
+ * </ul>
+ * </li>
+ * </ul>
+ * A single memory-mapping is limited to 2 GB, so uncompressed matrices can have at most 23'170 zones.
+ */
+public final class FloatMatrixBinaryIO {
+
+    private final static int MAGIC = 0x534b494d; // "SKIM"
+    private final static int VERSION = 1;
+    private final static byte UNCOMPRESSED = 0;
+    private final static byte COMPRESSED_ROWS = 1;
+
+    private FloatMatrixBinaryIO() {
+    }
+
+    /**
+     * Writes the matrices to the given file, using the keys of the map as names of the matrices.
+     *
+     * @param compressRows whether the values of every row should be deflated. Compressed matrices are smaller on disk, but cannot be memory-mapped.
+     */
+    public static <T> void write(Map<String, FloatMatrix<T>> matrices, String filename, boolean compressRows) throws IOException {
+        if (matrices.isEmpty()) {
+            throw new IllegalArgumentException("At least one matrix is required.");
+        }
+        FloatMatrix<T> first = matrices.values().iterator().next();
+        for (Map.Entry<String, FloatMatrix<T>> e : matrices.entrySet()) {
+            if (!e.getValue().id2index.equals(first.id2index)) {
+                throw new IllegalArgumentException("Matrix " + e.getKey() + " does not have the same zones as the other matrices.");
+            }
+        }
+        T[] zoneIds = FloatMatrixIO.getSortedIds(first);
+        List<String> names = new ArrayList<>(matrices.keySet());
+        byte type = compressRows ? COMPRESSED_ROWS : UNCOMPRESSED;
+        long[] offsets = new long[names.size()];
+        long[] lengths = new long[names.size()];
+
+        try (FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            // the header has a fixed size, so it can be written once all offsets are known
+            long position = align(createHeader(zoneIds, names, type, offsets, lengths).length);
+            for (int i = 0; i < names.size(); i++) {
+                FloatMatrix<T> matrix = matrices.get(names.get(i));
+                offsets[i] = position;
+                lengths[i] = compressRows ? writeCompressed(matrix, zoneIds.length, channel, position) : writeUncompressed(matrix, zoneIds.length, channel, position);
+                position = align(position + lengths[i]);
+            }
+            writeFully(channel, ByteBuffer.wrap(createHeader(zoneIds, names, type, offsets, lengths)), 0);
+        }
+    }
+
+    /**
+     * Opens all matrices stored in the given file. Uncompressed matrices are memory-mapped and read-only, compressed matrices are inflated into regular matrices.
+     *
+     * @return the matrices by their names, in the order they are stored in the file
+     */
+    public static <T> Map<String, FloatMatrix<T>> read(String filename, IdConverter<T> idConverter) throws IOException {
+        Path path = Paths.get(filename);
+        Map<String, FloatMatrix<T>> matrices = new LinkedHashMap<>();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+                DataInputStream header = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel)))) {
+            int magic = header.readInt();
+            if (magic != MAGIC) {
+                throw new IOException(filename + " is not a binary matrix file.");
+            }
+            int version = header.readInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported version " + version + " of binary matrix file " + filename);
+            }
+            int zoneCount = header.readInt();
+            Set<T> zoneIds = new LinkedHashSet<>();
+            for (int i = 0; i < zoneCount; i++) {
+                zoneIds.add(idConverter.parse(header.readUTF()));
+            }
+            int matrixCount = header.readInt();
+            for (int i = 0; i < matrixCount; i++) {
+                String name = header.readUTF();
+                byte type = header.readByte();
+                long offset = header.readLong();
+                long length = header.readLong();
+                MappedByteBuffer block = map(channel, offset, length, filename);
+                FloatMatrix<T> matrix;
+                if (type == UNCOMPRESSED) {
+                    matrix = new FloatMatrix<>(zoneIds, block.order(ByteOrder.LITTLE_ENDIAN).asFloatBuffer());
+                } else if (type == COMPRESSED_ROWS) {
+                    matrix = new FloatMatrix<>(zoneIds, FloatBuffer.wrap(inflate(block, zoneCount)));
+                } else {
+                    throw new IOException("Unsupported storage type " + type + " of matrix " + name + " in " + filename);
+                }
+                matrices.put(name, matrix);
+            }
+        } catch (DataFormatException e) {
+            throw new IOException("Corrupt compressed matrix in " + filename, e);
+        }
+        return matrices;
+    }
+
+    private static <T> byte[] createHeader(T[] zoneIds, List<String> names, byte type, long[] offsets, long[] lengths) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeInt(zoneIds.length);
+        for (T zoneId : zoneIds) {
+            out.writeUTF(zoneId.toString());
+        }
+        out.writeInt(names.size());
+        for (int i = 0; i < names.size(); i++) {
+            out.writeUTF(names.get(i));
+            out.writeByte(type);
+            out.writeLong(offsets[i]);
+            out.writeLong(lengths[i]);
+        }
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    private static long writeUncompressed(FloatMatrix<?> matrix, int size, FileChannel channel, long start) throws IOException {
+        float[] row = new float[size];
+        ByteBuffer rowBytes = ByteBuffer.allocate(size * Float.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        long position = start;
+        for (int r = 0; r < size; r++) {
+            matrix.getRow(r, row);
+            rowBytes.clear();
+            rowBytes.asFloatBuffer().put(row);
+            position += writeFully(channel, rowBytes, position);
+        }
+        return position - start;
+    }
+
+    private static long writeCompressed(FloatMatrix<?> matrix, int size, FileChannel channel, long start) throws IOException {
+        long[] rowOffsets = new long[size + 1];
+        long position = start + (long) rowOffsets.length * Long.BYTES;
+        float[] row = new float[size];
+        ByteBuffer rowBytes = ByteBuffer.allocate(size * Float.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        byte[] buffer = new byte[64 * 1024];
+        Deflater deflater = new Deflater();
+        try {
+            for (int r = 0; r < size; r++) {
+                rowOffsets[r] = position - start;
+                matrix.getRow(r, row);
+                rowBytes.clear();
+                rowBytes.asFloatBuffer().put(row);
+                deflater.reset();
+                deflater.setInput(rowBytes.array());
+                deflater.finish();
+                while (!deflater.finished()) {
+                    int count = deflater.deflate(buffer);
+                    position += writeFully(channel, ByteBuffer.wrap(buffer, 0, count), position);
+                }
+            }
+        } finally {
+            deflater.end();
+        }
+        rowOffsets[size] = position - start;
+
+        ByteBuffer offsetBytes = ByteBuffer.allocate(rowOffsets.length * Long.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        offsetBytes.asLongBuffer().put(rowOffsets);
+        writeFully(channel, offsetBytes, start);
+        return position - start;
+    }
+
+    private static float[] inflate(ByteBuffer block, int size) throws DataFormatException {
+        block.order(ByteOrder.LITTLE_ENDIAN);
+        long[] rowOffsets = new long[size + 1];
+        block.asLongBuffer().get(rowOffsets);
+        float[] values = new float[size * size];
+        byte[] rowBytes = new byte[size * Float.BYTES];
+        FloatBuffer rowValues = ByteBuffer.wrap(rowBytes).order(ByteOrder.LITTLE_ENDIAN).asFloatBuffer();
+        Inflater inflater = new Inflater();
+        try {
+            for (int r = 0; r < size; r++) {
+                byte[] compressed = new byte[(int) (rowOffsets[r + 1] - rowOffsets[r])];
+                block.position((int) rowOffsets[r]);
+                block.get(compressed);
+                inflater.reset();
+                inflater.setInput(compressed);
+                int length = 0;
+                while (length < rowBytes.length && !inflater.finished()) {
+                    int count = inflater.inflate(rowBytes, length, rowBytes.length - length);
+                    if (count == 0 && inflater.needsInput()) {
+                        throw new DataFormatException("Row " + r + " is truncated.");
+                    }
+                    length += count;
+                }
+                if (length < rowBytes.length) {
+                    throw new DataFormatException("Row " + r + " is truncated.");
+                }
+                rowValues.clear();
+                rowValues.get(values, r * size, size);
+            }
+        } finally {
+            inflater.end();
+        }
+        return values;
+    }
+
+    private static MappedByteBuffer map(FileChannel channel, long offset, long length, String filename) throws IOException {
+        if (length > Integer.MAX_VALUE) {
+            throw new IOException("A matrix in " + filename + " is too large to be memory-mapped (" + length + " bytes).");
+        }
+        if (offset + length > channel.size()) {
+            throw new IOException(filename + " is truncated.");
+        }
+        // the mapping stays valid after the channel is closed
+        return channel.map(FileChannel.MapMode.READ_ONLY, offset, length);
+    }
+
+    private static int writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        int count = 0;
+        while (buffer.hasRemaining()) {
+            count += channel.write(buffer, position + count);
+        }
+        return count;
+    }
+
+    private static long align(long position) {
+        return (position + 7) & ~7L;
+    }
+
+}
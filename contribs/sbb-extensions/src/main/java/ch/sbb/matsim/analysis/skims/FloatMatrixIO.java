@@ -79,8 +79,8 @@ public final class FloatMatrixIO {
         }
     }
 
-    private static <T> T[] getSortedIds(FloatMatrix<T> matrix) {
-        // the array-creation is only safe as long as the generated array is only within this class!
+    static <T> T[] getSortedIds(FloatMatrix<T> matrix) {
+        // the array-creation is only safe as long as the generated array does not leave this package!
         @SuppressWarnings("unchecked")
         T[] ids = (T[]) (new Object[matrix.id2index.size()]);
         for (Map.Entry<T, Integer> e : matrix.id2index.entrySet()) {
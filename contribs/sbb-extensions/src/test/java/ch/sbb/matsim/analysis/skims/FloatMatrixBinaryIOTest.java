@@ -0,0 +1,90 @@
+package ch.sbb.matsim.analysis.skims;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ReadOnlyBufferException;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class FloatMatrixBinaryIOTest {
+
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    @Test
+    public void testIO_uncompressed() throws IOException {
+        Map<String, FloatMatrix<String>> matrices = readWritten(false);
+        assertMatrices(matrices);
+
+        try {
+            matrices.get("squares").set("un", "un", 1.0f);
+            Assert.fail("memory-mapped matrix should be read-only");
+        } catch (ReadOnlyBufferException expected) {
+        }
+    }
+
+    @Test
+    public void testIO_compressed() throws IOException {
+        Map<String, FloatMatrix<String>> matrices = readWritten(true);
+        assertMatrices(matrices);
+
+        matrices.get("squares").set("un", "un", 1.0f);
+        Assert.assertEquals(1.0f, matrices.get("squares").get("un", "un"), 1e-6f);
+    }
+
+    private Map<String, FloatMatrix<String>> readWritten(boolean compressRows) throws IOException {
+        Set<String> zoneIds = new LinkedHashSet<>();
+        zoneIds.add("un");
+        zoneIds.add("dos");
+        zoneIds.add("tres");
+        FloatMatrix<String> squares = new FloatMatrix<>(zoneIds, 0.0f);
+        FloatMatrix<String> cubes = new FloatMatrix<>(zoneIds, Float.NaN);
+        float base = 2.0f;
+        for (String from : zoneIds) {
+            float value = base;
+            for (String to : zoneIds) {
+                squares.set(from, to, value * value);
+                value++;
+            }
+            cubes.set(from, from, base * base * base);
+            base++;
+        }
+
+        Map<String, FloatMatrix<String>> matrices = new LinkedHashMap<>();
+        matrices.put("squares", squares);
+        matrices.put("cubes", cubes);
+        File file = this.tempFolder.newFile("matrices.bin");
+        FloatMatrixBinaryIO.write(matrices, file.getAbsolutePath(), compressRows);
+
+        Map<String, FloatMatrix<String>> read = FloatMatrixBinaryIO.read(file.getAbsolutePath(), id -> id);
+        Assert.assertArrayEquals(new String[]{"squares", "cubes"}, read.keySet().toArray());
+        return read;
+    }
+
+    private static void assertMatrices(Map<String, FloatMatrix<String>> matrices) {
+        float epsilon = 1e-6f;
+        FloatMatrix<String> squares = matrices.get("squares");
+        Assert.assertEquals(4.0f, squares.get("un", "un"), epsilon);
+        Assert.assertEquals(9.0f, squares.get("un", "dos"), epsilon);
+        Assert.assertEquals(16.0f, squares.get("un", "tres"), epsilon);
+        Assert.assertEquals(9.0f, squares.get("dos", "un"), epsilon);
+        Assert.assertEquals(16.0f, squares.get("dos", "dos"), epsilon);
+        Assert.assertEquals(25.0f, squares.get("dos", "tres"), epsilon);
+        Assert.assertEquals(16.0f, squares.get("tres", "un"), epsilon);
+        Assert.assertEquals(25.0f, squares.get("tres", "dos"), epsilon);
+        Assert.assertEquals(36.0f, squares.get("tres", "tres"), epsilon);
+
+        FloatMatrix<String> cubes = matrices.get("cubes");
+        Assert.assertEquals(8.0f, cubes.get("un", "un"), epsilon);
+        Assert.assertEquals(27.0f, cubes.get("dos", "dos"), epsilon);
+        Assert.assertEquals(64.0f, cubes.get("tres", "tres"), epsilon);
+        Assert.assertTrue(Float.isNaN(cubes.get("un", "dos")));
+        Assert.assertTrue(Float.isNaN(cubes.get("tres", "un")));
+    }
+}
@@ -24,6 +24,12 @@ import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
 
 /**
  * Provides public transport route search capabilities using an implementation of the
@@ -40,6 +46,8 @@ public class SwissRailRaptor implements TransitRouter {
     private final RaptorParametersForPerson parametersForPerson;
     private final RaptorRouteSelector defaultRouteSelector;
     private final RaptorStopFinder stopFinder;
+    private final RaptorInVehicleCostCalculator inVehicleCostCalculator;
+    private final RaptorTransferCostCalculator transferCostCalculator;
 
     private boolean treeWarningShown = false;
 
@@ -54,6 +62,8 @@ public class SwissRailRaptor implements TransitRouter {
         this.parametersForPerson = parametersForPerson;
         this.defaultRouteSelector = routeSelector;
         this.stopFinder = stopFinder;
+        this.inVehicleCostCalculator = inVehicleCostCalculator;
+        this.transferCostCalculator = transferCostCalculator;
     }
 
     @Override
@@ -231,6 +241,66 @@ public class SwissRailRaptor implements TransitRouter {
         return this.calcLeastCostTree(accessStops, departureTime, parameters, person);
     }
 
+    /**
+     * Calculates the Pareto-optimal connections to all stops for all departures between <code>earliestDepartureTime</code>
+     * and <code>latestDepartureTime</code> in a single range query (rRAPTOR).
+     *
+     * @see SwissRailRaptorCore#calcProfileTree
+     */
+    public Map<Id<TransitStopFacility>, List<SwissRailRaptorCore.TravelInfo>> calcProfileTree(Collection<TransitStopFacility> fromStops, double earliestDepartureTime, double latestDepartureTime, RaptorParameters parameters, Person person) {
+        if (this.data.config.getOptimization() != RaptorStaticConfig.RaptorOptimization.OneToAllRouting && !this.treeWarningShown) {
+            log.warn("SwissRailRaptorData was not initialized with full support for tree calculations and may result in unexpected results. Use `RaptorStaticConfig.setOptimization(RaptorOptimization.OneToAllRouting)` to fix this issue.");
+            this.treeWarningShown = true;
+        }
+        return this.raptor.calcProfileTree(earliestDepartureTime, latestDepartureTime, createStartStops(fromStops), parameters, person);
+    }
+
+    /**
+     * Calculates the profile trees (see {@link #calcProfileTree}) of many origins in parallel. All threads share the
+     * same (immutable) {@link SwissRailRaptorData}, but each thread has its own search state. The results are passed
+     * to the consumer as soon as they are available, so it must be thread-safe.
+     */
+    public void calcProfileTrees(Collection<TransitStopFacility> fromStops, double earliestDepartureTime, double latestDepartureTime, RaptorParameters parameters, Person person,
+                                 int numberOfThreads, BiConsumer<TransitStopFacility, Map<Id<TransitStopFacility>, List<SwissRailRaptorCore.TravelInfo>>> consumer) {
+        if (this.data.config.getOptimization() != RaptorStaticConfig.RaptorOptimization.OneToAllRouting && !this.treeWarningShown) {
+            log.warn("SwissRailRaptorData was not initialized with full support for tree calculations and may result in unexpected results. Use `RaptorStaticConfig.setOptimization(RaptorOptimization.OneToAllRouting)` to fix this issue.");
+            this.treeWarningShown = true;
+        }
+        List<TransitStopFacility> origins = new ArrayList<>(fromStops);
+        AtomicInteger nextOrigin = new AtomicInteger(0);
+        ExecutorService executor = Executors.newFixedThreadPool(numberOfThreads);
+        try {
+            List<Future<?>> futures = new ArrayList<>(numberOfThreads);
+            for (int i = 0; i < numberOfThreads; i++) {
+                futures.add(executor.submit(() -> {
+                    SwissRailRaptorCore core = new SwissRailRaptorCore(this.data, this.inVehicleCostCalculator, this.transferCostCalculator);
+                    int index;
+                    while ((index = nextOrigin.getAndIncrement()) < origins.size()) {
+                        TransitStopFacility origin = origins.get(index);
+                        consumer.accept(origin, core.calcProfileTree(earliestDepartureTime, latestDepartureTime, createStartStops(Collections.singletonList(origin)), parameters, person));
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            throw new RuntimeException(e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException(e.getCause());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private static List<InitialStop> createStartStops(Collection<TransitStopFacility> fromStops) {
+        List<InitialStop> accessStops = new ArrayList<>();
+        for (TransitStopFacility stop : fromStops) {
+            accessStops.add(new InitialStop(stop, 0, 0, 0, null));
+        }
+        return accessStops;
+    }
+
     private Map<Id<TransitStopFacility>, SwissRailRaptorCore.TravelInfo> calcLeastCostTree(Collection<InitialStop> accessStops, double departureTime, RaptorParameters parameters, Person person) {
         return this.raptor.calcLeastCostTree(departureTime, accessStops, parameters, person);
     }
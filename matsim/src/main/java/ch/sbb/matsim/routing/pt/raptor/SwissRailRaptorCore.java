@@ -29,6 +29,7 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
+import java.util.TreeSet;
 
 /**
  * The actual RAPTOR implementation, based on Delling et al, Round-Based Public Transit Routing.
@@ -56,6 +57,7 @@ public class SwissRailRaptorCore {
     private final RaptorInVehicleCostCalculator inVehicleCostCalculator;
     private final RaptorTransferCostCalculator transferCostCalculator;
     private final RouteSegmentIteratorImpl routeSegmentIterator;
+    private ProfileLabels profileLabels; // only created when profiles are calculated
 
     private final static int TIME_UNDEFINED = Integer.MIN_VALUE;
 
@@ -534,6 +536,216 @@ public class SwissRailRaptorCore {
         return result;
     }
 
+    /**
+     * Calculates the travel profiles from the start stops to all stops for all departures in the given time window
+     * (range RAPTOR, rRAPTOR). The departures at the start stops are handled from the latest to the earliest one. The
+     * labels are kept per round, i.e. the earliest arrival time at each stop using at most <i>k</i> pt vehicles, and
+     * are not reset between the departures: a connection found for a later departure remains valid for the earlier ones,
+     * so each departure only needs to explore the stops where it arrives earlier than all later departures.
+     *
+     * @return for each reached stop, the Pareto-optimal connections regarding departure time (later is better),
+     * arrival time and number of transfers, sorted by departure time.
+     */
+    public Map<Id<TransitStopFacility>, List<TravelInfo>> calcProfileTree(double earliestDepTime, double latestDepTime, Collection<InitialStop> startStops, RaptorParameters parameters, Person person) {
+        final int maxTransfers = 20; // sensible defaults, could be made configurable if there is a need for it.
+        final int maxRounds = maxTransfers + 1; // each round uses one more pt vehicle
+        if (this.profileLabels == null) {
+            this.profileLabels = new ProfileLabels(maxRounds + 1, this.data.countStops, this.data.countRouteStops);
+        }
+        ProfileLabels labels = this.profileLabels;
+        labels.reset();
+
+        // the departure times at the origin which allow to board a pt vehicle at one of the start stops without waiting
+        TreeSet<Double> departureTimes = new TreeSet<>();
+        for (InitialStop accessStop : startStops) {
+            double earliestTimeAtStop = earliestDepTime + accessStop.accessTime;
+            double latestTimeAtStop = latestDepTime + accessStop.accessTime;
+            int[] routeStopIndices = this.data.routeStopsPerStopFacility.get(accessStop.stop);
+            if (routeStopIndices != null) {
+                for (int routeStopIndex : routeStopIndices) {
+                    RRouteStop routeStop = this.data.routeStops[routeStopIndex];
+                    RRoute route = this.data.routes[routeStop.transitRouteIndex];
+                    if (routeStopIndex == route.indexFirstRouteStop + route.countRouteStops - 1) {
+                        // this is the last stop of a route
+                        continue;
+                    }
+                    int depOffset = routeStop.departureOffset;
+                    for (int depIndex = route.indexFirstDeparture; depIndex < route.indexFirstDeparture + route.countDepartures; depIndex++) {
+                        int depTimeAtStop = this.data.departures[depIndex] + depOffset;
+                        if (depTimeAtStop >= earliestTimeAtStop && depTimeAtStop <= latestTimeAtStop) {
+                            departureTimes.add(depTimeAtStop - accessStop.accessTime);
+                        }
+                    }
+                }
+            }
+        }
+
+        Map<Integer, List<TravelInfo>> profiles = new HashMap<>();
+        for (double depTime : departureTimes.descendingSet()) {
+            this.improvedRouteStopIndices.clear();
+            for (InitialStop accessStop : startStops) {
+                int[] routeStopIndices = this.data.routeStopsPerStopFacility.get(accessStop.stop);
+                if (routeStopIndices != null) {
+                    int arrivalTime = (int) (depTime + accessStop.accessTime);
+                    for (int routeStopIndex : routeStopIndices) {
+                        PathElement pe = new PathElement(null, this.data.routeStops[routeStopIndex], TIME_UNDEFINED, TIME_UNDEFINED, arrivalTime, accessStop.accessCost, 0, accessStop.distance, 0, true, null, accessStop);
+                        if (labels.improveBoarding(0, routeStopIndex, arrivalTime, pe)) {
+                            this.improvedRouteStopIndices.set(routeStopIndex);
+                        }
+                    }
+                }
+            }
+
+            for (int round = 1; round <= maxRounds && !this.improvedRouteStopIndices.isEmpty(); round++) {
+                labels.initRound(round);
+                exploreRoutesInRound(labels, round, parameters, person);
+                if (this.improvedStops.isEmpty()) {
+                    break;
+                }
+                handleTransfersInRound(labels, round, parameters);
+
+                // the labels of this round do not change anymore for this departure
+                this.improvedStops.or(this.tmpImprovedStops);
+                for (int stopIndex = this.improvedStops.nextSetBit(0); stopIndex >= 0; stopIndex = this.improvedStops.nextSetBit(stopIndex + 1)) {
+                    TravelInfo ti = getTravelInfo(labels.arrivalPaths[round][stopIndex], parameters);
+                    profiles.computeIfAbsent(stopIndex, i -> new ArrayList<>()).add(ti);
+                }
+            }
+        }
+
+        Map<Id<TransitStopFacility>, List<TravelInfo>> result = new HashMap<>();
+        for (Map.Entry<TransitStopFacility, Integer> e : this.data.stopFacilityIndices.entrySet()) {
+            List<TravelInfo> profile = profiles.get(e.getValue());
+            if (profile != null) {
+                profile.sort((i1, i2) -> Double.compare(i1.ptDepartureTime, i2.ptDepartureTime));
+                result.put(e.getKey().getId(), profile);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Scans all routes which can be boarded at one of the route stops in <code>improvedRouteStopIndices</code> with the
+     * labels of the previous round. Stores the improved arrival times of this round in the labels and the indices of
+     * the improved stops in <code>improvedStops</code>.
+     */
+    private void exploreRoutesInRound(ProfileLabels labels, int round, RaptorParameters parameters, Person person) {
+        this.improvedStops.clear();
+
+        CachingTransferProvider transferProvider = this.data.new CachingTransferProvider();
+        double marginalUtilityOfWaitingPt_utl_s = parameters.getMarginalUtilityOfWaitingPt_utl_s();
+        int[] boardingTimes = labels.boardingTimes[round - 1];
+        PathElement[] boardingPaths = labels.boardingPaths[round - 1];
+
+        int firstRouteStopIndex = this.improvedRouteStopIndices.nextSetBit(0);
+        while (firstRouteStopIndex >= 0) {
+            RRoute route = this.data.routes[this.data.routeStops[firstRouteStopIndex].transitRouteIndex];
+            int lastRouteStopIndex = route.indexFirstRouteStop + route.countRouteStops - 1;
+
+            PathElement boardingPE = null;
+            int currentDepartureIndex = -1;
+            int currentDepartureTime = 0;
+            Vehicle currentVehicle = null;
+            int currentBoardingRouteStopIndex = -1;
+            int currentAgentBoardingTime = 0;
+            double currentTravelCostWhenBoarding = 0;
+            double currentTransferCostWhenBoarding = 0;
+            int firstDepartureTime = TIME_UNDEFINED;
+            double marginalUtilityOfTravelTime_utl_s = 0;
+
+            for (int routeStopIndex = firstRouteStopIndex; routeStopIndex <= lastRouteStopIndex; routeStopIndex++) {
+                RRouteStop routeStop = this.data.routeStops[routeStopIndex];
+                if (currentDepartureIndex >= 0) {
+                    int arrivalTime = currentDepartureTime + routeStop.arrivalOffset;
+                    int stopIndex = routeStop.stopFacilityIndex;
+                    if (arrivalTime < labels.arrivalTimes[round][stopIndex]) {
+                        routeSegmentIterator.reset(currentDepartureIndex, currentAgentBoardingTime, currentBoardingRouteStopIndex, routeStopIndex);
+                        int inVehicleTime = arrivalTime - currentAgentBoardingTime;
+                        double inVehicleCost = this.inVehicleCostCalculator.getInVehicleCost(inVehicleTime, marginalUtilityOfTravelTime_utl_s, person, currentVehicle, parameters, routeSegmentIterator);
+                        double arrivalTravelCost = currentTravelCostWhenBoarding + inVehicleCost;
+                        double arrivalTransferCost = (boardingPE.firstDepartureTime != TIME_UNDEFINED) ? (currentTransferCostWhenBoarding + this.transferCostCalculator.calcTransferCost(transferProvider, parameters, arrivalTime - firstDepartureTime, boardingPE.transferCount, boardingPE.arrivalTransferCost, boardingPE.arrivalTime)) : 0;
+                        double distance = routeStop.distanceAlongRoute - boardingPE.toRouteStop.distanceAlongRoute;
+                        PathElement pe = new PathElement(boardingPE, routeStop, firstDepartureTime, currentAgentBoardingTime, arrivalTime, arrivalTravelCost, arrivalTransferCost, distance, boardingPE.transferCount, false, null, null);
+                        labels.improveArrival(round, stopIndex, arrivalTime, pe);
+                        this.improvedStops.set(stopIndex);
+                    }
+                }
+
+                // check if an earlier departure can be caught at this route stop
+                int agentArrivalTime = boardingTimes[routeStopIndex];
+                if (routeStopIndex < lastRouteStopIndex && agentArrivalTime != Integer.MAX_VALUE
+                        && (currentDepartureIndex < 0 || agentArrivalTime <= currentDepartureTime + routeStop.departureOffset)) {
+                    int departureIndex = findNextDepartureIndex(route, routeStop, agentArrivalTime);
+                    if (departureIndex >= 0 && (currentDepartureIndex < 0 || this.data.departures[departureIndex] < currentDepartureTime)) {
+                        boardingPE = boardingPaths[routeStopIndex];
+                        currentDepartureIndex = departureIndex;
+                        currentDepartureTime = this.data.departures[departureIndex];
+                        currentVehicle = this.data.departureVehicles[departureIndex];
+                        currentBoardingRouteStopIndex = routeStopIndex;
+                        int vehicleArrivalTime = currentDepartureTime + routeStop.arrivalOffset;
+                        currentAgentBoardingTime = Math.max(agentArrivalTime, vehicleArrivalTime);
+                        double waitingCost = -marginalUtilityOfWaitingPt_utl_s * (currentAgentBoardingTime - agentArrivalTime);
+                        currentTravelCostWhenBoarding = boardingPE.arrivalTravelCost + waitingCost;
+                        currentTransferCostWhenBoarding = boardingPE.arrivalTransferCost;
+                        firstDepartureTime = (boardingPE.firstDepartureTime == TIME_UNDEFINED) ? currentAgentBoardingTime : boardingPE.firstDepartureTime;
+                        marginalUtilityOfTravelTime_utl_s = parameters.getMarginalUtilityOfTravelTime_utl_s(boardingPE.toRouteStop.mode);
+                        transferProvider.reset(boardingPE.transfer);
+                    }
+                }
+            }
+            firstRouteStopIndex = this.improvedRouteStopIndices.nextSetBit(lastRouteStopIndex + 1);
+        }
+        this.improvedRouteStopIndices.clear();
+    }
+
+    /**
+     * Handles the transfers from the stops in <code>improvedStops</code>, improving the labels of the route stops
+     * that can be boarded in the next round. Stops which are reached earlier by walking are stored in
+     * <code>tmpImprovedStops</code>.
+     */
+    private void handleTransfersInRound(ProfileLabels labels, int round, RaptorParameters raptorParams) {
+        this.tmpImprovedStops.clear();
+
+        double margUtilityTransitWalk = raptorParams.getMarginalUtilityOfTravelTime_utl_s(TransportMode.walk);
+        CachingTransferProvider transferProvider = this.data.new CachingTransferProvider();
+
+        for (int stopIndex = this.improvedStops.nextSetBit(0); stopIndex >= 0; stopIndex = this.improvedStops.nextSetBit(stopIndex + 1)) {
+            PathElement fromPE = labels.arrivalPaths[round][stopIndex];
+            int arrivalTime = fromPE.arrivalTime;
+            double arrivalTravelCost = fromPE.arrivalTravelCost;
+            double arrivalTransferCost = fromPE.arrivalTransferCost;
+            RRouteStop fromRouteStop = fromPE.toRouteStop;
+            int firstTransferIndex = fromRouteStop.indexFirstTransfer;
+            int lastTransferIndex = firstTransferIndex + fromRouteStop.countTransfers;
+            for (int transferIndex = firstTransferIndex; transferIndex < lastTransferIndex; transferIndex++) {
+                RTransfer transfer = this.data.transfers[transferIndex];
+                int toRouteStopIndex = transfer.toRouteStop;
+                int newArrivalTime = arrivalTime + transfer.transferTime;
+                if (newArrivalTime < labels.boardingTimes[round][toRouteStopIndex]) {
+                    transferProvider.reset(transfer);
+                    double newArrivalTravelCost = arrivalTravelCost - transfer.transferTime * margUtilityTransitWalk;
+                    double newArrivalTransferCost = (fromPE.firstDepartureTime != TIME_UNDEFINED) ? (arrivalTransferCost + this.transferCostCalculator.calcTransferCost(transferProvider, raptorParams, newArrivalTime - fromPE.firstDepartureTime, fromPE.transferCount + 1, arrivalTransferCost, arrivalTime)) : 0;
+                    RRouteStop toRouteStop = this.data.routeStops[toRouteStopIndex];
+                    PathElement pe = new PathElement(fromPE, toRouteStop, fromPE.firstDepartureTime, TIME_UNDEFINED, newArrivalTime, newArrivalTravelCost, newArrivalTransferCost, transfer.transferDistance, fromPE.transferCount + 1, true, transfer, null);
+                    labels.improveBoarding(round, toRouteStopIndex, newArrivalTime, pe);
+                    this.improvedRouteStopIndices.set(toRouteStopIndex);
+                    int toStopFacilityIndex = toRouteStop.stopFacilityIndex;
+                    if (newArrivalTime < labels.arrivalTimes[round][toStopFacilityIndex]
+                            && (!this.tmpImprovedStops.get(toStopFacilityIndex) || newArrivalTime < this.tmpArrivalPathPerStop[toStopFacilityIndex].arrivalTime)) {
+                        // store it in tmp only. We don't want that this PE is used by a stop processed later in the same round. ("parallel update")
+                        this.tmpArrivalPathPerStop[toStopFacilityIndex] = pe;
+                        this.tmpImprovedStops.set(toStopFacilityIndex);
+                    }
+                }
+            }
+        }
+        // "parallel update". now copy over the newly improved data after all transfers were handled
+        for (int stopIndex = this.tmpImprovedStops.nextSetBit(0); stopIndex >= 0; stopIndex = this.tmpImprovedStops.nextSetBit(stopIndex + 1)) {
+            PathElement pe = this.tmpArrivalPathPerStop[stopIndex];
+            labels.improveArrival(round, stopIndex, pe.arrivalTime, pe);
+        }
+    }
+
     private TravelInfo getTravelInfo(PathElement destination, RaptorParameters parameters) {
         PathElement firstStage = destination;
         PathElement secondStage = null;
@@ -885,6 +1097,82 @@ public class SwissRailRaptorCore {
         }
     }
 
+    /**
+     * The labels of the range query in {@link #calcProfileTree}, per round: the earliest arrival time at each stop, and
+     * the earliest time at each route stop from which the route can be boarded in the next round. Round <i>k</i> contains
+     * the connections with at most <i>k</i> pt vehicles, so the arrival times never increase from one round to the next.
+     * The arrays of a round are only initialized once the round is reached.
+     */
+    private static final class ProfileLabels {
+        final int[][] arrivalTimes;
+        final PathElement[][] arrivalPaths;
+        final int[][] boardingTimes;
+        final PathElement[][] boardingPaths;
+        private int roundCount = 0;
+
+        ProfileLabels(int maxRoundCount, int stopCount, int routeStopCount) {
+            this.arrivalTimes = new int[maxRoundCount][];
+            this.arrivalPaths = new PathElement[maxRoundCount][];
+            this.boardingTimes = new int[maxRoundCount][];
+            this.boardingPaths = new PathElement[maxRoundCount][];
+            this.arrivalTimes[0] = new int[stopCount];
+            this.arrivalPaths[0] = new PathElement[stopCount];
+            this.boardingTimes[0] = new int[routeStopCount];
+            this.boardingPaths[0] = new PathElement[routeStopCount];
+        }
+
+        void reset() {
+            Arrays.fill(this.arrivalTimes[0], Integer.MAX_VALUE);
+            Arrays.fill(this.arrivalPaths[0], null);
+            Arrays.fill(this.boardingTimes[0], Integer.MAX_VALUE);
+            Arrays.fill(this.boardingPaths[0], null);
+            this.roundCount = 1;
+        }
+
+        /**
+         * Initializes the labels of the given round with the ones of the previous round, if not done yet.
+         */
+        void initRound(int round) {
+            if (round < this.roundCount) {
+                return;
+            }
+            if (this.arrivalTimes[round] == null) {
+                this.arrivalTimes[round] = new int[this.arrivalTimes[0].length];
+                this.arrivalPaths[round] = new PathElement[this.arrivalPaths[0].length];
+                this.boardingTimes[round] = new int[this.boardingTimes[0].length];
+                this.boardingPaths[round] = new PathElement[this.boardingPaths[0].length];
+            }
+            copy(this.arrivalTimes, this.arrivalPaths, round);
+            copy(this.boardingTimes, this.boardingPaths, round);
+            this.roundCount = round + 1;
+        }
+
+        private static void copy(int[][] times, PathElement[][] paths, int round) {
+            System.arraycopy(times[round - 1], 0, times[round], 0, times[round].length);
+            System.arraycopy(paths[round - 1], 0, paths[round], 0, paths[round].length);
+        }
+
+        boolean improveArrival(int round, int stopIndex, int time, PathElement pe) {
+            return improve(this.arrivalTimes, this.arrivalPaths, round, stopIndex, time, pe);
+        }
+
+        boolean improveBoarding(int round, int routeStopIndex, int time, PathElement pe) {
+            return improve(this.boardingTimes, this.boardingPaths, round, routeStopIndex, time, pe);
+        }
+
+        private boolean improve(int[][] times, PathElement[][] paths, int round, int index, int time, PathElement pe) {
+            if (time >= times[round][index]) {
+                return false;
+            }
+            // the later rounds may use more pt vehicles, so they profit from the improvement as well
+            for (int r = round; r < this.roundCount && time < times[r][index]; r++) {
+                times[r][index] = time;
+                paths[r][index] = pe;
+            }
+            return true;
+        }
+    }
+
     private static class DepartureAtRouteStop {
         final RRouteStop routeStop;
         final InitialStop accessStop;
@@ -0,0 +1,73 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * IterationMetricEvent.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2022 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+
+package org.matsim.analysis;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * JFR event carrying the aggregated values of one {@link IterationMetrics} metric at the end of an iteration.
+ * The events are only recorded when a flight recording is running, e.g. when started with
+ * <code>-XX:StartFlightRecording</code>.
+ */
+@Name("org.matsim.IterationMetric")
+@Label("Iteration Metric")
+@Category("MATSim")
+@Description("Aggregated values of a metric collected during a MATSim iteration. Durations are in milliseconds.")
+final class IterationMetricEvent extends jdk.jfr.Event {
+
+	@Label("Iteration")
+	int iteration;
+
+	@Label("Metric")
+	String metric;
+
+	@Label("Kind")
+	String kind;
+
+	@Label("Count")
+	long count;
+
+	@Label("Total")
+	double total;
+
+	@Label("Min")
+	double min;
+
+	@Label("Max")
+	double max;
+
+	static void commit(int iteration, String metric, IterationMetrics.Values values) {
+		IterationMetricEvent event = new IterationMetricEvent();
+		event.iteration = iteration;
+		event.metric = metric;
+		event.kind = values.getKind().toString();
+		event.count = values.getCount();
+		event.total = values.getTotal();
+		event.min = values.getMin();
+		event.max = values.getMax();
+		event.commit();
+	}
+
+}
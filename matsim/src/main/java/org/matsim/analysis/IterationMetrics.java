@@ -0,0 +1,320 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * IterationMetrics.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2022 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+
+package org.matsim.analysis;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import org.matsim.core.utils.io.IOUtils;
+import org.matsim.core.utils.io.UncheckedIOException;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.DoubleAccumulator;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Collects fine-grained performance metrics per iteration, complementing the coarse time stamps of the
+ * {@link IterationStopWatch}. Components record durations with {@link #addTime(String, long)} and other values
+ * (queue depths, load imbalance, ...) with {@link #addValue(String, double)}; for each metric, the number of samples,
+ * their total, minimum and maximum are aggregated per iteration. At the end of an iteration, the GC activity and heap
+ * usage of the iteration are added, and all metrics are emitted as JFR events ({@link IterationMetricEvent}).
+ * The collected data of all iterations can be written as CSV or JSON.
+ * <p></p>
+ * Collecting is disabled by default, all recording methods return immediately then. Instrumented code which has to
+ * measure something first should check {@link #isEnabled()}. The recording methods are thread-safe.
+ */
+public final class IterationMetrics {
+
+	public static final String GC_COUNT = "jvm.gc.count";
+	public static final String GC_TIME = "jvm.gc.time";
+	public static final String HEAP_USED = "jvm.heap.usedMB";
+	public static final String HEAP_PEAK = "jvm.heap.peakMB";
+
+	public enum Kind { time, value }
+
+	private volatile boolean enabled = false;
+
+	private Integer iteration = null;
+
+	/** The metrics of the current iteration, in the order they were first recorded. */
+	private final Map<String, Metric> current = Collections.synchronizedMap(new LinkedHashMap<>());
+
+	/** A faster, unordered lookup into <code>current</code> for the recording threads. */
+	private final Map<String, Metric> lookup = new ConcurrentHashMap<>();
+
+	/** The aggregated metrics of the finished iterations. */
+	private final Map<Integer, Map<String, Values>> iterations = new LinkedHashMap<>();
+
+	private long gcCountAtStart = 0;
+	private long gcTimeAtStart = 0;
+
+	public boolean isEnabled() {
+		return this.enabled;
+	}
+
+	public void setEnabled(boolean enabled) {
+		this.enabled = enabled;
+	}
+
+	/**
+	 * Starts collecting the metrics of a new iteration. Values recorded before are assigned to this iteration, too.
+	 */
+	public void beginIteration(final int iteration) {
+		this.iteration = iteration;
+		if (!this.enabled) {
+			return;
+		}
+		this.gcCountAtStart = 0;
+		this.gcTimeAtStart = 0;
+		for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+			this.gcCountAtStart += Math.max(0, gc.getCollectionCount());
+			this.gcTimeAtStart += Math.max(0, gc.getCollectionTime());
+		}
+		for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+			if (pool.getType() == MemoryType.HEAP && pool.isValid()) {
+				pool.resetPeakUsage();
+			}
+		}
+	}
+
+	/**
+	 * Finishes the current iteration: adds the JVM metrics, emits the JFR events and stores the aggregated values.
+	 */
+	public void endIteration() {
+		if (this.iteration == null) {
+			return;
+		}
+		if (this.enabled) {
+			long gcCount = 0;
+			long gcTime = 0;
+			for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+				gcCount += Math.max(0, gc.getCollectionCount());
+				gcTime += Math.max(0, gc.getCollectionTime());
+			}
+			addValue(GC_COUNT, gcCount - this.gcCountAtStart);
+			addTime(GC_TIME, (gcTime - this.gcTimeAtStart) * 1_000_000L);
+			long peak = 0;
+			for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+				if (pool.getType() == MemoryType.HEAP && pool.isValid() && pool.getPeakUsage() != null) {
+					peak += pool.getPeakUsage().getUsed();
+				}
+			}
+			addValue(HEAP_PEAK, peak / (1024.0 * 1024.0));
+			addValue(HEAP_USED, ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed() / (1024.0 * 1024.0));
+		}
+
+		Map<String, Values> values = new LinkedHashMap<>();
+		synchronized (this.current) {
+			for (Map.Entry<String, Metric> e : this.current.entrySet()) {
+				values.put(e.getKey(), e.getValue().getValues());
+			}
+			this.current.clear();
+			this.lookup.clear();
+		}
+		if (!values.isEmpty()) {
+			this.iterations.put(this.iteration, values);
+			IterationMetricEvent event = new IterationMetricEvent();
+			if (event.isEnabled()) {
+				for (Map.Entry<String, Values> e : values.entrySet()) {
+					IterationMetricEvent.commit(this.iteration, e.getKey(), e.getValue());
+				}
+			}
+		}
+		this.iteration = null;
+	}
+
+	/**
+	 * Records a duration, in nanoseconds.
+	 */
+	public void addTime(String metric, long nanos) {
+		if (this.enabled) {
+			getMetric(metric, Kind.time).add(nanos);
+		}
+	}
+
+	/**
+	 * Records a sample of a metric which is not a duration, e.g. a queue length.
+	 */
+	public void addValue(String metric, double value) {
+		if (this.enabled) {
+			getMetric(metric, Kind.value).add(value);
+		}
+	}
+
+	private Metric getMetric(String name, Kind kind) {
+		Metric metric = this.lookup.get(name);
+		if (metric == null) {
+			synchronized (this.current) {
+				metric = this.current.computeIfAbsent(name, k -> new Metric(kind));
+				this.lookup.put(name, metric);
+			}
+		}
+		return metric;
+	}
+
+	/**
+	 * @return the aggregated values of a finished iteration, or <code>null</code> if no metric was recorded in it.
+	 */
+	public Map<String, Values> getValues(int iteration) {
+		Map<String, Values> values = this.iterations.get(iteration);
+		return values == null ? null : Collections.unmodifiableMap(values);
+	}
+
+	/**
+	 * Writes the metrics of all finished iterations to a csv file, one line per iteration and metric.
+	 * Durations are given in milliseconds.
+	 *
+	 * @param filename the filename without the extension, ".csv" is appended.
+	 * @param delimiter the column delimiter, usually <code>config.global().getDefaultDelimiter()</code>
+	 */
+	public void writeCsvFile(final String filename, final String delimiter) {
+		try (BufferedWriter writer = IOUtils.getBufferedWriter(filename + ".csv")) {
+			writer.write(String.join(delimiter, "iteration", "metric", "kind", "count", "total", "mean", "min", "max"));
+			writer.newLine();
+			for (Map.Entry<Integer, Map<String, Values>> it : this.iterations.entrySet()) {
+				for (Map.Entry<String, Values> e : it.getValue().entrySet()) {
+					Values v = e.getValue();
+					writer.write(it.getKey() + delimiter + e.getKey() + delimiter + v.kind + delimiter + v.count + delimiter + v.getTotal()
+							+ delimiter + v.getMean() + delimiter + v.getMin() + delimiter + v.getMax());
+					writer.newLine();
+				}
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Writes the metrics of all finished iterations as JSON. Durations are given in milliseconds.
+	 *
+	 * @param filename the filename without the extension, ".json" is appended.
+	 */
+	public void writeJsonFile(final String filename) {
+		try (BufferedWriter writer = IOUtils.getBufferedWriter(filename + ".json");
+				JsonGenerator json = new JsonFactory().createGenerator(writer)) {
+			json.useDefaultPrettyPrinter();
+			json.writeStartObject();
+			json.writeArrayFieldStart("iterations");
+			for (Map.Entry<Integer, Map<String, Values>> it : this.iterations.entrySet()) {
+				json.writeStartObject();
+				json.writeNumberField("iteration", it.getKey());
+				json.writeObjectFieldStart("metrics");
+				for (Map.Entry<String, Values> e : it.getValue().entrySet()) {
+					Values v = e.getValue();
+					json.writeObjectFieldStart(e.getKey());
+					json.writeStringField("kind", v.kind.toString());
+					json.writeNumberField("count", v.count);
+					json.writeNumberField("total", v.getTotal());
+					json.writeNumberField("mean", v.getMean());
+					json.writeNumberField("min", v.getMin());
+					json.writeNumberField("max", v.getMax());
+					json.writeEndObject();
+				}
+				json.writeEndObject();
+				json.writeEndObject();
+			}
+			json.writeEndArray();
+			json.writeEndObject();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private static final class Metric {
+		private final Kind kind;
+		private final LongAdder count = new LongAdder();
+		private final DoubleAdder total = new DoubleAdder();
+		private final DoubleAccumulator min = new DoubleAccumulator(Math::min, Double.POSITIVE_INFINITY);
+		private final DoubleAccumulator max = new DoubleAccumulator(Math::max, Double.NEGATIVE_INFINITY);
+
+		Metric(Kind kind) {
+			this.kind = kind;
+		}
+
+		void add(double value) {
+			this.count.increment();
+			this.total.add(value);
+			this.min.accumulate(value);
+			this.max.accumulate(value);
+		}
+
+		Values getValues() {
+			double scale = this.kind == Kind.time ? 1e-6 : 1.0; // nanoseconds to milliseconds
+			long n = this.count.sum();
+			return new Values(this.kind, n, this.total.sum() * scale,
+					n == 0 ? Double.NaN : this.min.get() * scale, n == 0 ? Double.NaN : this.max.get() * scale);
+		}
+	}
+
+	/**
+	 * The aggregated samples of one metric in one iteration. Durations are given in milliseconds.
+	 */
+	public static final class Values {
+		private final Kind kind;
+		private final long count;
+		private final double total;
+		private final double min;
+		private final double max;
+
+		Values(Kind kind, long count, double total, double min, double max) {
+			this.kind = kind;
+			this.count = count;
+			this.total = total;
+			this.min = min;
+			this.max = max;
+		}
+
+		public Kind getKind() {
+			return this.kind;
+		}
+
+		public long getCount() {
+			return this.count;
+		}
+
+		public double getTotal() {
+			return this.total;
+		}
+
+		public double getMean() {
+			return this.count == 0 ? Double.NaN : this.total / this.count;
+		}
+
+		public double getMin() {
+			return this.min;
+		}
+
+		public double getMax() {
+			return this.max;
+		}
+	}
+
+}
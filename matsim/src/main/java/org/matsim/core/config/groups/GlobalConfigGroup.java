@@ -38,6 +38,7 @@ public final class GlobalConfigGroup extends ReflectiveConfigGroup {
 	@Override public Map<String, String> getComments() {
 		Map<String,String> map = super.getComments();
 		map.put(NUMBER_OF_THREADS, NUMBER_OF_THREADS_CMT ) ;
+		map.put(MULTITHREADED_MODULE_SCHEDULING, MULTITHREADED_MODULE_SCHEDULING_CMT ) ;
 		return map ;
 	}
 
@@ -93,6 +94,28 @@ public final class GlobalConfigGroup extends ReflectiveConfigGroup {
 		this.numberOfThreads = numberOfThreads;
 	}
 	// ---
+	public enum MultithreadedModuleScheduling { roundRobin, workStealing }
+	private MultithreadedModuleScheduling multithreadedModuleScheduling = MultithreadedModuleScheduling.roundRobin;
+	private static final String MULTITHREADED_MODULE_SCHEDULING = "multithreadedModuleScheduling";
+	private static final String MULTITHREADED_MODULE_SCHEDULING_CMT = "How multi-threaded replanning modules distribute the plans over their threads. "
+			+ MultithreadedModuleScheduling.roundRobin + ": plans are dealt out to the threads before they start, which keeps runs reproducible. "
+			+ MultithreadedModuleScheduling.workStealing + ": idle threads take over plans from busy threads, so a few expensive plans do not keep "
+			+ "a single thread busy while the others wait. The order in which the plans are handled is then no longer deterministic.";
+	/**
+	 * @return {@link #MULTITHREADED_MODULE_SCHEDULING_CMT}
+	 */
+	@StringGetter( MULTITHREADED_MODULE_SCHEDULING )
+	public MultithreadedModuleScheduling getMultithreadedModuleScheduling() {
+		return this.multithreadedModuleScheduling;
+	}
+	/**
+	 * @param multithreadedModuleScheduling -- {@link #MULTITHREADED_MODULE_SCHEDULING_CMT}
+	 */
+	@StringSetter( MULTITHREADED_MODULE_SCHEDULING )
+	public void setMultithreadedModuleScheduling(final MultithreadedModuleScheduling multithreadedModuleScheduling) {
+		this.multithreadedModuleScheduling = multithreadedModuleScheduling;
+	}
+	// ---
 	private String coordinateSystem = "Atlantis" ;
 	// see https://matsim.atlassian.net/browse/MATSIM-898
 	private static final String COORDINATE_SYSTEM = "coordinateSystem";
@@ -49,6 +49,15 @@ public final class ParallelEventHandlingConfigGroup extends ReflectiveConfigGrou
 	private final static String EVENTS_QUEUE_SIZE_COMMENT = "Size of the events Queue. Increase for very large scenarios";
 	private int eventsQueueSize = 65536 * 2 ;
 
+	private final static String USE_RING_BUFFER = "useRingBuffer";
+	private final static String USE_RING_BUFFER_COMMENT = "If enabled, events are passed to the event handler threads through a lock-free ring buffer of size "
+			+ EVENTS_QUEUE_SIZE + ". Respects " + NUMBER_OF_THREADS + " and " + SYNCHRONIZE_ON_SIMSTEPS + ". This feature is still experimental!";
+	private boolean useRingBuffer = false;
+
+	private final static String NUMBER_OF_SCORING_SHARDS = "numberOfScoringShards";
+	private final static String NUMBER_OF_SCORING_SHARDS_COMMENT = "Number of shards the persons are split into for scoring. Every shard is a separate event handler, "
+			+ "so the shards are scored concurrently when events are handled in parallel. The scores do not depend on this setting.";
+	private int numberOfScoringShards = 1;
 
 
 	private boolean locked = false;
@@ -67,6 +76,8 @@ public final class ParallelEventHandlingConfigGroup extends ReflectiveConfigGrou
 		comments.put(ONE_THREAD_PER_HANDLER, "If enabled, each event handler is assigned to its own thread. Note that enabling this feature disabled the " + NUMBER_OF_THREADS + " option! "
 				+ "This feature is still experimental!");
 		comments.put(EVENTS_QUEUE_SIZE,EVENTS_QUEUE_SIZE_COMMENT);
+		comments.put(USE_RING_BUFFER, USE_RING_BUFFER_COMMENT);
+		comments.put(NUMBER_OF_SCORING_SHARDS, NUMBER_OF_SCORING_SHARDS_COMMENT);
 		return comments;
 	}
 
@@ -116,6 +127,37 @@ public final class ParallelEventHandlingConfigGroup extends ReflectiveConfigGrou
 		return eventsQueueSize;
 	}
 
+	@StringGetter(USE_RING_BUFFER)
+	public boolean isUseRingBuffer() {
+		return useRingBuffer;
+	}
+
+	@StringSetter(USE_RING_BUFFER)
+	public void setUseRingBuffer(boolean useRingBuffer) {
+		if ( !this.locked ) {
+			this.useRingBuffer = useRingBuffer;
+		} else {
+			throw new RuntimeException("it is too late in the control flow to modify this parameter");
+		}
+	}
+
+	/**
+	 * {@value #NUMBER_OF_SCORING_SHARDS_COMMENT}
+	 */
+	@StringGetter( NUMBER_OF_SCORING_SHARDS )
+	public int getNumberOfScoringShards() {
+		return this.numberOfScoringShards;
+	}
+
+	@StringSetter( NUMBER_OF_SCORING_SHARDS )
+	public void setNumberOfScoringShards(int numberOfScoringShards) {
+		if ( !this.locked ) {
+			this.numberOfScoringShards = numberOfScoringShards;
+		} else {
+			throw new RuntimeException("it is too late in the control flow to modify this parameter");
+		}
+	}
+
 	@StringGetter( SYNCHRONIZE_ON_SIMSTEPS )
 	public Boolean getSynchronizeOnSimSteps() {
 		return this.synchronizeOnSimSteps;
@@ -91,6 +91,12 @@ public final class PlansConfigGroup extends ReflectiveConfigGroup {
 		comments.put(REMOVING_UNNECESSARY_PLAN_ATTRIBUTES, "(not tested) will remove plan attributes that are presumably not used, such as " +
                 "activityStartTime. default=false. Use with Caution!");
 
+		comments.put(USING_PARALLEL_READER, "If true, population files in the population_v6 format are interpreted by " +
+				"global.numberOfThreads threads. The result is the same as with the sequential reader. default=false.");
+
+		comments.put(USING_PARALLEL_WRITER, "If true, the plans dumps of the iterations and the output population are written " +
+				"by global.numberOfThreads threads. The files are the same as with the sequential writer. default=false.");
+
 		comments.put( INPUT_CRS , "The Coordinates Reference System in which the coordinates are expressed in the input file." +
 				" At import, the coordinates will be converted to the coordinate system defined in \"global\", and will" +
 				"be converted back at export. If not specified, no conversion happens." );
@@ -218,6 +224,30 @@ public final class PlansConfigGroup extends ReflectiveConfigGroup {
 	}
 
 
+	// ---
+
+	private static final String USING_PARALLEL_READER = "usingParallelReader";
+	private boolean usingParallelReader = false;
+	@StringGetter(USING_PARALLEL_READER)
+	public boolean isUsingParallelReader() {
+		return this.usingParallelReader;
+	}
+	@StringSetter(USING_PARALLEL_READER)
+	public void setUsingParallelReader(final boolean usingParallelReader) {
+		this.usingParallelReader = usingParallelReader;
+	}
+
+	private static final String USING_PARALLEL_WRITER = "usingParallelWriter";
+	private boolean usingParallelWriter = false;
+	@StringGetter(USING_PARALLEL_WRITER)
+	public boolean isUsingParallelWriter() {
+		return this.usingParallelWriter;
+	}
+	@StringSetter(USING_PARALLEL_WRITER)
+	public void setUsingParallelWriter(final boolean usingParallelWriter) {
+		this.usingParallelWriter = usingParallelWriter;
+	}
+
 	@StringGetter( INPUT_CRS )
 	public String getInputCRS() {
 		return inputCRS;
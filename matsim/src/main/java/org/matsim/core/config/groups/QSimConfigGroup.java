@@ -138,6 +138,16 @@ public final class QSimConfigGroup extends ReflectiveConfigGroup {
 	private LinkDynamics linkDynamics = LinkDynamics.FIFO ;
 	private static final String LINK_DYNAMICS = "linkDynamics" ;
 
+	// ---
+	public enum VehicleQueueImplementation { linkedList, ringBuffer }
+	private VehicleQueueImplementation vehicleQueueImplementation = VehicleQueueImplementation.linkedList ;
+	private static final String VEHICLE_QUEUE_IMPLEMENTATION = "vehicleQueueImplementation" ;
+
+	// ---
+	public enum AgentWakeupQueue { priorityQueue, calendarQueue }
+	private AgentWakeupQueue agentWakeupQueue = AgentWakeupQueue.priorityQueue ;
+	private static final String AGENT_WAKEUP_QUEUE = "agentWakeupQueue" ;
+
 	// ---
 	private double nodeOffset = 0;
 	private float linkWidth = 30;
@@ -176,6 +186,18 @@ public final class QSimConfigGroup extends ReflectiveConfigGroup {
 	}
 	private NodeTransition nodeTransitionLogic = NodeTransition.emptyBufferAfterBufferRandomDistribution_dontBlockNode;
 	
+	// ---
+	private static final String NETSIM_ENGINE_PARTITIONING = "netsimEnginePartitioning";
+	public enum NetsimEnginePartitioning { roundRobin, geometricBisection, graphBisection }
+	private NetsimEnginePartitioning netsimEnginePartitioning = NetsimEnginePartitioning.roundRobin;
+
+	private static final String LOAD_BASED_NETSIM_ENGINE_PARTITIONING = "usingLoadBasedNetsimEnginePartitioning";
+	private boolean usingLoadBasedNetsimEnginePartitioning = false;
+
+	private static final String NETSIM_ENGINE_SYNCHRONIZATION = "netsimEngineSynchronization";
+	public enum NetsimEngineSynchronization { barrier, localClocks }
+	private NetsimEngineSynchronization netsimEngineSynchronization = NetsimEngineSynchronization.barrier;
+
 	// ---
 	
 	public QSimConfigGroup() {
@@ -254,6 +276,21 @@ public final class QSimConfigGroup extends ReflectiveConfigGroup {
 		map.put(NUMBER_OF_THREADS, "Number of threads used for the QSim.  "
 				+ "Note that this setting is independent from the \"global\" threads setting.  "
 				+ "In contrast to earlier versions, the non-parallel special version is no longer there." ) ;
+		{
+			StringBuilder options = new StringBuilder(60) ;
+			for ( NetsimEnginePartitioning partitioning : NetsimEnginePartitioning.values() ) {
+				options.append(partitioning).append(' ');
+			}
+			map.put(NETSIM_ENGINE_PARTITIONING, "Defines how nodes and links are distributed onto the threads of the QSim. "
+					+ "roundRobin ignores the network structure; geometricBisection recursively cuts the network along its "
+					+ "coordinates; graphBisection recursively cuts the network along its links. Options: " + options ) ;
+		}
+		map.put(LOAD_BASED_NETSIM_ENGINE_PARTITIONING, "If true, the network partitioning uses the load per node observed "
+				+ "in the previous QSim run as weights. Has no effect with roundRobin partitioning. Default: false");
+		map.put(NETSIM_ENGINE_SYNCHRONIZATION, "Defines how the threads of the QSim wait for each other within a time step. "
+				+ "barrier: all threads move their nodes, then all threads move their links. "
+				+ "localClocks: each thread only waits for the threads owning neighbouring nodes; works best together with "
+				+ "a netsimEnginePartitioning other than roundRobin. Default: barrier");
 		map.put(REMOVE_STUCK_VEHICLES, REMOVE_STUCK_VEHICLES_STRING );
 		map.put(STUCK_TIME, STUCK_TIME_STRING );
 
@@ -293,6 +330,14 @@ public final class QSimConfigGroup extends ReflectiveConfigGroup {
 			}
 			map.put(LINK_DYNAMICS, "default: FIFO; options:" + stb ) ;
 		}
+		map.put(VEHICLE_QUEUE_IMPLEMENTATION, "Data structure holding the vehicles on a link if link dynamics is " + LinkDynamics.FIFO
+				+ ". " + VehicleQueueImplementation.ringBuffer + " uses growable circular arrays, which behave the same as "
+				+ VehicleQueueImplementation.linkedList + " but do not allocate objects for every vehicle entering a link. Default is "
+				+ VehicleQueueImplementation.linkedList + ".");
+		map.put(AGENT_WAKEUP_QUEUE, "Data structure holding the activity ends of the default activity engine and the arrivals of the default "
+				+ "teleportation engine. " + AgentWakeupQueue.calendarQueue + " sorts the agents into buckets of one second instead of a "
+				+ "priority queue, which is faster for large populations. Agents becoming due while the agents of a time step are handled are "
+				+ "handled after them. Default is " + AgentWakeupQueue.priorityQueue + ".");
 		map.put(USE_PERSON_ID_FOR_MISSING_VEHICLE_ID, "If a route does not reference a vehicle, agents will use the vehicle with the same id as their own.");
 		map.put(FAST_CAPACITY_UPDATE, "If false, the qsim accumulates fractional flows up to one flow unit in every time step.  If true, "
 				+ "flows are updated only if an agent wants to enter the link or an agent is added to buffer. "
@@ -435,6 +480,36 @@ public final class QSimConfigGroup extends ReflectiveConfigGroup {
 		this.numberOfThreads = numberOfThreads;
 	}
 
+	@StringGetter(NETSIM_ENGINE_PARTITIONING)
+	public NetsimEnginePartitioning getNetsimEnginePartitioning() {
+		return this.netsimEnginePartitioning;
+	}
+
+	@StringSetter(NETSIM_ENGINE_PARTITIONING)
+	public void setNetsimEnginePartitioning(final NetsimEnginePartitioning netsimEnginePartitioning) {
+		this.netsimEnginePartitioning = netsimEnginePartitioning;
+	}
+
+	@StringGetter(LOAD_BASED_NETSIM_ENGINE_PARTITIONING)
+	public boolean isUsingLoadBasedNetsimEnginePartitioning() {
+		return this.usingLoadBasedNetsimEnginePartitioning;
+	}
+
+	@StringSetter(LOAD_BASED_NETSIM_ENGINE_PARTITIONING)
+	public void setUsingLoadBasedNetsimEnginePartitioning(final boolean usingLoadBasedNetsimEnginePartitioning) {
+		this.usingLoadBasedNetsimEnginePartitioning = usingLoadBasedNetsimEnginePartitioning;
+	}
+
+	@StringGetter(NETSIM_ENGINE_SYNCHRONIZATION)
+	public NetsimEngineSynchronization getNetsimEngineSynchronization() {
+		return this.netsimEngineSynchronization;
+	}
+
+	@StringSetter(NETSIM_ENGINE_SYNCHRONIZATION)
+	public void setNetsimEngineSynchronization(final NetsimEngineSynchronization netsimEngineSynchronization) {
+		this.netsimEngineSynchronization = netsimEngineSynchronization;
+	}
+
 	@StringGetter(SIM_STARTTIME_INTERPRETATION)
 	public StarttimeInterpretation getSimStarttimeInterpretation() {
 		return simStarttimeInterpretation;
@@ -524,6 +599,26 @@ public final class QSimConfigGroup extends ReflectiveConfigGroup {
 		this.linkDynamics = linkDynamics ;
 	}
 
+	@StringGetter(VEHICLE_QUEUE_IMPLEMENTATION)
+	public VehicleQueueImplementation getVehicleQueueImplementation() {
+		return this.vehicleQueueImplementation ;
+	}
+
+	@StringSetter(VEHICLE_QUEUE_IMPLEMENTATION)
+	public void setVehicleQueueImplementation(VehicleQueueImplementation vehicleQueueImplementation) {
+		this.vehicleQueueImplementation = vehicleQueueImplementation ;
+	}
+
+	@StringGetter(AGENT_WAKEUP_QUEUE)
+	public AgentWakeupQueue getAgentWakeupQueue() {
+		return this.agentWakeupQueue ;
+	}
+
+	@StringSetter(AGENT_WAKEUP_QUEUE)
+	public void setAgentWakeupQueue(AgentWakeupQueue agentWakeupQueue) {
+		this.agentWakeupQueue = agentWakeupQueue ;
+	}
+
 	@StringGetter(USE_PERSON_ID_FOR_MISSING_VEHICLE_ID)
 	public boolean getUsePersonIdForMissingVehicleId() {
 		return usePersonIdForMissingVehicleId;
@@ -38,11 +38,13 @@ public final class ScenarioConfigGroup extends ConfigGroup {
 	private static final String USE_TRANSIT = "useTransit";
 	private static final String USE_VEHICLES = "useVehicles";
 	private static final String SIMULATION_PERIOD_DAYS = "simulationPeriodInDays"; // is not yet written to log-output so we can still rename it internally
+	private static final String SNAPSHOT_FILE = "snapshotFile";
 	
 	@SuppressWarnings("unused")
 	private static final Logger log = Logger.getLogger( ScenarioConfigGroup.class ) ;
 
 	private double simulationPeriodInDays = 1.0;
+	private String snapshotFile = null;
 	
 	public ScenarioConfigGroup() {
 		super(GROUP_NAME);
@@ -58,6 +60,9 @@ public final class ScenarioConfigGroup extends ConfigGroup {
 		map.put(USE_HOUSEHOLDS, message); // since jul'15
 		map.put(USE_VEHICLES, message); // since jul'15
 		map.put(USE_TRANSIT, "Deprecated, do not use.  See transit section of config file.") ; // since jul'15
+		map.put(SNAPSHOT_FILE, "Binary scenario snapshot, as written by ScenarioSnapshotWriter.  If set, the network, the transit schedule "
+				+ "and the population are read from the snapshot instead of from the files given in the network, transit and plans sections. "
+				+ "The snapshot must be a local file.");
 		
 		return map;
 	}
@@ -75,6 +80,8 @@ public final class ScenarioConfigGroup extends ConfigGroup {
 			this.setUseVehicles( Boolean.parseBoolean(value) );
 		} else if (USE_TRANSIT.equals(paramName)) {
 			this.setUseTransit( Boolean.parseBoolean(value) );
+		} else if (SNAPSHOT_FILE.equals(paramName)) {
+			this.setSnapshotFile( value );
 		} else {
 			throw new IllegalArgumentException("Parameter '" + paramName + "' is not supported by config group '" + GROUP_NAME + "'.");
 		}
@@ -87,6 +94,9 @@ public final class ScenarioConfigGroup extends ConfigGroup {
 	@Override
 	public final Map<String, String> getParams() {
 		Map<String, String> params = super.getParams();
+		if (this.snapshotFile != null) {
+			params.put(SNAPSHOT_FILE, this.snapshotFile);
+		}
 		return params;
 	}
 
@@ -137,7 +147,16 @@ public final class ScenarioConfigGroup extends ConfigGroup {
 		return this.simulationPeriodInDays;
 	}
 
-	
+	@StringSetter( SNAPSHOT_FILE )
+	public void setSnapshotFile(final String snapshotFile) {
+		this.snapshotFile = snapshotFile;
+	}
+
+	@StringGetter( SNAPSHOT_FILE )
+	public String getSnapshotFile() {
+		return this.snapshotFile;
+	}
+
 	private static String getMessage( String module ) {
 		return "The " + module + " switch is no longer operational.  The file is loaded if the file name"
 				+ " is different from null.  If you needed this for the creation of the container, use the ScenarioBuilder in "
@@ -20,6 +20,7 @@
 package org.matsim.core.controler;
 
 import org.apache.log4j.Logger;
+import org.matsim.analysis.IterationMetrics;
 import org.matsim.analysis.IterationStopWatch;
 import org.matsim.core.config.Config;
 import org.matsim.core.controler.listener.ControlerListener;
@@ -37,6 +38,8 @@ import org.matsim.utils.MemoryObserver;
 
     private final IterationStopWatch stopwatch;
 
+    private IterationMetrics iterationMetrics = new IterationMetrics();
+
 
     /**
      * This is deliberately not even protected.  kai, jul'12
@@ -129,6 +132,7 @@ import org.matsim.utils.MemoryObserver;
     private void iteration(final Config config, final int iteration, boolean isLastIteration) throws MatsimRuntimeModifications.UnexpectedShutdownException {
         this.thisIteration = iteration;
         this.getStopwatch().beginIteration(iteration);
+        this.iterationMetrics.beginIteration(iteration);
 
         log.info(Controler.DIVIDER);
         log.info(MARKER + "ITERATION " + iteration + " BEGINS");
@@ -178,6 +182,16 @@ import org.matsim.utils.MemoryObserver;
         if (config.controler().isCreateGraphs()) {
             this.getStopwatch().writeGraphFile(this.getControlerIO().getOutputFilename("stopwatch"));
         }
+        this.iterationMetrics.endIteration();
+        if (this.iterationMetrics.isEnabled()) {
+            try {
+                this.iterationMetrics.writeCsvFile(this.getControlerIO().getOutputFilename("iteration_metrics"),
+                        config.global().getDefaultDelimiter());
+                this.iterationMetrics.writeJsonFile(this.getControlerIO().getOutputFilename("iteration_metrics"));
+            } catch (UncheckedIOException e) {
+                log.error("Could not write iteration metrics files.", e);
+            }
+        }
         log.info(MARKER + "ITERATION " + iteration + " ENDS");
         log.info(Controler.DIVIDER);
     }
@@ -240,7 +254,9 @@ import org.matsim.utils.MemoryObserver;
 
     private void iterationStep(String iterationStepName, Runnable iterationStep) throws MatsimRuntimeModifications.UnexpectedShutdownException {
         this.getStopwatch().beginOperation(iterationStepName);
+        long start = System.nanoTime();
         iterationStep.run();
+        this.iterationMetrics.addTime("phase." + iterationStepName, System.nanoTime() - start);
         this.getStopwatch().endOperation(iterationStepName);
         if (Thread.interrupted()) {
             throw new MatsimRuntimeModifications.UnexpectedShutdownException();
@@ -275,4 +291,8 @@ import org.matsim.utils.MemoryObserver;
         return stopwatch;
     }
 
+    final void setIterationMetrics(IterationMetrics iterationMetrics) {
+        this.iterationMetrics = iterationMetrics;
+    }
+
 }
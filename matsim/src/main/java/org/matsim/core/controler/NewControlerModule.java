@@ -21,6 +21,7 @@
 
  package org.matsim.core.controler;
 
+import org.matsim.analysis.IterationMetrics;
 import org.matsim.analysis.IterationStopWatch;
 
 public final class NewControlerModule extends AbstractModule {
@@ -31,6 +32,7 @@ public final class NewControlerModule extends AbstractModule {
 		bind(ControlerListenerManager.class).to(ControlerListenerManagerImpl.class);
 		
 		bind(IterationStopWatch.class).asEagerSingleton();
+		bind(IterationMetrics.class).asEagerSingleton();
 		bind(OutputDirectoryHierarchy.class).asEagerSingleton();
 		bind(TerminationCriterion.class).to(TerminateAtFixedIterationNumber.class);
 		bind(MatsimServices.class).to(MatsimServicesImpl.class);
@@ -30,24 +30,34 @@ import org.matsim.core.config.groups.ControlerConfigGroup;
 import org.matsim.core.controler.Controler;
 import org.matsim.core.controler.OutputDirectoryHierarchy;
 import org.matsim.core.controler.events.BeforeMobsimEvent;
+import org.matsim.core.controler.events.IterationEndsEvent;
 import org.matsim.core.controler.listener.BeforeMobsimListener;
+import org.matsim.core.controler.listener.IterationEndsListener;
+import org.matsim.core.population.io.ParallelPopulationWriter;
 
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
 import org.matsim.core.utils.geometry.CoordinateTransformation;
+import org.matsim.core.utils.geometry.transformations.IdentityTransformation;
 import org.matsim.core.utils.geometry.transformations.TransformationFactory;
 
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
 /**
  * {@link org.matsim.core.controler.listener.ControlerListener} that dumps the
  * complete plans regularly at the start of an iteration
  * ({@link ControlerConfigGroup#getWritePlansInterval()} as well as in the first
  * iteration, just in case someone might check that the replanning worked
  * correctly in the first iteration.
+ * <p></p>
+ * With more than one thread configured in the global config group, the plans are formatted in parallel, and
+ * written to the file while the mobsim runs. The file is complete at the end of the iteration.
  *
  * @author mrieser
  */
 @Singleton
-final class PlansDumpingImpl implements PlansDumping, BeforeMobsimListener {
+final class PlansDumpingImpl implements PlansDumping, BeforeMobsimListener, IterationEndsListener {
 
 	static final private Logger log = Logger.getLogger(PlansDumpingImpl.class);
 
@@ -60,6 +70,8 @@ final class PlansDumpingImpl implements PlansDumping, BeforeMobsimListener {
 
 	private int writeMoreUntilIteration;
 
+	private Future<?> pendingDump = null;
+
 	@Inject
 	PlansDumpingImpl(ControlerConfigGroup config) {
 		this.writePlansInterval = config.getWritePlansInterval();
@@ -76,23 +88,41 @@ final class PlansDumpingImpl implements PlansDumping, BeforeMobsimListener {
 			log.info("dumping plans...");
 			final String inputCRS = config.plans().getInputCRS();
 			final String internalCRS = config.global().getCoordinateSystem();
+			final String filename = controlerIO.getIterationFilename(event.getIteration(), Controler.DefaultFiles.population);
 
-			if ( inputCRS == null ) {
-				new PopulationWriter(population, network).write(controlerIO.getIterationFilename(event.getIteration(), Controler.DefaultFiles.population));
-			}
-			else {
+			CoordinateTransformation transformation = new IdentityTransformation();
+			if ( inputCRS != null ) {
 				log.info( "re-projecting population from "+internalCRS+" back to "+inputCRS+" for export" );
 
-				final CoordinateTransformation transformation =
+				transformation =
 						TransformationFactory.getCoordinateTransformation(
 								internalCRS,
 								inputCRS );
+			}
 
-				new PopulationWriter(transformation, population, network).write(controlerIO.getIterationFilename(event.getIteration(), Controler.DefaultFiles.population));
+			final int numberOfThreads = config.global().getNumberOfThreads();
+			if ( config.plans().isUsingParallelWriter() && numberOfThreads > 1 ) {
+				this.pendingDump = new ParallelPopulationWriter(transformation, population, numberOfThreads).writeAsync(filename);
+			}
+			else {
+				new PopulationWriter(transformation, population, network).write(filename);
 			}
 			log.info("finished plans dump.");
 			stopwatch.endOperation("dump all plans");
 		}
 	}
 
+	@Override
+	public void notifyIterationEnds(final IterationEndsEvent event) {
+		if ( this.pendingDump != null ) {
+			try {
+				this.pendingDump.get();
+			} catch (InterruptedException | ExecutionException e) {
+				throw new RuntimeException("could not dump plans", e);
+			} finally {
+				this.pendingDump = null;
+			}
+		}
+	}
+
 }
@@ -0,0 +1,288 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * BinaryEventsFormat.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2022 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+
+package org.matsim.core.events;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Constants and helpers shared by {@link org.matsim.core.events.algorithms.EventWriterBinary} and
+ * {@link EventsReaderBinary}.
+ * <p>
+ * A binary events file starts with the magic bytes {@link #MAGIC} and the format version, followed by a sequence of
+ * blocks and a single {@link #END} byte. Each block holds a number of consecutive events and starts with an uncompressed
+ * header:
+ * <pre>
+ * byte   BLOCK
+ * double time of the first event
+ * double time of the last event
+ * int    number of events
+ * int    compressed length, int length of the dictionary section
+ * int    compressed length, int length of the data section
+ * </pre>
+ * Both sections are compressed with {@link Deflater}.
+ * <p>
+ * The <b>dictionary section</b> contains the strings and schemas first used in this block. A schema is the event type
+ * together with the list of attribute names (except <code>time</code> and <code>type</code>). Strings and schemas are
+ * numbered in the order they appear in the file. Readers must process the dictionary section of every block, but can
+ * skip the data section of blocks outside of the time range they are interested in.
+ * <p>
+ * The <b>data section</b> stores the events in columns: the number of events, the schema of each event, the time of each
+ * event (delta-encoded within the block), and then, for each schema used in the block, one column per attribute with the
+ * values of all events of that schema. Each column is prefixed with its length in bytes. A value is a var-long whose
+ * lowest two bits tell how to interpret it, see <code>VALUE_*</code>.
+ */
+public final class BinaryEventsFormat {
+
+	public static final byte[] MAGIC = "MATSIMEB".getBytes(StandardCharsets.US_ASCII);
+	public static final int VERSION = 1;
+
+	public static final byte BLOCK = 1;
+	public static final byte END = 0;
+
+	/** The remaining bits are the index of the string in the dictionary. */
+	public static final int VALUE_STRING = 0;
+	/** The remaining bits are a zig-zag encoded integer. */
+	public static final int VALUE_LONG = 1;
+	/** A double follows. */
+	public static final int VALUE_DOUBLE = 2;
+	public static final int VALUE_NULL = 3;
+
+	private BinaryEventsFormat() {
+	}
+
+	/**
+	 * @return true if <code>value</code> is exactly the string representation of a (not too large) <code>long</code>,
+	 * without leading zeros or plus sign.
+	 */
+	public static boolean isLong(String value) {
+		int length = value.length();
+		int start = value.startsWith("-") ? 1 : 0;
+		if (length == start || length - start > 17) {
+			return false;
+		}
+		if (value.charAt(start) == '0' && (length - start > 1 || start == 1)) {
+			return false;
+		}
+		for (int i = start; i < length; i++) {
+			char c = value.charAt(i);
+			if (c < '0' || c > '9') {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * @return the double represented by <code>value</code>, if {@link Double#toString(double)} of it gives
+	 * <code>value</code> back, <code>null</code> otherwise.
+	 */
+	public static Double parseExactDouble(String value) {
+		if (value.isEmpty()) {
+			return null;
+		}
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			if ((c < '0' || c > '9') && c != '.' && c != '-' && c != 'E') {
+				return null;
+			}
+		}
+		try {
+			double d = Double.parseDouble(value);
+			return Double.toString(d).equals(value) ? d : null;
+		} catch (NumberFormatException e) {
+			return null;
+		}
+	}
+
+	public static long zigZag(long value) {
+		return (value << 1) ^ (value >> 63);
+	}
+
+	public static long unZigZag(long value) {
+		return (value >>> 1) ^ -(value & 1);
+	}
+
+	/**
+	 * A growable byte array to assemble columns and sections.
+	 */
+	public static final class ByteSink {
+
+		private byte[] data;
+		private int size = 0;
+
+		public ByteSink(int capacity) {
+			this.data = new byte[Math.max(16, capacity)];
+		}
+
+		public int size() {
+			return this.size;
+		}
+
+		public byte[] data() {
+			return this.data;
+		}
+
+		public void clear() {
+			this.size = 0;
+		}
+
+		private void ensureCapacity(int additional) {
+			if (this.size + additional > this.data.length) {
+				this.data = Arrays.copyOf(this.data, Math.max(this.data.length * 2, this.size + additional));
+			}
+		}
+
+		public void writeByte(int value) {
+			ensureCapacity(1);
+			this.data[this.size++] = (byte) value;
+		}
+
+		public void writeVarLong(long value) {
+			ensureCapacity(10);
+			while ((value & ~0x7FL) != 0) {
+				this.data[this.size++] = (byte) ((value & 0x7F) | 0x80);
+				value >>>= 7;
+			}
+			this.data[this.size++] = (byte) value;
+		}
+
+		public void writeDouble(double value) {
+			ensureCapacity(8);
+			long bits = Double.doubleToRawLongBits(value);
+			for (int i = 0; i < 8; i++) {
+				this.data[this.size++] = (byte) (bits >>> (8 * i));
+			}
+		}
+
+		public void writeString(String value) {
+			byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+			writeVarLong(bytes.length);
+			write(bytes, 0, bytes.length);
+		}
+
+		public void write(byte[] bytes, int offset, int length) {
+			ensureCapacity(length);
+			System.arraycopy(bytes, offset, this.data, this.size, length);
+			this.size += length;
+		}
+
+		public void writeColumn(ByteSink column) {
+			writeVarLong(column.size);
+			write(column.data, 0, column.size);
+		}
+
+		/**
+		 * Replaces the content of this sink by the compressed content of <code>source</code>.
+		 */
+		public void compress(ByteSink source, Deflater deflater) {
+			this.size = 0;
+			deflater.reset();
+			deflater.setInput(source.data, 0, source.size);
+			deflater.finish();
+			while (!deflater.finished()) {
+				ensureCapacity(Math.max(64, source.size / 4));
+				this.size += deflater.deflate(this.data, this.size, this.data.length - this.size);
+			}
+		}
+	}
+
+	/**
+	 * Reads the values written by {@link ByteSink} from a byte array.
+	 */
+	public static final class ByteSource {
+
+		private final byte[] data;
+		private int position;
+		private final int end;
+
+		public ByteSource(byte[] data, int offset, int length) {
+			this.data = data;
+			this.position = offset;
+			this.end = offset + length;
+		}
+
+		public static ByteSource decompress(byte[] compressed, int length, Inflater inflater) throws DataFormatException {
+			byte[] data = new byte[length];
+			inflater.reset();
+			inflater.setInput(compressed);
+			int read = 0;
+			while (read < length) {
+				int n = inflater.inflate(data, read, length - read);
+				if (n == 0 && (inflater.finished() || inflater.needsInput())) {
+					throw new DataFormatException("unexpected end of compressed data");
+				}
+				read += n;
+			}
+			return new ByteSource(data, 0, length);
+		}
+
+		public boolean hasRemaining() {
+			return this.position < this.end;
+		}
+
+		public long readVarLong() {
+			long value = 0;
+			int shift = 0;
+			byte b;
+			do {
+				b = this.data[this.position++];
+				value |= (long) (b & 0x7F) << shift;
+				shift += 7;
+			} while (b < 0);
+			return value;
+		}
+
+		public int readVarInt() {
+			return (int) readVarLong();
+		}
+
+		public double readDouble() {
+			long bits = 0;
+			for (int i = 0; i < 8; i++) {
+				bits |= (this.data[this.position++] & 0xFFL) << (8 * i);
+			}
+			return Double.longBitsToDouble(bits);
+		}
+
+		public String readString() {
+			int length = readVarInt();
+			String value = new String(this.data, this.position, length, StandardCharsets.UTF_8);
+			this.position += length;
+			return value;
+		}
+
+		/**
+		 * @return a source for the next column, and moves this source behind it.
+		 */
+		public ByteSource readColumn() {
+			int length = readVarInt();
+			ByteSource column = new ByteSource(this.data, this.position, length);
+			this.position += length;
+			return column;
+		}
+	}
+
+}
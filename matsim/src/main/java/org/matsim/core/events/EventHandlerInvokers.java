@@ -0,0 +1,125 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * EventHandlerInvokers.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2022 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+
+package org.matsim.core.events;
+
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.core.events.handler.EventHandler;
+
+/**
+ * Turns the <code>handleEvent</code> methods of event handler interfaces into {@link BiConsumer}s, so that
+ * events can be passed to handlers without reflection. The invokers are generated with the
+ * {@link LambdaMetafactory}, just like the JVM does for method references, and are shared between all
+ * events managers.
+ * <p>
+ * If an invoker cannot be generated (e.g. because the handler interface is not accessible from this package, or
+ * is loaded by a different class loader), a {@link MethodHandle} or, as last resort, {@link Method#invoke} is used.
+ *
+ * @see EventsManagerImpl
+ */
+final class EventHandlerInvokers {
+
+	private static final Logger log = Logger.getLogger(EventHandlerInvokers.class);
+
+	private static final Map<Method, BiConsumer<EventHandler, Event>> invokers = new ConcurrentHashMap<>();
+
+	private EventHandlerInvokers() {
+	}
+
+	/**
+	 * @param method a <code>handleEvent</code> method of an interface extending {@link EventHandler}, taking a single
+	 *               event as argument.
+	 */
+	static BiConsumer<EventHandler, Event> getInvoker(final Method method) {
+		return invokers.computeIfAbsent(method, EventHandlerInvokers::createInvoker);
+	}
+
+	private static BiConsumer<EventHandler, Event> createInvoker(final Method method) {
+		MethodHandles.Lookup lookup = MethodHandles.lookup();
+		MethodHandle handle;
+		try {
+			handle = lookup.unreflect(method);
+		} catch (IllegalAccessException e) {
+			try {
+				method.setAccessible(true);
+				handle = lookup.unreflect(method);
+			} catch (RuntimeException | IllegalAccessException e2) {
+				log.warn("handler method " + method + " is not accessible, falling back to reflection.");
+				return createReflectiveInvoker(method);
+			}
+		}
+
+		try {
+			CallSite site = LambdaMetafactory.metafactory(lookup, "accept",
+					MethodType.methodType(BiConsumer.class),
+					MethodType.methodType(void.class, Object.class, Object.class),
+					handle,
+					handle.type());
+			@SuppressWarnings("unchecked")
+			BiConsumer<EventHandler, Event> invoker = (BiConsumer<EventHandler, Event>) site.getTarget().invoke();
+			return invoker;
+		} catch (Throwable e) {
+			log.info("could not generate invoker for " + method + ", falling back to a method handle: " + e.getMessage());
+		}
+
+		MethodHandle generic = handle.asType(MethodType.methodType(void.class, EventHandler.class, Event.class));
+		return (handler, event) -> {
+			try {
+				generic.invokeExact(handler, event);
+			} catch (RuntimeException | Error e) {
+				throw e;
+			} catch (Throwable e) {
+				throw new RuntimeException(e);
+			}
+		};
+	}
+
+	private static BiConsumer<EventHandler, Event> createReflectiveInvoker(final Method method) {
+		return (handler, event) -> {
+			try {
+				method.invoke(handler, event);
+			} catch (IllegalAccessException e) {
+				throw new RuntimeException(e);
+			} catch (InvocationTargetException e) {
+				if (e.getCause() instanceof RuntimeException) {
+					throw (RuntimeException) e.getCause();
+				}
+				if (e.getCause() instanceof Error) {
+					throw (Error) e.getCause();
+				}
+				throw new RuntimeException(e.getCause());
+			}
+		};
+	}
+
+}
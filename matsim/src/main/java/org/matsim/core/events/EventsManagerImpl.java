@@ -20,49 +20,21 @@
 
 package org.matsim.core.events;
 
-import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
 
 import org.apache.log4j.Logger;
-import org.matsim.api.core.v01.events.ActivityEndEvent;
-import org.matsim.api.core.v01.events.ActivityStartEvent;
 import org.matsim.api.core.v01.events.Event;
-import org.matsim.api.core.v01.events.LinkEnterEvent;
-import org.matsim.api.core.v01.events.LinkLeaveEvent;
-import org.matsim.api.core.v01.events.PersonArrivalEvent;
-import org.matsim.api.core.v01.events.PersonDepartureEvent;
-import org.matsim.api.core.v01.events.PersonEntersVehicleEvent;
-import org.matsim.api.core.v01.events.PersonLeavesVehicleEvent;
-import org.matsim.api.core.v01.events.PersonMoneyEvent;
-import org.matsim.api.core.v01.events.PersonStuckEvent;
-import org.matsim.api.core.v01.events.TransitDriverStartsEvent;
-import org.matsim.api.core.v01.events.VehicleEntersTrafficEvent;
-import org.matsim.api.core.v01.events.handler.ActivityEndEventHandler;
-import org.matsim.api.core.v01.events.handler.ActivityStartEventHandler;
-import org.matsim.api.core.v01.events.handler.LinkEnterEventHandler;
-import org.matsim.api.core.v01.events.handler.LinkLeaveEventHandler;
-import org.matsim.api.core.v01.events.handler.PersonArrivalEventHandler;
-import org.matsim.api.core.v01.events.handler.PersonDepartureEventHandler;
-import org.matsim.api.core.v01.events.handler.PersonEntersVehicleEventHandler;
-import org.matsim.api.core.v01.events.handler.PersonLeavesVehicleEventHandler;
-import org.matsim.api.core.v01.events.handler.PersonMoneyEventHandler;
-import org.matsim.api.core.v01.events.handler.PersonStuckEventHandler;
-import org.matsim.api.core.v01.events.handler.TransitDriverStartsEventHandler;
-import org.matsim.api.core.v01.events.handler.VehicleEntersTrafficEventHandler;
-import org.matsim.core.api.experimental.events.AgentWaitingForPtEvent;
 import org.matsim.core.api.experimental.events.EventsManager;
-import org.matsim.core.api.experimental.events.VehicleArrivesAtFacilityEvent;
-import org.matsim.core.api.experimental.events.VehicleDepartsAtFacilityEvent;
-import org.matsim.core.api.experimental.events.handler.AgentWaitingForPtEventHandler;
-import org.matsim.core.api.experimental.events.handler.VehicleArrivesAtFacilityEventHandler;
-import org.matsim.core.api.experimental.events.handler.VehicleDepartsAtFacilityEventHandler;
-import org.matsim.core.events.handler.BasicEventHandler;
 import org.matsim.core.events.handler.EventHandler;
 
 /**
@@ -73,9 +45,14 @@ import org.matsim.core.events.handler.EventHandler;
  * <li>add method public void handleEvent(MyEvent event) to it</li>
  * <li>ready to go, just implement the interface somewhere and add a
  * HandlerObject with a call to <code>Events.addHandler(HandlerObject)</code></li>
- * <li>(optional) add an appropriate line in callHandlerFast() for speeding
- * up execution!</li>
  * </ol>
+ * Handlers are called through invokers generated once per handler method (see {@link EventHandlerInvokers}), so no
+ * reflection is needed per event, for core events as well as for events defined in contribs.
+ * <p>
+ * A handler is only called within a lock on the handler if it is registered with more than one
+ * <code>EventsManagerImpl</code> sharing the same {@link HandlerRegistrations}, as it is the case when the same
+ * handler is added several times to a parallel events manager. Such handlers might otherwise be called concurrently
+ * from different threads. Independent events managers do not lock their handlers.
  *
  * @author dstrippgen
  * @author mrieser
@@ -88,11 +65,11 @@ public final class EventsManagerImpl implements EventsManager {
 
 		protected Class<? extends Event> eventClass;
 		protected ArrayList<EventHandler> handlerList = new ArrayList<EventHandler>(5);
-		protected Method method;
+		protected BiConsumer<EventHandler, Event> invoker;
 
-		protected HandlerData(final Class<? extends Event> eventClass, final Method method) {
+		protected HandlerData(final Class<? extends Event> eventClass, final BiConsumer<EventHandler, Event> invoker) {
 			this.eventClass = eventClass;
-			this.method = method;
+			this.invoker = invoker;
 		}
 
 		protected void removeHandler(final EventHandler handler) {
@@ -103,23 +80,76 @@ public final class EventsManagerImpl implements EventsManager {
 	static private class HandlerInfo {
 		protected final Class<? extends Event> eventClass;
 		protected final EventHandler eventHandler;
-		protected final Method method;
+		protected final BiConsumer<EventHandler, Event> invoker;
+		protected final boolean shared;
 
 		protected HandlerInfo(final Class<? extends Event> eventClass, final EventHandler eventHandler,
-				final Method method) {
+				final BiConsumer<EventHandler, Event> invoker, final boolean shared) {
 			this.eventClass = eventClass;
 			this.eventHandler = eventHandler;
-			this.method = method;
+			this.invoker = invoker;
+			this.shared = shared;
 		}
 	}
 
+	/**
+	 * Counts with how many of the <code>EventsManagerImpl</code>s of a parallel events manager each handler is
+	 * registered.
+	 */
+	static final class HandlerRegistrations {
+		private final Map<EventHandler, Integer> counts = new IdentityHashMap<>();
+
+		/**
+		 * Incremented whenever a handler becomes shared or stops being shared, which invalidates the handler caches of
+		 * the events managers.
+		 */
+		private final AtomicInteger sharingVersion = new AtomicInteger();
+
+		private synchronized void add(final EventHandler handler) {
+			if (this.counts.merge(handler, 1, Integer::sum) == 2) {
+				this.sharingVersion.incrementAndGet();
+			}
+		}
+
+		private synchronized void remove(final EventHandler handler) {
+			Integer remaining = this.counts.computeIfPresent(handler, (h, count) -> count == 1 ? null : count - 1);
+			if (remaining != null && remaining == 1) {
+				this.sharingVersion.incrementAndGet();
+			}
+		}
+
+		private synchronized boolean isShared(final EventHandler handler) {
+			Integer count = this.counts.get(handler);
+			return count != null && count > 1;
+		}
+	}
+
+	private final HandlerRegistrations registrations;
+
 	private final List<HandlerData> handlerData = new ArrayList<>();
 
 	private final Map<Class<? extends Event>, HandlerInfo[]> cacheHandlers = new ConcurrentHashMap<>(15);
 
+	private final Set<EventHandler> registeredHandlers = Collections.newSetFromMap(new IdentityHashMap<>());
+
+	private int cacheSharingVersion;
+
 	private long counter = 0;
 	private long nextCounterMsg = 1;
 
+	public EventsManagerImpl() {
+		this(new HandlerRegistrations());
+	}
+
+	/**
+	 * @param registrations shared by all events managers which might be given the same handler and are used by
+	 * 		different threads
+	 */
+	EventsManagerImpl(final HandlerRegistrations registrations) {
+		this.registrations = registrations;
+		this.cacheSharingVersion = registrations.sharingVersion.get();
+	}
+
 	private HandlerData findHandler(final Class<? extends Event> evklass) {
 		for (HandlerData handler : this.handlerData) {
 			if (handler.eventClass == evklass) {
@@ -136,22 +166,30 @@ public final class EventsManagerImpl implements EventsManager {
 			this.nextCounterMsg *= 4;
 			log.info(" event # " + this.counter);
 		}
+		int version = this.registrations.sharingVersion.get();
+		if (version != this.cacheSharingVersion) {
+			this.cacheSharingVersion = version;
+			this.cacheHandlers.clear();
+		}
 		for (HandlerInfo info : getHandlersForClass( event.getClass() )) {
-			synchronized(info.eventHandler) {
-				if (callHandlerFast(info.eventClass, event, info.eventHandler )) {
-					continue;
-				}
-				try {
-					info.method.invoke(info.eventHandler, event );
-				} catch (IllegalArgumentException | IllegalAccessException e) {
-					throw new RuntimeException("problem invoking EventHandler " + info.eventHandler.getClass().getCanonicalName() + " for event-class " + info.eventClass.getCanonicalName(), e);
-				} catch (InvocationTargetException e) {
-					throw new RuntimeException("problem invoking EventHandler " + info.eventHandler.getClass().getCanonicalName() + " for event-class " + info.eventClass.getCanonicalName(), e.getCause());
+			if (info.shared) {
+				synchronized(info.eventHandler) {
+					callHandler(info, event);
 				}
+			} else {
+				callHandler(info, event);
 			}
 		}
 	}
 
+	private static void callHandler(final HandlerInfo info, final Event event) {
+		try {
+			info.invoker.accept(info.eventHandler, event);
+		} catch (RuntimeException e) {
+			throw new RuntimeException("problem invoking EventHandler " + info.eventHandler.getClass().getCanonicalName() + " for event-class " + info.eventClass.getCanonicalName(), e);
+		}
+	}
+
 
 	@Override
 	public void addHandler (final EventHandler handler) {
@@ -172,6 +210,9 @@ public final class EventsManagerImpl implements EventsManager {
 			test = test.getSuperclass();
 		} while ((EventHandler.class.isAssignableFrom(test)));
 
+		if (this.registeredHandlers.add(handler)) {
+			this.registrations.add(handler);
+		}
 		this.cacheHandlers.clear();
 		log.info("");
 	}
@@ -182,6 +223,9 @@ public final class EventsManagerImpl implements EventsManager {
 		for (HandlerData handlerList : this.handlerData) {
 			handlerList.removeHandler(handler);
 		}
+		if (this.registeredHandlers.remove(handler)) {
+			this.registrations.remove(handler);
+		}
 		this.cacheHandlers.clear();
 	}
 
@@ -227,7 +271,7 @@ public final class EventsManagerImpl implements EventsManager {
 					log.info("    > " + eventClass.getName());
 					HandlerData dat = findHandler(eventClass);
 					if (dat == null) {
-						dat = new HandlerData(eventClass, method);
+						dat = new HandlerData(eventClass, EventHandlerInvokers.getInvoker(method));
 						this.handlerData.add(dat);
 					}
 					dat.handlerList.add(handler);
@@ -250,7 +294,7 @@ public final class EventsManagerImpl implements EventsManager {
 			HandlerData dat = findHandler(eventKlass);
 			if (dat != null) {
 				for (EventHandler handler : dat.handlerList) {
-					info.add(new HandlerInfo(eventKlass, handler, dat.method));
+					info.add(new HandlerInfo(eventKlass, handler, dat.invoker, this.registrations.isShared(handler)));
 				}
 			}
 			klass = klass.getSuperclass();
@@ -261,61 +305,6 @@ public final class EventsManagerImpl implements EventsManager {
 		return cache;
 	}
 
-	// this method is purely for performance reasons and need not be implemented
-	private static boolean callHandlerFast(final Class<? extends Event> klass, final Event ev,
-			final EventHandler handler) {
-		if (klass == LinkLeaveEvent.class) {
-			((LinkLeaveEventHandler)handler).handleEvent((LinkLeaveEvent)ev);
-			return true;
-		} else if (klass == LinkEnterEvent.class) {
-			((LinkEnterEventHandler)handler).handleEvent((LinkEnterEvent)ev);
-			return true;
-		} else if (klass == VehicleEntersTrafficEvent.class) {
-			((VehicleEntersTrafficEventHandler)handler).handleEvent((VehicleEntersTrafficEvent)ev);
-			return true;
-		} else if (klass == PersonArrivalEvent.class) {
-			((PersonArrivalEventHandler)handler).handleEvent((PersonArrivalEvent)ev);
-			return true;
-		} else if (klass == PersonDepartureEvent.class) {
-			((PersonDepartureEventHandler)handler).handleEvent((PersonDepartureEvent)ev);
-			return true;
-		} else if (klass == ActivityEndEvent.class) {
-			((ActivityEndEventHandler)handler).handleEvent((ActivityEndEvent)ev);
-			return true;
-		} else if (klass == ActivityStartEvent.class) {
-			((ActivityStartEventHandler)handler).handleEvent((ActivityStartEvent)ev);
-			return true;
-		} else if (klass == TransitDriverStartsEvent.class) {
-			((TransitDriverStartsEventHandler) handler).handleEvent((TransitDriverStartsEvent) ev);
-			return true;
-		} else if (klass == PersonStuckEvent.class) {
-			((PersonStuckEventHandler)handler).handleEvent((PersonStuckEvent)ev);
-			return true;
-		} else if (klass == PersonMoneyEvent.class) {
-			((PersonMoneyEventHandler)handler).handleEvent((PersonMoneyEvent)ev);
-			return true;
-		} else if (klass == AgentWaitingForPtEvent.class) {
-			((AgentWaitingForPtEventHandler)handler).handleEvent((AgentWaitingForPtEvent)ev);
-			return true;
-		} else if (klass == PersonEntersVehicleEvent.class) {
-			((PersonEntersVehicleEventHandler)handler).handleEvent((PersonEntersVehicleEvent)ev);
-			return true;
-		} else if (klass == PersonLeavesVehicleEvent.class) {
-			((PersonLeavesVehicleEventHandler)handler).handleEvent((PersonLeavesVehicleEvent)ev);
-			return true;
-		} else if (klass == VehicleDepartsAtFacilityEvent.class) {
-			((VehicleDepartsAtFacilityEventHandler) handler).handleEvent((VehicleDepartsAtFacilityEvent) ev);
-			return true;
-		} else if (klass == VehicleArrivesAtFacilityEvent.class) {
-			((VehicleArrivesAtFacilityEventHandler) handler).handleEvent((VehicleArrivesAtFacilityEvent) ev);
-			return true;
-		} else if (klass == Event.class) {
-			((BasicEventHandler)handler).handleEvent(ev);
-			return true;
-		}
-		return false;
-	}
-
 	public void printEventHandlers() {
 		log.info("currently registered event-handlers:");
 		for (HandlerData handlerType : this.handlerData) {
@@ -36,6 +36,8 @@ public final class EventsManagerModule extends AbstractModule {
 	public void install() {
 		if (BooleanUtils.isTrue(getConfig().parallelEventHandling().getOneThreadPerHandler())) {
 			bindEventsManager().to(ParallelEventsManager.class).in(Singleton.class);
+		} else if (getConfig().parallelEventHandling().isUseRingBuffer()) {
+			bindEventsManager().to(RingBufferEventsManager.class).in(Singleton.class);
 		} else if (getConfig().parallelEventHandling().getNumberOfThreads() != null) {
 			if (BooleanUtils.isTrue(getConfig().parallelEventHandling().getSynchronizeOnSimSteps())) {
 				bindEventsManager().to(SimStepParallelEventsManagerImpl.class).in(Singleton.class);
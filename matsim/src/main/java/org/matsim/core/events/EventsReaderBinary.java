@@ -0,0 +1,256 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * EventsReaderBinary.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2022 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+
+package org.matsim.core.events;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Stack;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.events.BinaryEventsFormat.ByteSource;
+import org.matsim.core.events.MatsimEventsReader.CustomEventMapper;
+import org.matsim.core.utils.io.IOUtils;
+import org.matsim.core.utils.io.UncheckedIOException;
+import org.xml.sax.helpers.AttributesImpl;
+
+/**
+ * Reads events written by {@link org.matsim.core.events.algorithms.EventWriterBinary}. The events are created by the
+ * same code as for xml events files, so both formats result in the same events.
+ * <p>
+ * Optionally, only the events within a time range are read. Blocks of events that are completely outside of the time
+ * range are skipped without being decompressed.
+ */
+public final class EventsReaderBinary {
+
+	private final static Logger log = Logger.getLogger(EventsReaderBinary.class);
+
+	private final EventsReaderXMLv1 delegate;
+
+	public EventsReaderBinary(final EventsManager events) {
+		this.delegate = new EventsReaderXMLv1(events);
+	}
+
+	public void addCustomEventMapper(String eventType, CustomEventMapper cem) {
+		this.delegate.addCustomEventMapper(eventType, cem);
+	}
+
+	public void readFile(final String filename) {
+		readFile(filename, Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY);
+	}
+
+	/**
+	 * Reads only the events with <code>fromTime &lt;= time &lt;= toTime</code>.
+	 */
+	public void readFile(final String filename, double fromTime, double toTime) {
+		log.info("reading binary events from " + filename);
+		readURL(IOUtils.resolveFileOrResource(filename), fromTime, toTime);
+	}
+
+	public void readURL(final URL url) {
+		readURL(url, Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY);
+	}
+
+	public void readURL(final URL url, double fromTime, double toTime) {
+		try (InputStream stream = IOUtils.getInputStream(url)) {
+			parse(stream, fromTime, toTime);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	public void parse(final InputStream stream) {
+		parse(stream, Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY);
+	}
+
+	public void parse(final InputStream stream, double fromTime, double toTime) {
+		Inflater inflater = new Inflater();
+		try {
+			DataInputStream in = new DataInputStream(stream);
+			byte[] magic = new byte[BinaryEventsFormat.MAGIC.length];
+			in.readFully(magic);
+			if (!Arrays.equals(magic, BinaryEventsFormat.MAGIC)) {
+				throw new IllegalArgumentException("The stream does not contain binary MATSim events.");
+			}
+			int version = in.readInt();
+			if (version != BinaryEventsFormat.VERSION) {
+				throw new IllegalArgumentException("Unsupported version of binary events: " + version);
+			}
+
+			Dictionary dictionary = new Dictionary();
+			int skippedBlocks = 0;
+			while (true) {
+				byte marker = in.readByte();
+				if (marker == BinaryEventsFormat.END) {
+					break;
+				}
+				if (marker != BinaryEventsFormat.BLOCK) {
+					throw new IllegalArgumentException("Corrupt binary events: unexpected block marker " + marker);
+				}
+				double firstTime = in.readDouble();
+				double lastTime = in.readDouble();
+				int eventCount = in.readInt();
+
+				dictionary.read(readSection(in, inflater));
+
+				int compressedLength = in.readInt();
+				int length = in.readInt();
+				if (Math.max(firstTime, lastTime) < fromTime || Math.min(firstTime, lastTime) > toTime) {
+					skipFully(in, compressedLength);
+					skippedBlocks++;
+					continue;
+				}
+				byte[] compressed = new byte[compressedLength];
+				in.readFully(compressed);
+				readEvents(ByteSource.decompress(compressed, length, inflater), eventCount, dictionary, fromTime, toTime);
+			}
+			if (skippedBlocks > 0) {
+				log.info("skipped " + skippedBlocks + " blocks of events outside of the time range.");
+			}
+		} catch (EOFException e) {
+			throw new UncheckedIOException("Unexpected end of binary events. Was the file closed properly?", e);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		} catch (DataFormatException e) {
+			throw new UncheckedIOException(e);
+		} finally {
+			inflater.end();
+		}
+	}
+
+	private static ByteSource readSection(DataInputStream in, Inflater inflater) throws IOException, DataFormatException {
+		int compressedLength = in.readInt();
+		int length = in.readInt();
+		byte[] compressed = new byte[compressedLength];
+		in.readFully(compressed);
+		return ByteSource.decompress(compressed, length, inflater);
+	}
+
+	private static void skipFully(DataInputStream in, int length) throws IOException {
+		int remaining = length;
+		while (remaining > 0) {
+			int skipped = in.skipBytes(remaining);
+			if (skipped <= 0) {
+				in.readByte(); // throws EOFException at the end of the stream
+				skipped = 1;
+			}
+			remaining -= skipped;
+		}
+	}
+
+	private void readEvents(ByteSource data, int eventCount, Dictionary dictionary, double fromTime, double toTime) {
+		if (data.readVarInt() != eventCount) {
+			throw new IllegalArgumentException("Corrupt binary events: inconsistent number of events in block.");
+		}
+		ByteSource schemaColumn = data.readColumn();
+		ByteSource timeColumn = data.readColumn();
+
+		ByteSource[][] columns = new ByteSource[dictionary.schemas.size()][];
+		int blockSchemas = data.readVarInt();
+		for (int i = 0; i < blockSchemas; i++) {
+			int schema = data.readVarInt();
+			data.readVarInt(); // number of events of this schema, not needed here
+			ByteSource[] schemaColumns = new ByteSource[dictionary.schemas.get(schema).length - 1];
+			for (int c = 0; c < schemaColumns.length; c++) {
+				schemaColumns[c] = data.readColumn();
+			}
+			columns[schema] = schemaColumns;
+		}
+
+		AttributesImpl atts = new AttributesImpl();
+		Stack<String> context = new Stack<>();
+		long previousTime = 0;
+		for (int e = 0; e < eventCount; e++) {
+			int schemaIndex = schemaColumn.readVarInt();
+			String[] signature = dictionary.schemas.get(schemaIndex);
+
+			double time;
+			long encodedTime = timeColumn.readVarLong();
+			if ((encodedTime & 1) == 0) {
+				previousTime += BinaryEventsFormat.unZigZag(encodedTime >>> 1);
+				time = previousTime;
+			} else {
+				time = timeColumn.readDouble();
+			}
+
+			atts.clear();
+			atts.addAttribute("", Event.ATTRIBUTE_TIME, Event.ATTRIBUTE_TIME, "CDATA", Double.toString(time));
+			atts.addAttribute("", Event.ATTRIBUTE_TYPE, Event.ATTRIBUTE_TYPE, "CDATA", signature[0]);
+			ByteSource[] schemaColumns = columns[schemaIndex];
+			for (int c = 1; c < signature.length; c++) {
+				String value = readValue(schemaColumns[c - 1], dictionary);
+				if (value != null) {
+					atts.addAttribute("", signature[c], signature[c], "CDATA", value);
+				}
+			}
+
+			if (time >= fromTime && time <= toTime) {
+				this.delegate.startTag(EventsReaderXMLv1.EVENT, atts, context);
+			}
+		}
+	}
+
+	private static String readValue(ByteSource column, Dictionary dictionary) {
+		long value = column.readVarLong();
+		switch ((int) (value & 3)) {
+			case BinaryEventsFormat.VALUE_STRING:
+				return dictionary.strings.get((int) (value >>> 2));
+			case BinaryEventsFormat.VALUE_LONG:
+				return Long.toString(BinaryEventsFormat.unZigZag(value >>> 2));
+			case BinaryEventsFormat.VALUE_DOUBLE:
+				return Double.toString(column.readDouble());
+			default:
+				return null;
+		}
+	}
+
+	private static final class Dictionary {
+		final List<String> strings = new ArrayList<>();
+		/** for each schema, the event type followed by the attribute names */
+		final List<String[]> schemas = new ArrayList<>();
+
+		void read(ByteSource section) {
+			int newStrings = section.readVarInt();
+			for (int i = 0; i < newStrings; i++) {
+				this.strings.add(section.readString());
+			}
+			int newSchemas = section.readVarInt();
+			for (int i = 0; i < newSchemas; i++) {
+				String[] signature = new String[section.readVarInt()];
+				for (int s = 0; s < signature.length; s++) {
+					signature[s] = this.strings.get(section.readVarInt());
+				}
+				this.schemas.add(signature);
+			}
+		}
+	}
+
+}
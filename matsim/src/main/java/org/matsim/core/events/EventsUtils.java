@@ -49,7 +49,7 @@ public final class EventsUtils {
 	}
 
 	/**
-	 * The SimStepParallelEventsManagerImpl can handle events from multiple threads.
+	 * The SimStepParallelEventsManagerImpl and the RingBufferEventsManager can handle events from multiple threads.
 	 * The (Parallel)EventsMangerImpl cannot, therefore it has to be wrapped into a
 	 * SynchronizedEventsManagerImpl.
 	 */
@@ -58,6 +58,8 @@ public final class EventsUtils {
 			return events;
 		} else if (events instanceof ParallelEventsManager) {
 			return events;
+		} else if (events instanceof RingBufferEventsManager) {
+			return events;
 		}
 		else if (events instanceof SynchronizedEventsManagerImpl) {
 			return events;
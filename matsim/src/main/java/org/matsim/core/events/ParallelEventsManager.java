@@ -29,6 +29,7 @@ import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
 import javax.inject.Inject;
 import org.apache.log4j.Logger;
+import org.matsim.analysis.IterationMetrics;
 import org.matsim.api.core.v01.events.Event;
 import org.matsim.core.api.experimental.events.EventsManager;
 import org.matsim.core.config.Config;
@@ -55,6 +56,7 @@ public final class ParallelEventsManager implements EventsManager {
 	private final int eventsQueueSize;
 	//private final int eventsQueueSize = 1048576 * 32;
 	private final int eventsArraySize;
+	private IterationMetrics iterationMetrics = null;
 
 	@Inject
 	ParallelEventsManager(Config config) {
@@ -62,6 +64,11 @@ public final class ParallelEventsManager implements EventsManager {
 
 	}
 
+	@com.google.inject.Inject(optional = true)
+	void setIterationMetrics(IterationMetrics iterationMetrics) {
+		this.iterationMetrics = iterationMetrics;
+	}
+
 	public ParallelEventsManager(final boolean syncOnTimeSteps) {
 		this(syncOnTimeSteps, 65536);
 	}
@@ -98,8 +105,9 @@ public final class ParallelEventsManager implements EventsManager {
 			}
 		} else {
 			// TODO - check if this slow path is correct
+			EventsManagerImpl.HandlerRegistrations registrations = new EventsManagerImpl.HandlerRegistrations();
 			for (int i = 0; i < this.numOfThreads; i++) {
-				this.eventsManagers.add(new EventsManagerImpl());
+				this.eventsManagers.add(new EventsManagerImpl(registrations));
 			}
 			for (int i = 0; i < this.eventsHandlers.size(); i++) {
 				this.eventsManagers.get(i % numOfThreads).addHandler(this.eventsHandlers.get(i));
@@ -231,6 +239,15 @@ public final class ParallelEventsManager implements EventsManager {
 
 	@Override
 	public void afterSimStep(double time) {
+		if (this.iterationMetrics != null && this.iterationMetrics.isEnabled() && this.init) {
+			// the number of event arrays waiting to be distributed and to be processed by the slowest handler
+			this.iterationMetrics.addValue("events.queueDepth", this.eventQueue.size());
+			int maxHandlerQueue = 0;
+			for (ProcessEventsRunnable runnable : this.distributor.runnables) {
+				maxHandlerQueue = Math.max(maxHandlerQueue, runnable.eventsQueue.size());
+			}
+			this.iterationMetrics.addValue("events.handlerQueueDepth", maxHandlerQueue);
+		}
 		if (this.syncOnTimeSteps) {
 			flush();
 		}
@@ -162,8 +162,9 @@ public final class ParallelEventsManagerImpl implements EventsManager {
 		this.eventsProcessThread = new ProcessEventThread[numberOfThreads];
 		this.threads = new Thread[numberOfThreads];
 		// the additional 1 is for the simulation barrier
+		EventsManagerImpl.HandlerRegistrations registrations = new EventsManagerImpl.HandlerRegistrations();
 		for (int i = 0; i < numberOfThreads; i++) {
-			events[i] = new EventsManagerImpl();
+			events[i] = new EventsManagerImpl(registrations);
 		}
 	}
 
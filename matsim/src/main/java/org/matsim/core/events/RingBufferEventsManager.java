@@ -0,0 +1,463 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * RingBufferEventsManager.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2022 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+
+package org.matsim.core.events;
+
+import java.util.Arrays;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+import javax.inject.Inject;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.config.groups.ParallelEventHandlingConfigGroup;
+import org.matsim.core.events.handler.EventHandler;
+
+/**
+ * An EventsManager that passes events to its handlers through a preallocated ring buffer. The event handlers are
+ * distributed over a number of handler groups, each of them with its own thread. All groups read the same slots of
+ * the buffer, so events are neither copied nor put into per-thread queues, and no lock is needed to pass an event.
+ * <p>
+ * Every event gets a sequence number when it is published. A group processes the events strictly in the order of their
+ * sequence numbers, and announces how far it got by publishing its own sequence. Producers only wait if the buffer
+ * is full, i.e. if the slowest group is a full buffer behind. Events may be published from several threads at the
+ * same time (e.g. by the threads of the QNetsimEngine, or by event handlers).
+ * <p>
+ * As with {@link SimStepParallelEventsManagerImpl}, all events of a time step, including the events created by event
+ * handlers while processing them, are processed before {@link #afterSimStep(double)} returns. A
+ * {@link LastEventOfSimStep} marks the end of the time step in the buffer. This can be switched off with
+ * <code>synchronizeOnSimSteps</code>. Events that are created after {@link #finishProcessing()} are processed in the
+ * calling thread.
+ * <p>
+ * The threads of the handler groups never wait for space in the buffer, as they might then wait for themselves or for
+ * each other. Events created by event handlers are kept in a queue of their handler group if the buffer is full, and
+ * are moved into the buffer by the group as soon as there is space.
+ */
+public final class RingBufferEventsManager implements EventsManager {
+
+	private final static Logger log = Logger.getLogger(RingBufferEventsManager.class);
+
+	private static final int SPINS = 1000;
+	private static final long PARK_NANOS = 50_000;
+
+	private final boolean syncOnSimSteps;
+	private final EventsManagerImpl[] eventsManagers;
+
+	private final Event[] slots;
+	/**
+	 * For each slot, the round (sequence / buffer size) of the event that was last published into it.
+	 */
+	private final AtomicIntegerArray publishedRounds;
+	private final int mask;
+	private final int shift;
+
+	/**
+	 * The next sequence to be claimed by a producer.
+	 */
+	private final AtomicLong cursor = new AtomicLong();
+	/**
+	 * A lower bound of the sequences of all handler groups, cached to avoid looking at all of them for every event.
+	 */
+	private volatile long gatingSequence = 0;
+
+	private HandlerGroup[] groups = new HandlerGroup[0];
+	private final AtomicReference<Throwable> exception = new AtomicReference<>();
+	/**
+	 * Events which were published while the end of the iteration was processed and could not be put into the buffer.
+	 */
+	private final Queue<Event> lateEvents = new ConcurrentLinkedQueue<>();
+	private volatile boolean parallelMode = false;
+	private int handlerCount = 0;
+
+	@Inject
+	RingBufferEventsManager(ParallelEventHandlingConfigGroup config) {
+		this(config.getNumberOfThreads() != null ? config.getNumberOfThreads() : 1, config.getEventsQueueSize(),
+				config.getSynchronizeOnSimSteps() != null ? config.getSynchronizeOnSimSteps() : true);
+	}
+
+	/**
+	 * @param numberOfThreads the number of handler groups, each processing events in its own thread
+	 * @param bufferSize      the number of events the buffer can hold. Rounded up to the next power of two.
+	 * @param syncOnSimSteps  if all events of a time step should be processed before the next time step starts
+	 */
+	public RingBufferEventsManager(int numberOfThreads, int bufferSize, boolean syncOnSimSteps) {
+		if (numberOfThreads < 1) {
+			throw new IllegalArgumentException("At least one thread is required, but got " + numberOfThreads);
+		}
+		this.syncOnSimSteps = syncOnSimSteps;
+		this.eventsManagers = new EventsManagerImpl[numberOfThreads];
+		EventsManagerImpl.HandlerRegistrations registrations = new EventsManagerImpl.HandlerRegistrations();
+		for (int i = 0; i < numberOfThreads; i++) {
+			this.eventsManagers[i] = new EventsManagerImpl(registrations);
+		}
+
+		int size = Integer.highestOneBit(Math.max(2, bufferSize - 1)) << 1;
+		this.slots = new Event[size];
+		this.publishedRounds = new AtomicIntegerArray(size);
+		this.mask = size - 1;
+		this.shift = Integer.numberOfTrailingZeros(size);
+		log.info("number of threads=" + numberOfThreads + ", buffer size=" + size);
+	}
+
+	@Override
+	public void processEvent(final Event event) {
+		if (this.parallelMode) {
+			publish(event);
+		} else {
+			for (EventsManagerImpl eventsManager : this.eventsManagers) {
+				eventsManager.processEvent(event);
+			}
+		}
+	}
+
+	@Override
+	public void addHandler(final EventHandler handler) {
+		synchronized (this) {
+			this.eventsManagers[this.handlerCount % this.eventsManagers.length].addHandler(handler);
+			this.handlerCount++;
+		}
+	}
+
+	@Override
+	public void removeHandler(final EventHandler handler) {
+		synchronized (this) {
+			for (EventsManagerImpl eventsManager : this.eventsManagers) {
+				eventsManager.removeHandler(handler);
+			}
+		}
+	}
+
+	@Override
+	public void resetHandlers(int iteration) {
+		synchronized (this) {
+			for (EventsManagerImpl eventsManager : this.eventsManagers) {
+				eventsManager.resetHandlers(iteration);
+			}
+		}
+	}
+
+	@Override
+	public void initProcessing() {
+		for (EventsManagerImpl eventsManager : this.eventsManagers) {
+			eventsManager.initProcessing();
+		}
+
+		this.exception.set(null);
+		this.lateEvents.clear();
+		this.cursor.set(0);
+		this.gatingSequence = 0;
+		for (int i = 0; i < this.slots.length; i++) {
+			this.publishedRounds.set(i, -1);
+		}
+
+		this.groups = new HandlerGroup[this.eventsManagers.length];
+		for (int i = 0; i < this.groups.length; i++) {
+			this.groups[i] = new HandlerGroup(this.eventsManagers[i]);
+			Thread thread = new Thread(this.groups[i], "RingBufferEvents-" + i);
+			thread.setDaemon(true);
+			this.groups[i].thread = thread;
+		}
+		for (HandlerGroup group : this.groups) {
+			group.thread.start();
+		}
+
+		this.parallelMode = true;
+	}
+
+	@Override
+	public void afterSimStep(double time) {
+		checkForException();
+		if (!this.parallelMode || !this.syncOnSimSteps) {
+			return;
+		}
+
+		publish(new LastEventOfSimStep(time));
+		wakeUpGroups();
+		awaitAllProcessed();
+	}
+
+	/**
+	 * Waits until all published events are processed. Event handlers might create additional events while processing
+	 * the events, so we wait until no more events show up, neither in the buffer nor in the queues of the groups.
+	 */
+	private void awaitAllProcessed() {
+		long target;
+		do {
+			target = this.cursor.get();
+			awaitProcessed(target);
+			// check the queues first: a group moves an event into the buffer before removing it from its queue
+		} while (hasQueuedEvents() || this.cursor.get() != target);
+	}
+
+	@Override
+	public synchronized void finishProcessing() {
+		if (this.parallelMode) {
+			long end = -1;
+			if (this.exception.get() == null) {
+				try {
+					awaitAllProcessed();
+					end = publish(new LastEventOfIteration(Double.POSITIVE_INFINITY));
+					wakeUpGroups();
+				} catch (RuntimeException e) {
+					// a group died, the groups stop on their own and the exception is reported below
+				}
+			}
+			try {
+				for (HandlerGroup group : this.groups) {
+					group.thread.join();
+				}
+			} catch (InterruptedException e) {
+				this.exception.compareAndSet(null, e);
+			}
+
+			/*
+			 * From now on, events are processed in the calling thread. Events that were published after the end of
+			 * the iteration have not been processed by the groups.
+			 */
+			this.parallelMode = false;
+			if (this.exception.get() == null) {
+				long last = this.cursor.get();
+				for (long sequence = end + 1; sequence < last; sequence++) {
+					int index = (int) sequence & this.mask;
+					if (this.publishedRounds.get(index) == (int) (sequence >>> this.shift)) {
+						processEvent(this.slots[index]);
+					}
+				}
+				for (HandlerGroup group : this.groups) {
+					Event event;
+					while ((event = group.queuedEvents.poll()) != null) {
+						processEvent(event);
+					}
+				}
+				Event event;
+				while ((event = this.lateEvents.poll()) != null) {
+					processEvent(event);
+				}
+			}
+			Arrays.fill(this.slots, null);
+		}
+
+		for (EventsManagerImpl eventsManager : this.eventsManagers) {
+			eventsManager.finishProcessing();
+		}
+
+		Throwable throwable = this.exception.get();
+		if (throwable != null) {
+			throw new RuntimeException("Exception while processing events. Cannot guarantee that all events have been fully processed.", throwable);
+		}
+	}
+
+	/**
+	 * @return the sequence of the event in the buffer, or -1 if the event was queued by a handler group
+	 */
+	private long publish(final Event event) {
+		HandlerGroup group = currentGroup();
+		if (group != null) {
+			// never let a handler thread wait for the buffer, keep the order of its events
+			if (!group.queuedEvents.isEmpty() || !tryPublish(event)) {
+				group.queuedEvents.add(event);
+			}
+			return -1;
+		}
+		long sequence = this.cursor.getAndIncrement();
+		long wrapPoint = sequence - this.slots.length;
+		if (wrapPoint >= this.gatingSequence && !awaitCapacity(wrapPoint)) {
+			// the groups have already finished the iteration, the event is processed by finishProcessing()
+			this.lateEvents.add(event);
+			return sequence;
+		}
+		int index = (int) sequence & this.mask;
+		this.slots[index] = event;
+		this.publishedRounds.lazySet(index, (int) (sequence >>> this.shift));
+		return sequence;
+	}
+
+	/**
+	 * Puts the event into the buffer if there is space for it, without waiting.
+	 *
+	 * @return <code>true</code> if the event was put into the buffer
+	 */
+	private boolean tryPublish(final Event event) {
+		long sequence;
+		do {
+			sequence = this.cursor.get();
+			long wrapPoint = sequence - this.slots.length;
+			if (wrapPoint >= this.gatingSequence) {
+				long minimum = minimumSequence();
+				if (wrapPoint >= minimum) {
+					return false;
+				}
+				this.gatingSequence = minimum;
+			}
+		} while (!this.cursor.compareAndSet(sequence, sequence + 1));
+		int index = (int) sequence & this.mask;
+		this.slots[index] = event;
+		this.publishedRounds.lazySet(index, (int) (sequence >>> this.shift));
+		return true;
+	}
+
+	/**
+	 * Waits until all groups have processed the event with the given sequence, so that its slot can be reused.
+	 *
+	 * @return <code>false</code> if the groups have finished the iteration, so the slot will never become available
+	 */
+	private boolean awaitCapacity(long wrapPoint) {
+		int spins = 0;
+		long minimum;
+		while (wrapPoint >= (minimum = minimumSequence())) {
+			checkForException();
+			if (!this.parallelMode) {
+				return false;
+			}
+			spins = idle(spins);
+		}
+		this.gatingSequence = minimum;
+		return true;
+	}
+
+	private HandlerGroup currentGroup() {
+		Thread thread = Thread.currentThread();
+		for (HandlerGroup group : this.groups) {
+			if (group.thread == thread) {
+				return group;
+			}
+		}
+		return null;
+	}
+
+	private boolean hasQueuedEvents() {
+		for (HandlerGroup group : this.groups) {
+			if (!group.queuedEvents.isEmpty()) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Waits until all groups have processed all events with a sequence lower than <code>target</code>.
+	 */
+	private void awaitProcessed(long target) {
+		int spins = 0;
+		while (minimumSequence() < target) {
+			checkForException();
+			spins = idle(spins);
+		}
+	}
+
+	private long minimumSequence() {
+		long minimum = Long.MAX_VALUE;
+		for (HandlerGroup group : this.groups) {
+			minimum = Math.min(minimum, group.sequence.get());
+		}
+		return minimum;
+	}
+
+	private void wakeUpGroups() {
+		for (HandlerGroup group : this.groups) {
+			LockSupport.unpark(group.thread);
+		}
+	}
+
+	private void checkForException() {
+		Throwable throwable = this.exception.get();
+		if (throwable != null) {
+			throw new RuntimeException("Exception while processing events. Cannot guarantee that all events have been fully processed.", throwable);
+		}
+	}
+
+	private static int idle(int spins) {
+		if (spins < SPINS) {
+			Thread.onSpinWait();
+		} else {
+			LockSupport.parkNanos(PARK_NANOS);
+		}
+		return spins + 1;
+	}
+
+	private final class HandlerGroup implements Runnable {
+
+		private final EventsManager eventsManager;
+		/**
+		 * The sequence of the next event to be processed by this group.
+		 */
+		private final AtomicLong sequence = new AtomicLong();
+		/**
+		 * Events created by the handlers of this group, which did not fit into the buffer yet.
+		 */
+		private final Queue<Event> queuedEvents = new ConcurrentLinkedQueue<>();
+		private Thread thread;
+
+		HandlerGroup(EventsManager eventsManager) {
+			this.eventsManager = eventsManager;
+		}
+
+		@Override
+		public void run() {
+			try {
+				long next = 0;
+				int spins = 0;
+				while (true) {
+					moveQueuedEvents();
+					int index = (int) next & mask;
+					if (publishedRounds.get(index) != (int) (next >>> shift)) {
+						if (exception.get() != null) {
+							return;
+						}
+						spins = idle(spins);
+						continue;
+					}
+					spins = 0;
+
+					Event event = slots[index];
+					if (event instanceof LastEventOfIteration) {
+						this.sequence.set(next + 1);
+						return;
+					}
+					if (!(event instanceof LastEventOfSimStep)) {
+						this.eventsManager.processEvent(event);
+					}
+					next++;
+					this.sequence.lazySet(next);
+				}
+			} catch (Throwable e) {
+				log.error("Thread " + Thread.currentThread().getName() + " died with exception while handling events.", e);
+				exception.compareAndSet(null, e);
+				// do not block producers and the other groups any longer
+				this.sequence.set(Long.MAX_VALUE);
+			}
+		}
+
+		private void moveQueuedEvents() {
+			Event event;
+			while ((event = this.queuedEvents.peek()) != null && tryPublish(event)) {
+				this.queuedEvents.poll();
+			}
+		}
+	}
+
+}
@@ -86,10 +86,11 @@ class SimStepParallelEventsManagerImpl implements EventsManager {
 		this.simStepEndBarrier = new CyclicBarrier(this.numOfThreads + 1);
 		this.iterationEndBarrier = new CyclicBarrier(this.numOfThreads + 1);
 
-		this.delegate = new EventsManagerImpl();
+		EventsManagerImpl.HandlerRegistrations registrations = new EventsManagerImpl.HandlerRegistrations();
+		this.delegate = new EventsManagerImpl(registrations);
 
 		this.eventsManagers = new EventsManagerImpl[this.numOfThreads];
-		for (int i = 0; i < numOfThreads; i++) this.eventsManagers[i] = new EventsManagerImpl();
+		for (int i = 0; i < numOfThreads; i++) this.eventsManagers[i] = new EventsManagerImpl(registrations);
 	}
 
 	@Override
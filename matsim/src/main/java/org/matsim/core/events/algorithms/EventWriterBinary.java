@@ -0,0 +1,268 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * EventWriterBinary.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2022 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+
+package org.matsim.core.events.algorithms;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.Deflater;
+
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.core.events.BinaryEventsFormat;
+import org.matsim.core.events.BinaryEventsFormat.ByteSink;
+import org.matsim.core.events.handler.BasicEventHandler;
+import org.matsim.core.utils.io.IOUtils;
+import org.matsim.core.utils.io.UncheckedIOException;
+
+/**
+ * Writes events in the binary, column oriented format described in {@link BinaryEventsFormat}. Ids and other strings
+ * are only written once, numbers are stored binary, and every block of events is compressed on its own. The file is
+ * written while the events arrive, only the current block is kept in memory.
+ */
+public class EventWriterBinary implements EventWriter, BasicEventHandler {
+
+	public static final int DEFAULT_BLOCK_SIZE = 16384;
+
+	private final DataOutputStream out;
+	private final int blockSize;
+	private final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+
+	private final Map<String, Integer> strings = new HashMap<>();
+	private final List<String> newStrings = new ArrayList<>();
+	private final Map<List<String>, Schema> schemas = new HashMap<>();
+	private final List<Schema> newSchemas = new ArrayList<>();
+	private final List<Schema> blockSchemas = new ArrayList<>();
+	private final List<String> signature = new ArrayList<>();
+
+	private final ByteSink schemaColumn = new ByteSink(1024);
+	private final ByteSink timeColumn = new ByteSink(1024);
+	private final ByteSink section = new ByteSink(1024);
+	private final ByteSink compressed = new ByteSink(1024);
+
+	private int eventCount = 0;
+	private double firstTime;
+	private double lastTime;
+	private long previousTime;
+
+	public EventWriterBinary(final String filename) {
+		this(IOUtils.getOutputStream(IOUtils.getFileUrl(filename), false), DEFAULT_BLOCK_SIZE);
+	}
+
+	public EventWriterBinary(final OutputStream stream) {
+		this(stream, DEFAULT_BLOCK_SIZE);
+	}
+
+	/**
+	 * @param blockSize the number of events per block. Larger blocks compress better, smaller blocks allow to skip
+	 *                  to a time range more precisely.
+	 */
+	public EventWriterBinary(final OutputStream stream, int blockSize) {
+		this.out = new DataOutputStream(new BufferedOutputStream(stream, 1 << 16));
+		this.blockSize = blockSize;
+		try {
+			this.out.write(BinaryEventsFormat.MAGIC);
+			this.out.writeInt(BinaryEventsFormat.VERSION);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	@Override
+	public void handleEvent(final Event event) {
+		Map<String, String> attributes = event.getAttributes();
+
+		this.signature.clear();
+		this.signature.add(event.getEventType());
+		for (String key : attributes.keySet()) {
+			if (!key.equals(Event.ATTRIBUTE_TIME) && !key.equals(Event.ATTRIBUTE_TYPE)) {
+				this.signature.add(key);
+			}
+		}
+		Schema schema = this.schemas.get(this.signature);
+		if (schema == null) {
+			schema = new Schema(this.schemas.size(), new ArrayList<>(this.signature));
+			this.schemas.put(schema.signature, schema);
+			this.newSchemas.add(schema);
+			for (String s : schema.signature) {
+				stringIndex(s);
+			}
+		}
+		if (schema.blockCount == 0) {
+			this.blockSchemas.add(schema);
+		}
+		schema.blockCount++;
+
+		double time = event.getTime();
+		if (this.eventCount == 0) {
+			this.firstTime = time;
+		}
+		this.lastTime = time;
+		this.schemaColumn.writeVarLong(schema.index);
+		writeTime(time);
+
+		for (int i = 1; i < schema.signature.size(); i++) {
+			writeValue(schema.columns[i - 1], attributes.get(schema.signature.get(i)));
+		}
+
+		this.eventCount++;
+		if (this.eventCount == this.blockSize) {
+			writeBlock();
+		}
+	}
+
+	private void writeTime(double time) {
+		long seconds = (long) time;
+		if (seconds == time && Math.abs(seconds) < (1L << 52)) {
+			this.timeColumn.writeVarLong(BinaryEventsFormat.zigZag(seconds - this.previousTime) << 1);
+			this.previousTime = seconds;
+		} else {
+			this.timeColumn.writeVarLong(1);
+			this.timeColumn.writeDouble(time);
+		}
+	}
+
+	private void writeValue(ByteSink column, String value) {
+		if (value == null) {
+			column.writeVarLong(BinaryEventsFormat.VALUE_NULL);
+		} else if (BinaryEventsFormat.isLong(value)) {
+			column.writeVarLong(BinaryEventsFormat.zigZag(Long.parseLong(value)) << 2 | BinaryEventsFormat.VALUE_LONG);
+		} else {
+			Double d = BinaryEventsFormat.parseExactDouble(value);
+			if (d != null) {
+				column.writeVarLong(BinaryEventsFormat.VALUE_DOUBLE);
+				column.writeDouble(d);
+			} else {
+				column.writeVarLong((long) stringIndex(value) << 2 | BinaryEventsFormat.VALUE_STRING);
+			}
+		}
+	}
+
+	private int stringIndex(String value) {
+		Integer index = this.strings.get(value);
+		if (index == null) {
+			index = this.strings.size();
+			this.strings.put(value, index);
+			this.newStrings.add(value);
+		}
+		return index;
+	}
+
+	private void writeBlock() {
+		if (this.eventCount == 0) {
+			return;
+		}
+		try {
+			this.out.writeByte(BinaryEventsFormat.BLOCK);
+			this.out.writeDouble(this.firstTime);
+			this.out.writeDouble(this.lastTime);
+			this.out.writeInt(this.eventCount);
+
+			// dictionary section
+			this.section.clear();
+			this.section.writeVarLong(this.newStrings.size());
+			for (String s : this.newStrings) {
+				this.section.writeString(s);
+			}
+			this.section.writeVarLong(this.newSchemas.size());
+			for (Schema schema : this.newSchemas) {
+				this.section.writeVarLong(schema.signature.size());
+				for (String s : schema.signature) {
+					this.section.writeVarLong(this.strings.get(s));
+				}
+			}
+			writeSection();
+
+			// data section
+			this.section.clear();
+			this.section.writeVarLong(this.eventCount);
+			this.section.writeColumn(this.schemaColumn);
+			this.section.writeColumn(this.timeColumn);
+			this.section.writeVarLong(this.blockSchemas.size());
+			for (Schema schema : this.blockSchemas) {
+				this.section.writeVarLong(schema.index);
+				this.section.writeVarLong(schema.blockCount);
+				for (ByteSink column : schema.columns) {
+					this.section.writeColumn(column);
+					column.clear();
+				}
+				schema.blockCount = 0;
+			}
+			writeSection();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+
+		this.newStrings.clear();
+		this.newSchemas.clear();
+		this.blockSchemas.clear();
+		this.schemaColumn.clear();
+		this.timeColumn.clear();
+		this.previousTime = 0;
+		this.eventCount = 0;
+	}
+
+	private void writeSection() throws IOException {
+		this.compressed.compress(this.section, this.deflater);
+		this.out.writeInt(this.compressed.size());
+		this.out.writeInt(this.section.size());
+		this.out.write(this.compressed.data(), 0, this.compressed.size());
+	}
+
+	@Override
+	public void closeFile() {
+		writeBlock();
+		try {
+			this.out.writeByte(BinaryEventsFormat.END);
+			this.out.close();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		this.deflater.end();
+	}
+
+	@Override
+	public void reset(final int iter) {
+	}
+
+	private static final class Schema {
+		final int index;
+		/** the event type, followed by the attribute names */
+		final List<String> signature;
+		final ByteSink[] columns;
+		int blockCount = 0;
+
+		Schema(int index, List<String> signature) {
+			this.index = index;
+			this.signature = signature;
+			this.columns = new ByteSink[signature.size() - 1];
+			for (int i = 0; i < this.columns.length; i++) {
+				this.columns[i] = new ByteSink(256);
+			}
+		}
+	}
+
+}
@@ -0,0 +1,153 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2022 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+package org.matsim.core.mobsim.hermes;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.events.EventArray;
+import org.matsim.core.utils.misc.Time;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Runs several realms in parallel, one thread per realm. Every tick is split into phases separated by barriers:
+ * <ol>
+ *     <li>each realm processes its delayed agents and links. Agents that need a link or stop owned by another realm
+ *     are put into the boundary mailboxes;</li>
+ *     <li>each realm processes the agents sent to it, in realm order;</li>
+ *     <li>each realm applies the answers to the agents it sent from the head of its links, which might lead to more
+ *     agents being sent. Phases 2 and 3 are repeated until no more agents are exchanged.</li>
+ * </ol>
+ * Events of all realms are merged by time. Within the same second, events are ordered by realm.
+ */
+class ParallelRealms {
+
+	final private static Logger log = Logger.getLogger(ParallelRealms.class);
+
+	private final Realm[] realms;
+	private final EventsManager eventsManager;
+
+	ParallelRealms(Realm[] realms, EventsManager eventsManager) {
+		this.realms = realms;
+		this.eventsManager = eventsManager;
+	}
+
+	public void run() throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(realms.length, r -> {
+			Thread thread = new Thread(r, "HermesRealm");
+			thread.setDaemon(true);
+			return thread;
+		});
+		try {
+			List<Callable<Boolean>> ticks = new ArrayList<>(realms.length);
+			List<Callable<Boolean>> inboxes = new ArrayList<>(realms.length);
+			List<Callable<Boolean>> replies = new ArrayList<>(realms.length);
+			for (Realm realm : realms) {
+				ticks.add(() -> {
+					realm.tick();
+					return realm.flipMailboxes();
+				});
+				inboxes.add(() -> {
+					realm.processInbox(realms);
+					return false;
+				});
+				replies.add(() -> {
+					realm.processReplies();
+					return realm.flipMailboxes();
+				});
+			}
+
+			int secs = 0;
+			while (secs != HermesConfigGroup.SIM_STEPS) {
+				if (secs % 3600 == 0) {
+					log.info("Hermes running at " + Time.writeTime(secs) + " with " + realms.length + " realms");
+				}
+				boolean pending = invokeAll(executor, ticks);
+				while (pending) {
+					invokeAll(executor, inboxes);
+					pending = invokeAll(executor, replies);
+				}
+				if (HermesConfigGroup.CONCURRENT_EVENT_PROCESSING && secs % 3600 == 0) {
+					EventArray events = mergeSortedEvents(realms);
+					if (events.size() > 0) {
+						eventsManager.processEvents(events);
+					}
+					for (Realm realm : realms) {
+						realm.resetSortedEvents();
+					}
+				}
+				for (Realm realm : realms) {
+					realm.advanceTime();
+				}
+				secs += 1;
+			}
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	/**
+	 * @return true if at least one of the tasks returned true.
+	 */
+	private static boolean invokeAll(ExecutorService executor, List<Callable<Boolean>> tasks) throws InterruptedException {
+		boolean result = false;
+		for (Future<Boolean> future : executor.invokeAll(tasks)) {
+			try {
+				result |= future.get();
+			} catch (ExecutionException e) {
+				throw new RuntimeException(e.getCause());
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Merges the (time sorted) events of all realms into a single time sorted array. Ties are broken by realm id.
+	 */
+	static EventArray mergeSortedEvents(Realm[] realms) {
+		EventArray merged = new EventArray();
+		int[] positions = new int[realms.length];
+		while (true) {
+			int next = -1;
+			double nextTime = Double.POSITIVE_INFINITY;
+			for (int i = 0; i < realms.length; i++) {
+				EventArray events = realms[i].getSortedEvents();
+				if (positions[i] < events.size()) {
+					double time = events.get(positions[i]).getTime();
+					if (time < nextTime) {
+						next = i;
+						nextTime = time;
+					}
+				}
+			}
+			if (next == -1) {
+				return merged;
+			}
+			Event event = realms[next].getSortedEvents().get(positions[next]++);
+			merged.add(event);
+		}
+	}
+}
@@ -37,9 +37,22 @@ import org.matsim.vehicles.Vehicle;
 
 import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
 
 class Realm {
 	private final ScenarioImporter si;
+    // Id of this realm (index into ScenarioImporter.realms).
+    private final int realmId;
+    // Total number of realms. If 1, no mailboxes are used.
+    private final int numberOfRealms;
+    // realm_of_link[link id] -> id of the realm owning the link.
+    private final int[] realm_of_link;
+    // realm_of_stop[stop id] -> id of the realm owning the stop (i.e., the realm owning the stop link).
+    private final int[] realm_of_stop;
+    // Agents handed to other realms during the current round, indexed by target realm.
+    private Mailbox[] outboxes;
+    // Agents handed to other realms during the previous round, being processed by the target realms.
+    private Mailbox[] sent;
     // Global array of links.
     // Note: the id of the link is its index in the array.
     private final HLink[] links;
@@ -64,7 +77,15 @@ class Realm {
     Logger log = Logger.getLogger(Realm.class);
 
     public Realm(ScenarioImporter scenario, EventsManager eventsManager) throws Exception {
+        this(scenario, eventsManager, 0, 1);
+    }
+
+    public Realm(ScenarioImporter scenario, EventsManager eventsManager, int realmId, int numberOfRealms) throws Exception {
     	this.si = scenario;
+        this.realmId = realmId;
+        this.numberOfRealms = numberOfRealms;
+        this.realm_of_link = scenario.realm_of_link;
+        this.realm_of_stop = scenario.realm_of_stop;
         this.links = scenario.hermes_links;
         // The plus one is necessary because we peek into the next slot on each tick.
         this.delayedLinksByWakeupTime = new ArrayList<>();
@@ -76,9 +97,19 @@ class Realm {
         this.eventsManager = eventsManager;
 
 	// the last position is to store events that will not happen...
+        // Slots are created lazily as one realm per thread would otherwise allocate two deques per second of sim time.
         for (int i = 0; i <= HermesConfigGroup.SIM_STEPS + 1; i++) {
-            delayedLinksByWakeupTime.add(new ArrayDeque<>());
-            delayedAgentsByWakeupTime.add(new ArrayDeque<>());
+            delayedLinksByWakeupTime.add(null);
+            delayedAgentsByWakeupTime.add(null);
+        }
+
+        if (numberOfRealms > 1) {
+            this.outboxes = new Mailbox[numberOfRealms];
+            this.sent = new Mailbox[numberOfRealms];
+            for (int i = 0; i < numberOfRealms; i++) {
+                this.outboxes[i] = new Mailbox();
+                this.sent[i] = new Mailbox();
+            }
         }
     }
 
@@ -88,15 +119,27 @@ class Realm {
         }
     }
 
-    private void add_delayed_agent(Agent agent, int until) {
+    void add_delayed_agent(Agent agent, int until) {
         if (HermesConfigGroup.DEBUG_REALMS) log(secs, String.format("agent %d delayed until %d", agent.id, until));
-        delayedAgentsByWakeupTime.get(Math.min(until, HermesConfigGroup.SIM_STEPS + 1)).add(agent);
+        int slot = Math.min(until, HermesConfigGroup.SIM_STEPS + 1);
+        ArrayDeque<Agent> agents = delayedAgentsByWakeupTime.get(slot);
+        if (agents == null) {
+            agents = new ArrayDeque<>();
+            delayedAgentsByWakeupTime.set(slot, agents);
+        }
+        agents.add(agent);
     }
 
-    private void add_delayed_link(HLink link, int until) {
+    void add_delayed_link(HLink link, int until) {
         if (HermesConfigGroup.DEBUG_REALMS)
             log(secs, String.format("link %d delayed until %d size %d peek agent %d", link.id(), until, link.queue().size(), link.queue().peek().id));
-        delayedLinksByWakeupTime.get(Math.min(until, HermesConfigGroup.SIM_STEPS + 1)).add(link);
+        int slot = Math.min(until, HermesConfigGroup.SIM_STEPS + 1);
+        ArrayDeque<HLink> links = delayedLinksByWakeupTime.get(slot);
+        if (links == null) {
+            links = new ArrayDeque<>();
+            delayedLinksByWakeupTime.set(slot, links);
+        }
+        links.add(link);
     }
 
     private void advanceAgentandSetEventTime(Agent agent) {
@@ -273,12 +316,38 @@ class Realm {
         }
     }
 
+    /**
+     * Returns the realm owning the resource (link or stop) that the given plan entry acts upon. Plan entries that do
+     * not touch shared resources (sleeps) are owned by the current realm.
+     */
+    protected int realmOf(long planentry) {
+        if (numberOfRealms == 1) {
+            return realmId;
+        }
+        switch (Agent.getPlanHeader(planentry)) {
+            case Agent.LinkType:        return realm_of_link[Agent.getLinkPlanEntry(planentry)];
+            case Agent.StopArriveType:
+            case Agent.StopDelayType:
+            case Agent.StopDepartType:
+            case Agent.WaitType:        return realm_of_stop[Agent.getStopPlanEntry(planentry)];
+            default:                    return realmId;
+        }
+    }
+
     protected int processAgentActivities(Agent agent) {
         boolean finished = agent.finished();
         // if finished, install times on last event.
         if (finished) {
             setEventTime(agent, agent.events().size() - 1, secs, true);
         }
+        // agents that are not on a link are simply handed over to the realm owning their next resource.
+        if (!finished && numberOfRealms > 1) {
+            int target = realmOf(agent.plan.get(agent.planIndex + 1));
+            if (target != realmId) {
+                outboxes[target].handoff(agent);
+                return 0;
+            }
+        }
         // -1 is used in the processAgent because the agent is not in a link currently.
         if (!finished && !processAgent(agent, -1)) {
             add_delayed_agent(agent, secs + 1);
@@ -295,6 +364,13 @@ class Realm {
             // if finished, install times on last event.
             if (finished) {
                 setEventTime(agent, agent.events().size() - 1, secs, true);
+            } else if (numberOfRealms > 1) {
+                int target = realmOf(agent.plan.get(agent.planIndex + 1));
+                if (target != realmId) {
+                    // The agent stays at the head of the link until the owning realm answers (see completeRequest).
+                    outboxes[target].request(agent, link);
+                    return routed;
+                }
             }
             if (finished || processAgent(agent, link.id())) {
                 float storageCapacityPCE = agent.getStorageCapacityPCUE();
@@ -315,16 +391,40 @@ class Realm {
         return routed;
     }
 
-    public void run() throws Exception {
-    	int routed = 0;
+    /**
+     * Processes a request sent by another realm for an agent that sits at the head of one of the sender's links.
+     * Returns true if the agent could execute its next plan element, i.e., if it can leave the sender's link.
+     */
+    protected boolean processRequest(Agent agent, int currLinkId) {
+        return processAgent(agent, currLinkId);
+    }
+
+    /**
+     * Called on the realm owning the link once the target realm processed a request. On success, the agent leaves
+     * the link and the link is processed further (more agents might be able to leave it in this tick).
+     */
+    protected int completeRequest(HLink link, Agent agent, boolean success) {
+        if (success) {
+            link.pop(agent.getStorageCapacityPCUE());
+            return link.queue().peek() == null ? 1 : 1 + processLinks(link);
+        } else {
+            add_delayed_link(link, Math.max(agent.linkFinishTime, secs + 1));
+            return 0;
+        }
+    }
+
+    /**
+     * Processes all agents and links that are scheduled for the current tick. Agents that need resources owned by
+     * other realms are put into the outboxes; see {@link ParallelRealms}.
+     */
+    protected int tick() {
+        int routed = 0;
         Agent agent = null;
         HLink link = null;
 
-        while (secs != HermesConfigGroup.SIM_STEPS) {
-            if (secs % 3600 == 0) {
-                log.info("Hermes running at " + Time.writeTime(secs));
-            }
-            while ((agent = delayedAgentsByWakeupTime.get(secs).poll()) != null) {
+        ArrayDeque<Agent> agents = delayedAgentsByWakeupTime.get(secs);
+        if (agents != null) {
+            while ((agent = agents.poll()) != null) {
                 if (HermesConfigGroup.DEBUG_REALMS) {
                     log(secs, String.format("Processing agent %d", agent.id));
                 }
@@ -332,20 +432,35 @@ class Realm {
 
             }
             delayedAgentsByWakeupTime.set(secs, null);
-            if (si.isDeterministicPt()) {
-                for (Event e : si.getDeterministicPtEvents().get(secs)) {
-                    sorted_events.add(e);
-                }
-                si.getDeterministicPtEvents().get(secs).clear();
+        }
+        if (si.isDeterministicPt() && realmId == 0) {
+            for (Event e : si.getDeterministicPtEvents().get(secs)) {
+                sorted_events.add(e);
             }
+            si.getDeterministicPtEvents().get(secs).clear();
+        }
 
-            while ((link = delayedLinksByWakeupTime.get(secs).poll()) != null) {
+        ArrayDeque<HLink> links = delayedLinksByWakeupTime.get(secs);
+        if (links != null) {
+            while ((link = links.poll()) != null) {
                 if (HermesConfigGroup.DEBUG_REALMS) {
                     log(secs, String.format("Processing link %d", link.id()));
                 }
                 routed += processLinks(link);
             }
             delayedLinksByWakeupTime.set(secs, null);
+        }
+        return routed;
+    }
+
+    public void run() throws Exception {
+    	int routed = 0;
+
+        while (secs != HermesConfigGroup.SIM_STEPS) {
+            if (secs % 3600 == 0) {
+                log.info("Hermes running at " + Time.writeTime(secs));
+            }
+            routed = tick();
             if (HermesConfigGroup.DEBUG_REALMS && routed > 0) {
                 log(secs, String.format("Processed %d agents", routed));
             }
@@ -359,6 +474,69 @@ class Realm {
         }
     }
 
+    /**
+     * Makes the agents put into the outboxes during the last phase visible to the target realms. Returns true if at
+     * least one agent was sent.
+     */
+    boolean flipMailboxes() {
+        Mailbox[] tmp = sent;
+        sent = outboxes;
+        outboxes = tmp;
+        for (Mailbox mailbox : sent) {
+            if (!mailbox.isEmpty()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Processes all agents other realms sent to this realm. Senders are visited in realm order to keep the
+     * simulation deterministic, independently of the thread scheduling.
+     */
+    int processInbox(Realm[] realms) {
+        int routed = 0;
+        for (Realm sender : realms) {
+            if (sender == this) {
+                continue;
+            }
+            Mailbox inbox = sender.sent[realmId];
+            for (int i = 0; i < inbox.handoffs.size(); i++) {
+                routed += processAgentActivities(inbox.handoffs.get(i));
+            }
+            for (int i = 0; i < inbox.requests.size(); i++) {
+                inbox.results[i] = processRequest(inbox.requests.get(i), inbox.links.get(i).id());
+            }
+        }
+        return routed;
+    }
+
+    /**
+     * Applies the answers of the other realms to the requests sent by this realm.
+     */
+    int processReplies() {
+        int routed = 0;
+        for (Mailbox mailbox : sent) {
+            for (int i = 0; i < mailbox.requests.size(); i++) {
+                routed += completeRequest(mailbox.links.get(i), mailbox.requests.get(i), mailbox.results[i]);
+            }
+            mailbox.clear();
+        }
+        return routed;
+    }
+
+    void advanceTime() {
+        secs += 1;
+    }
+
+    int time() {
+        return secs;
+    }
+
+    void resetSortedEvents() {
+        sorted_events = new EventArray();
+    }
+
     public void setEventTime(Agent agent, int eventid, int time, boolean lastevent) {
         if (eventid != 0) {
         	EventArray agentevents = agent.events();
@@ -403,7 +581,39 @@ class Realm {
         }
     }
 
-    ArrayList<ArrayDeque<HLink>> delayedLinks() { return this.delayedLinksByWakeupTime; }
-    ArrayList<ArrayDeque<Agent>> delayedAgents() { return this.delayedAgentsByWakeupTime; }
     EventArray getSortedEvents() { return this.sorted_events; }
+
+    /**
+     * Agents sent from one realm to another within a tick. Handoffs are agents outside of links (e.g., finishing an
+     * activity) which are from then on owned by the target realm. Requests are agents at the head of a link of the
+     * sending realm; the target realm tries to execute their next plan element and stores the outcome in results.
+     */
+    static class Mailbox {
+        private final ArrayList<Agent> handoffs = new ArrayList<>();
+        private final ArrayList<Agent> requests = new ArrayList<>();
+        private final ArrayList<HLink> links = new ArrayList<>();
+        private boolean[] results = new boolean[16];
+
+        void handoff(Agent agent) {
+            handoffs.add(agent);
+        }
+
+        void request(Agent agent, HLink link) {
+            requests.add(agent);
+            links.add(link);
+            if (requests.size() > results.length) {
+                results = Arrays.copyOf(results, results.length * 2);
+            }
+        }
+
+        boolean isEmpty() {
+            return handoffs.isEmpty() && requests.isEmpty();
+        }
+
+        void clear() {
+            handoffs.clear();
+            requests.clear();
+            links.clear();
+        }
+    }
 }
@@ -0,0 +1,93 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2022 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+package org.matsim.core.mobsim.hermes;
+
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Splits the network into realms. Nodes are visited in breadth-first order (ignoring link directions), which keeps
+ * nodes that are close in the graph close in the ordering. The ordering is then cut into chunks holding roughly the
+ * same number of links. A link belongs to the realm of its from-node.
+ */
+final class RealmPartitioner {
+
+	private RealmPartitioner() {
+	}
+
+	/**
+	 * @return realm_of_link[link id index] -> realm id. Links that are not part of the network are assigned to realm 0.
+	 */
+	static int[] partition(Network network, int numberOfRealms) {
+		int[] realm_of_link = new int[Id.getNumberOfIds(Link.class)];
+		if (numberOfRealms <= 1 || network.getNodes().isEmpty()) {
+			return realm_of_link;
+		}
+
+		// sort nodes by id to make the partition independent of the map iteration order.
+		List<Node> nodes = new ArrayList<>(network.getNodes().values());
+		nodes.sort(Comparator.comparingInt(n -> n.getId().index()));
+
+		boolean[] visited = new boolean[Id.getNumberOfIds(Node.class)];
+		List<Node> order = new ArrayList<>(nodes.size());
+		ArrayDeque<Node> queue = new ArrayDeque<>();
+		for (Node start : nodes) {
+			if (visited[start.getId().index()]) {
+				continue;
+			}
+			visited[start.getId().index()] = true;
+			queue.add(start);
+			while (!queue.isEmpty()) {
+				Node node = queue.poll();
+				order.add(node);
+				for (Link link : node.getOutLinks().values()) {
+					visit(link.getToNode(), visited, queue);
+				}
+				for (Link link : node.getInLinks().values()) {
+					visit(link.getFromNode(), visited, queue);
+				}
+			}
+		}
+
+		int links = network.getLinks().size();
+		int assigned = 0;
+		for (Node node : order) {
+			int realm = Math.min(numberOfRealms - 1, (int) ((long) assigned * numberOfRealms / Math.max(1, links)));
+			for (Link link : node.getOutLinks().values()) {
+				realm_of_link[link.getId().index()] = realm;
+				assigned++;
+			}
+		}
+		return realm_of_link;
+	}
+
+	private static void visit(Node node, boolean[] visited, ArrayDeque<Node> queue) {
+		if (!visited[node.getId().index()]) {
+			visited[node.getId().index()] = true;
+			queue.add(node);
+		}
+	}
+}
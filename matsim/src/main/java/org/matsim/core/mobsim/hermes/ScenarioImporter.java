@@ -114,7 +114,16 @@ class ScenarioImporter {
 	// Note: in order to make MATSim Agent ids, some positions in the array might be null.
 	protected Agent[] hermes_agents;
 
-	protected Realm realm;
+	// Realms simulating the network. There is more than one realm if hermes.numberOfRealms > 1.
+	protected Realm[] realms;
+
+	// realm id of each link. Should be used as follows:
+	// realm_of_link[link id] -> realm id
+	protected int[] realm_of_link;
+
+	// realm id of each stop (the realm owning the stop link). Should be used as follows:
+	// realm_of_stop[transit_stop_facility.id.index] -> realm id
+	protected int[] realm_of_stop;
 	private final boolean deterministicPt;
 	// Agents waiting in pt stations. Should be used as follows:
 	// agent_stops.get(curr station id).get(line id) -> queue of agents
@@ -143,6 +152,7 @@ class ScenarioImporter {
 		generateVehicleCategories();
 		generateLinks();
 		generatePT();
+		generatePartitions();
 		generateAgents();
 
 	}
@@ -307,8 +317,23 @@ class ScenarioImporter {
 		}
 	}
 
+	private void generatePartitions() {
+		int numberOfRealms = scenario.getConfig().hermes().getNumberOfRealms();
+		realm_of_link = RealmPartitioner.partition(scenario.getNetwork(), numberOfRealms);
+		realm_of_stop = new int[Id.getNumberOfIds(TransitStopFacility.class)];
+		for (TransitStopFacility stop : scenario.getTransitSchedule().getFacilities().values()) {
+			if (stop.getLinkId() != null) {
+				realm_of_stop[stop.getId().index()] = realm_of_link[stop.getLinkId().index()];
+			}
+		}
+	}
+
 	private void generateRealms() throws Exception {
-		realm = new Realm(this, eventsManager);
+		int numberOfRealms = scenario.getConfig().hermes().getNumberOfRealms();
+		realms = new Realm[numberOfRealms];
+		for (int i = 0; i < numberOfRealms; i++) {
+			realms[i] = new Realm(this, eventsManager, i, numberOfRealms);
+		}
 
 		// Put agents in their initial location (link or activity center)
 		for (Agent agent : hermes_agents) {
@@ -330,7 +355,9 @@ class ScenarioImporter {
 				case Agent.SleepForType:
 				case Agent.SleepUntilType:
 					int sleep = Agent.getSleepPlanEntry(planentry);
-					realm.delayedAgents().get(Math.min(sleep, scenario.getConfig().hermes().getEndTime() + 1)).add(agent);
+					// wake up the agent in the realm that owns the resource needed after the sleep.
+					Realm realm = agent.plan.size() > 1 ? realms[realms[0].realmOf(agent.plan.get(1))] : realms[0];
+					realm.add_delayed_agent(agent, sleep);
 					break;
 				default:
 					Logger.getLogger(getClass()).error(String.format("ERROR -> unknown plan element type %d", type));
@@ -341,7 +368,7 @@ class ScenarioImporter {
 			if (link != null) {
 				int nextwakeup = link.nexttime();
 				if (nextwakeup > 0) {
-					realm.delayedLinks().get(nextwakeup).add(link);
+					realms[realm_of_link[link.id()]].add_delayed_link(link, nextwakeup);
 				}
 			}
 		}
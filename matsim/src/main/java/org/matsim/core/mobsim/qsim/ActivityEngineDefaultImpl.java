@@ -31,6 +31,8 @@ import org.matsim.api.core.v01.events.PersonStuckEvent;
 import org.matsim.api.core.v01.network.Link;
 import org.matsim.api.core.v01.population.Person;
 import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.groups.QSimConfigGroup.AgentWakeupQueue;
 import org.matsim.core.mobsim.framework.MobsimAgent;
 import org.matsim.core.mobsim.framework.MobsimAgent.State;
 
@@ -40,8 +42,17 @@ class ActivityEngineDefaultImpl implements ActivityEngine {
 	private final EventsManager eventsManager;
 
 	@Inject
+	ActivityEngineDefaultImpl( EventsManager eventsManager, Config config ) {
+		this( eventsManager, config.qsim().getAgentWakeupQueue() == AgentWakeupQueue.calendarQueue );
+	}
+
 	ActivityEngineDefaultImpl( EventsManager eventsManager ) {
+		this( eventsManager, false );
+	}
+
+	ActivityEngineDefaultImpl( EventsManager eventsManager, boolean useCalendarQueue ) {
 		this.eventsManager = eventsManager;
+		this.activityEndsCalendar = useCalendarQueue ? new CalendarQueue<>((a0, a1) -> a1.getId().compareTo(a0.getId())) : null;
 	}
 
 //	public ActivityEngineDefaultImpl( EventsManager eventsManager, AgentCounter agentCounter ) {
@@ -88,6 +99,11 @@ class ActivityEngineDefaultImpl implements ActivityEngine {
 		}
 		return cmp;
 	});
+
+	/**
+	 * Replaces the activityEndsList if configured, see {@link CalendarQueue}. null otherwise.
+	 */
+	private final CalendarQueue<MobsimAgent> activityEndsCalendar;
 	
 	// See handleActivity for the reason for this.
 	private boolean beforeFirstSimStep = true;
@@ -100,6 +116,15 @@ class ActivityEngineDefaultImpl implements ActivityEngine {
 	@Override
 	public void doSimStep(double time) {
 		beforeFirstSimStep = false;
+		if (activityEndsCalendar != null) {
+			MobsimAgent agent;
+			while ((agent = activityEndsCalendar.poll(time)) != null) {
+				unregisterAgentAtActivityLocation(agent);
+				agent.endActivityAndComputeNextState(time);
+				internalInterface.arrangeNextAgentState(agent);
+			}
+			return;
+		}
 		while (activityEndsList.peek() != null) {
 			if (activityEndsList.peek().activityEndTime <= time) {
 				MobsimAgent agent = activityEndsList.poll().agent;
@@ -115,6 +140,13 @@ class ActivityEngineDefaultImpl implements ActivityEngine {
 	@Override
 	public void afterSim() {
 		double now = this.internalInterface.getMobsim().getSimTimer().getTimeOfDay();
+		if (activityEndsCalendar != null) {
+			// only agents with a finite activity end time are added to the calendar
+			for (MobsimAgent agent : activityEndsCalendar.getAll()) {
+				eventsManager.processEvent(new PersonStuckEvent(now, agent.getId(), null, null));
+			}
+			activityEndsCalendar.clear();
+		}
 		for (AgentEntry entry : activityEndsList) {
 			if (entry.activityEndTime != Double.POSITIVE_INFINITY) {
 				// since we are at an activity, it is not plausible to assume that the agents know mode or destination
@@ -154,8 +186,7 @@ class ActivityEngineDefaultImpl implements ActivityEngine {
 			internalInterface.arrangeNextAgentState(agent) ;
 		} else {
 			// The agent commences an activity on this link.
-			final AgentEntry agentEntry = new AgentEntry(agent, agent.getActivityEndTime());
-			activityEndsList.add(agentEntry);
+			addActivityEnd(agent, agent.getActivityEndTime());
 			internalInterface.registerAdditionalAgentOnLink(agent);
 		}
 		// Why beforeFirstSimStep matters:
@@ -187,16 +218,16 @@ class ActivityEngineDefaultImpl implements ActivityEngine {
 		
 		
 		double newActivityEndTime = agent.getActivityEndTime();
-		AgentEntry oldEntry = removeAgentFromQueue(agent);
+		boolean wasQueued = removeAgentFromQueue(agent);
 
 		// The intention in the following is that an agent that is no longer alive has an activity end time of infinity.  The number of
 		// alive agents is only modified when an activity end time is changed between a finite time and infinite.  kai, jun'11
-		if (oldEntry == null) {
+		if (!wasQueued) {
 			if (newActivityEndTime == Double.POSITIVE_INFINITY) {
 				// agent was de-activated and still should be de-activated - nothing to do here
 			} else {
 				// re-activate the agent
-				activityEndsList.add(new AgentEntry(agent, newActivityEndTime));
+				addActivityEnd(agent, newActivityEndTime);
 				internalInterface.registerAdditionalAgentOnLink(agent);
 				((org.matsim.core.mobsim.qsim.AgentCounter) internalInterface.getMobsim().getAgentCounter()).incLiving();
 			}
@@ -211,20 +242,31 @@ class ActivityEngineDefaultImpl implements ActivityEngine {
 			/*
 			 *  The activity is just rescheduled during the day, so we keep the agent active. cdobler, oct'11
 			 */
-			activityEndsList.add(new AgentEntry(agent, newActivityEndTime));
+			addActivityEnd(agent, newActivityEndTime);
 		}
 	}
 
-	private AgentEntry removeAgentFromQueue(MobsimAgent agent) {
+	private void addActivityEnd(MobsimAgent agent, double activityEndTime) {
+		if (activityEndsCalendar != null) {
+			activityEndsCalendar.add(activityEndTime, agent);
+		} else {
+			activityEndsList.add(new AgentEntry(agent, activityEndTime));
+		}
+	}
+
+	private boolean removeAgentFromQueue(MobsimAgent agent) {
+		if (activityEndsCalendar != null) {
+			return activityEndsCalendar.removeFirst(a -> a == agent);
+		}
 		Iterator<AgentEntry> iterator = activityEndsList.iterator();
 		while (iterator.hasNext()) {
 			AgentEntry entry = iterator.next();
 			if (entry.agent == agent) {
 				iterator.remove();
-				return entry;
+				return true;
 			}
 		}
-		return null;
+		return false;
 	}
 
 	private void unregisterAgentAtActivityLocation(final MobsimAgent agent) {
@@ -0,0 +1,205 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * CalendarQueue.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2022 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.mobsim.qsim;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+
+/**
+ * A calendar queue for the times at which agents have to be woken up, e.g. activity ends or teleportation arrivals.
+ *
+ * The elements are put into buckets of one second, so adding an element and taking out all elements that are due in a
+ * time step takes constant time per element instead of the logarithmic time of a priority queue. The due elements are
+ * taken out of their buckets as one batch, which is sorted by time and then by the given tie-breaker, so they are
+ * polled in the same order as from a priority queue using the same criteria. Elements becoming due while a batch is
+ * polled are returned after that batch.
+ *
+ * All methods are synchronized, since elements may be added from multiple threads in the parallel qsim.
+ */
+final class CalendarQueue<E> {
+
+	private static final class Entry<E> {
+		final double time;
+		final E element;
+
+		Entry(double time, E element) {
+			this.time = time;
+			this.element = element;
+		}
+	}
+
+	private final Comparator<Entry<E>> order;
+	private final Map<Long, List<Entry<E>>> buckets = new HashMap<>();
+	private long firstBucket = Long.MAX_VALUE; // no bucket before this one contains elements
+	private int size = 0;
+	private final List<Entry<E>> batch = new ArrayList<>();
+	private int batchIndex = 0;
+
+	CalendarQueue(Comparator<? super E> tieBreaker) {
+		Comparator<Entry<E>> byTime = Comparator.comparingDouble(e -> e.time);
+		this.order = byTime.thenComparing((e0, e1) -> tieBreaker.compare(e0.element, e1.element));
+	}
+
+	synchronized void add(double time, E element) {
+		// bucket b contains the times in (b-1, b], so with integer time steps a bucket is either completely due or not at all
+		long bucket = (long) Math.ceil(time);
+		this.buckets.computeIfAbsent(bucket, b -> new ArrayList<>()).add(new Entry<>(time, element));
+		this.size++;
+		if (bucket < this.firstBucket) {
+			this.firstBucket = bucket;
+		}
+	}
+
+	/**
+	 * Removes the next element with a time not after <code>now</code>.
+	 *
+	 * @return the element, or null if no element is due
+	 */
+	synchronized E poll(double now) {
+		if (this.batchIndex == this.batch.size()) {
+			this.batch.clear();
+			this.batchIndex = 0;
+			collectDue(now, this.batch);
+			if (this.batch.isEmpty()) {
+				return null;
+			}
+			this.batch.sort(this.order);
+		}
+		this.size--;
+		return this.batch.get(this.batchIndex++).element;
+	}
+
+	private void collectDue(double now, List<Entry<E>> due) {
+		if (this.buckets.isEmpty()) {
+			return;
+		}
+		long lastCompleteBucket = (long) Math.floor(now);
+		if (this.firstBucket <= lastCompleteBucket) {
+			if (lastCompleteBucket - this.firstBucket <= this.buckets.size()) {
+				for (long b = this.firstBucket; b <= lastCompleteBucket; b++) {
+					List<Entry<E>> bucket = this.buckets.remove(b);
+					if (bucket != null) {
+						due.addAll(bucket);
+					}
+				}
+			} else {
+				// time jumped forward by a lot, it is cheaper to look at the buckets themselves
+				Iterator<Map.Entry<Long, List<Entry<E>>>> iter = this.buckets.entrySet().iterator();
+				while (iter.hasNext()) {
+					Map.Entry<Long, List<Entry<E>>> e = iter.next();
+					if (e.getKey() <= lastCompleteBucket) {
+						due.addAll(e.getValue());
+						iter.remove();
+					}
+				}
+			}
+			this.firstBucket = lastCompleteBucket + 1;
+		}
+		if (now != lastCompleteBucket) {
+			// with fractional time steps, the next bucket may be partially due
+			List<Entry<E>> bucket = this.buckets.get(lastCompleteBucket + 1);
+			if (bucket != null) {
+				bucket.removeIf(e -> {
+					if (e.time <= now) {
+						due.add(e);
+						return true;
+					}
+					return false;
+				});
+				if (bucket.isEmpty()) {
+					this.buckets.remove(lastCompleteBucket + 1);
+				}
+			}
+		}
+		if (this.buckets.isEmpty()) {
+			this.firstBucket = Long.MAX_VALUE;
+		}
+	}
+
+	/**
+	 * Removes the first element found that matches the filter. Needs to look at all elements.
+	 *
+	 * @return whether an element was removed
+	 */
+	synchronized boolean removeFirst(Predicate<? super E> filter) {
+		for (int i = this.batchIndex; i < this.batch.size(); i++) {
+			if (filter.test(this.batch.get(i).element)) {
+				this.batch.remove(i);
+				this.size--;
+				return true;
+			}
+		}
+		Iterator<List<Entry<E>>> bucketIter = this.buckets.values().iterator();
+		while (bucketIter.hasNext()) {
+			List<Entry<E>> bucket = bucketIter.next();
+			Iterator<Entry<E>> iter = bucket.iterator();
+			while (iter.hasNext()) {
+				if (filter.test(iter.next().element)) {
+					iter.remove();
+					if (bucket.isEmpty()) {
+						bucketIter.remove();
+					}
+					this.size--;
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * @return all elements, in no particular order
+	 */
+	synchronized List<E> getAll() {
+		List<E> elements = new ArrayList<>(this.size);
+		for (int i = this.batchIndex; i < this.batch.size(); i++) {
+			elements.add(this.batch.get(i).element);
+		}
+		for (List<Entry<E>> bucket : this.buckets.values()) {
+			for (Entry<E> e : bucket) {
+				elements.add(e.element);
+			}
+		}
+		return elements;
+	}
+
+	synchronized int size() {
+		return this.size;
+	}
+
+	synchronized boolean isEmpty() {
+		return this.size == 0;
+	}
+
+	synchronized void clear() {
+		this.buckets.clear();
+		this.batch.clear();
+		this.batchIndex = 0;
+		this.firstBucket = Long.MAX_VALUE;
+		this.size = 0;
+	}
+
+}
@@ -38,6 +38,7 @@ import org.matsim.api.core.v01.network.Link;
 import org.matsim.api.core.v01.population.Person;
 import org.matsim.core.api.experimental.events.EventsManager;
 import org.matsim.core.api.experimental.events.TeleportationArrivalEvent;
+import org.matsim.core.config.groups.QSimConfigGroup.AgentWakeupQueue;
 import org.matsim.core.mobsim.framework.MobsimAgent;
 import org.matsim.core.network.NetworkUtils;
 import org.matsim.core.utils.collections.Tuple;
@@ -67,6 +68,10 @@ public final class DefaultTeleportationEngine implements TeleportationEngine {
 			return ret;
 		}
 	});
+	/**
+	 * Replaces the teleportationList if configured, see {@link CalendarQueue}. null otherwise.
+	 */
+	private final CalendarQueue<MobsimAgent> teleportationCalendar;
 	private final LinkedHashMap<Id<Person>, TeleportationVisData> teleportationData = new LinkedHashMap<>();
 	private InternalInterface internalInterface;
 	private Scenario scenario;
@@ -83,6 +88,8 @@ public final class DefaultTeleportationEngine implements TeleportationEngine {
 		this.scenario = scenario;
 		this.eventsManager = eventsManager;
 		this.withTravelTimeCheck = withTravelTimeCheck;
+		this.teleportationCalendar = scenario.getConfig().qsim().getAgentWakeupQueue() == AgentWakeupQueue.calendarQueue ?
+				new CalendarQueue<>((a0, a1) -> a1.getId().compareTo(a0.getId())) : null;
 	}
 
 	@Override
@@ -102,7 +109,11 @@ public final class DefaultTeleportationEngine implements TeleportationEngine {
 		}
     	
 		double arrivalTime = now + travelTime ;
-		this.teleportationList.add(new Tuple<>(arrivalTime, agent));
+		if (this.teleportationCalendar != null) {
+			this.teleportationCalendar.add(arrivalTime, agent);
+		} else {
+			this.teleportationList.add(new Tuple<>(arrivalTime, agent));
+		}
 		
 		// === below here is only visualization, no dynamics ===
 		Id<Person> agentId = agent.getId();
@@ -132,24 +143,34 @@ public final class DefaultTeleportationEngine implements TeleportationEngine {
 	}
 
 	private void handleTeleportationArrivals(double now) {
+		if (teleportationCalendar != null) {
+			MobsimAgent personAgent;
+			while ((personAgent = teleportationCalendar.poll(now)) != null) {
+				handleArrival(now, personAgent);
+			}
+			return;
+		}
 		while (!teleportationList.isEmpty()) {
 			Tuple<Double, MobsimAgent> entry = teleportationList.peek();
 			if (entry.getFirst() <= now) {
 				teleportationList.poll();
-				MobsimAgent personAgent = entry.getSecond();
-				personAgent.notifyArrivalOnLinkByNonNetworkMode(personAgent.getDestinationLinkId());
-				double distance = personAgent.getExpectedTravelDistance();
-				this.eventsManager.processEvent(
-						new TeleportationArrivalEvent(now, personAgent.getId(), distance, personAgent.getMode()));
-				personAgent.endLegAndComputeNextState(now);
-				this.teleportationData.remove(personAgent.getId());
-				internalInterface.arrangeNextAgentState(personAgent);
+				handleArrival(now, entry.getSecond());
 			} else {
 				break;
 			}
 		}
 	}
 
+	private void handleArrival(double now, MobsimAgent personAgent) {
+		personAgent.notifyArrivalOnLinkByNonNetworkMode(personAgent.getDestinationLinkId());
+		double distance = personAgent.getExpectedTravelDistance();
+		this.eventsManager.processEvent(
+				new TeleportationArrivalEvent(now, personAgent.getId(), distance, personAgent.getMode()));
+		personAgent.endLegAndComputeNextState(now);
+		this.teleportationData.remove(personAgent.getId());
+		internalInterface.arrangeNextAgentState(personAgent);
+	}
+
 	@Override
 	public void onPrepareSim() {
 	}
@@ -157,6 +178,12 @@ public final class DefaultTeleportationEngine implements TeleportationEngine {
 	@Override
 	public void afterSim() {
 		double now = internalInterface.getMobsim().getSimTimer().getTimeOfDay();
+		if (teleportationCalendar != null) {
+			for (MobsimAgent agent : teleportationCalendar.getAll()) {
+				eventsManager.processEvent(new PersonStuckEvent(now, agent.getId(), agent.getDestinationLinkId(), agent.getMode()));
+			}
+			teleportationCalendar.clear();
+		}
 		for (Tuple<Double, MobsimAgent> entry : teleportationList) {
 			MobsimAgent agent = entry.getSecond();
 			eventsManager.processEvent(new PersonStuckEvent(now, agent.getId(), agent.getDestinationLinkId(), agent.getMode()));
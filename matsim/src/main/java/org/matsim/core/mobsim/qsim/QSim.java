@@ -22,6 +22,7 @@ package org.matsim.core.mobsim.qsim;
 
 import com.google.inject.Injector;
 import org.apache.log4j.Logger;
+import org.matsim.analysis.IterationMetrics;
 import org.matsim.api.core.v01.Id;
 import org.matsim.api.core.v01.IdMap;
 import org.matsim.api.core.v01.Scenario;
@@ -132,6 +133,7 @@ public final class QSim implements VisMobsim, Netsim, ActivityEndRescheduler {
 	private long qSimInternalTime = 0;
 	private final Map<MobsimEngine, AtomicLong> mobsimEngineRunTimes;
 	private ActivityEngine activityEngine;
+	private IterationMetrics iterationMetrics = null;
 
 	{
 		if (analyzeRunTimes) this.mobsimEngineRunTimes = new HashMap<>();
@@ -367,6 +369,8 @@ public final class QSim implements VisMobsim, Netsim, ActivityEndRescheduler {
 	 * @return true if the simulation needs to continue
 	 */
 	/*package*/ boolean doSimStep() {
+		final boolean collectMetrics = this.iterationMetrics != null && this.iterationMetrics.isEnabled();
+		final long stepStartTime = collectMetrics ? System.nanoTime() : 0;
 		if (analyzeRunTimes) this.startClockTime = System.nanoTime();
 
 		final double now = this.getSimTimer().getTimeOfDay();
@@ -409,6 +413,7 @@ public final class QSim implements VisMobsim, Netsim, ActivityEndRescheduler {
 		this.events.afterSimStep(now);
 		this.listenerManager.fireQueueSimulationAfterSimStepEvent(now);
 
+		if (collectMetrics) this.iterationMetrics.addTime("mobsim.simStep", System.nanoTime() - stepStartTime);
 
 		final QSimConfigGroup qsimConfigGroup = this.scenario.getConfig().qsim();
 		boolean doContinue = (this.agentCounter.isLiving() && (this.stopTime > now));
@@ -644,6 +649,11 @@ public final class QSim implements VisMobsim, Netsim, ActivityEndRescheduler {
 		this.listenerManager.addQueueSimulationListener(listener);
 	}
 
+	@com.google.inject.Inject(optional = true)
+	void setIterationMetrics(IterationMetrics iterationMetrics) {
+		this.iterationMetrics = iterationMetrics;
+	}
+
 	@Inject void addQueueSimulationListeners(Set<MobsimListener> listeners) {
 		// I think that "injecting a method" means that the method is called at some point, pulling the method arguments out of injection.  In
 		// consequence, it is assumed that a "Set<MobsimListener>" was bound before, and is used here.  I think that the results of
@@ -0,0 +1,94 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * AbstractBisectionNetsimEnginePartitioner.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2022 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.mobsim.qsim.qnetsimengine;
+
+import java.util.List;
+
+import org.matsim.api.core.v01.network.Node;
+
+/**
+ * Recursive bisection: the nodes are split into two halves whose weights match the number of runners assigned to each
+ * half, and each half is split again until there is one part per runner. Subclasses decide how a set of nodes is
+ * split into two halves.
+ */
+abstract class AbstractBisectionNetsimEnginePartitioner implements NetsimEnginePartitioner {
+
+	@Override
+	public final int[] partition(List<? extends Node> nodes, double[] weights, int numberOfRunners) {
+		int[] runners = new int[nodes.size()];
+		int[] subset = new int[nodes.size()];
+		for (int i = 0; i < subset.length; i++) {
+			subset[i] = i;
+		}
+		prepare(nodes);
+		bisect(nodes, weights, subset, 0, numberOfRunners, runners);
+		return runners;
+	}
+
+	private void bisect(List<? extends Node> nodes, double[] weights, int[] subset, int firstRunner, int numberOfRunners, int[] runners) {
+		if (numberOfRunners == 1 || subset.length == 0) {
+			for (int i : subset) {
+				runners[i] = firstRunner;
+			}
+			return;
+		}
+		int leftRunners = numberOfRunners / 2;
+		boolean[] isLeft = split(nodes, weights, subset, (double) leftRunners / numberOfRunners);
+
+		int leftSize = 0;
+		for (boolean left : isLeft) {
+			if (left) leftSize++;
+		}
+		int[] left = new int[leftSize];
+		int[] right = new int[subset.length - leftSize];
+		for (int i = 0, l = 0, r = 0; i < subset.length; i++) {
+			if (isLeft[i]) {
+				left[l++] = subset[i];
+			} else {
+				right[r++] = subset[i];
+			}
+		}
+		bisect(nodes, weights, left, firstRunner, leftRunners, runners);
+		bisect(nodes, weights, right, firstRunner + leftRunners, numberOfRunners - leftRunners, runners);
+	}
+
+	/**
+	 * Called once per partitioning, before the first split.
+	 */
+	void prepare(List<? extends Node> nodes) {
+	}
+
+	/**
+	 * @param subset the indices (into <code>nodes</code>) of the nodes to split
+	 * @param leftFraction the share of the total weight of the subset that should go into the left half
+	 * @return for each entry in <code>subset</code>, <code>true</code> if the node goes into the left half
+	 */
+	abstract boolean[] split(List<? extends Node> nodes, double[] weights, int[] subset, double leftFraction);
+
+	static double totalWeight(double[] weights, int[] subset) {
+		double total = 0;
+		for (int i : subset) {
+			total += weights[i];
+		}
+		return total;
+	}
+
+}
@@ -20,16 +20,21 @@
 
 package org.matsim.core.mobsim.qsim.qnetsimengine;
 
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
 import org.apache.log4j.Logger;
+import org.matsim.analysis.IterationMetrics;
 import org.matsim.api.core.v01.Id;
 import org.matsim.api.core.v01.Scenario;
 import org.matsim.api.core.v01.events.PersonLeavesVehicleEvent;
 import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Node;
 import org.matsim.api.core.v01.population.Person;
 import org.matsim.core.api.experimental.events.EventsManager;
 import org.matsim.core.config.Config;
@@ -37,6 +42,8 @@ import org.matsim.core.config.groups.QSimConfigGroup;
 import org.matsim.core.config.groups.QSimConfigGroup.LinkDynamics;
 import org.matsim.core.config.groups.QSimConfigGroup.SnapshotStyle;
 import org.matsim.core.config.groups.QSimConfigGroup.VehicleBehavior;
+import org.matsim.core.controler.IterationCounter;
+import org.matsim.core.controler.OutputDirectoryHierarchy;
 import org.matsim.core.gbl.Gbl;
 import org.matsim.core.mobsim.framework.MobsimAgent;
 import org.matsim.core.mobsim.framework.MobsimDriverAgent;
@@ -46,6 +53,8 @@ import org.matsim.core.mobsim.qsim.QSim;
 import org.matsim.core.mobsim.qsim.interfaces.AgentCounter;
 import org.matsim.core.mobsim.qsim.interfaces.MobsimVehicle;
 import org.matsim.core.mobsim.qsim.interfaces.NetsimNetwork;
+import org.matsim.core.utils.io.IOUtils;
+import org.matsim.core.utils.io.UncheckedIOException;
 import org.matsim.core.utils.misc.Time;
 import org.matsim.vehicles.Vehicle;
 import org.matsim.vis.snapshotwriters.SnapshotLinkWidthCalculator;
@@ -90,6 +99,16 @@ abstract class AbstractQNetsimEngine<A extends AbstractQNetsimEngineRunner> impl
 	private double infoTime = 0;
 	private List<A> engines;
 	private InternalInterface internalInterface = null;
+
+	private NetsimEnginePartitioner partitioner = null;
+	private IterationMetrics iterationMetrics = null;
+	private OutputDirectoryHierarchy controlerIO = null;
+	private IterationCounter iterationCounter = null;
+	private NetsimEngineNodeLoads nodeLoads = null;
+	// per node (by Id<Node>.index()) work in this run, only recorded when partitioning by load
+	private int[] nodeLoadCounts = null;
+	// per node (by Id<Node>.index()) index of the runner handling the node and its out-links
+	private int[] runnerByNode = null;
 	
 	AbstractQNetsimEngine(final QSim sim, QNetworkFactory netsimNetworkFactory) {
 		this.qsim = sim;
@@ -131,6 +150,30 @@ abstract class AbstractQNetsimEngine<A extends AbstractQNetsimEngineRunner> impl
 
 		this.numOfThreads = sim.getScenario().getConfig().qsim().getNumberOfThreads();
 	}
+
+	/**
+	 * Replaces the partitioner selected by {@link QSimConfigGroup#getNetsimEnginePartitioning()}.
+	 */
+	@com.google.inject.Inject(optional = true)
+	void setNetsimEnginePartitioner(NetsimEnginePartitioner partitioner) {
+		this.partitioner = partitioner;
+	}
+
+	@com.google.inject.Inject(optional = true)
+	void setNetsimEngineNodeLoads(NetsimEngineNodeLoads nodeLoads) {
+		this.nodeLoads = nodeLoads;
+	}
+
+	@com.google.inject.Inject(optional = true)
+	void setIterationMetrics(IterationMetrics iterationMetrics) {
+		this.iterationMetrics = iterationMetrics;
+	}
+
+	@com.google.inject.Inject(optional = true)
+	void setOutputDirectory(OutputDirectoryHierarchy controlerIO, IterationCounter iterationCounter) {
+		this.controlerIO = controlerIO;
+		this.iterationCounter = iterationCounter;
+	}
 	
 	static AbstractAgentSnapshotInfoBuilder createAgentSnapshotInfoBuilder(Scenario scenario, SnapshotLinkWidthCalculator linkWidthCalculator) {
 		final SnapshotStyle snapshotStyle = scenario.getConfig().qsim().getSnapshotStyle();
@@ -186,6 +229,11 @@ abstract class AbstractQNetsimEngine<A extends AbstractQNetsimEngineRunner> impl
 
 		finishMultiThreading();
 
+		printLoadBalancingStatistics();
+		if (this.nodeLoads != null && this.nodeLoadCounts != null) {
+			this.nodeLoads.setLoads(this.nodeLoadCounts);
+		}
+
 		/* Reset vehicles on ALL links. We cannot iterate only over the active links
 		 * (this.simLinksArray), because there may be links that have vehicles only
 		 * in the buffer (such links are *not* active, as the buffer gets emptied
@@ -378,20 +426,61 @@ abstract class AbstractQNetsimEngine<A extends AbstractQNetsimEngineRunner> impl
 		this.internalInterface.arrangeNextAgentState(driver);
 	}
 
+	private NetsimEnginePartitioner createPartitioner(QSimConfigGroup qsimConfig) {
+		if (this.partitioner != null) {
+			return this.partitioner;
+		}
+		switch (qsimConfig.getNetsimEnginePartitioning()) {
+		case roundRobin:
+			return new RoundRobinNetsimEnginePartitioner();
+		case geometricBisection:
+			return new GeometricBisectionNetsimEnginePartitioner();
+		case graphBisection:
+			return new GraphBisectionNetsimEnginePartitioner();
+		default:
+			throw new RuntimeException("Unknown netsim engine partitioning: " + qsimConfig.getNetsimEnginePartitioning());
+		}
+	}
+
 	 /*
 	 * Within the MoveThreads Links are only activated when a Vehicle is moved
 	 * over a Node which is processed by that Thread. So we can assign each QLink
 	 * to the Thread that handles its InNode.
 	 */
 	private void assignNetElementActivators() {
+		QSimConfigGroup qsimConfig = this.qsim.getScenario().getConfig().qsim();
 
 		// only for statistics
 		int nodes[] = new int[this.engines.size()];
 		int links[] = new int[this.engines.size()];
 
-		int roundRobin = 0;
-		for (QNodeI node : network.getNetsimNodes().values()) {
-			int i = roundRobin % this.engines.size();
+		List<QNodeI> qNodes = new ArrayList<>(network.getNetsimNodes().values());
+		List<Node> networkNodes = new ArrayList<>(qNodes.size());
+		double[] weights = new double[qNodes.size()];
+		boolean useLoads = qsimConfig.isUsingLoadBasedNetsimEnginePartitioning() && this.nodeLoads != null && this.nodeLoads.hasLoads();
+		for (int n = 0; n < qNodes.size(); n++) {
+			Node node = qNodes.get(n).getNode();
+			networkNodes.add(node);
+			// without observed loads, assume that the work is proportional to the number of elements to move
+			weights[n] = useLoads ? 1 + this.nodeLoads.getLoad(node.getId()) : 1 + node.getOutLinks().size();
+		}
+		int[] runners = this.engines.size() == 1 ? new int[qNodes.size()] : createPartitioner(qsimConfig).partition(networkNodes, weights, this.engines.size());
+		if (useLoads) {
+			log.info("Partitioned the network using the loads observed in the previous run.");
+		}
+
+		if (qsimConfig.isUsingLoadBasedNetsimEnginePartitioning()) {
+			this.nodeLoadCounts = new int[Id.getNumberOfIds(Node.class)];
+			for (A engine : this.engines) {
+				engine.setNodeLoads(this.nodeLoadCounts);
+			}
+		}
+
+		this.runnerByNode = new int[Id.getNumberOfIds(Node.class)];
+		for (int n = 0; n < qNodes.size(); n++) {
+			QNodeI node = qNodes.get(n);
+			int i = runners[n];
+			this.runnerByNode[node.getNode().getId().index()] = i;
 			if( node instanceof AbstractQNode){
 				((AbstractQNode) node).setNetElementActivationRegistry(this.engines.get(i));
 			}
@@ -418,22 +507,80 @@ abstract class AbstractQNetsimEngine<A extends AbstractQNetsimEngineRunner> impl
 				links[i]++;
 
 			}
-
-			roundRobin++;
 		}
 
 		// print some statistics
 		for (int i = 0; i < this.engines.size(); i++) {
+			this.engines.get(i).setNumberOfAssignedElements(nodes[i], links[i]);
 			log.info("Assigned " + nodes[i] + " nodes and " + links[i] + " links to QSimEngineRunner #" + i);
 		}
 
 //		this.linksToActivateInitially.clear();
 	}
 
+	/**
+	 * Logs how much time each runner spent moving nodes and links. With the runners waiting for each other twice per
+	 * time step, the slowest runner determines the run time; a max/avg ratio close to 1 means good balancing.
+	 * When running within a controler, the busy times are also written to the iteration directory.
+	 */
+	private void printLoadBalancingStatistics() {
+		if (this.engines == null || this.engines.isEmpty()) {
+			return;
+		}
+		long sum = 0;
+		long max = 0;
+		for (int i = 0; i < this.engines.size(); i++) {
+			AbstractQNetsimEngineRunner runner = this.engines.get(i);
+			long busyTime = runner.getBusyTime();
+			sum += busyTime;
+			max = Math.max(max, busyTime);
+			log.info("QSimEngineRunner #" + i + ": busy " + busyTime / 1_000_000 + " ms; "
+					+ runner.getNumberOfAssignedNodes() + " nodes, " + runner.getNumberOfAssignedLinks() + " links");
+		}
+		double avg = (double) sum / this.engines.size();
+		log.info("QSimEngineRunner busy times: max " + max / 1_000_000 + " ms, avg " + (long) (avg / 1_000_000)
+				+ " ms, max/avg " + (avg > 0 ? String.format("%.3f", max / avg) : "n/a"));
+		if (this.iterationMetrics != null && this.iterationMetrics.isEnabled()) {
+			this.iterationMetrics.addTime("qnetsim.runnerBusyTime.max", max);
+			this.iterationMetrics.addTime("qnetsim.runnerBusyTime.avg", (long) avg);
+			if (avg > 0) {
+				this.iterationMetrics.addValue("qnetsim.runnerImbalance", max / avg);
+			}
+		}
+		if (this.controlerIO != null && this.iterationCounter != null && this.iterationCounter.getIterationNumber() != null) {
+			writeLoadBalancingStatistics(this.iterationCounter.getIterationNumber());
+		}
+	}
+
+	private void writeLoadBalancingStatistics(int iteration) {
+		String delimiter = this.qsim.getScenario().getConfig().global().getDefaultDelimiter();
+		String filename = this.controlerIO.getIterationFilename(iteration, "qsimRunnerBusyTimes.csv");
+		try (BufferedWriter writer = IOUtils.getBufferedWriter(filename)) {
+			writer.write(String.join(delimiter, "iteration", "runner", "busyTime_ms", "nodes", "links"));
+			writer.newLine();
+			for (int i = 0; i < this.engines.size(); i++) {
+				AbstractQNetsimEngineRunner runner = this.engines.get(i);
+				writer.write(iteration + delimiter + i + delimiter + runner.getBusyTime() / 1_000_000 + delimiter
+						+ runner.getNumberOfAssignedNodes() + delimiter + runner.getNumberOfAssignedLinks());
+				writer.newLine();
+			}
+		} catch (IOException | UncheckedIOException e) {
+			log.error("Could not write QSimEngineRunner busy times to " + filename, e);
+		}
+	}
+
 	private final void arrangeNextAgentState(MobsimAgent pp) {
 		internalInterface.arrangeNextAgentState(pp);
 	}
 	
+	/**
+	 * @return the index (into {@link #getQnetsimEngineRunner()}) of the runner that handles the given node and its
+	 * out-links. Only available after the runners were created.
+	 */
+	protected final int getRunnerIndex(Node node) {
+		return this.runnerByNode[node.getId().index()];
+	}
+
 	/**
 	 * @return the {@link AbstractQNetsimEngineRunner} created by {@link #initQSimEngineRunners()}
 	 */
@@ -72,6 +72,15 @@ abstract class AbstractQNetsimEngineRunner extends NetElementActivationRegistry
 
 	/*package*/ long[] runTimes;
 	private long startTime = 0;
+
+	// total time spent in moveNodes() and moveLinks(), for the load balancing statistics
+	private long busyTime = 0;
+	private int simulatedNodes = 0;
+	private int simulatedLinks = 0;
+
+	// if not null, counts per node (by Id<Node>.index()) in how many time steps the node or one of its out-links was
+	// active. Shared between all runners, which is fine as every node is handled by exactly one runner.
+	private int[] nodeLoads = null;
 	{	
 		if (QSim.analyzeRunTimes) runTimes = new long[QNetsimEngineWithThreadpool.numObservedTimeSteps];
 		else runTimes = null;
@@ -83,32 +92,59 @@ abstract class AbstractQNetsimEngineRunner extends NetElementActivationRegistry
 
 	public abstract void afterSim() ;
 
+	/*package*/ final void setNodeLoads(final int[] nodeLoads) {
+		this.nodeLoads = nodeLoads;
+	}
+
+	/*package*/ final void setNumberOfAssignedElements(final int nodes, final int links) {
+		this.simulatedNodes = nodes;
+		this.simulatedLinks = links;
+	}
+
+	/*package*/ final long getBusyTime() {
+		return this.busyTime;
+	}
+
+	/*package*/ final int getNumberOfAssignedNodes() {
+		return this.simulatedNodes;
+	}
+
+	/*package*/ final int getNumberOfAssignedLinks() {
+		return this.simulatedLinks;
+	}
+
 	protected void moveNodes() {
+		long start = System.nanoTime();
 		boolean remainsActive;
 		this.lockNodes = true;
 		QNodeI node;
 		Iterator<QNodeI> simNodes = this.nodesQueue.iterator();
 		while (simNodes.hasNext()) {
 			node = simNodes.next();
+			if (this.nodeLoads != null) this.nodeLoads[node.getNode().getId().index()]++;
 			remainsActive = node.doSimStep(time);
 			if (!remainsActive) simNodes.remove();
 		}
 		this.lockNodes = false;
+		this.busyTime += System.nanoTime() - start;
 	}
 	
 	protected final void moveLinks() {
+		long start = System.nanoTime();
 		boolean remainsActive;
 		lockLinks = true;
 		QLinkI link;
 		ListIterator<QLinkI> simLinks = this.linksList.listIterator();
 		while (simLinks.hasNext()) {
 			link = simLinks.next();
+			if (this.nodeLoads != null) this.nodeLoads[link.getLink().getFromNode().getId().index()]++;
 
 			remainsActive = link.doSimStep();
 
 			if (!remainsActive) simLinks.remove();
 		}
 		lockLinks = false;
+		this.busyTime += System.nanoTime() - start;
 	}
 
 	/*
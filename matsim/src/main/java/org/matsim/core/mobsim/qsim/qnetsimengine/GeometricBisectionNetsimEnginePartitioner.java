@@ -0,0 +1,74 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * GeometricBisectionNetsimEnginePartitioner.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2022 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.mobsim.qsim.qnetsimengine;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.network.Node;
+
+/**
+ * Recursive coordinate bisection: every set of nodes is cut perpendicular to its longer extent, at the weighted
+ * median. Cheap and good enough for most road networks, but it does not look at the links, so parts might be
+ * disconnected (e.g. along rivers).
+ */
+final class GeometricBisectionNetsimEnginePartitioner extends AbstractBisectionNetsimEnginePartitioner {
+
+	@Override
+	boolean[] split(List<? extends Node> nodes, double[] weights, int[] subset, double leftFraction) {
+		double minX = Double.POSITIVE_INFINITY;
+		double maxX = Double.NEGATIVE_INFINITY;
+		double minY = Double.POSITIVE_INFINITY;
+		double maxY = Double.NEGATIVE_INFINITY;
+		for (int i : subset) {
+			Coord coord = nodes.get(i).getCoord();
+			minX = Math.min(minX, coord.getX());
+			maxX = Math.max(maxX, coord.getX());
+			minY = Math.min(minY, coord.getY());
+			maxY = Math.max(maxY, coord.getY());
+		}
+		Comparator<Integer> byCoord = (maxX - minX >= maxY - minY)
+				? Comparator.comparingDouble(i -> nodes.get(i).getCoord().getX())
+				: Comparator.comparingDouble(i -> nodes.get(i).getCoord().getY());
+
+		// positions into subset, sorted along the longer axis
+		Integer[] order = new Integer[subset.length];
+		for (int i = 0; i < order.length; i++) {
+			order[i] = i;
+		}
+		Arrays.sort(order, (a, b) -> byCoord.compare(subset[a], subset[b]));
+
+		double target = totalWeight(weights, subset) * leftFraction;
+		boolean[] isLeft = new boolean[subset.length];
+		double sum = 0;
+		for (Integer position : order) {
+			if (sum >= target) {
+				break;
+			}
+			isLeft[position] = true;
+			sum += weights[subset[position]];
+		}
+		return isLeft;
+	}
+
+}
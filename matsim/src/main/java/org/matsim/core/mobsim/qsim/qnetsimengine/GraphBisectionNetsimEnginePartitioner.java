@@ -0,0 +1,168 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * GraphBisectionNetsimEnginePartitioner.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2022 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.mobsim.qsim.qnetsimengine;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Node;
+
+/**
+ * Recursive graph bisection, loosely following the approach of METIS: every set of nodes is split by growing a
+ * region in breadth-first order from a pseudo-peripheral node until it holds the requested share of the weight. The
+ * cut is then improved by moving boundary nodes that have more neighbours on the other side than on their own side,
+ * as long as the balance does not get worse than {@link #IMBALANCE_TOLERANCE}. Link directions are ignored.
+ */
+final class GraphBisectionNetsimEnginePartitioner extends AbstractBisectionNetsimEnginePartitioner {
+
+	private static final double IMBALANCE_TOLERANCE = 0.02;
+	private static final int REFINEMENT_PASSES = 4;
+
+	// undirected adjacency in compressed row storage: the neighbours of node i are adjacency[adjacencyStart[i] .. adjacencyStart[i+1]-1]
+	private int[] adjacencyStart;
+	private int[] adjacency;
+	// position of each node in the subset that is currently split, -1 if not part of it
+	private int[] positionInSubset;
+
+	@Override
+	void prepare(List<? extends Node> nodes) {
+		Map<Id<Node>, Integer> indices = new HashMap<>();
+		for (int i = 0; i < nodes.size(); i++) {
+			indices.put(nodes.get(i).getId(), i);
+		}
+		this.adjacencyStart = new int[nodes.size() + 1];
+		for (int i = 0; i < nodes.size(); i++) {
+			Node node = nodes.get(i);
+			this.adjacencyStart[i + 1] = this.adjacencyStart[i] + node.getOutLinks().size() + node.getInLinks().size();
+		}
+		this.adjacency = new int[this.adjacencyStart[nodes.size()]];
+		for (int i = 0; i < nodes.size(); i++) {
+			int pos = this.adjacencyStart[i];
+			Node node = nodes.get(i);
+			for (Link link : node.getOutLinks().values()) {
+				Integer neighbour = indices.get(link.getToNode().getId());
+				this.adjacency[pos++] = neighbour == null ? -1 : neighbour;
+			}
+			for (Link link : node.getInLinks().values()) {
+				Integer neighbour = indices.get(link.getFromNode().getId());
+				this.adjacency[pos++] = neighbour == null ? -1 : neighbour;
+			}
+		}
+		this.positionInSubset = new int[nodes.size()];
+		Arrays.fill(this.positionInSubset, -1);
+	}
+
+	@Override
+	boolean[] split(List<? extends Node> nodes, double[] weights, int[] subset, double leftFraction) {
+		for (int i = 0; i < subset.length; i++) {
+			this.positionInSubset[subset[i]] = i;
+		}
+		double total = totalWeight(weights, subset);
+		double target = total * leftFraction;
+
+		// grow the left half from a pseudo-peripheral node
+		int[] order = breadthFirstOrder(subset, 0);
+		order = breadthFirstOrder(subset, order[order.length - 1]);
+		boolean[] isLeft = new boolean[subset.length];
+		double leftWeight = 0;
+		for (int position : order) {
+			if (leftWeight >= target) {
+				break;
+			}
+			isLeft[position] = true;
+			leftWeight += weights[subset[position]];
+		}
+
+		// improve the cut
+		double tolerance = total * IMBALANCE_TOLERANCE;
+		for (int pass = 0; pass < REFINEMENT_PASSES; pass++) {
+			boolean moved = false;
+			for (int position = 0; position < subset.length; position++) {
+				int node = subset[position];
+				int gain = 0;
+				for (int a = this.adjacencyStart[node]; a < this.adjacencyStart[node + 1]; a++) {
+					int neighbour = this.adjacency[a];
+					int neighbourPosition = neighbour < 0 ? -1 : this.positionInSubset[neighbour];
+					if (neighbourPosition >= 0) {
+						gain += isLeft[neighbourPosition] == isLeft[position] ? -1 : 1;
+					}
+				}
+				if (gain <= 0) {
+					continue;
+				}
+				double newLeftWeight = isLeft[position] ? leftWeight - weights[node] : leftWeight + weights[node];
+				if (Math.abs(newLeftWeight - target) <= Math.max(tolerance, Math.abs(leftWeight - target))) {
+					isLeft[position] = !isLeft[position];
+					leftWeight = newLeftWeight;
+					moved = true;
+				}
+			}
+			if (!moved) {
+				break;
+			}
+		}
+
+		for (int node : subset) {
+			this.positionInSubset[node] = -1;
+		}
+		return isLeft;
+	}
+
+	/**
+	 * @return the positions (into subset) of all nodes of the subset, in breadth-first order starting at
+	 * <code>startPosition</code>. Nodes not connected to the start node are appended in further breadth-first runs.
+	 */
+	private int[] breadthFirstOrder(int[] subset, int startPosition) {
+		int[] order = new int[subset.length];
+		boolean[] visited = new boolean[subset.length];
+		int head = 0;
+		int tail = 0;
+		int nextStart = 0;
+		int start = startPosition;
+		while (tail < subset.length) {
+			if (visited[start]) {
+				while (visited[nextStart]) {
+					nextStart++;
+				}
+				start = nextStart;
+			}
+			visited[start] = true;
+			order[tail++] = start;
+			while (head < tail) {
+				int node = subset[order[head++]];
+				for (int a = this.adjacencyStart[node]; a < this.adjacencyStart[node + 1]; a++) {
+					int neighbour = this.adjacency[a];
+					int neighbourPosition = neighbour < 0 ? -1 : this.positionInSubset[neighbour];
+					if (neighbourPosition >= 0 && !visited[neighbourPosition]) {
+						visited[neighbourPosition] = true;
+						order[tail++] = neighbourPosition;
+					}
+				}
+			}
+		}
+		return order;
+	}
+
+}
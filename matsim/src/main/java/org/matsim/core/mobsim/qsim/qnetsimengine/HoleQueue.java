@@ -0,0 +1,106 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * HoleQueue.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2022 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.mobsim.qsim.qnetsimengine;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+
+/**
+ * The holes travelling upstream on a {@link QueueWithBuffer}, in the order they were created. Stores the earliest exit
+ * time and size of every hole in growable circular arrays instead of allocating a {@link QueueWithBuffer.Hole} per
+ * vehicle leaving the link; the hole objects are only created when needed for snapshots.
+ */
+final class HoleQueue {
+
+	private double[] exitTimes = new double[4]; // capacity is always a power of 2
+	private double[] sizes = new double[4];
+	private int head = 0;
+	private int size = 0;
+
+	void add(double earliestLinkExitTime, double sizeInEquivalents) {
+		if (this.size == this.exitTimes.length) {
+			grow();
+		}
+		int index = (this.head + this.size) & (this.exitTimes.length - 1);
+		this.exitTimes[index] = earliestLinkExitTime;
+		this.sizes[index] = sizeInEquivalents;
+		this.size++;
+	}
+
+	/**
+	 * @return the earliest link exit time of the first hole, requires the queue not to be empty
+	 */
+	double peekEarliestLinkExitTime() {
+		return this.exitTimes[this.head];
+	}
+
+	/**
+	 * Removes the first hole, requires the queue not to be empty.
+	 *
+	 * @return the size of the removed hole in equivalents
+	 */
+	double poll() {
+		double sizeInEquivalents = this.sizes[this.head];
+		this.head = (this.head + 1) & (this.exitTimes.length - 1);
+		this.size--;
+		return sizeInEquivalents;
+	}
+
+	int size() {
+		return this.size;
+	}
+
+	boolean isEmpty() {
+		return this.size == 0;
+	}
+
+	void clear() {
+		this.head = 0;
+		this.size = 0;
+	}
+
+	Queue<QueueWithBuffer.Hole> toHoles() {
+		Queue<QueueWithBuffer.Hole> holes = new ArrayDeque<>(this.size);
+		for (int i = 0; i < this.size; i++) {
+			int index = (this.head + i) & (this.exitTimes.length - 1);
+			QueueWithBuffer.Hole hole = new QueueWithBuffer.Hole();
+			hole.setEarliestLinkExitTime(this.exitTimes[index]);
+			hole.setSizeInEquivalents(this.sizes[index]);
+			holes.add(hole);
+		}
+		return holes;
+	}
+
+	private void grow() {
+		int capacity = this.exitTimes.length;
+		int firstPart = capacity - this.head;
+		double[] newExitTimes = new double[capacity * 2];
+		System.arraycopy(this.exitTimes, this.head, newExitTimes, 0, firstPart);
+		System.arraycopy(this.exitTimes, 0, newExitTimes, firstPart, this.head);
+		double[] newSizes = new double[capacity * 2];
+		System.arraycopy(this.sizes, this.head, newSizes, 0, firstPart);
+		System.arraycopy(this.sizes, 0, newSizes, firstPart, this.head);
+		this.exitTimes = newExitTimes;
+		this.sizes = newSizes;
+		this.head = 0;
+	}
+
+}
@@ -0,0 +1,57 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * NetsimEngineNodeLoads.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2022 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.mobsim.qsim.qnetsimengine;
+
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Node;
+
+/**
+ * Keeps the work per node observed in the last QSim run, so that the next run can use it as weights when
+ * partitioning the network onto the {@link AbstractQNetsimEngineRunner}s. The work of a node is the number of times
+ * the node and its out-links were moved during the run.
+ * <p>
+ * This needs to outlive a single QSim, so it is bound at the controler level (see
+ * {@link org.matsim.core.mobsim.qsim.QSimModule}).
+ */
+public final class NetsimEngineNodeLoads {
+
+	private int[] loads = null;
+
+	/**
+	 * @return the load of the given node in the last run, or -1 if there was no run yet.
+	 */
+	public synchronized double getLoad(Id<Node> nodeId) {
+		if (this.loads == null) {
+			return -1;
+		}
+		int index = nodeId.index();
+		return index < this.loads.length ? this.loads[index] : 0;
+	}
+
+	public synchronized boolean hasLoads() {
+		return this.loads != null;
+	}
+
+	/*package*/ synchronized void setLoads(int[] loadsByNodeIndex) {
+		this.loads = loadsByNodeIndex;
+	}
+
+}
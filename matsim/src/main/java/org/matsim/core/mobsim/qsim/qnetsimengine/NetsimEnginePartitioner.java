@@ -0,0 +1,45 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * NetsimEnginePartitioner.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2022 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.mobsim.qsim.qnetsimengine;
+
+import java.util.List;
+
+import org.matsim.api.core.v01.network.Node;
+
+/**
+ * Decides which {@link AbstractQNetsimEngineRunner} handles which node. The out-links of a node are always handled by
+ * the same runner as the node. Runners only wait for each other at the end of each half step, so a good partition
+ * keeps the runners balanced, and keeps neighbouring nodes on the same runner.
+ * <p>
+ * The implementation is selected by {@link org.matsim.core.config.groups.QSimConfigGroup#getNetsimEnginePartitioning()}.
+ * A custom implementation can be bound in a QSim module, which then takes precedence over the config setting.
+ */
+public interface NetsimEnginePartitioner {
+
+	/**
+	 * @param nodes the nodes to distribute
+	 * @param weights the expected work per node, in the same order as <code>nodes</code>
+	 * @param numberOfRunners the number of runners
+	 * @return the index of the runner, for each node in the same order as <code>nodes</code>
+	 */
+	int[] partition(List<? extends Node> nodes, double[] weights, int numberOfRunners);
+
+}
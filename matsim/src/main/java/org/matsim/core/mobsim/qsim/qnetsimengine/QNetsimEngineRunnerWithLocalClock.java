@@ -0,0 +1,145 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * QNetsimEngineRunnerWithLocalClock.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2022 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.mobsim.qsim.qnetsimengine;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.LockSupport;
+
+import org.matsim.core.gbl.Gbl;
+
+/**
+ * Runner of the {@link QNetsimEngineWithLocalClocks}. Each runner lives in its own thread and counts the half steps
+ * it has completed (its "local clock"). Instead of waiting for all runners between the node and the link half step,
+ * a runner only waits for the runners owning the to-nodes of its links, see
+ * {@link QNetsimEngineWithLocalClocks} for the reasoning.
+ */
+final class QNetsimEngineRunnerWithLocalClock extends AbstractQNetsimEngineRunner implements Runnable {
+
+	// how often to spin before parking when waiting for another thread
+	private static final int SPINS_BEFORE_PARK = 1000;
+	private static final long PARK_NANOS = 50_000;
+
+	private final QNetsimEngineWithLocalClocks engine;
+
+	// number of completed half steps: 2*k after step k, 2*k+1 after the nodes of step k+1
+	private volatile long halfSteps = 0;
+	private volatile boolean simulationRunning = true;
+	private Thread thread;
+
+	// runners owning the to-nodes of links of this runner: their nodes must be moved before our links are moved
+	private final List<QNetsimEngineRunnerWithLocalClock> downstream = new ArrayList<>();
+	// runners owning links towards nodes of this runner: they wait for our nodes
+	private final List<QNetsimEngineRunnerWithLocalClock> upstream = new ArrayList<>();
+
+	QNetsimEngineRunnerWithLocalClock(QNetsimEngineWithLocalClocks engine) {
+		this.engine = engine;
+	}
+
+	/*package*/ void addDownstream(QNetsimEngineRunnerWithLocalClock runner) {
+		if (runner != this && !this.downstream.contains(runner)) {
+			this.downstream.add(runner);
+			runner.upstream.add(this);
+		}
+	}
+
+	/*package*/ int getNumberOfDownstreamRunners() {
+		return this.downstream.size();
+	}
+
+	/*package*/ void start(String name) {
+		this.thread = new Thread(this, name);
+		this.thread.setDaemon(true);
+		this.thread.start();
+	}
+
+	/*package*/ Thread getThread() {
+		return this.thread;
+	}
+
+	/*package*/ long getHalfSteps() {
+		return this.halfSteps;
+	}
+
+	@Override
+	public void run() {
+		long step = 0;
+		try {
+			while (true) {
+				// wait for the engine to start the next step
+				int spins = 0;
+				while (this.simulationRunning && this.engine.getStartedSteps() <= step) {
+					spins = idle(spins);
+				}
+				if (!this.simulationRunning) {
+					break;
+				}
+
+				// Nodes only read buffers of links that were filled in the previous step. All runners finished the
+				// previous step before the engine started this one, so no waiting is necessary here.
+				moveNodes();
+				this.halfSteps = 2 * step + 1;
+				for (QNetsimEngineRunnerWithLocalClock runner : this.upstream) {
+					LockSupport.unpark(runner.thread);
+				}
+
+				// our links fill the buffers read by (and activate) the to-nodes, which might belong to other runners.
+				for (QNetsimEngineRunnerWithLocalClock runner : this.downstream) {
+					spins = 0;
+					while (runner.halfSteps < 2 * step + 1 && !this.engine.isAborted()) {
+						spins = idle(spins);
+					}
+				}
+				if (this.engine.isAborted()) {
+					break;
+				}
+				moveLinks();
+				this.halfSteps = 2 * step + 2;
+				step++;
+				this.engine.runnerFinishedStep();
+			}
+		} catch (Throwable e) {
+			this.engine.abort(e);
+		}
+		Gbl.printCurrentThreadCpuTime();
+	}
+
+	/**
+	 * Spins for a while, then parks the thread for a short time. Threads waiting for this runner are unparked
+	 * explicitly, the timeout only guards against missed signals.
+	 */
+	static int idle(int spins) {
+		if (spins < SPINS_BEFORE_PARK) {
+			Thread.onSpinWait();
+			return spins + 1;
+		}
+		LockSupport.parkNanos(PARK_NANOS);
+		return spins;
+	}
+
+	@Override
+	public void afterSim() {
+		this.simulationRunning = false;
+		if (this.thread != null) {
+			LockSupport.unpark(this.thread);
+		}
+	}
+}
@@ -0,0 +1,148 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * QNetsimEngineWithLocalClocks.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2022 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.mobsim.qsim.qnetsimengine;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+import javax.inject.Inject;
+
+import org.apache.log4j.Logger;
+import org.matsim.core.mobsim.qsim.QSim;
+
+/**
+ * Variant of {@link QNetsimEngineWithThreadpool} without the barrier between moving the nodes and moving the links.
+ * This follows the idea sketched in {@link QNetsimEngineWithThreadpool#run(double)}: every runner has a local clock
+ * and only waits for the runners it actually depends on.
+ * <ul>
+ * <li>Moving a node reads the buffers of its in-links and pushes vehicles into its out-links. Out-links belong to the
+ * runner of the node, the buffers of the in-links were filled in the previous time step. So nodes can be moved as soon
+ * as the time step starts.</li>
+ * <li>Moving a link fills its buffer and might activate its to-node. So a runner moves its links only after all
+ * runners owning to-nodes of its links have moved their nodes.</li>
+ * </ul>
+ * The runners live in their own threads for the whole QSim and wait by spinning, then parking, instead of being
+ * handed out to an {@link java.util.concurrent.ExecutorService} twice per time step. The end of each time step
+ * remains a synchronization point, since the other engines of the QSim run in between.
+ * <p>
+ * Use a partitioning other than round robin (see {@link NetsimEnginePartitioner}), otherwise every runner depends on
+ * almost every other runner.
+ */
+final class QNetsimEngineWithLocalClocks extends AbstractQNetsimEngine<QNetsimEngineRunnerWithLocalClock> {
+
+	private static final Logger log = Logger.getLogger(QNetsimEngineWithLocalClocks.class);
+
+	private volatile long startedSteps = 0;
+	private final AtomicInteger runnersInStep = new AtomicInteger();
+	private volatile Throwable error = null;
+	private volatile Thread mainThread = null;
+
+	public QNetsimEngineWithLocalClocks(final QSim sim) {
+		this(sim, null);
+	}
+
+	@Inject
+	public QNetsimEngineWithLocalClocks(final QSim sim, QNetworkFactory netsimNetworkFactory) {
+		super(sim, netsimNetworkFactory);
+	}
+
+	@Override
+	protected List<QNetsimEngineRunnerWithLocalClock> initQSimEngineRunners() {
+		List<QNetsimEngineRunnerWithLocalClock> runners = new ArrayList<>();
+		for (int i = 0; i < this.numOfThreads; i++) {
+			runners.add(new QNetsimEngineRunnerWithLocalClock(this));
+		}
+		return runners;
+	}
+
+	@Override
+	protected void initMultiThreading() {
+		List<QNetsimEngineRunnerWithLocalClock> runners = getQnetsimEngineRunner();
+		for (QLinkI link : this.network.getNetsimLinks().values()) {
+			QNetsimEngineRunnerWithLocalClock from = runners.get(getRunnerIndex(link.getLink().getFromNode()));
+			QNetsimEngineRunnerWithLocalClock to = runners.get(getRunnerIndex(link.getLink().getToNode()));
+			from.addDownstream(to);
+		}
+		for (int i = 0; i < runners.size(); i++) {
+			log.info("QSimEngineRunner #" + i + " waits for " + runners.get(i).getNumberOfDownstreamRunners() + " other runners.");
+			runners.get(i).start("QNetsimEngine_LocalClockThread_" + i);
+		}
+	}
+
+	@Override
+	protected void run(double time) {
+		List<QNetsimEngineRunnerWithLocalClock> runners = getQnetsimEngineRunner();
+		for (AbstractQNetsimEngineRunner runner : runners) {
+			runner.setTime(time);
+		}
+		this.mainThread = Thread.currentThread();
+		this.runnersInStep.set(runners.size());
+		this.startedSteps++;
+		for (QNetsimEngineRunnerWithLocalClock runner : runners) {
+			LockSupport.unpark(runner.getThread());
+		}
+
+		int spins = 0;
+		while (this.runnersInStep.get() > 0 && this.error == null) {
+			spins = QNetsimEngineRunnerWithLocalClock.idle(spins);
+		}
+		if (this.error != null) {
+			throw new RuntimeException(this.error);
+		}
+	}
+
+	@Override
+	protected void finishMultiThreading() {
+		for (QNetsimEngineRunnerWithLocalClock runner : getQnetsimEngineRunner()) {
+			try {
+				runner.getThread().join();
+			} catch (InterruptedException e) {
+				throw new RuntimeException(e);
+			}
+		}
+	}
+
+	/*package*/ long getStartedSteps() {
+		return this.startedSteps;
+	}
+
+	/*package*/ void runnerFinishedStep() {
+		if (this.runnersInStep.decrementAndGet() == 0) {
+			LockSupport.unpark(this.mainThread);
+		}
+	}
+
+	/*package*/ boolean isAborted() {
+		return this.error != null;
+	}
+
+	/*package*/ void abort(Throwable e) {
+		if (this.error == null) {
+			this.error = e;
+		}
+		for (QNetsimEngineRunnerWithLocalClock runner : getQnetsimEngineRunner()) {
+			runner.afterSim();
+		}
+		LockSupport.unpark(this.mainThread);
+	}
+}
@@ -0,0 +1,107 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * VehicleBufferQueue.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2022 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.mobsim.qsim.qnetsimengine;
+
+import java.util.Arrays;
+
+/**
+ * The buffer of a {@link QueueWithBuffer}: a FIFO queue of vehicles together with the flow capacity they consumed when
+ * entering the buffer. Backed by growable circular arrays, so no objects are allocated when vehicles pass the buffer.
+ */
+final class VehicleBufferQueue {
+
+	private QVehicle[] vehicles = new QVehicle[4]; // capacity is always a power of 2
+	private double[] flowConsumptions = new double[4];
+	private int head = 0;
+	private int size = 0;
+
+	void add(QVehicle veh, double flowConsumption) {
+		if (this.size == this.vehicles.length) {
+			grow();
+		}
+		int index = index(this.size);
+		this.vehicles[index] = veh;
+		this.flowConsumptions[index] = flowConsumption;
+		this.size++;
+	}
+
+	QVehicle peek() {
+		return this.size == 0 ? null : this.vehicles[this.head];
+	}
+
+	QVehicle poll() {
+		if (this.size == 0) {
+			return null;
+		}
+		QVehicle veh = this.vehicles[this.head];
+		this.vehicles[this.head] = null;
+		this.head = (this.head + 1) & (this.vehicles.length - 1);
+		this.size--;
+		return veh;
+	}
+
+	/**
+	 * @param i position in the queue, 0 being the front-most vehicle
+	 */
+	QVehicle getVehicle(int i) {
+		return this.vehicles[index(i)];
+	}
+
+	/**
+	 * @param i position in the queue, 0 being the front-most vehicle
+	 */
+	double getFlowConsumption(int i) {
+		return this.flowConsumptions[index(i)];
+	}
+
+	int size() {
+		return this.size;
+	}
+
+	boolean isEmpty() {
+		return this.size == 0;
+	}
+
+	void clear() {
+		Arrays.fill(this.vehicles, null);
+		this.head = 0;
+		this.size = 0;
+	}
+
+	private int index(int i) {
+		return (this.head + i) & (this.vehicles.length - 1);
+	}
+
+	private void grow() {
+		int capacity = this.vehicles.length;
+		int firstPart = capacity - this.head;
+		QVehicle[] newVehicles = new QVehicle[capacity * 2];
+		System.arraycopy(this.vehicles, this.head, newVehicles, 0, firstPart);
+		System.arraycopy(this.vehicles, 0, newVehicles, firstPart, this.head);
+		double[] newFlowConsumptions = new double[capacity * 2];
+		System.arraycopy(this.flowConsumptions, this.head, newFlowConsumptions, 0, firstPart);
+		System.arraycopy(this.flowConsumptions, 0, newFlowConsumptions, firstPart, this.head);
+		this.vehicles = newVehicles;
+		this.flowConsumptions = newFlowConsumptions;
+		this.head = 0;
+	}
+
+}
@@ -0,0 +1,164 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * RingBufferVehicleQ.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2022 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.mobsim.qsim.qnetsimengine.vehicleq;
+
+import java.util.AbstractQueue;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import org.matsim.core.mobsim.qsim.qnetsimengine.QVehicle;
+
+/**
+ * A FIFO queue of vehicles backed by a growable circular array. Behaves like {@link FIFOVehicleQ}, but does not allocate
+ * a list node for every vehicle entering the queue. <code>null</code> vehicles are not permitted.
+ */
+public final class RingBufferVehicleQ extends AbstractQueue<QVehicle> implements VehicleQ<QVehicle> {
+
+	private QVehicle[] vehicles = new QVehicle[8]; // capacity is always a power of 2
+	private int head = 0;
+	private int size = 0;
+
+	@Override
+	public boolean offer(QVehicle e) {
+		if (e == null) {
+			throw new NullPointerException();
+		}
+		ensureCapacity();
+		this.vehicles[index(this.size)] = e;
+		this.size++;
+		return true;
+	}
+
+	@Override
+	public void addFirst(QVehicle e) {
+		if (e == null) {
+			throw new NullPointerException();
+		}
+		ensureCapacity();
+		this.head = (this.head - 1) & (this.vehicles.length - 1);
+		this.vehicles[this.head] = e;
+		this.size++;
+	}
+
+	@Override
+	public QVehicle peek() {
+		return this.size == 0 ? null : this.vehicles[this.head];
+	}
+
+	@Override
+	public QVehicle poll() {
+		if (this.size == 0) {
+			return null;
+		}
+		QVehicle veh = this.vehicles[this.head];
+		this.vehicles[this.head] = null;
+		this.head = (this.head + 1) & (this.vehicles.length - 1);
+		this.size--;
+		return veh;
+	}
+
+	@Override
+	public int size() {
+		return this.size;
+	}
+
+	@Override
+	public void clear() {
+		Arrays.fill(this.vehicles, null);
+		this.head = 0;
+		this.size = 0;
+	}
+
+	@Override
+	public boolean remove(Object o) {
+		for (int i = 0; i < this.size; i++) {
+			if (this.vehicles[index(i)].equals(o)) {
+				removeAt(i);
+				return true;
+			}
+		}
+		return false;
+	}
+
+	@Override
+	public Iterator<QVehicle> iterator() {
+		return new Iterator<QVehicle>() {
+			private int cursor = 0;
+			private int lastReturned = -1;
+
+			@Override
+			public boolean hasNext() {
+				return this.cursor < RingBufferVehicleQ.this.size;
+			}
+
+			@Override
+			public QVehicle next() {
+				if (this.cursor >= RingBufferVehicleQ.this.size) {
+					throw new NoSuchElementException();
+				}
+				this.lastReturned = this.cursor;
+				this.cursor++;
+				return RingBufferVehicleQ.this.vehicles[index(this.lastReturned)];
+			}
+
+			@Override
+			public void remove() {
+				if (this.lastReturned < 0) {
+					throw new IllegalStateException();
+				}
+				removeAt(this.lastReturned);
+				this.cursor = this.lastReturned;
+				this.lastReturned = -1;
+			}
+		};
+	}
+
+	private void removeAt(int i) {
+		if (i == 0) {
+			poll();
+			return;
+		}
+		// shift the following vehicles one position towards the head
+		for (int j = i; j < this.size - 1; j++) {
+			this.vehicles[index(j)] = this.vehicles[index(j + 1)];
+		}
+		this.vehicles[index(this.size - 1)] = null;
+		this.size--;
+	}
+
+	private int index(int i) {
+		return (this.head + i) & (this.vehicles.length - 1);
+	}
+
+	private void ensureCapacity() {
+		if (this.size < this.vehicles.length) {
+			return;
+		}
+		QVehicle[] newVehicles = new QVehicle[this.vehicles.length * 2];
+		int firstPart = this.vehicles.length - this.head;
+		System.arraycopy(this.vehicles, this.head, newVehicles, 0, firstPart);
+		System.arraycopy(this.vehicles, 0, newVehicles, firstPart, this.head);
+		this.vehicles = newVehicles;
+		this.head = 0;
+	}
+
+}
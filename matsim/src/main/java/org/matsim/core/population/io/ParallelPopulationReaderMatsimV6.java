@@ -0,0 +1,453 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * ParallelPopulationReaderMatsimV6.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2022 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+
+package org.matsim.core.population.io;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Stack;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Population;
+import org.matsim.api.core.v01.population.PopulationFactory;
+import org.matsim.api.core.v01.population.Route;
+import org.matsim.core.config.Config;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.population.routes.NetworkRoute;
+import org.matsim.core.utils.geometry.CoordinateTransformation;
+import org.matsim.facilities.ActivityFacilities;
+import org.matsim.facilities.ActivityFacility;
+import org.matsim.households.Households;
+import org.matsim.lanes.Lanes;
+import org.matsim.pt.transitSchedule.api.TransitSchedule;
+import org.matsim.utils.objectattributes.AttributeConverter;
+import org.matsim.vehicles.Vehicle;
+import org.matsim.vehicles.Vehicles;
+import org.xml.sax.Attributes;
+import org.xml.sax.helpers.AttributesImpl;
+
+/**
+ * Parallel implementation of the PopulationReaderMatsimV6. The main thread only reads the file and collects the
+ * xml data of the persons in chunks. The chunks are interpreted by worker threads, which create the persons with their
+ * plans, routes and attributes. The persons of the chunks are added to the population by the main thread in the
+ * order of the file, so the result does not depend on the number of threads. This also keeps the reader compatible
+ * with population streaming, as the persons are passed to the streaming population in order and on the main thread.
+ * <p></p>
+ * Only a limited number of chunks is processed at the same time, so the memory required for the xml data does not
+ * depend on the size of the population.
+ * <p></p>
+ * The ids of persons, links, facilities and vehicles are created by the main thread in the order of the file before
+ * the chunk is passed to a worker thread (similar to the ParallelPopulationReaderMatsimV4). Thus, the indices of the
+ * ids, and everything depending on them like the iteration order of IdMaps, are the same as with the sequential reader.
+ */
+/* deliberately package */ class ParallelPopulationReaderMatsimV6 extends PopulationReaderMatsimV6 {
+
+	private static final Logger log = Logger.getLogger(ParallelPopulationReaderMatsimV6.class);
+
+	private final static String POPULATION = "population";
+	private final static String PERSON = "person";
+	private final static String ACT = "activity";
+	private final static String LEG = "leg";
+	private final static String ROUTE = "route";
+
+	static final int DEFAULT_PERSONS_PER_CHUNK = 1000;
+
+	private final Scenario scenario;
+	private final int numThreads;
+	private final int personsPerChunk;
+	private final Map<Class<?>, AttributeConverter<?>> attributeConverters = new HashMap<>();
+
+	private ExecutorService executor = null;
+	private final Deque<Future<List<Person>>> pendingChunks = new ArrayDeque<>();
+	private List<Tag> currentChunk = new ArrayList<>();
+	private int personsInChunk = 0;
+	private boolean inPerson = false;
+	private String currentLegMode = null;
+	private boolean inNetworkRoute = false;
+
+	ParallelPopulationReaderMatsimV6(
+			final String inputCRS,
+			final String targetCRS,
+			final Scenario scenario,
+			final int numThreads) {
+		this(inputCRS, targetCRS, scenario, numThreads, DEFAULT_PERSONS_PER_CHUNK);
+	}
+
+	ParallelPopulationReaderMatsimV6(
+			final String inputCRS,
+			final String targetCRS,
+			final Scenario scenario,
+			final int numThreads,
+			final int personsPerChunk) {
+		super(inputCRS, targetCRS, scenario);
+		this.scenario = scenario;
+		this.numThreads = Math.max(1, numThreads);
+		this.personsPerChunk = personsPerChunk;
+	}
+
+	@Override
+	public void putAttributeConverter(final Class<?> clazz, final AttributeConverter<?> converter) {
+		super.putAttributeConverter(clazz, converter);
+		this.attributeConverters.put(clazz, converter);
+	}
+
+	@Override
+	public void putAttributeConverters(final Map<Class<?>, AttributeConverter<?>> converters) {
+		super.putAttributeConverters(converters);
+		this.attributeConverters.putAll(converters);
+	}
+
+	@Override
+	public void startTag(final String name, final Attributes atts, final Stack<String> context) {
+		if (PERSON.equals(name)) {
+			this.inPerson = true;
+		}
+		if (!this.inPerson) {
+			if (POPULATION.equals(name)) {
+				log.info("Start parallel population reading with " + this.numThreads + " threads...");
+				initThreads();
+			}
+			super.startTag(name, atts, context);
+			return;
+		}
+		createIds(name, atts);
+		// We have to create copies of the attributes because the object is re-used by the parser!
+		this.currentChunk.add(new Tag(true, name, new AttributesImpl(atts), null));
+	}
+
+	@Override
+	public void endTag(final String name, final String content, final Stack<String> context) {
+		if (!this.inPerson) {
+			if (POPULATION.equals(name)) {
+				finishReading();
+				log.info("Finished parallel population reading...");
+			}
+			super.endTag(name, content, context);
+			return;
+		}
+		if (ROUTE.equals(name) && this.inNetworkRoute && content != null) {
+			NetworkUtils.getLinkIds(content.trim());
+			this.inNetworkRoute = false;
+		}
+		this.currentChunk.add(new Tag(false, name, null, content));
+		if (PERSON.equals(name)) {
+			this.inPerson = false;
+			this.personsInChunk++;
+			if (this.personsInChunk == this.personsPerChunk) {
+				submitChunk();
+			}
+		}
+	}
+
+	/**
+	 * Creates the ids of an element in the same order as the PopulationReaderMatsimV6 does.
+	 */
+	private void createIds(final String name, final Attributes atts) {
+		switch (name) {
+			case PERSON:
+				Id.create(atts.getValue("id"), Person.class);
+				break;
+			case ACT:
+				createId(atts.getValue("link"), Link.class);
+				createId(atts.getValue("facility"), ActivityFacility.class);
+				break;
+			case LEG:
+				this.currentLegMode = atts.getValue("mode");
+				break;
+			case ROUTE:
+				createId(atts.getValue("start_link"), Link.class);
+				createId(atts.getValue("end_link"), Link.class);
+				String routeType = atts.getValue("type");
+				if (routeType == null) {
+					if ("pt".equals(this.currentLegMode)) {
+						routeType = "experimentalPt1";
+					} else if ("car".equals(this.currentLegMode)) {
+						routeType = "links";
+					} else {
+						routeType = "generic";
+					}
+				}
+				Class<? extends Route> routeClass = this.scenario.getPopulation().getFactory().getRouteFactories().getRouteClassForType(routeType);
+				this.inNetworkRoute = NetworkRoute.class.isAssignableFrom(routeClass);
+				String vehicleRefId = atts.getValue("vehicleRefId");
+				if (this.inNetworkRoute && vehicleRefId != null && !vehicleRefId.equals("null")) {
+					Id.create(vehicleRefId, Vehicle.class);
+				}
+				break;
+			default:
+				break;
+		}
+	}
+
+	private static void createId(final String id, final Class<?> type) {
+		if (id != null) {
+			Id.create(id, type);
+		}
+	}
+
+	private void initThreads() {
+		AtomicInteger threadCount = new AtomicInteger();
+		this.executor = Executors.newFixedThreadPool(this.numThreads, runnable -> {
+			Thread thread = new Thread(runnable);
+			thread.setDaemon(true);
+			thread.setName(ParallelPopulationReaderMatsimV6.class.getSimpleName() + threadCount.getAndIncrement());
+			return thread;
+		});
+	}
+
+	private void submitChunk() {
+		ChunkParser parser = new ChunkParser(this.scenario, this.currentChunk, this.personsInChunk,
+				getCoordinateTransformation(), this.attributeConverters);
+		this.pendingChunks.add(this.executor.submit(parser));
+		this.currentChunk = new ArrayList<>();
+		this.personsInChunk = 0;
+
+		// merge the chunks which are done, and wait if too many chunks are in memory
+		while (!this.pendingChunks.isEmpty() && this.pendingChunks.peek().isDone()) {
+			addPersons(this.pendingChunks.poll());
+		}
+		while (this.pendingChunks.size() > 2 * this.numThreads) {
+			addPersons(this.pendingChunks.poll());
+		}
+	}
+
+	private void finishReading() {
+		if (this.personsInChunk > 0) {
+			submitChunk();
+		}
+		while (!this.pendingChunks.isEmpty()) {
+			addPersons(this.pendingChunks.poll());
+		}
+		this.executor.shutdown();
+		this.executor = null;
+	}
+
+	private void addPersons(final Future<List<Person>> chunk) {
+		List<Person> persons;
+		try {
+			persons = chunk.get();
+		} catch (InterruptedException e) {
+			this.executor.shutdownNow();
+			throw new RuntimeException(e);
+		} catch (ExecutionException e) {
+			this.executor.shutdownNow();
+			// keep the exceptions of the non-parallel reader, e.g. for invalid attribute values
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw new RuntimeException(e.getCause());
+		}
+		Population population = this.scenario.getPopulation();
+		for (Person person : persons) {
+			population.addPerson(person);
+		}
+	}
+
+	private static final class Tag {
+		final boolean isStart;
+		final String name;
+		final Attributes atts;
+		final String content;
+
+		Tag(final boolean isStart, final String name, final Attributes atts, final String content) {
+			this.isStart = isStart;
+			this.name = name;
+			this.atts = atts;
+			this.content = content;
+		}
+	}
+
+	/**
+	 * Interprets the xml data of a chunk of persons with its own PopulationReaderMatsimV6.
+	 */
+	private static final class ChunkParser implements Callable<List<Person>> {
+
+		private final Scenario scenario;
+		private final List<Tag> tags;
+		private final int personCount;
+		private final CoordinateTransformation coordinateTransformation;
+		private final Map<Class<?>, AttributeConverter<?>> attributeConverters;
+
+		ChunkParser(final Scenario scenario, final List<Tag> tags, final int personCount,
+				final CoordinateTransformation coordinateTransformation,
+				final Map<Class<?>, AttributeConverter<?>> attributeConverters) {
+			this.scenario = scenario;
+			this.tags = tags;
+			this.personCount = personCount;
+			this.coordinateTransformation = coordinateTransformation;
+			this.attributeConverters = attributeConverters;
+		}
+
+		@Override
+		public List<Person> call() {
+			List<Person> persons = new ArrayList<>(this.personCount);
+			CollectorScenario collectorScenario = new CollectorScenario(this.scenario, new CollectorPopulation(this.scenario.getPopulation(), persons));
+			// the coordinate transformation is set explicitly, as it might have been changed by the population attributes
+			PopulationReaderMatsimV6 reader = new PopulationReaderMatsimV6(null, null, collectorScenario);
+			reader.putAttributeConverters(this.attributeConverters);
+			reader.setCoordinateTransformation(this.coordinateTransformation);
+
+			Stack<String> context = new Stack<>();
+			context.push(POPULATION);
+			for (Tag tag : this.tags) {
+				if (tag.isStart) {
+					reader.startTag(tag.name, tag.atts, context);
+					context.push(tag.name);
+				} else {
+					context.pop();
+					reader.endTag(tag.name, tag.content, context);
+				}
+			}
+			return persons;
+		}
+	}
+
+	private static final class CollectorScenario implements Scenario {
+
+		private final Scenario delegate;
+		private final CollectorPopulation population;
+
+		CollectorScenario(final Scenario scenario, final CollectorPopulation population) {
+			this.delegate = scenario;
+			this.population = population;
+		}
+
+		@Override
+		public Network getNetwork() {
+			return this.delegate.getNetwork();
+		}
+
+		@Override
+		public Population getPopulation() {
+			return this.population;	// return collector population
+		}
+
+		@Override
+		public ActivityFacilities getActivityFacilities() {
+			return this.delegate.getActivityFacilities();
+		}
+
+		@Override
+		public TransitSchedule getTransitSchedule() {
+			return this.delegate.getTransitSchedule();
+		}
+
+		@Override
+		public Config getConfig() {
+			return this.delegate.getConfig();
+		}
+
+		@Override
+		public void addScenarioElement(final String name, final Object o) {
+			throw new RuntimeException("Calls to this method are not expected to happen...");
+		}
+
+		@Override
+		public Object getScenarioElement(final String name) {
+			return this.delegate.getScenarioElement(name);
+		}
+
+		@Override
+		public Vehicles getTransitVehicles() {
+			return this.delegate.getTransitVehicles();
+		}
+
+		@Override
+		public Households getHouseholds() {
+			return this.delegate.getHouseholds();
+		}
+
+		@Override
+		public Lanes getLanes() {
+			return this.delegate.getLanes();
+		}
+
+		@Override
+		public Vehicles getVehicles() {
+			return this.delegate.getVehicles();
+		}
+	}
+
+	/**
+	 * Collects the persons of one chunk, they are added to the real population later in the correct order.
+	 */
+	private static final class CollectorPopulation implements Population {
+
+		private final Population population;
+		private final List<Person> persons;
+
+		CollectorPopulation(final Population population, final List<Person> persons) {
+			this.population = population;
+			this.persons = persons;
+		}
+
+		@Override
+		public PopulationFactory getFactory() {
+			return this.population.getFactory();
+		}
+
+		@Override
+		public String getName() {
+			throw new RuntimeException("Calls to this method are not expected to happen...");
+		}
+
+		@Override
+		public void setName(final String name) {
+			throw new RuntimeException("Calls to this method are not expected to happen...");
+		}
+
+		@Override
+		public Map<Id<Person>, ? extends Person> getPersons() {
+			throw new RuntimeException("Calls to this method are not expected to happen...");
+		}
+
+		@Override
+		public void addPerson(final Person p) {
+			this.persons.add(p);
+		}
+
+		@Override
+		public Person removePerson(final Id<Person> personId) {
+			throw new RuntimeException("Calls to this method are not expected to happen...");
+		}
+
+		@Override
+		public org.matsim.utils.objectattributes.attributable.Attributes getAttributes() {
+			throw new RuntimeException("Calls to this method are not expected to happen...");
+		}
+	}
+
+}
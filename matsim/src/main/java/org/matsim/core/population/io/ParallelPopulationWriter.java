@@ -0,0 +1,276 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * ParallelPopulationWriter.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2022 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+
+package org.matsim.core.population.io;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.FileOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPOutputStream;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Population;
+import org.matsim.core.population.PopulationUtils;
+import org.matsim.core.utils.geometry.CoordinateTransformation;
+import org.matsim.core.utils.geometry.transformations.IdentityTransformation;
+import org.matsim.core.utils.io.IOUtils;
+import org.matsim.core.utils.io.UncheckedIOException;
+import org.matsim.utils.objectattributes.AttributeConverter;
+
+import com.github.luben.zstd.ZstdOutputStream;
+
+/**
+ * Writes a population in the <code>population_v6</code> format using multiple threads.
+ * <p></p>
+ * The persons are split into chunks which are formatted by worker threads. For gzip (<code>.gz</code>) and zstd
+ * (<code>.zst</code>) files, every chunk is also compressed by its worker thread into an independent gzip member or
+ * zstd frame. Concatenated members or frames are valid files, which can be read by every reader of these formats.
+ * Other files are compressed sequentially while the chunks are written. The chunks are always written to the file in
+ * the order of the person ids, so the file is identical for any number of threads.
+ * <p></p>
+ * Finished chunks are written to the file while the next ones are formatted. The formatting never waits for the file:
+ * chunks which are not yet written are kept in memory, compressed for <code>.gz</code> and <code>.zst</code> files.
+ * {@link #writeAsync(String)} thus returns as soon as all persons are formatted, and writes the remaining chunks to the
+ * file in the background. The population can be modified after the method returned.
+ */
+public final class ParallelPopulationWriter {
+
+	private static final Logger log = Logger.getLogger(ParallelPopulationWriter.class);
+
+	static final int DEFAULT_PERSONS_PER_CHUNK = 1000;
+
+	/** marks the end of the chunks in the queue of the file writer */
+	private static final Future<byte[]> END_OF_CHUNKS = CompletableFuture.completedFuture(null);
+
+	private enum ChunkCompression { NONE, GZIP, ZSTD }
+
+	private final CoordinateTransformation coordinateTransformation;
+	private final Population population;
+	private final int numThreads;
+	private final int personsPerChunk;
+	private final Map<Class<?>, AttributeConverter<?>> converters = new HashMap<>();
+
+	public ParallelPopulationWriter(final Population population, final int numThreads) {
+		this(new IdentityTransformation(), population, numThreads);
+	}
+
+	/**
+	 * @param coordinateTransformation transformation from the internal CRS to the CRS in which the file should be written
+	 * @param population the population to write to file
+	 * @param numThreads the number of threads formatting the persons
+	 */
+	public ParallelPopulationWriter(final CoordinateTransformation coordinateTransformation, final Population population, final int numThreads) {
+		this(coordinateTransformation, population, numThreads, DEFAULT_PERSONS_PER_CHUNK);
+	}
+
+	ParallelPopulationWriter(final CoordinateTransformation coordinateTransformation, final Population population, final int numThreads, final int personsPerChunk) {
+		this.coordinateTransformation = coordinateTransformation;
+		this.population = population;
+		this.numThreads = Math.max(1, numThreads);
+		this.personsPerChunk = personsPerChunk;
+	}
+
+	public void putAttributeConverters(final Map<Class<?>, AttributeConverter<?>> converters) {
+		this.converters.putAll(converters);
+	}
+
+	public void putAttributeConverter(final Class<?> key, final AttributeConverter<?> converter) {
+		this.converters.put(key, converter);
+	}
+
+	/**
+	 * Writes all persons to the file, and returns when the file is complete.
+	 */
+	public void write(final String filename) {
+		waitFor(writeAsync(filename));
+	}
+
+	/**
+	 * Formats all persons, and writes them to the file in the background.
+	 *
+	 * @return a future which is done when the file is complete. {@link Future#get()} throws the exception if the file
+	 * could not be written.
+	 */
+	public Future<?> writeAsync(final String filename) {
+		ChunkCompression compression = getChunkCompression(filename);
+		List<Person> persons = new ArrayList<>(PopulationUtils.getSortedPersons(this.population).values());
+
+		// the formatted chunks which are not yet written, in the order in which they have to be written
+		// (unbounded, so the formatting does not wait for the file)
+		BlockingQueue<Future<byte[]>> pendingChunks = new LinkedBlockingQueue<>();
+
+		ExecutorService fileWriter = Executors.newSingleThreadExecutor(runnable -> {
+			Thread thread = new Thread(runnable);
+			thread.setDaemon(true);
+			thread.setName(ParallelPopulationWriter.class.getSimpleName() + "FileWriter");
+			return thread;
+		});
+		Future<?> result = fileWriter.submit(() -> {
+			try (OutputStream out = openFile(filename, compression)) {
+				Future<byte[]> chunk;
+				while ((chunk = pendingChunks.take()) != END_OF_CHUNKS) {
+					out.write(chunk.get());
+				}
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+			log.info("Population written to: " + filename);
+			return null;
+		});
+		fileWriter.shutdown();
+
+		AtomicInteger threadCount = new AtomicInteger();
+		ExecutorService formatters = Executors.newFixedThreadPool(this.numThreads, runnable -> {
+			Thread thread = new Thread(runnable);
+			thread.setDaemon(true);
+			thread.setName(ParallelPopulationWriter.class.getSimpleName() + threadCount.getAndIncrement());
+			return thread;
+		});
+		boolean allFormatted = false;
+		try {
+			pendingChunks.add(formatters.submit(() -> format(compression, (handler, out) -> {
+				handler.writeHeaderAndStartElement(out);
+				handler.startPlans(this.population, out);
+				handler.writeSeparator(out);
+			})));
+			for (int start = 0; start < persons.size(); start += this.personsPerChunk) {
+				List<Person> chunk = persons.subList(start, Math.min(start + this.personsPerChunk, persons.size()));
+				pendingChunks.add(formatters.submit(() -> format(compression, (handler, out) -> {
+					for (Person person : chunk) {
+						handler.writePerson(person, out);
+					}
+				})));
+			}
+			pendingChunks.add(formatters.submit(() -> format(compression, (handler, out) -> handler.endPlans(out))));
+			pendingChunks.add(END_OF_CHUNKS);
+
+			// wait until all persons are formatted, so the population can be modified afterwards
+			formatters.shutdown();
+			formatters.awaitTermination(Long.MAX_VALUE, TimeUnit.DAYS);
+			allFormatted = true;
+		} catch (InterruptedException e) {
+			throw new RuntimeException(e);
+		} finally {
+			formatters.shutdownNow();
+			if (!allFormatted) {
+				result.cancel(true);
+			}
+		}
+		return result;
+	}
+
+	private byte[] format(final ChunkCompression compression, final ChunkContent content) throws IOException {
+		// every chunk uses its own handler, as the handlers are not thread-safe
+		PopulationWriterHandler handler = new PopulationWriterHandlerImplV6(this.coordinateTransformation);
+		handler.putAttributeConverters(this.converters);
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		OutputStream stream;
+		switch (compression) {
+			case GZIP:
+				stream = new GZIPOutputStream(bytes, 1 << 16);
+				break;
+			case ZSTD:
+				stream = new ZstdOutputStream(bytes);
+				break;
+			default:
+				stream = bytes;
+		}
+		// the handler flushes after every person, which would end a compression block each time
+		try (BufferedWriter out = new BufferedWriter(new OutputStreamWriter(new NonFlushingOutputStream(stream), StandardCharsets.UTF_8))) {
+			content.write(handler, out);
+		}
+		return bytes.toByteArray();
+	}
+
+	private static OutputStream openFile(final String filename, final ChunkCompression compression) throws IOException {
+		if (compression == ChunkCompression.NONE) {
+			// uncompressed, or compressed sequentially according to the file extension
+			return IOUtils.getOutputStream(IOUtils.getFileUrl(filename), false);
+		}
+		return new BufferedOutputStream(new FileOutputStream(filename), 1 << 20);
+	}
+
+	private static ChunkCompression getChunkCompression(final String filename) {
+		String lowerCase = filename.toLowerCase(Locale.ROOT);
+		if (lowerCase.endsWith(".gz")) {
+			return ChunkCompression.GZIP;
+		}
+		if (lowerCase.endsWith(".zst")) {
+			return ChunkCompression.ZSTD;
+		}
+		return ChunkCompression.NONE;
+	}
+
+	private static void waitFor(final Future<?> future) {
+		try {
+			future.get();
+		} catch (InterruptedException e) {
+			throw new RuntimeException(e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw new UncheckedIOException(e.getCause());
+		}
+	}
+
+	private interface ChunkContent {
+		void write(PopulationWriterHandler handler, BufferedWriter out) throws IOException;
+	}
+
+	private static final class NonFlushingOutputStream extends FilterOutputStream {
+
+		NonFlushingOutputStream(final OutputStream out) {
+			super(out);
+		}
+
+		@Override
+		public void write(final byte[] b, final int off, final int len) throws IOException {
+			this.out.write(b, off, len);
+		}
+
+		@Override
+		public void flush() {
+		}
+	}
+
+}
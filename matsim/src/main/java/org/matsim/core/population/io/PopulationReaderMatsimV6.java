@@ -143,6 +143,18 @@ import com.google.inject.Inject;
 		attributesReader.putAttributeConverters( converters );
 	}
 
+	/**
+	 * The transformation currently applied to coordinates. It might change while reading, if the population has a
+	 * CRS attribute.
+	 */
+	/*package*/ CoordinateTransformation getCoordinateTransformation() {
+		return this.coordinateTransformation;
+	}
+
+	/*package*/ void setCoordinateTransformation(final CoordinateTransformation coordinateTransformation) {
+		this.coordinateTransformation = coordinateTransformation;
+	}
+
 	@Override
 	public void startTag(final String name, final Attributes atts, final Stack<String> context) {
 		switch( name ) {
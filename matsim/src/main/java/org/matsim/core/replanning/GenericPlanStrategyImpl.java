@@ -19,6 +19,7 @@
 package org.matsim.core.replanning;
 
 import org.apache.log4j.Logger;
+import org.matsim.analysis.IterationMetrics;
 import org.matsim.api.core.v01.population.BasicPlan;
 import org.matsim.api.core.v01.population.HasPlansAndId;
 import org.matsim.core.replanning.modules.GenericPlanStrategyModule;
@@ -110,15 +111,25 @@ public class GenericPlanStrategyImpl<T extends BasicPlan, I> implements GenericP
 	@Override
 	public void finish() {
 		if (this.firstModule != null) {
+			IterationMetrics metrics = this.replanningContext == null ? null : this.replanningContext.getIterationMetrics();
+			boolean collectMetrics = metrics != null && metrics.isEnabled();
+			long startTime = collectMetrics ? System.nanoTime() : 0;
 			// finish the first module
 				this.firstModule.finishReplanning();
+			if (collectMetrics) {
+				metrics.addTime("replanning." + this.firstModule.getClass().getSimpleName(), System.nanoTime() - startTime);
+			}
 			// now work through the others
 			for (GenericPlanStrategyModule<T> module : this.modules) {
+				startTime = collectMetrics ? System.nanoTime() : 0;
 				module.prepareReplanning(replanningContext);
 				for (T plan : this.plans) {
 					module.handlePlan(plan);
 				}
 				module.finishReplanning();
+				if (collectMetrics) {
+					metrics.addTime("replanning." + module.getClass().getSimpleName(), System.nanoTime() - startTime);
+				}
 			}
 		}
 		this.plans.clear();
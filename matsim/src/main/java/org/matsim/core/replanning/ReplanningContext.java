@@ -19,6 +19,8 @@
 
 package org.matsim.core.replanning;
 
+import org.matsim.analysis.IterationMetrics;
+
 /**
  * A partial, inside view of the Controler which is available during replanning.
  * @author michaz
@@ -31,4 +33,11 @@ public interface ReplanningContext {
 	 */
 	int getIteration();
 
+	/**
+	 * The collector of performance metrics, or <code>null</code> if none is available.
+	 */
+	default IterationMetrics getIterationMetrics() {
+		return null;
+	}
+
 }
@@ -22,6 +22,7 @@
 
 package org.matsim.core.replanning;
 
+import org.matsim.analysis.IterationMetrics;
 import org.matsim.core.controler.ControlerListenerManager;
 import org.matsim.core.controler.events.IterationStartsEvent;
 import org.matsim.core.controler.listener.IterationStartsListener;
@@ -34,9 +35,12 @@ class ReplanningContextImpl implements ReplanningContext, IterationStartsListene
 
     private int iteration;
 
+    private final IterationMetrics iterationMetrics;
+
     @Inject
-    ReplanningContextImpl(ControlerListenerManager controlerListenerManager) {
+    ReplanningContextImpl(ControlerListenerManager controlerListenerManager, IterationMetrics iterationMetrics) {
         controlerListenerManager.addControlerListener(this);
+        this.iterationMetrics = iterationMetrics;
     }
 
     @Override
@@ -44,6 +48,11 @@ class ReplanningContextImpl implements ReplanningContext, IterationStartsListene
         return iteration;
     }
 
+    @Override
+    public IterationMetrics getIterationMetrics() {
+        return iterationMetrics;
+    }
+
     @Override
     public void notifyIterationStarts(IterationStartsEvent event) {
         this.iteration = event.getIteration();
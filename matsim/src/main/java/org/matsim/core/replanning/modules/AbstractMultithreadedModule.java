@@ -24,13 +24,19 @@ import org.apache.log4j.Logger;
 import org.matsim.api.core.v01.population.Plan;
 import org.matsim.api.core.v01.replanning.PlanStrategyModule;
 import org.matsim.core.config.groups.GlobalConfigGroup;
+import org.matsim.core.config.groups.GlobalConfigGroup.MultithreadedModuleScheduling;
 import org.matsim.core.population.algorithms.PlanAlgorithm;
 import org.matsim.core.replanning.ReplanningContext;
 import org.matsim.core.utils.misc.Counter;
 
 import java.lang.Thread.UncaughtExceptionHandler;
+import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveAction;
 import java.util.concurrent.atomic.AtomicReference;
 
 /**
@@ -54,11 +60,24 @@ import java.util.concurrent.atomic.AtomicReference;
  * <li> As a consequence of the design, the instances that getPlanAlgoInstance() returns, need to be thread-safe.  kai, dec'12
  * For an example with discussions, see {@link tutorial.programming.multiThreadedPlanStrategy.RunWithMultithreadedModule}
  * </ul>
+ * <p></p>
+ * With {@link MultithreadedModuleScheduling#workStealing}, the plans are not assigned to threads up front. Instead,
+ * they are handled by a {@link ForkJoinPool} that is kept across iterations, where idle threads take over parts of
+ * the work of busy threads. This avoids waiting for a thread that got many expensive plans, but the assignment of
+ * plans to algorithm instances is no longer reproducible, so the algorithm instances must not keep state that
+ * influences the result.
+ * Each worker thread still uses its own algorithm instance. By default, the instances are re-created in every
+ * iteration; modules whose instances do not depend on the {@link ReplanningContext} can override
+ * {@link #isReusingPlanAlgoInstances()} to keep them.
+ * <p></p>
+ * In both modes, the time needed per plan and per thread is logged at the end of the replanning, including plans
+ * that took far longer than the average.
  *
  * @author mrieser
  */
 abstract public class AbstractMultithreadedModule implements PlanStrategyModule {
 	private final int numOfThreads;
+	private final MultithreadedModuleScheduling scheduling;
 
 	private PlanAlgoThread[] algothreads = null;
 	private Thread[] threads = null;
@@ -67,6 +86,12 @@ abstract public class AbstractMultithreadedModule implements PlanStrategyModule
 
 	private int count = 0;
 
+	private List<Plan> plans = null;
+	private PlanAlgorithm[] algos = null;
+	private PlanAlgorithm callerAlgo = null;
+	private ForkJoinPool pool = null;
+	private PlanHandlingStatistics statistics = null;
+
 	private final AtomicReference<Throwable> hadException = new AtomicReference<>(null);
 	private final ExceptionHandler exceptionHandler = new ExceptionHandler(this.hadException);
 
@@ -83,11 +108,26 @@ abstract public class AbstractMultithreadedModule implements PlanStrategyModule
 	abstract public PlanAlgorithm getPlanAlgoInstance();
 
 	public AbstractMultithreadedModule(GlobalConfigGroup globalConfigGroup) {
-		this.numOfThreads = globalConfigGroup.getNumberOfThreads();
+		this(globalConfigGroup.getNumberOfThreads(), globalConfigGroup.getMultithreadedModuleScheduling());
 	}
 
 	public AbstractMultithreadedModule(final int numOfThreads) {
+		this(numOfThreads, MultithreadedModuleScheduling.roundRobin);
+	}
+
+	public AbstractMultithreadedModule(final int numOfThreads, final MultithreadedModuleScheduling scheduling) {
 		this.numOfThreads = numOfThreads;
+		this.scheduling = scheduling;
+	}
+
+	/**
+	 * Only used with {@link MultithreadedModuleScheduling#workStealing}: if <code>true</code>, the instances returned by
+	 * {@link #getPlanAlgoInstance()} are kept for the following iterations. Only override this if the instances do not
+	 * depend on the {@link ReplanningContext} or on anything else that changes from iteration to iteration (e.g. travel
+	 * times).
+	 */
+	protected boolean isReusingPlanAlgoInstances() {
+		return false;
 	}
 	
 	protected void beforePrepareReplanningHook(@SuppressWarnings("unused") ReplanningContext replanningContextTmp) {
@@ -105,6 +145,8 @@ abstract public class AbstractMultithreadedModule implements PlanStrategyModule
 		if (this.numOfThreads == 0) {
 			// it seems, no threads are desired :(
 			this.directAlgo = getPlanAlgoInstance();
+		} else if (this.scheduling == MultithreadedModuleScheduling.workStealing) {
+			initWorkStealing();
 		} else {
 			initThreads();
 		}
@@ -117,7 +159,10 @@ abstract public class AbstractMultithreadedModule implements PlanStrategyModule
 
 	@Override
 	public final void handlePlan(final Plan plan) {
-		if (this.directAlgo == null) {
+		if (this.plans != null) {
+			this.plans.add(plan);
+			this.count++;
+		} else if (this.directAlgo == null) {
 			this.algothreads[this.count % this.numOfThreads].addPlanToThread(plan);
 			this.count++;
 		} else {
@@ -136,8 +181,11 @@ abstract public class AbstractMultithreadedModule implements PlanStrategyModule
 	public final void finishReplanning() {
 		this.beforeFinishReplanningHook();
 		
-		if (this.directAlgo == null) {
+		if (this.plans != null) {
+			runWorkStealing();
+		} else if (this.directAlgo == null) {
 			// only try to start threads if we did not directly work on all the plans
+			long start = System.nanoTime();
 			log.info("[" + this.name + "] starting " + this.threads.length + " threads, handling " + this.count + " plans");
 
 			// start threads
@@ -154,6 +202,7 @@ abstract public class AbstractMultithreadedModule implements PlanStrategyModule
 				throw new RuntimeException(e);
 			}
 			log.info("[" + this.name + "] all " + this.threads.length + " threads finished.");
+			log.info(this.statistics.getSummary(this.name, System.nanoTime() - start));
 			Throwable throwable = this.hadException.get();
 			if (throwable != null) {
 				throw new RuntimeException("Some threads crashed, thus not all plans may have been handled.", throwable);
@@ -162,6 +211,11 @@ abstract public class AbstractMultithreadedModule implements PlanStrategyModule
 		// reset
 		this.algothreads = null;
 		this.threads = null;
+		this.plans = null;
+		this.callerAlgo = null;
+		if (!isReusingPlanAlgoInstances()) {
+			this.algos = null;
+		}
 		this.replanningContext = null;
 		this.count = 0;
 		
@@ -176,6 +230,7 @@ abstract public class AbstractMultithreadedModule implements PlanStrategyModule
 		this.hadException.set(null);
 		this.threads = new Thread[this.numOfThreads];
 		this.algothreads = new PlanAlgoThread[this.numOfThreads];
+		this.statistics = new PlanHandlingStatistics(this.numOfThreads);
 
 		Counter counter = null;
 		// setup threads
@@ -185,7 +240,7 @@ abstract public class AbstractMultithreadedModule implements PlanStrategyModule
 				this.name = algo.getClass().getSimpleName();
 				counter = new Counter("[" + this.name + "] handled plan # ");
 			}
-			PlanAlgoThread algothread = new PlanAlgoThread(algo, counter);
+			PlanAlgoThread algothread = new PlanAlgoThread(algo, counter, this.statistics.getWorker(i));
 			Thread thread = new Thread(algothread, this.name + "." + i);
 			thread.setUncaughtExceptionHandler(this.exceptionHandler);
 			this.threads[i] = thread;
@@ -193,6 +248,54 @@ abstract public class AbstractMultithreadedModule implements PlanStrategyModule
 		}
 	}
 
+	private void initWorkStealing() {
+		if (this.plans != null) {
+			throw new RuntimeException("threads are already initialized");
+		}
+		this.plans = new ArrayList<>();
+		if (this.algos == null) {
+			// create the instances here, as getPlanAlgoInstance() is not necessarily thread-safe
+			this.algos = new PlanAlgorithm[this.numOfThreads];
+			for (int i = 0; i < this.numOfThreads; i++) {
+				this.algos[i] = getPlanAlgoInstance();
+			}
+			this.name = this.algos[0].getClass().getSimpleName();
+		}
+		if (this.pool == null) {
+			this.pool = new ForkJoinPool(this.numOfThreads, new WorkerFactory(this.numOfThreads), null, false);
+		}
+		// the last slot is for the calling thread, which might execute tasks itself while waiting
+		this.statistics = new PlanHandlingStatistics(this.numOfThreads + 1);
+	}
+
+	private void runWorkStealing() {
+		log.info("[" + this.name + "] handling " + this.count + " plans with up to " + this.numOfThreads + " threads (work stealing)");
+		long start = System.nanoTime();
+		Counter counter = new Counter("[" + this.name + "] handled plan # ");
+		int threshold = Math.max(1, this.plans.size() / (this.numOfThreads * 16));
+		try {
+			this.pool.invoke(new PlanRangeTask(0, this.plans.size(), threshold, counter));
+		} catch (RuntimeException | Error e) {
+			log.error("[" + this.name + "] a thread died with exception.", e);
+			throw new RuntimeException("Some threads crashed, thus not all plans may have been handled.", e);
+		}
+		log.info("[" + this.name + "] all plans handled.");
+		log.info(this.statistics.getSummary(this.name, System.nanoTime() - start));
+	}
+
+	private PlanAlgorithm getCallerAlgo() {
+		synchronized (this) {
+			if (this.callerAlgo == null) {
+				this.callerAlgo = getPlanAlgoInstance();
+			}
+			return this.callerAlgo;
+		}
+	}
+
+	/* package (for a test) */ final PlanHandlingStatistics getStatistics() {
+		return this.statistics;
+	}
+
 	/* package (for a test) */ final int getNumOfThreads() {
 		return numOfThreads;
 	}
@@ -218,10 +321,12 @@ abstract public class AbstractMultithreadedModule implements PlanStrategyModule
 		private final PlanAlgorithm planAlgo;
 		private final List<Plan> plans = new LinkedList<>();
 		private final Counter counter;
+		private final PlanHandlingStatistics.Worker statistics;
 
-		public PlanAlgoThread(final PlanAlgorithm algo, final Counter counter) {
+		public PlanAlgoThread(final PlanAlgorithm algo, final Counter counter, final PlanHandlingStatistics.Worker statistics) {
 			this.planAlgo = algo;
 			this.counter = counter;
+			this.statistics = statistics;
 		}
 
 		public void addPlanToThread(final Plan plan) {
@@ -231,9 +336,107 @@ abstract public class AbstractMultithreadedModule implements PlanStrategyModule
 		@Override
 		public void run() {
 			for (Plan plan : this.plans) {
+				long start = System.nanoTime();
 				this.planAlgo.run(plan);
+				this.statistics.record(plan, System.nanoTime() - start);
+				this.counter.incCounter();
+			}
+		}
+	}
+
+	/**
+	 * Handles a range of the collected plans, splitting it as long as it is larger than the threshold, so that idle
+	 * threads can steal the halves.
+	 */
+	private final class PlanRangeTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final int from;
+		private final int to;
+		private final int threshold;
+		private final Counter counter;
+
+		PlanRangeTask(final int from, final int to, final int threshold, final Counter counter) {
+			this.from = from;
+			this.to = to;
+			this.threshold = threshold;
+			this.counter = counter;
+		}
+
+		@Override
+		protected void compute() {
+			if (this.to - this.from > this.threshold) {
+				int middle = (this.from + this.to) >>> 1;
+				invokeAll(new PlanRangeTask(this.from, middle, this.threshold, this.counter),
+						new PlanRangeTask(middle, this.to, this.threshold, this.counter));
+				return;
+			}
+			Thread thread = Thread.currentThread();
+			PlanAlgorithm algo;
+			PlanHandlingStatistics.Worker worker;
+			if (thread instanceof WorkerThread && ((WorkerThread) thread).getPool() == AbstractMultithreadedModule.this.pool) {
+				int index = ((WorkerThread) thread).index;
+				algo = AbstractMultithreadedModule.this.algos[index];
+				worker = AbstractMultithreadedModule.this.statistics.getWorker(index);
+			} else {
+				algo = getCallerAlgo();
+				worker = AbstractMultithreadedModule.this.statistics.getWorker(AbstractMultithreadedModule.this.numOfThreads);
+			}
+			for (int i = this.from; i < this.to; i++) {
+				Plan plan = AbstractMultithreadedModule.this.plans.get(i);
+				long start = System.nanoTime();
+				algo.run(plan);
+				worker.record(plan, System.nanoTime() - start);
 				this.counter.incCounter();
 			}
 		}
 	}
+
+	/**
+	 * Creates at most one thread per algorithm instance, and tells each thread which instance it has to use.
+	 */
+	private final static class WorkerFactory implements ForkJoinPool.ForkJoinWorkerThreadFactory {
+
+		private final int numOfThreads;
+		private final BitSet usedIndices = new BitSet();
+
+		WorkerFactory(final int numOfThreads) {
+			this.numOfThreads = numOfThreads;
+		}
+
+		@Override
+		public synchronized ForkJoinWorkerThread newThread(ForkJoinPool pool) {
+			int index = this.usedIndices.nextClearBit(0);
+			if (index >= this.numOfThreads) {
+				// the pool may ask for additional threads while others are blocked; stay at one thread per instance
+				return null;
+			}
+			this.usedIndices.set(index);
+			return new WorkerThread(pool, this, index);
+		}
+
+		synchronized void release(int index) {
+			this.usedIndices.clear(index);
+		}
+	}
+
+	private final static class WorkerThread extends ForkJoinWorkerThread {
+
+		private final WorkerFactory factory;
+		private final int index;
+
+		WorkerThread(final ForkJoinPool pool, final WorkerFactory factory, final int index) {
+			super(pool);
+			this.factory = factory;
+			this.index = index;
+			setName("PlanAlgoWorker." + index);
+		}
+
+		@Override
+		protected void onTermination(Throwable exception) {
+			this.factory.release(this.index);
+			super.onTermination(exception);
+		}
+	}
 }
@@ -0,0 +1,165 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * PlanHandlingStatistics.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2022 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+
+package org.matsim.core.replanning.modules;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+import org.matsim.api.core.v01.population.Plan;
+
+/**
+ * Collects how long the threads of an {@link AbstractMultithreadedModule} needed to handle their plans. Each thread
+ * writes only to its own {@link Worker}, the summary is created after all threads have finished.
+ */
+final class PlanHandlingStatistics {
+
+	/**
+	 * Plans taking more than this factor times the average handling time are reported as stragglers.
+	 */
+	static final double STRAGGLER_FACTOR = 10.0;
+	private static final int SLOWEST = 5;
+
+	private final Worker[] workers;
+
+	PlanHandlingStatistics(int numberOfWorkers) {
+		this.workers = new Worker[numberOfWorkers];
+		for (int i = 0; i < numberOfWorkers; i++) {
+			this.workers[i] = new Worker();
+		}
+	}
+
+	Worker getWorker(int index) {
+		return this.workers[index];
+	}
+
+	int getNumberOfPlans() {
+		int plans = 0;
+		for (Worker worker : this.workers) {
+			plans += worker.plans;
+		}
+		return plans;
+	}
+
+	int getNumberOfStragglers() {
+		int plans = getNumberOfPlans();
+		if (plans == 0) {
+			return 0;
+		}
+		long total = 0;
+		for (Worker worker : this.workers) {
+			total += worker.busyNanos;
+		}
+		double threshold = STRAGGLER_FACTOR * total / plans;
+		int stragglers = 0;
+		for (Worker worker : this.workers) {
+			for (int i = 0; i < worker.plans; i++) {
+				if (worker.times[i] > threshold) {
+					stragglers++;
+				}
+			}
+		}
+		return stragglers;
+	}
+
+	String getSummary(String name, long wallNanos) {
+		int plans = getNumberOfPlans();
+		if (plans == 0) {
+			return "[" + name + "] no plans handled.";
+		}
+		long total = 0;
+		long maxBusy = 0;
+		long minBusy = Long.MAX_VALUE;
+		int activeWorkers = 0;
+		List<Slow> slowest = new ArrayList<>();
+		for (Worker worker : this.workers) {
+			if (worker.plans == 0 && worker.busyNanos == 0) {
+				continue;
+			}
+			activeWorkers++;
+			total += worker.busyNanos;
+			maxBusy = Math.max(maxBusy, worker.busyNanos);
+			minBusy = Math.min(minBusy, worker.busyNanos);
+			for (int i = 0; i < SLOWEST; i++) {
+				if (worker.slowestPlans[i] != null) {
+					slowest.add(new Slow(worker.slowestPlans[i], worker.slowestTimes[i]));
+				}
+			}
+		}
+		slowest.sort((a, b) -> Long.compare(b.nanos, a.nanos));
+
+		StringBuilder sb = new StringBuilder();
+		sb.append(String.format(Locale.ROOT, "[%s] handled %d plans in %.2fs with %d threads. Plan handling time: mean %.2fms, max %.2fms. "
+						+ "Thread busy time: min %.2fs, max %.2fs. %d stragglers (more than %.0f times the mean).",
+				name, plans, wallNanos / 1e9, activeWorkers, total / 1e6 / plans, slowest.isEmpty() ? 0.0 : slowest.get(0).nanos / 1e6,
+				minBusy / 1e9, maxBusy / 1e9, getNumberOfStragglers(), STRAGGLER_FACTOR));
+		sb.append(" Slowest plans:");
+		for (int i = 0; i < Math.min(SLOWEST, slowest.size()); i++) {
+			Plan plan = slowest.get(i).plan;
+			sb.append(String.format(Locale.ROOT, " %s (%.2fms)", plan.getPerson() == null ? "?" : plan.getPerson().getId(), slowest.get(i).nanos / 1e6));
+		}
+		return sb.toString();
+	}
+
+	static final class Worker {
+		private long busyNanos = 0;
+		private int plans = 0;
+		private long[] times = new long[256];
+		private final Plan[] slowestPlans = new Plan[SLOWEST];
+		private final long[] slowestTimes = new long[SLOWEST];
+
+		void record(Plan plan, long nanos) {
+			if (this.plans == this.times.length) {
+				this.times = Arrays.copyOf(this.times, this.times.length * 2);
+			}
+			this.times[this.plans++] = nanos;
+			this.busyNanos += nanos;
+
+			if (plan == null) {
+				return;
+			}
+			// keep the slowest plans, sorted descending
+			int pos = SLOWEST;
+			while (pos > 0 && (this.slowestPlans[pos - 1] == null || this.slowestTimes[pos - 1] < nanos)) {
+				pos--;
+			}
+			if (pos < SLOWEST) {
+				System.arraycopy(this.slowestPlans, pos, this.slowestPlans, pos + 1, SLOWEST - pos - 1);
+				System.arraycopy(this.slowestTimes, pos, this.slowestTimes, pos + 1, SLOWEST - pos - 1);
+				this.slowestPlans[pos] = plan;
+				this.slowestTimes[pos] = nanos;
+			}
+		}
+	}
+
+	private static final class Slow {
+		final Plan plan;
+		final long nanos;
+
+		Slow(Plan plan, long nanos) {
+			this.plan = plan;
+			this.nanos = nanos;
+		}
+	}
+
+}
@@ -31,6 +31,7 @@ import javax.inject.Inject;
 import javax.inject.Provider;
 
 import org.apache.log4j.Logger;
+import org.matsim.analysis.IterationMetrics;
 import org.matsim.api.core.v01.population.Activity;
 import org.matsim.api.core.v01.population.Leg;
 import org.matsim.api.core.v01.population.Person;
@@ -68,6 +69,8 @@ public final class TripRouter implements MatsimExtensionPoint {
 	// (I need the config in the PlanRouter to figure out activity end times. And since the PlanRouter is not
 	// injected, I cannot get it there directly.  kai, oct'17)
 
+	private IterationMetrics iterationMetrics = null;
+
 	public static final class Builder {
 		private final Config config;
 		private FallbackRoutingModule fallbackRoutingModule = new FallbackRoutingModuleDefaultImpl() ;
@@ -109,6 +112,11 @@ public final class TripRouter implements MatsimExtensionPoint {
 		this.config = config ;
 	}
 
+	@com.google.inject.Inject(optional = true)
+	void setIterationMetrics(IterationMetrics iterationMetrics) {
+		this.iterationMetrics = iterationMetrics;
+	}
+
 	// /////////////////////////////////////////////////////////////////////////
 	// constructors
 	// /////////////////////////////////////////////////////////////////////////
@@ -170,12 +178,17 @@ public final class TripRouter implements MatsimExtensionPoint {
 		RoutingModule module = routingModules.get( mainMode );
 
 		if (module != null) {
+			final boolean collectMetrics = this.iterationMetrics != null && this.iterationMetrics.isEnabled();
+			final long startTime = collectMetrics ? System.nanoTime() : 0;
 			List<? extends PlanElement> trip =
 					module.calcRoute(
 						fromFacility,
 						toFacility,
 						departureTime,
 						person);
+			if (collectMetrics) {
+				this.iterationMetrics.addTime("routing." + mainMode, System.nanoTime() - startTime);
+			}
 
 			if ( trip == null ) {
 				trip = fallbackRoutingModule.calcRoute( fromFacility, toFacility, departureTime, person ) ;
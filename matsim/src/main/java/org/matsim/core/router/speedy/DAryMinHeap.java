@@ -110,6 +110,13 @@ class DAryMinHeap {
 		return this.heap[0];
 	}
 
+	double peekCost() {
+		if (this.size == 0) {
+			throw new NoSuchElementException("heap is empty");
+		}
+		return this.cost[0];
+	}
+
 	public boolean remove(int node) {
 		int i = this.pos[node];
 		if (i < 0) {
@@ -0,0 +1,259 @@
+package org.matsim.core.router.speedy;
+
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.core.router.util.LeastCostPathCalculator.Path;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A least-cost path tree towards a single destination node which can be repaired after the costs of some links
+ * changed, instead of being calculated again from scratch.
+ *
+ * The tree stores for every node the cost to reach the destination and the first link of that path. The link costs
+ * are given as array indexed by link index, so they do not depend on the time of day. When link costs change, only the
+ * nodes whose path to the destination uses a changed link are invalidated. These nodes, and the nodes which can use a
+ * link that became cheaper, are settled again with Dijkstra's algorithm, starting from the still valid part of the
+ * tree (see Ramalingam and Reps, An incremental algorithm for a generalization of the shortest-path problem, 1996).
+ * Finding the invalidated nodes requires one linear pass over the nodes, which is still much cheaper than the
+ * priority queue operations of a full calculation.
+ *
+ * This class is not thread-safe. The temporary data of the calculation is kept in a {@link Workspace}, which can be
+ * shared by all trees used by the same thread.
+ */
+public class IncrementalLeastCostPathTree {
+
+	private static final byte UNKNOWN = 0;
+	private static final byte VALID = 1;
+	private static final byte INVALID = 2;
+
+	private final SpeedyGraph graph;
+	private final int destinationNode;
+	private final double[] cost;
+	private final int[] nextLink;
+	private final SpeedyGraph.LinkIterator inLI;
+	private final SpeedyGraph.LinkIterator outLI;
+
+	public IncrementalLeastCostPathTree(SpeedyGraph graph, int destinationNode) {
+		this.graph = graph;
+		this.destinationNode = destinationNode;
+		this.cost = new double[graph.nodeCount];
+		this.nextLink = new int[graph.nodeCount];
+		this.inLI = graph.getInLinkIterator();
+		this.outLI = graph.getOutLinkIterator();
+		Arrays.fill(this.cost, Double.POSITIVE_INFINITY);
+		Arrays.fill(this.nextLink, -1);
+	}
+
+	/**
+	 * Calculates the tree from scratch.
+	 */
+	public void calculate(double[] linkCosts, Workspace workspace) {
+		Arrays.fill(this.cost, Double.POSITIVE_INFINITY);
+		Arrays.fill(this.nextLink, -1);
+		workspace.clear();
+		this.cost[this.destinationNode] = 0;
+		workspace.pq.insert(this.destinationNode, 0);
+		workspace.inHeap[this.destinationNode] = true;
+		settle(linkCosts, workspace);
+	}
+
+	/**
+	 * Updates the tree after the costs of the given links changed. The result is the same as when calculating the tree
+	 * with the new link costs from scratch (up to ties between paths of equal cost).
+	 *
+	 * @param linkCosts the new costs of all links
+	 * @param changedLinks the indices of the links whose costs changed since the last calculation or repair, may
+	 * 		contain duplicates
+	 * @return the number of nodes whose path to the destination had to be invalidated
+	 */
+	public int repair(double[] linkCosts, int[] changedLinks, Workspace workspace) {
+		workspace.clear();
+		byte[] state = workspace.state;
+
+		// a path becomes invalid if one of its links changed, as its cost might have increased
+		boolean hasInvalidNodes = false;
+		for (int link : changedLinks) {
+			int fromNode = this.graph.getFromNodeIndex(link);
+			if (this.nextLink[fromNode] == link) {
+				state[fromNode] = INVALID;
+				hasInvalidNodes = true;
+			}
+		}
+
+		int invalidCount = 0;
+		if (hasInvalidNodes) {
+			invalidCount = invalidateSubtrees(state, workspace.stack);
+			// settle the invalid nodes again, starting from their valid neighbours
+			for (int node = 0; node < state.length; node++) {
+				if (state[node] == INVALID) {
+					double bestCost = Double.POSITIVE_INFINITY;
+					int bestLink = -1;
+					this.outLI.reset(node);
+					while (this.outLI.next()) {
+						int toNode = this.outLI.getToNodeIndex();
+						if (state[toNode] != INVALID) {
+							int link = this.outLI.getLinkIndex();
+							double newCost = this.cost[toNode] + linkCosts[link];
+							if (newCost < bestCost) {
+								bestCost = newCost;
+								bestLink = link;
+							}
+						}
+					}
+					if (bestLink >= 0) {
+						update(node, bestCost, bestLink, workspace);
+					}
+				}
+			}
+		}
+
+		// valid nodes might profit from links which became cheaper
+		for (int link : changedLinks) {
+			int fromNode = this.graph.getFromNodeIndex(link);
+			if (state[fromNode] != INVALID) {
+				double newCost = this.cost[this.graph.getToNodeIndex(link)] + linkCosts[link];
+				if (newCost < this.cost[fromNode]) {
+					update(fromNode, newCost, link, workspace);
+				}
+			}
+		}
+
+		settle(linkCosts, workspace);
+
+		if (hasInvalidNodes) {
+			Arrays.fill(state, UNKNOWN);
+		}
+		return invalidCount;
+	}
+
+	/**
+	 * Marks all nodes as invalid whose path to the destination passes an already invalid node, and resets their costs.
+	 */
+	private int invalidateSubtrees(byte[] state, int[] stack) {
+		for (int node = 0; node < state.length; node++) {
+			int current = node;
+			int depth = 0;
+			while (state[current] == UNKNOWN) {
+				int link = this.nextLink[current];
+				if (link < 0) {
+					// the destination or an unreachable node
+					state[current] = VALID;
+					break;
+				}
+				stack[depth++] = current;
+				current = this.graph.getToNodeIndex(link);
+			}
+			byte result = state[current];
+			while (depth > 0) {
+				state[stack[--depth]] = result;
+			}
+		}
+		int invalidCount = 0;
+		for (int node = 0; node < state.length; node++) {
+			if (state[node] == INVALID) {
+				this.cost[node] = Double.POSITIVE_INFINITY;
+				this.nextLink[node] = -1;
+				invalidCount++;
+			}
+		}
+		return invalidCount;
+	}
+
+	private void settle(double[] linkCosts, Workspace workspace) {
+		DAryMinHeap pq = workspace.pq;
+		while (!pq.isEmpty()) {
+			int node = pq.poll();
+			workspace.inHeap[node] = false;
+			double nodeCost = this.cost[node];
+			this.inLI.reset(node);
+			while (this.inLI.next()) {
+				int fromNode = this.inLI.getFromNodeIndex();
+				int link = this.inLI.getLinkIndex();
+				double newCost = nodeCost + linkCosts[link];
+				if (newCost < this.cost[fromNode]) {
+					update(fromNode, newCost, link, workspace);
+				}
+			}
+		}
+	}
+
+	private void update(int node, double newCost, int link, Workspace workspace) {
+		this.cost[node] = newCost;
+		this.nextLink[node] = link;
+		if (workspace.inHeap[node]) {
+			workspace.pq.decreaseKey(node, newCost);
+		} else {
+			workspace.pq.insert(node, newCost);
+			workspace.inHeap[node] = true;
+		}
+	}
+
+	public int getDestinationNode() {
+		return this.destinationNode;
+	}
+
+	public double getCost(int nodeIndex) {
+		return this.cost[nodeIndex];
+	}
+
+	/**
+	 * @return the index of the first link on the least-cost path from the given node to the destination, or -1 if the
+	 * 		node is the destination or cannot reach it
+	 */
+	public int getNextLink(int nodeIndex) {
+		return this.nextLink[nodeIndex];
+	}
+
+	/**
+	 * @param linkTravelTimes the travel times of all links, used to calculate the travel time of the path
+	 * @return the least-cost path from the given node to the destination, or <code>null</code> if there is none
+	 */
+	public Path getPath(int fromNodeIndex, double[] linkTravelTimes) {
+		if (Double.isInfinite(this.cost[fromNodeIndex])) {
+			return null;
+		}
+		List<Node> nodes = new ArrayList<>();
+		List<Link> links = new ArrayList<>();
+		double travelTime = 0;
+		int node = fromNodeIndex;
+		nodes.add(this.graph.getNode(node));
+		while (node != this.destinationNode) {
+			int link = this.nextLink[node];
+			links.add(this.graph.getLink(link));
+			travelTime += linkTravelTimes[link];
+			node = this.graph.getToNodeIndex(link);
+			nodes.add(this.graph.getNode(node));
+		}
+		return new Path(nodes, links, travelTime, this.cost[fromNodeIndex]);
+	}
+
+	/**
+	 * Temporary data used while calculating or repairing a tree.
+	 */
+	public static final class Workspace {
+
+		private final DAryMinHeap pq;
+		private final boolean[] inHeap;
+		private final byte[] state;
+		private final int[] stack;
+
+		public Workspace(SpeedyGraph graph) {
+			this.pq = new DAryMinHeap(graph.nodeCount, 6);
+			this.inHeap = new boolean[graph.nodeCount];
+			this.state = new byte[graph.nodeCount];
+			this.stack = new int[graph.nodeCount];
+		}
+
+		private void clear() {
+			// inHeap and state are reset at the end of every calculation, avoiding a pass over all nodes
+			if (!this.pq.isEmpty()) {
+				this.pq.clear();
+				Arrays.fill(this.inHeap, false);
+			}
+		}
+	}
+
+}
@@ -0,0 +1,278 @@
+package org.matsim.core.router.speedy;
+
+import org.apache.log4j.LogManager;
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.router.util.LeastCostPathCalculator;
+import org.matsim.core.router.util.TravelDisutility;
+import org.matsim.core.router.util.TravelTime;
+import org.matsim.vehicles.Vehicle;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A least cost path calculator based on (customizable) contraction hierarchies.
+ *
+ * A query runs a Dijkstra search upwards from the start node and one upwards in the reversed graph from the end node.
+ * Both searches only relax edges to higher ranked nodes, so they settle only a small number of nodes. The shortcuts of
+ * the best path are then unpacked into the original links.
+ *
+ * The edge weights are those of the time slice of the departure time (see {@link SpeedyCHCustomization}), so the
+ * time-dependency of the travel disutility is only approximated: a path is optimal for the travel disutilities at the
+ * departure time. Person- and vehicle-specific travel disutilities are not taken into account when searching the
+ * path. The travel time and costs of the returned path are calculated link by link with the actual times, person and
+ * vehicle.
+ *
+ * This implementation is not thread-safe. In the case of multi-threading, every thread should use
+ * a separate instance. (But the used {@link SpeedyCHCustomization} is thread-safe and can be shared by multiple
+ * instances).
+ */
+public class SpeedyCH implements LeastCostPathCalculator {
+
+	private final static Logger LOG = LogManager.getLogger(SpeedyCH.class);
+
+	private final SpeedyGraph graph;
+	private final SpeedyCHData ch;
+	private final SpeedyCHCustomization customization;
+	private final TravelTime tt;
+	private final TravelDisutility td;
+
+	private int currentIteration = Integer.MIN_VALUE;
+	private final Search forward;
+	private final Search backward;
+
+	SpeedyCH(SpeedyCHCustomization customization, TravelTime tt, TravelDisutility td) {
+		this.ch = customization.chData;
+		this.graph = this.ch.graph;
+		this.customization = customization;
+		this.tt = tt;
+		this.td = td;
+		this.forward = new Search(this.graph.nodeCount, SpeedyCHData.UP);
+		this.backward = new Search(this.graph.nodeCount, SpeedyCHData.DOWN);
+	}
+
+	@Override
+	public Path calcLeastCostPath(Node startNode, Node endNode, double startTime, Person person, Vehicle vehicle) {
+		this.currentIteration++;
+		if (this.currentIteration == Integer.MAX_VALUE) {
+			// reset iteration as we overflow
+			this.forward.resetIterations();
+			this.backward.resetIterations();
+			this.currentIteration = Integer.MIN_VALUE;
+		}
+		int startNodeIndex = startNode.getId().index();
+		int endNodeIndex = endNode.getId().index();
+		int timeSlice = this.customization.getTimeSlice(startTime);
+		float[] w = this.customization.getWeights(timeSlice);
+
+		this.forward.init(startNodeIndex);
+		this.backward.init(endNodeIndex);
+
+		double best = Double.POSITIVE_INFINITY;
+		int meetingNode = -1;
+		if (startNodeIndex == endNodeIndex) {
+			best = 0;
+			meetingNode = startNodeIndex;
+		}
+		boolean forwardDone = false;
+		boolean backwardDone = false;
+		while (!(forwardDone && backwardDone)) {
+			if (!forwardDone) {
+				if (this.forward.pq.isEmpty() || this.forward.pq.peekCost() >= best) {
+					forwardDone = true;
+				} else {
+					int node = this.forward.settleNext(w);
+					if (this.backward.isReached(node)) {
+						double cost = this.forward.getCost(node) + this.backward.getCost(node);
+						if (cost < best) {
+							best = cost;
+							meetingNode = node;
+						}
+					}
+				}
+			}
+			if (!backwardDone) {
+				if (this.backward.pq.isEmpty() || this.backward.pq.peekCost() >= best) {
+					backwardDone = true;
+				} else {
+					int node = this.backward.settleNext(w);
+					if (this.forward.isReached(node)) {
+						double cost = this.forward.getCost(node) + this.backward.getCost(node);
+						if (cost < best) {
+							best = cost;
+							meetingNode = node;
+						}
+					}
+				}
+			}
+		}
+
+		if (meetingNode >= 0) {
+			return constructPath(meetingNode, w, this.customization.getLinks(timeSlice), startTime, person, vehicle);
+		}
+		LOG.warn("No route was found from node " + startNode.getId() + " to node " + endNode.getId() + ". Some possible reasons:");
+		LOG.warn("  * Network is not connected.  Run NetworkCleaner().") ;
+		LOG.warn("  * Network for considered mode does not even exist.  Modes need to be entered for each link in network.xml.");
+		LOG.warn("  * Network for considered mode is not connected to starting or ending point of route.  Setting insertingAccessEgressWalk to true may help.");
+		LOG.warn("This will now return null, but it may fail later with a NullPointerException.");
+		return null;
+	}
+
+	private Path constructPath(int meetingNode, float[] w, int[] l, double startTime, Person person, Vehicle vehicle) {
+		List<Integer> linkIndices = new ArrayList<>();
+
+		// forward part: collect the upward edges from the meeting node back to the start node
+		List<Integer> forwardEdges = new ArrayList<>();
+		int node = meetingNode;
+		while (this.forward.comingFrom[node] >= 0) {
+			forwardEdges.add(this.forward.usedEdge[node]);
+			node = this.forward.comingFrom[node];
+		}
+		for (int i = forwardEdges.size() - 1; i >= 0; i--) {
+			unpack(2 * forwardEdges.get(i) + SpeedyCHData.UP, w, l, linkIndices);
+		}
+		// backward part: the downward edges from the meeting node to the end node
+		node = meetingNode;
+		while (this.backward.comingFrom[node] >= 0) {
+			unpack(2 * this.backward.usedEdge[node] + SpeedyCHData.DOWN, w, l, linkIndices);
+			node = this.backward.comingFrom[node];
+		}
+
+		List<Node> nodes = new ArrayList<>(linkIndices.size() + 1);
+		List<Link> links = new ArrayList<>(linkIndices.size());
+		double currentTime = startTime;
+		double travelCost = 0;
+		if (linkIndices.isEmpty()) {
+			nodes.add(this.graph.getNode(meetingNode));
+		} else {
+			nodes.add(this.graph.getLink(linkIndices.get(0)).getFromNode());
+		}
+		for (int linkIndex : linkIndices) {
+			Link link = this.graph.getLink(linkIndex);
+			travelCost += this.td.getLinkTravelDisutility(link, currentTime, person, vehicle);
+			currentTime += this.tt.getLinkTravelTime(link, currentTime, person, vehicle);
+			links.add(link);
+			nodes.add(link.getToNode());
+		}
+		return new Path(nodes, links, currentTime - startTime, travelCost);
+	}
+
+	/**
+	 * Replaces an edge direction by the original links it stands for. The customization remembers if the weight of
+	 * the edge stems from an original link. Otherwise, it is the weight of its cheapest lower triangle, which is
+	 * searched again and unpacked recursively. Only the customized weights are used, so no locks are required.
+	 */
+	private void unpack(int edgeDir, float[] w, int[] l, List<Integer> linkIndices) {
+		int link = l[edgeDir];
+		if (link >= 0) {
+			linkIndices.add(link);
+			return;
+		}
+
+		int edge = edgeDir >> 1;
+		boolean up = (edgeDir & 1) == SpeedyCHData.UP;
+		int lowerNode = this.ch.getLowerNode(edge);
+		int upperNode = this.ch.getUpNode(edge);
+		int bestFirst = -1;
+		int bestSecond = -1;
+		float bestTriangle = Float.POSITIVE_INFINITY;
+		for (int i = this.ch.getDownFirst(lowerNode), n = this.ch.getDownEnd(lowerNode); i < n; i++) {
+			int middle = this.ch.getDownNode(i);
+			int lowerEdge = this.ch.getDownEdge(i); // middle -> lowerNode
+			int upperEdge = this.ch.getEdge(middle, upperNode);
+			if (upperEdge < 0) {
+				continue;
+			}
+			int first = up ? 2 * lowerEdge + SpeedyCHData.DOWN : 2 * upperEdge + SpeedyCHData.DOWN;
+			int second = up ? 2 * upperEdge + SpeedyCHData.UP : 2 * lowerEdge + SpeedyCHData.UP;
+			float cost = w[first] + w[second];
+			if (cost < bestTriangle) {
+				bestTriangle = cost;
+				bestFirst = first;
+				bestSecond = second;
+			}
+		}
+		if (bestFirst < 0) {
+			throw new RuntimeException("Cannot unpack edge " + edge + " of the contraction hierarchy.");
+		}
+		unpack(bestFirst, w, l, linkIndices);
+		unpack(bestSecond, w, l, linkIndices);
+	}
+
+	/**
+	 * One direction of the bidirectional search. Both directions only go upwards in the hierarchy, the forward search
+	 * uses the upward weights and the backward search the downward weights.
+	 */
+	private final class Search {
+		private final int direction;
+		private final double[] cost;
+		private final int[] iterationIds;
+		private final int[] comingFrom;
+		private final int[] usedEdge;
+		private final DAryMinHeap pq;
+
+		Search(int nodeCount, int direction) {
+			this.direction = direction;
+			this.cost = new double[nodeCount];
+			this.iterationIds = new int[nodeCount];
+			this.comingFrom = new int[nodeCount];
+			this.usedEdge = new int[nodeCount];
+			this.pq = new DAryMinHeap(nodeCount, 6);
+			resetIterations();
+		}
+
+		void resetIterations() {
+			Arrays.fill(this.iterationIds, Integer.MIN_VALUE);
+		}
+
+		void init(int node) {
+			this.pq.clear();
+			this.cost[node] = 0;
+			this.comingFrom[node] = -1;
+			this.iterationIds[node] = SpeedyCH.this.currentIteration;
+			this.pq.insert(node, 0);
+		}
+
+		boolean isReached(int node) {
+			return this.iterationIds[node] == SpeedyCH.this.currentIteration;
+		}
+
+		double getCost(int node) {
+			return this.cost[node];
+		}
+
+		int settleNext(float[] w) {
+			int node = this.pq.poll();
+			double nodeCost = this.cost[node];
+			SpeedyCHData ch = SpeedyCH.this.ch;
+			for (int edge = ch.getUpFirst(node), n = ch.getUpEnd(node); edge < n; edge++) {
+				float weight = w[2 * edge + this.direction];
+				if (weight == Float.POSITIVE_INFINITY) {
+					continue;
+				}
+				int toNode = ch.getUpNode(edge);
+				double newCost = nodeCost + weight;
+				if (isReached(toNode)) {
+					if (newCost < this.cost[toNode]) {
+						this.cost[toNode] = newCost;
+						this.comingFrom[toNode] = node;
+						this.usedEdge[toNode] = edge;
+						this.pq.decreaseKey(toNode, newCost);
+					}
+				} else {
+					this.iterationIds[toNode] = SpeedyCH.this.currentIteration;
+					this.cost[toNode] = newCost;
+					this.comingFrom[toNode] = node;
+					this.usedEdge[toNode] = edge;
+					this.pq.insert(toNode, newCost);
+				}
+			}
+			return node;
+		}
+	}
+
+}
@@ -0,0 +1,159 @@
+package org.matsim.core.router.speedy;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.population.PopulationUtils;
+import org.matsim.core.router.util.TravelDisutility;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * The weights of the edges of a {@link SpeedyCHData} for a given {@link TravelDisutility}.
+ *
+ * To support time-dependent travel disutilities, the day is split into time slices, and the weights are calculated
+ * for each slice with the travel disutility at the middle of the slice. A query uses the weights of the slice its
+ * departure time falls into.
+ *
+ * The weights of an edge only depend on the edges to lower ranked nodes, so all nodes of the same level are
+ * customized in parallel. Calculating the weights is much faster than the contraction itself, which allows to keep
+ * the {@link SpeedyCHData} when only the travel times change.
+ *
+ * Travel disutilities are evaluated for a placeholder person, as some implementations require one. Person-specific
+ * components, like the routing randomness of {@link org.matsim.core.router.costcalculators.RandomizingTimeDistanceTravelDisutility},
+ * are thus the same for all queries using this customization.
+ *
+ * For every weight, the customization also remembers whether it stems from an original link or from a shortcut, so
+ * paths can be unpacked without evaluating the travel disutility again.
+ *
+ * This class is thread-safe and can safely be used by multiple threads.
+ */
+class SpeedyCHCustomization {
+
+	private final static Logger LOG = LogManager.getLogger(SpeedyCHCustomization.class);
+
+	final SpeedyCHData chData;
+	private final TravelDisutility travelCosts;
+	private final Person person;
+	private final double timeSliceSize;
+	private final float[][] weights; // per time slice, 2 values per edge: upwards, downwards
+	private final int[][] links; // per time slice and edge direction, the original link of the weight, or -1 for a shortcut
+
+	SpeedyCHCustomization(SpeedyCHData chData, TravelDisutility travelCosts, double timeSliceSize, int timeSliceCount) {
+		this.chData = chData;
+		this.travelCosts = travelCosts;
+		this.person = PopulationUtils.getFactory().createPerson(Id.createPersonId("speedyCH"));
+		this.timeSliceSize = timeSliceSize;
+		this.weights = new float[timeSliceCount][];
+		this.links = new int[timeSliceCount][];
+
+		LOG.info("customizing contraction hierarchy for " + timeSliceCount + " time slices...");
+		for (int slice = 0; slice < timeSliceCount; slice++) {
+			this.weights[slice] = new float[2 * chData.edgeCount];
+			this.links[slice] = new int[2 * chData.edgeCount];
+			customize(getSliceTime(slice), this.weights[slice], this.links[slice]);
+		}
+		LOG.info("customization done.");
+	}
+
+	private void customize(double time, float[] w, int[] l) {
+		Arrays.fill(w, Float.POSITIVE_INFINITY);
+		Arrays.fill(l, -1);
+
+		// the travel disutility is not necessarily thread-safe, so the links are evaluated sequentially
+		for (int edgeDir = 0; edgeDir < w.length; edgeDir++) {
+			for (int i = this.chData.getLinkFirst(edgeDir), n = this.chData.getLinkEnd(edgeDir); i < n; i++) {
+				int linkIdx = this.chData.getLink(i);
+				float cost = getLinkCost(linkIdx, time);
+				if (cost < w[edgeDir]) {
+					w[edgeDir] = cost;
+					l[edgeDir] = linkIdx;
+				}
+			}
+		}
+
+		for (int level = 0, n = this.chData.getLevelCount(); level < n; level++) {
+			IntStream.range(this.chData.getLevelFirst(level), this.chData.getLevelEnd(level))
+					.parallel()
+					.forEach(i -> customizeNode(this.chData.getLevelNode(i), w, l));
+		}
+	}
+
+	/**
+	 * Updates the weights of all upward edges of the node with the lower triangles, i.e. with the paths over lower
+	 * ranked nodes which are connected to both ends of the edge. Only writes the weights of the node's own edges.
+	 */
+	private void customizeNode(int node, float[] w, int[] l) {
+		SpeedyCHData ch = this.chData;
+		for (int i = ch.getDownFirst(node), n = ch.getDownEnd(node); i < n; i++) {
+			int lower = ch.getDownNode(i);
+			int lowerEdge = ch.getDownEdge(i); // lower -> node
+			float toLower = w[2 * lowerEdge + SpeedyCHData.DOWN];
+			float fromLower = w[2 * lowerEdge + SpeedyCHData.UP];
+			// the upward edges of both nodes are sorted by rank, so they can be merged
+			int j = ch.getUpFirst(node);
+			int jEnd = ch.getUpEnd(node);
+			int k = ch.getUpFirst(lower);
+			int kEnd = ch.getUpEnd(lower);
+			while (j < jEnd && k < kEnd) {
+				int rankJ = ch.getRank(ch.getUpNode(j));
+				int rankK = ch.getRank(ch.getUpNode(k));
+				if (rankJ < rankK) {
+					j++;
+				} else if (rankJ > rankK) {
+					k++;
+				} else {
+					// triangle node - lower - upper
+					float up = toLower + w[2 * k + SpeedyCHData.UP];
+					if (up < w[2 * j + SpeedyCHData.UP]) {
+						w[2 * j + SpeedyCHData.UP] = up;
+						l[2 * j + SpeedyCHData.UP] = -1;
+					}
+					float down = w[2 * k + SpeedyCHData.DOWN] + fromLower;
+					if (down < w[2 * j + SpeedyCHData.DOWN]) {
+						w[2 * j + SpeedyCHData.DOWN] = down;
+						l[2 * j + SpeedyCHData.DOWN] = -1;
+					}
+					j++;
+					k++;
+				}
+			}
+		}
+	}
+
+	private float getLinkCost(int linkIdx, double time) {
+		Link link = this.chData.graph.getLink(linkIdx);
+		// only used during customization, which might run concurrently for different travel times
+		synchronized (this.travelCosts) {
+			return (float) this.travelCosts.getLinkTravelDisutility(link, time, this.person, null);
+		}
+	}
+
+	int getTimeSlice(double time) {
+		int slice = (int) (time / this.timeSliceSize);
+		if (slice < 0) {
+			return 0;
+		}
+		return Math.min(slice, this.weights.length - 1);
+	}
+
+	double getSliceTime(int slice) {
+		return (slice + 0.5) * this.timeSliceSize;
+	}
+
+	float[] getWeights(int slice) {
+		return this.weights[slice];
+	}
+
+	/**
+	 * @return for every edge direction, the index of the original link its weight stems from, or -1 if the weight
+	 * 		is the one of a shortcut over a lower ranked node.
+	 */
+	int[] getLinks(int slice) {
+		return this.links[slice];
+	}
+
+}
@@ -0,0 +1,439 @@
+package org.matsim.core.router.speedy;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.matsim.core.router.speedy.SpeedyGraph.LinkIterator;
+
+import java.util.Arrays;
+import java.util.PriorityQueue;
+
+/**
+ * Metric-independent preprocessing for contraction hierarchies, see {@link SpeedyCH}.
+ *
+ * The nodes are contracted in the order of their (current) edge difference, ignoring link directions and travel costs.
+ * When a node is contracted, all its not yet contracted neighbours are connected with each other. As no witness
+ * searches are done, the resulting hierarchy is valid for every travel disutility, and only the weights of the edges
+ * need to be recalculated when the travel times change, see {@link SpeedyCHCustomization}. This approach is known as
+ * <em>Customizable Contraction Hierarchies</em> (Dibbelt, Strasser, Wagner, 2016).
+ *
+ * Without witness searches, the number of edges depends on the quality of the contraction order only. The edge
+ * difference keeps it low for typical road networks, but it might still grow much faster than the number of links for
+ * large networks. The number of edges is thus limited (see {@link #DEFAULT_MAX_EDGES_PER_LINK}), and the contraction
+ * fails if the limit is exceeded. For such networks, {@link SpeedyALT} should be used instead.
+ *
+ * Every edge connects a node with a neighbour of higher rank and has two directions: upwards (from the lower to the
+ * higher ranked node) and downwards. The edges of a node are stored next to each other, sorted by the rank of the
+ * upper node.
+ *
+ * This class is thread-safe and can safely be used by multiple threads.
+ */
+class SpeedyCHData {
+
+	private final static Logger LOG = LogManager.getLogger(SpeedyCHData.class);
+
+	static final int UP = 0;
+	static final int DOWN = 1;
+
+	/**
+	 * The default limit of the number of edges of the hierarchy, relative to the number of links of the network. The
+	 * customization stores two weights and two link indices for every edge and time slice, so the memory consumption
+	 * is dominated by the number of edges.
+	 */
+	static final double DEFAULT_MAX_EDGES_PER_LINK = 10.0;
+	/**
+	 * Small networks are always allowed to have this number of edges, as their relative fill-in can be high without
+	 * being a problem.
+	 */
+	private static final long MIN_MAX_EDGES = 10_000L;
+
+	final SpeedyGraph graph;
+	final int edgeCount;
+	private final int[] rank;
+	// upward edges: for each node the range [upFirst[node], upFirst[node + 1]) in upNode
+	private final int[] upFirst;
+	private final int[] upNode;
+	// downward adjacency: for each node the lower ranked neighbours and the connecting edge
+	private final int[] downFirst;
+	private final int[] downNode;
+	private final int[] downEdge;
+	// original links for each edge direction (2 * edge + direction)
+	private final int[] linkFirst;
+	private final int[] links;
+	// nodes grouped by level. Nodes of the same level do not depend on each other during customization.
+	private final int[] levelFirst;
+	private final int[] levelNodes;
+
+	SpeedyCHData(SpeedyGraph graph) {
+		this(graph, DEFAULT_MAX_EDGES_PER_LINK);
+	}
+
+	/**
+	 * @param maxEdgesPerLink the maximum number of edges of the hierarchy, relative to the number of links. Networks
+	 * 		for which the contraction results in more edges are rejected.
+	 */
+	SpeedyCHData(SpeedyGraph graph, double maxEdgesPerLink) {
+		this.graph = graph;
+		int nodeCount = graph.nodeCount;
+		long maxEdgeCount = Math.max(MIN_MAX_EDGES, (long) (maxEdgesPerLink * graph.linkCount));
+
+		LOG.info("contracting " + nodeCount + " nodes...");
+		this.rank = new int[nodeCount];
+		int[][] upwards = contract(graph, this.rank, maxEdgeCount);
+
+		// upward edges
+		this.upFirst = new int[nodeCount + 1];
+		for (int node = 0; node < nodeCount; node++) {
+			this.upFirst[node + 1] = this.upFirst[node] + upwards[node].length;
+		}
+		this.edgeCount = this.upFirst[nodeCount];
+		this.upNode = new int[this.edgeCount];
+		for (int node = 0; node < nodeCount; node++) {
+			int[] neighbours = upwards[node];
+			sortByRank(neighbours, this.rank);
+			System.arraycopy(neighbours, 0, this.upNode, this.upFirst[node], neighbours.length);
+			upwards[node] = null;
+		}
+		LOG.info("contraction resulted in " + this.edgeCount + " edges.");
+
+		// downward adjacency
+		this.downFirst = new int[nodeCount + 1];
+		for (int edge = 0; edge < this.edgeCount; edge++) {
+			this.downFirst[this.upNode[edge] + 1]++;
+		}
+		for (int node = 0; node < nodeCount; node++) {
+			this.downFirst[node + 1] += this.downFirst[node];
+		}
+		this.downNode = new int[this.edgeCount];
+		this.downEdge = new int[this.edgeCount];
+		int[] fill = Arrays.copyOf(this.downFirst, nodeCount);
+		for (int node = 0; node < nodeCount; node++) {
+			for (int edge = this.upFirst[node]; edge < this.upFirst[node + 1]; edge++) {
+				int pos = fill[this.upNode[edge]]++;
+				this.downNode[pos] = node;
+				this.downEdge[pos] = edge;
+			}
+		}
+
+		// original links
+		this.linkFirst = new int[2 * this.edgeCount + 1];
+		LinkIterator outLI = graph.getOutLinkIterator();
+		int[] linkEdgeDir = new int[graph.linkCount];
+		Arrays.fill(linkEdgeDir, -1);
+		for (int node = 0; node < nodeCount; node++) {
+			outLI.reset(node);
+			while (outLI.next()) {
+				int toNode = outLI.getToNodeIndex();
+				if (toNode == node) {
+					continue; // loops are never part of a least cost path
+				}
+				int edgeDir = this.rank[node] < this.rank[toNode]
+						? 2 * getEdge(node, toNode) + UP
+						: 2 * getEdge(toNode, node) + DOWN;
+				linkEdgeDir[outLI.getLinkIndex()] = edgeDir;
+				this.linkFirst[edgeDir + 1]++;
+			}
+		}
+		for (int i = 0; i < 2 * this.edgeCount; i++) {
+			this.linkFirst[i + 1] += this.linkFirst[i];
+		}
+		this.links = new int[this.linkFirst[2 * this.edgeCount]];
+		fill = Arrays.copyOf(this.linkFirst, 2 * this.edgeCount);
+		for (int linkIdx = 0; linkIdx < linkEdgeDir.length; linkIdx++) {
+			if (linkEdgeDir[linkIdx] >= 0) {
+				this.links[fill[linkEdgeDir[linkIdx]]++] = linkIdx;
+			}
+		}
+
+		// levels, processing the nodes from low to high rank
+		int[] nodesByRank = new int[nodeCount];
+		for (int node = 0; node < nodeCount; node++) {
+			nodesByRank[this.rank[node]] = node;
+		}
+		int[] level = new int[nodeCount];
+		int maxLevel = 0;
+		for (int node : nodesByRank) {
+			int l = 0;
+			for (int i = this.downFirst[node]; i < this.downFirst[node + 1]; i++) {
+				l = Math.max(l, level[this.downNode[i]] + 1);
+			}
+			level[node] = l;
+			maxLevel = Math.max(maxLevel, l);
+		}
+		this.levelFirst = new int[maxLevel + 2];
+		for (int node = 0; node < nodeCount; node++) {
+			this.levelFirst[level[node] + 1]++;
+		}
+		for (int l = 0; l <= maxLevel; l++) {
+			this.levelFirst[l + 1] += this.levelFirst[l];
+		}
+		this.levelNodes = new int[nodeCount];
+		fill = Arrays.copyOf(this.levelFirst, maxLevel + 1);
+		for (int node = 0; node < nodeCount; node++) {
+			this.levelNodes[fill[level[node]]++] = node;
+		}
+		LOG.info("contraction hierarchy has " + (maxLevel + 1) + " levels.");
+	}
+
+	/**
+	 * Contracts the nodes with the lowest priority first. The priority of a node is its edge difference, i.e. the
+	 * number of edges added when connecting its neighbours minus the number of edges removed with the node, plus the
+	 * number of its already contracted neighbours, which spreads the contraction evenly over the network and keeps the
+	 * hierarchy flat. Contracting a node only changes the priorities of nodes close to it, so the priorities of its
+	 * neighbours are updated immediately, and the one of every node is checked again when it is taken from the queue.
+	 *
+	 * @return for each node, the neighbours it had at the time it was contracted (all of them have a higher rank).
+	 */
+	private static int[][] contract(SpeedyGraph graph, int[] rank, long maxEdgeCount) {
+		int nodeCount = graph.nodeCount;
+		int[][] neighbours = new int[nodeCount][];
+		int[] degree = new int[nodeCount];
+		for (int node = 0; node < nodeCount; node++) {
+			neighbours[node] = new int[4];
+		}
+		LinkIterator outLI = graph.getOutLinkIterator();
+		for (int node = 0; node < nodeCount; node++) {
+			outLI.reset(node);
+			while (outLI.next()) {
+				int toNode = outLI.getToNodeIndex();
+				if (toNode != node && !contains(neighbours[node], degree[node], toNode)) {
+					addNeighbour(neighbours, degree, node, toNode);
+					addNeighbour(neighbours, degree, toNode, node);
+				}
+			}
+		}
+
+		// Nodes only lose neighbours when these are contracted, so a marker set for a node while it still had a
+		// neighbour remains correct for all not yet contracted nodes and the marker never needs to be reset.
+		int[] marker = new int[nodeCount];
+		Arrays.fill(marker, -1);
+		int[] contractedNeighbours = new int[nodeCount];
+		int[] priority = new int[nodeCount];
+
+		// the key contains the priority in the upper and the node index in the lower bits, making the order deterministic
+		PriorityQueue<Long> pq = new PriorityQueue<>(nodeCount);
+		for (int node = 0; node < nodeCount; node++) {
+			priority[node] = priority(node, neighbours, degree, contractedNeighbours, marker);
+			pq.add(key(priority[node], node));
+		}
+		int[][] upwards = new int[nodeCount][];
+		int nextRank = 0;
+		long edgeCount = 0;
+		while (!pq.isEmpty()) {
+			long key = pq.poll();
+			int node = (int) key;
+			int keyPriority = (int) (key >> 32);
+			if (upwards[node] != null || keyPriority != priority[node]) {
+				continue; // outdated entry
+			}
+			int currentPriority = priority(node, neighbours, degree, contractedNeighbours, marker);
+			if (currentPriority != keyPriority) {
+				// changed by the contraction of a node further away
+				priority[node] = currentPriority;
+				pq.add(key(currentPriority, node));
+				continue;
+			}
+
+			int[] remaining = Arrays.copyOf(neighbours[node], degree[node]);
+			upwards[node] = remaining;
+			rank[node] = nextRank++;
+			neighbours[node] = null;
+			edgeCount += remaining.length;
+			if (edgeCount > maxEdgeCount) {
+				throw new RuntimeException("The contraction hierarchy exceeds the limit of " + maxEdgeCount + " edges after contracting "
+						+ nextRank + " of " + nodeCount + " nodes. Use a different router for this network, e.g. SpeedyALT.");
+			}
+
+			for (int neighbour : remaining) {
+				remove(neighbours[neighbour], degree, neighbour, node);
+				contractedNeighbours[neighbour]++;
+			}
+			// connect all remaining neighbours with each other
+			for (int a : remaining) {
+				int[] aNeighbours = neighbours[a];
+				for (int i = 0, n = degree[a]; i < n; i++) {
+					marker[aNeighbours[i]] = a;
+				}
+				for (int b : remaining) {
+					if (b != a && marker[b] != a) {
+						addNeighbour(neighbours, degree, a, b);
+						marker[b] = a;
+					}
+				}
+			}
+			for (int neighbour : remaining) {
+				priority[neighbour] = priority(neighbour, neighbours, degree, contractedNeighbours, marker);
+				pq.add(key(priority[neighbour], neighbour));
+			}
+		}
+		return upwards;
+	}
+
+	/**
+	 * @return the number of missing edges between the neighbours of the node, minus the number of its neighbours,
+	 * 		plus the number of its contracted neighbours.
+	 */
+	private static int priority(int node, int[][] neighbours, int[] degree, int[] contractedNeighbours, int[] marker) {
+		int[] nodeNeighbours = neighbours[node];
+		int nodeDegree = degree[node];
+		long fillIn = 0;
+		for (int i = 0; i < nodeDegree; i++) {
+			int a = nodeNeighbours[i];
+			int[] aNeighbours = neighbours[a];
+			for (int k = 0, n = degree[a]; k < n; k++) {
+				marker[aNeighbours[k]] = a;
+			}
+			for (int j = i + 1; j < nodeDegree; j++) {
+				if (marker[nodeNeighbours[j]] != a) {
+					fillIn++;
+				}
+			}
+		}
+		return (int) Math.min(Integer.MAX_VALUE / 2, fillIn - nodeDegree + contractedNeighbours[node]);
+	}
+
+	private static long key(int priority, int node) {
+		// also works for negative priorities, as the node index is never negative
+		return ((long) priority << 32) | node;
+	}
+
+	private static boolean contains(int[] values, int size, int value) {
+		for (int i = 0; i < size; i++) {
+			if (values[i] == value) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static void addNeighbour(int[][] neighbours, int[] degree, int node, int neighbour) {
+		int[] values = neighbours[node];
+		if (degree[node] == values.length) {
+			values = Arrays.copyOf(values, values.length * 2);
+			neighbours[node] = values;
+		}
+		values[degree[node]++] = neighbour;
+	}
+
+	private static void remove(int[] values, int[] degree, int node, int value) {
+		int size = degree[node];
+		for (int i = 0; i < size; i++) {
+			if (values[i] == value) {
+				values[i] = values[size - 1];
+				degree[node] = size - 1;
+				return;
+			}
+		}
+	}
+
+	private static void sortByRank(int[] nodes, int[] rank) {
+		// insertion sort, the number of upward neighbours is typically small
+		for (int i = 1; i < nodes.length; i++) {
+			int node = nodes[i];
+			int j = i - 1;
+			while (j >= 0 && rank[nodes[j]] > rank[node]) {
+				nodes[j + 1] = nodes[j];
+				j--;
+			}
+			nodes[j + 1] = node;
+		}
+	}
+
+	/**
+	 * @return the index of the edge between the two nodes, or -1 if there is none.
+	 */
+	int getEdge(int lowerNode, int upperNode) {
+		int targetRank = this.rank[upperNode];
+		int low = this.upFirst[lowerNode];
+		int high = this.upFirst[lowerNode + 1] - 1;
+		while (low <= high) {
+			int mid = (low + high) >>> 1;
+			int midRank = this.rank[this.upNode[mid]];
+			if (midRank < targetRank) {
+				low = mid + 1;
+			} else if (midRank > targetRank) {
+				high = mid - 1;
+			} else {
+				return mid;
+			}
+		}
+		return -1;
+	}
+
+	int getRank(int node) {
+		return this.rank[node];
+	}
+
+	int getUpFirst(int node) {
+		return this.upFirst[node];
+	}
+
+	int getUpEnd(int node) {
+		return this.upFirst[node + 1];
+	}
+
+	int getUpNode(int edge) {
+		return this.upNode[edge];
+	}
+
+	int getDownFirst(int node) {
+		return this.downFirst[node];
+	}
+
+	int getDownEnd(int node) {
+		return this.downFirst[node + 1];
+	}
+
+	int getDownNode(int index) {
+		return this.downNode[index];
+	}
+
+	int getDownEdge(int index) {
+		return this.downEdge[index];
+	}
+
+	/**
+	 * @return the lower node of the edge, found by a binary search over the edge ranges of the nodes.
+	 */
+	int getLowerNode(int edge) {
+		int low = 0;
+		int high = this.upFirst.length - 2;
+		while (low < high) {
+			int mid = (low + high + 1) >>> 1;
+			if (this.upFirst[mid] <= edge) {
+				low = mid;
+			} else {
+				high = mid - 1;
+			}
+		}
+		return low;
+	}
+
+	int getLinkFirst(int edgeDir) {
+		return this.linkFirst[edgeDir];
+	}
+
+	int getLinkEnd(int edgeDir) {
+		return this.linkFirst[edgeDir + 1];
+	}
+
+	int getLink(int index) {
+		return this.links[index];
+	}
+
+	int getLevelCount() {
+		return this.levelFirst.length - 1;
+	}
+
+	int getLevelFirst(int level) {
+		return this.levelFirst[level];
+	}
+
+	int getLevelEnd(int level) {
+		return this.levelFirst[level + 1];
+	}
+
+	int getLevelNode(int index) {
+		return this.levelNodes[index];
+	}
+
+}
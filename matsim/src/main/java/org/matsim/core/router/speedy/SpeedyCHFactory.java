@@ -0,0 +1,117 @@
+package org.matsim.core.router.speedy;
+
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.core.controler.events.IterationStartsEvent;
+import org.matsim.core.controler.listener.IterationStartsListener;
+import org.matsim.core.router.costcalculators.TravelDisutilityFactory;
+import org.matsim.core.router.util.LeastCostPathCalculator;
+import org.matsim.core.router.util.LeastCostPathCalculatorFactory;
+import org.matsim.core.router.util.TravelDisutility;
+import org.matsim.core.router.util.TravelTime;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Creates {@link SpeedyCH} instances.
+ *
+ * The contraction of a network is done only once. The customization, i.e. the calculation of the edge weights, is
+ * shared by all path calculators created with {@link #createPathCalculator(Network, TravelDisutilityFactory, TravelTime)}
+ * for the same network, travel time and travel disutility factory, so routing with several threads needs only one
+ * customization per iteration and mode. It is repeated once travel times might have changed. When used in a controler,
+ * the factory must be bound as a singleton and registered as controler listener, so it can drop the customizations at
+ * the start of each iteration.
+ *
+ * Path calculators created for a single travel disutility instance get a customization of their own, as it is not
+ * known which other instances calculate the same disutilities.
+ */
+public class SpeedyCHFactory implements LeastCostPathCalculatorFactory, IterationStartsListener {
+
+	private final Map<Network, SpeedyGraph> graphs = new ConcurrentHashMap<>();
+	private final Map<SpeedyGraph, SpeedyCHData> chData = new ConcurrentHashMap<>();
+	private final Map<CustomizationKey, SpeedyCHCustomization> customizations = new ConcurrentHashMap<>();
+	private final double timeSliceSize;
+	private final int timeSliceCount;
+	private final double maxEdgesPerLink;
+
+	public SpeedyCHFactory() {
+		this(3600, 30);
+	}
+
+	/**
+	 * @param timeSliceSize the duration of the time slices for which the edge weights are calculated, in seconds
+	 * @param timeSliceCount the number of time slices. Departures after the last time slice use its weights.
+	 */
+	public SpeedyCHFactory(double timeSliceSize, int timeSliceCount) {
+		this(timeSliceSize, timeSliceCount, SpeedyCHData.DEFAULT_MAX_EDGES_PER_LINK);
+	}
+
+	/**
+	 * @param maxEdgesPerLink the maximum size of the contraction hierarchy, as number of edges per link of the network.
+	 * 		The contraction fails for networks exceeding it.
+	 */
+	public SpeedyCHFactory(double timeSliceSize, int timeSliceCount, double maxEdgesPerLink) {
+		this.timeSliceSize = timeSliceSize;
+		this.timeSliceCount = timeSliceCount;
+		this.maxEdgesPerLink = maxEdgesPerLink;
+	}
+
+	@Override
+	public LeastCostPathCalculator createPathCalculator(Network network, TravelDisutility travelCosts, TravelTime travelTimes) {
+		SpeedyCHData ch = getCHData(network);
+		SpeedyCHCustomization customization = new SpeedyCHCustomization(ch, travelCosts, this.timeSliceSize, this.timeSliceCount);
+		return new SpeedyCH(customization, travelTimes, travelCosts);
+	}
+
+	/**
+	 * Creates a path calculator with its own travel disutility from the given factory, sharing the customization with all
+	 * other path calculators for the same network, travel time and factory.
+	 */
+	public LeastCostPathCalculator createPathCalculator(Network network, TravelDisutilityFactory travelDisutilityFactory, TravelTime travelTimes) {
+		SpeedyCHData ch = getCHData(network);
+		CustomizationKey key = new CustomizationKey(ch, travelTimes, travelDisutilityFactory);
+		// the customization gets its own travel disutility, as it is used by all threads
+		SpeedyCHCustomization customization = this.customizations.computeIfAbsent(key,
+				k -> new SpeedyCHCustomization(ch, travelDisutilityFactory.createTravelDisutility(travelTimes), this.timeSliceSize, this.timeSliceCount));
+		return new SpeedyCH(customization, travelTimes, travelDisutilityFactory.createTravelDisutility(travelTimes));
+	}
+
+	private SpeedyCHData getCHData(Network network) {
+		SpeedyGraph graph = this.graphs.computeIfAbsent(network, SpeedyGraph::new);
+		return this.chData.computeIfAbsent(graph, g -> new SpeedyCHData(g, this.maxEdgesPerLink));
+	}
+
+	@Override
+	public void notifyIterationStarts(IterationStartsEvent event) {
+		// travel times were updated in the last iteration, the contraction can be kept.
+		this.customizations.clear();
+	}
+
+	private static final class CustomizationKey {
+		private final SpeedyCHData ch;
+		private final TravelTime travelTime;
+		private final TravelDisutilityFactory travelDisutilityFactory;
+
+		CustomizationKey(SpeedyCHData ch, TravelTime travelTime, TravelDisutilityFactory travelDisutilityFactory) {
+			this.ch = ch;
+			this.travelTime = travelTime;
+			this.travelDisutilityFactory = travelDisutilityFactory;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (!(o instanceof CustomizationKey)) {
+				return false;
+			}
+			CustomizationKey other = (CustomizationKey) o;
+			return this.ch == other.ch && this.travelTime == other.travelTime && this.travelDisutilityFactory == other.travelDisutilityFactory;
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(System.identityHashCode(this.ch), System.identityHashCode(this.travelTime), System.identityHashCode(this.travelDisutilityFactory));
+		}
+	}
+
+}
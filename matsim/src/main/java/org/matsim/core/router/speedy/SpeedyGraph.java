@@ -138,6 +138,14 @@ public class SpeedyGraph {
         return this.nodes[index];
     }
 
+    int getFromNodeIndex(int linkIndex) {
+        return this.linkData[linkIndex * LINK_SIZE + 2];
+    }
+
+    int getToNodeIndex(int linkIndex) {
+        return this.linkData[linkIndex * LINK_SIZE + 3];
+    }
+
     public interface LinkIterator {
 
         void reset(int nodeIdx);
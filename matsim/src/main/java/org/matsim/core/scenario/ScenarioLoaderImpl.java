@@ -110,11 +110,22 @@ class ScenarioLoaderImpl {
 //		log.info("loading scenario from base directory: " + currentDir);
 		// the above is not used and thus only causing confusion in the log output.  kai, sep'18
 
-		this.loadNetwork();
+		boolean fromSnapshot = this.config.scenario().getSnapshotFile() != null;
+		if (fromSnapshot) {
+			// network, transit schedule and population come from the snapshot, all other elements from their files
+			this.loadSnapshot();
+			this.loadNetworkChangeEvents();
+		} else {
+			this.loadNetwork();
+		}
 		this.loadActivityFacilities();
-		this.loadPopulation();
+		if (!fromSnapshot) {
+			this.loadPopulation();
+		}
 		this.loadHouseholds(); // tests internally if the file is there
-		this.loadTransit(); // tests internally if the file is there
+		if (!fromSnapshot) {
+			this.loadTransit(); // tests internally if the file is there
+		}
 		this.loadTransitVehicles(); // tests internally if the file is there
 		if (this.config.vehicles().getVehiclesFile()!=null ) {
 			this.loadVehicles() ;
@@ -142,17 +153,33 @@ class ScenarioLoaderImpl {
             reader.putAttributeConverters( attributeConverters );
             reader.parse(networkUrl);
 
-			if ((this.config.network().getChangeEventsInputFile()!= null) && this.config.network().isTimeVariantNetwork()) {
-				log.info("loading network change events from " + this.config.network().getChangeEventsInputFileUrl(this.config.getContext()).getFile());
-				Network network = this.scenario.getNetwork();
-				List<NetworkChangeEvent> changeEvents = new ArrayList<>() ;
-				NetworkChangeEventsParser parser = new NetworkChangeEventsParser(network,changeEvents);
-				parser.parse(this.config.network().getChangeEventsInputFileUrl(config.getContext()));
-				NetworkUtils.setNetworkChangeEvents(network,changeEvents);
-			}
+			this.loadNetworkChangeEvents();
 		}
 	}
 
+	private void loadNetworkChangeEvents() {
+		if ((this.config.network().getChangeEventsInputFile()!= null) && this.config.network().isTimeVariantNetwork()) {
+			log.info("loading network change events from " + this.config.network().getChangeEventsInputFileUrl(this.config.getContext()).getFile());
+			Network network = this.scenario.getNetwork();
+			List<NetworkChangeEvent> changeEvents = new ArrayList<>() ;
+			NetworkChangeEventsParser parser = new NetworkChangeEventsParser(network,changeEvents);
+			parser.parse(this.config.network().getChangeEventsInputFileUrl(config.getContext()));
+			NetworkUtils.setNetworkChangeEvents(network,changeEvents);
+		}
+	}
+
+	/**
+	 * Loads the network, the transit schedule and the population from the binary snapshot set in the config.
+	 */
+	private void loadSnapshot() {
+		URL snapshotUrl = ConfigGroup.getInputFileURL(this.config.getContext(), this.config.scenario().getSnapshotFile());
+		log.info("loading network, transit schedule and population from scenario snapshot " + snapshotUrl);
+		ScenarioSnapshotReader reader = new ScenarioSnapshotReader(this.scenario);
+		reader.putAttributeConverters(this.attributeConverters);
+		reader.readURL(snapshotUrl);
+		PopulationUtils.printPlansCount(this.scenario.getPopulation()) ;
+	}
+
 	private void loadActivityFacilities() {
 		if ((this.config.facilities() != null) && (this.config.facilities().getInputFile() != null)) {
 			URL facilitiesFileName = this.config.facilities().getInputFileURL(config.getContext());
@@ -0,0 +1,69 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * ScenarioSnapshotFormat.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2022 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+
+package org.matsim.core.scenario;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Constants shared by {@link ScenarioSnapshotWriter} and {@link ScenarioSnapshotReader}.
+ * <p>
+ * A snapshot starts with the magic bytes {@link #MAGIC} and the format version (int), followed by a sequence of
+ * sections and a single {@link #END} byte. Each section starts with its type (byte) and the length of its payload
+ * (int). The payload starts with the strings first used in this section (int count, then the strings), which are
+ * numbered in the order they appear in the file, followed by the content of the section. All numbers are big-endian,
+ * strings are stored as int length and UTF-8 bytes, with a length of -1 for <code>null</code>.
+ * <p>
+ * The {@link #IDS} sections contain the {@link org.matsim.api.core.v01.Id}s of one type in the order of their
+ * index, i.e. as returned by {@link org.matsim.api.core.v01.Id#get(int, Class)}. All other sections refer to ids by
+ * this index, to the other strings by their number, and store undefined times as <code>NaN</code>. The nodes, links
+ * and stops are stored in columns (all ids, then all x-coordinates, ...), the plans person by person in
+ * {@link #PERSONS} sections of limited size, so every section can be mapped into memory on its own.
+ */
+final class ScenarioSnapshotFormat {
+
+	static final byte[] MAGIC = "MATSIMSS".getBytes(StandardCharsets.US_ASCII);
+	static final int VERSION = 1;
+
+	static final byte END = 0;
+	/** The coordinate system of the scenario. */
+	static final byte META = 1;
+	static final byte IDS = 2;
+	static final byte NETWORK = 3;
+	static final byte TRANSIT_SCHEDULE = 4;
+	/** The name and attributes of the population, followed by any number of {@link #PERSONS} sections. */
+	static final byte POPULATION = 5;
+	static final byte PERSONS = 6;
+
+	static final byte ACTIVITY = 0;
+	static final byte LEG = 1;
+
+	static final byte ACT_HAS_COORD = 1;
+	static final byte ACT_HAS_LINK = 2;
+	static final byte ACT_HAS_FACILITY = 4;
+
+	static final byte ROUTE_DESCRIPTION = 0;
+	static final byte ROUTE_LINKS = 1;
+
+	private ScenarioSnapshotFormat() {
+	}
+
+}
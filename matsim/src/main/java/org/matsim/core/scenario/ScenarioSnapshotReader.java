@@ -0,0 +1,580 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * ScenarioSnapshotReader.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2022 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+
+package org.matsim.core.scenario;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.NetworkFactory;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.api.core.v01.population.Activity;
+import org.matsim.api.core.v01.population.Leg;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Plan;
+import org.matsim.api.core.v01.population.Population;
+import org.matsim.api.core.v01.population.PopulationFactory;
+import org.matsim.api.core.v01.population.Route;
+import org.matsim.core.population.routes.NetworkRoute;
+import org.matsim.core.population.routes.RouteUtils;
+import org.matsim.core.utils.io.UncheckedIOException;
+import org.matsim.facilities.ActivityFacility;
+import org.matsim.pt.transitSchedule.api.Departure;
+import org.matsim.pt.transitSchedule.api.TransitLine;
+import org.matsim.pt.transitSchedule.api.TransitRoute;
+import org.matsim.pt.transitSchedule.api.TransitRouteStop;
+import org.matsim.pt.transitSchedule.api.TransitSchedule;
+import org.matsim.pt.transitSchedule.api.TransitScheduleFactory;
+import org.matsim.pt.transitSchedule.api.TransitStopArea;
+import org.matsim.pt.transitSchedule.api.TransitStopFacility;
+import org.matsim.utils.objectattributes.AttributeConverter;
+import org.matsim.utils.objectattributes.ObjectAttributesConverter;
+import org.matsim.utils.objectattributes.attributable.Attributes;
+import org.matsim.vehicles.Vehicle;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Reads a snapshot written by {@link ScenarioSnapshotWriter} into the network, transit schedule and population of a
+ * scenario. Each section of the file is memory-mapped and decoded directly from the mapped buffer.
+ * <p>
+ * The ids are created in the order of the snapshot, so they get the same index as when the snapshot was written if
+ * no ids of the same type were created before reading.
+ */
+public final class ScenarioSnapshotReader {
+
+	private static final Logger log = Logger.getLogger(ScenarioSnapshotReader.class);
+
+	private final Scenario scenario;
+	private final ObjectAttributesConverter attributesConverter = new ObjectAttributesConverter();
+	private final List<String> strings = new ArrayList<>();
+	private final Map<Class<?>, Id<?>[]> ids = new HashMap<>();
+	private final Map<Integer, Set<String>> modes = new HashMap<>();
+
+	public ScenarioSnapshotReader(Scenario scenario) {
+		this.scenario = scenario;
+	}
+
+	public <T> void putAttributeConverter(Class<T> clazz, AttributeConverter<T> converter) {
+		this.attributesConverter.putAttributeConverter(clazz, converter);
+	}
+
+	public void putAttributeConverters(Map<Class<?>, AttributeConverter<?>> converters) {
+		this.attributesConverter.putAttributeConverters(converters);
+	}
+
+	/**
+	 * @param url must point to a local file, as snapshots are memory-mapped.
+	 */
+	public void readURL(URL url) {
+		try {
+			read(Paths.get(url.toURI()));
+		} catch (URISyntaxException | IllegalArgumentException e) {
+			throw new IllegalArgumentException("Scenario snapshots can only be read from local files, but got " + url, e);
+		}
+	}
+
+	public void readFile(String filename) {
+		read(Paths.get(filename));
+	}
+
+	public void read(Path path) {
+		log.info("reading scenario snapshot from " + path);
+		this.strings.clear();
+		this.ids.clear();
+		this.modes.clear();
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			ByteBuffer header = ByteBuffer.allocate(ScenarioSnapshotFormat.MAGIC.length + 4);
+			readFully(channel, header, 0);
+			byte[] magic = new byte[ScenarioSnapshotFormat.MAGIC.length];
+			header.get(magic);
+			if (!Arrays.equals(magic, ScenarioSnapshotFormat.MAGIC)) {
+				throw new IllegalArgumentException(path + " is not a scenario snapshot.");
+			}
+			int version = header.getInt();
+			if (version != ScenarioSnapshotFormat.VERSION) {
+				throw new IllegalArgumentException("Unsupported scenario snapshot version " + version + " in " + path);
+			}
+
+			long position = header.capacity();
+			ByteBuffer sectionHeader = ByteBuffer.allocate(5);
+			while (true) {
+				sectionHeader.clear();
+				sectionHeader.limit(1);
+				readFully(channel, sectionHeader, position);
+				byte type = sectionHeader.get();
+				if (type == ScenarioSnapshotFormat.END) {
+					break;
+				}
+				sectionHeader.clear();
+				readFully(channel, sectionHeader, position);
+				sectionHeader.get();
+				int length = sectionHeader.getInt();
+				ByteBuffer data = channel.map(FileChannel.MapMode.READ_ONLY, position + 5, length);
+				readSection(type, data);
+				position += 5 + length;
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		log.info("scenario snapshot read.");
+	}
+
+	private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+		while (buffer.hasRemaining()) {
+			int read = channel.read(buffer, position);
+			if (read < 0) {
+				throw new IOException("Unexpected end of scenario snapshot.");
+			}
+			position += read;
+		}
+		buffer.flip();
+	}
+
+	private void readSection(byte type, ByteBuffer data) {
+		int newStrings = data.getInt();
+		for (int i = 0; i < newStrings; i++) {
+			this.strings.add(readString(data));
+		}
+		switch (type) {
+			case ScenarioSnapshotFormat.META:
+				String crs = readString(data);
+				String configuredCrs = this.scenario.getConfig().global().getCoordinateSystem();
+				if (crs != null && !crs.equals(configuredCrs)) {
+					log.warn("The scenario snapshot was written with coordinate system " + crs + ", but the config uses " + configuredCrs
+							+ ". The coordinates are not transformed.");
+				}
+				break;
+			case ScenarioSnapshotFormat.IDS:
+				readIds(data);
+				break;
+			case ScenarioSnapshotFormat.NETWORK:
+				readNetwork(data, this.scenario.getNetwork());
+				break;
+			case ScenarioSnapshotFormat.TRANSIT_SCHEDULE:
+				readTransitSchedule(data, this.scenario.getTransitSchedule());
+				break;
+			case ScenarioSnapshotFormat.POPULATION:
+				Population population = this.scenario.getPopulation();
+				population.setName(readString(data));
+				readAttributes(data, population.getAttributes());
+				break;
+			case ScenarioSnapshotFormat.PERSONS:
+				readPersons(data, this.scenario.getPopulation());
+				break;
+			default:
+				throw new IllegalArgumentException("Unknown section type " + type + " in scenario snapshot.");
+		}
+	}
+
+	private void readIds(ByteBuffer data) {
+		String className = readString(data);
+		Class<?> type;
+		try {
+			type = Class.forName(className);
+		} catch (ClassNotFoundException e) {
+			throw new RuntimeException("Unknown id type " + className + " in scenario snapshot.", e);
+		}
+		int count = data.getInt();
+		Id<?>[] typeIds = new Id<?>[count];
+		for (int i = 0; i < count; i++) {
+			typeIds[i] = Id.create(readString(data), type);
+		}
+		this.ids.put(type, typeIds);
+	}
+
+	private void readNetwork(ByteBuffer data, Network network) {
+		String name = readString(data);
+		if (name != null) {
+			network.setName(name);
+		}
+		network.setCapacityPeriod(data.getDouble());
+		network.setEffectiveCellSize(data.getDouble());
+		network.setEffectiveLaneWidth(data.getDouble());
+		readAttributes(data, network.getAttributes());
+
+		NetworkFactory factory = network.getFactory();
+		int nodeCount = data.getInt();
+		int[] nodeIds = readInts(data, nodeCount);
+		Coord[] nodeCoords = readCoords(data, nodeCount);
+		for (int i = 0; i < nodeCount; i++) {
+			Node node = factory.createNode(getId(nodeIds[i], Node.class), nodeCoords[i]);
+			readAttributes(data, node.getAttributes());
+			network.addNode(node);
+		}
+
+		int linkCount = data.getInt();
+		int[] linkIds = readInts(data, linkCount);
+		int[] fromNodes = readInts(data, linkCount);
+		int[] toNodes = readInts(data, linkCount);
+		double[] lengths = readDoubles(data, linkCount);
+		double[] freespeeds = readDoubles(data, linkCount);
+		double[] capacities = readDoubles(data, linkCount);
+		double[] lanes = readDoubles(data, linkCount);
+		int[] allowedModes = readInts(data, linkCount);
+		Map<Id<Node>, ? extends Node> nodes = network.getNodes();
+		for (int i = 0; i < linkCount; i++) {
+			Node fromNode = nodes.get(getId(fromNodes[i], Node.class));
+			Node toNode = nodes.get(getId(toNodes[i], Node.class));
+			Link link = factory.createLink(getId(linkIds[i], Link.class), fromNode, toNode);
+			link.setLength(lengths[i]);
+			link.setFreespeed(freespeeds[i]);
+			link.setCapacity(capacities[i]);
+			link.setNumberOfLanes(lanes[i]);
+			link.setAllowedModes(getModes(allowedModes[i]));
+			readAttributes(data, link.getAttributes());
+			network.addLink(link);
+		}
+	}
+
+	private void readTransitSchedule(ByteBuffer data, TransitSchedule schedule) {
+		readAttributes(data, schedule.getAttributes());
+		TransitScheduleFactory factory = schedule.getFactory();
+
+		int stopCount = data.getInt();
+		int[] stopIds = readInts(data, stopCount);
+		Coord[] stopCoords = readCoords(data, stopCount);
+		int[] stopLinks = readInts(data, stopCount);
+		int[] stopNames = readInts(data, stopCount);
+		boolean[] blockingLanes = new boolean[stopCount];
+		for (int i = 0; i < stopCount; i++) {
+			blockingLanes[i] = data.get() != 0;
+		}
+		int[] stopAreas = readInts(data, stopCount);
+		for (int i = 0; i < stopCount; i++) {
+			TransitStopFacility stop = factory.createTransitStopFacility(getId(stopIds[i], TransitStopFacility.class), stopCoords[i], blockingLanes[i]);
+			stop.setLinkId(getId(stopLinks[i], Link.class));
+			stop.setName(getString(stopNames[i]));
+			String stopArea = getString(stopAreas[i]);
+			if (stopArea != null) {
+				stop.setStopAreaId(Id.create(stopArea, TransitStopArea.class));
+			}
+			readAttributes(data, stop.getAttributes());
+			schedule.addStopFacility(stop);
+		}
+
+		int lineCount = data.getInt();
+		for (int l = 0; l < lineCount; l++) {
+			TransitLine line = factory.createTransitLine(getId(data.getInt(), TransitLine.class));
+			String name = readString(data);
+			if (name != null) {
+				line.setName(name);
+			}
+			readAttributes(data, line.getAttributes());
+			int routeCount = data.getInt();
+			for (int r = 0; r < routeCount; r++) {
+				line.addRoute(readTransitRoute(data, schedule));
+			}
+			schedule.addTransitLine(line);
+		}
+
+		int transferTimesCount = data.getInt();
+		for (int i = 0; i < transferTimesCount; i++) {
+			Id<TransitStopFacility> fromStop = getId(data.getInt(), TransitStopFacility.class);
+			Id<TransitStopFacility> toStop = getId(data.getInt(), TransitStopFacility.class);
+			schedule.getMinimalTransferTimes().set(fromStop, toStop, data.getDouble());
+		}
+	}
+
+	private TransitRoute readTransitRoute(ByteBuffer data, TransitSchedule schedule) {
+		TransitScheduleFactory factory = schedule.getFactory();
+		Id<TransitRoute> routeId = getId(data.getInt(), TransitRoute.class);
+		String mode = getString(data.getInt());
+		String description = readString(data);
+		Attributes attributes = new Attributes();
+		readAttributes(data, attributes);
+
+		NetworkRoute networkRoute = null;
+		if (data.get() != 0) {
+			Id<Link> startLinkId = getId(data.getInt(), Link.class);
+			Id<Link> endLinkId = getId(data.getInt(), Link.class);
+			networkRoute = RouteUtils.createLinkNetworkRouteImpl(startLinkId, readLinkIds(data), endLinkId);
+		}
+
+		int stopCount = data.getInt();
+		List<TransitRouteStop> stops = new ArrayList<>(stopCount);
+		for (int i = 0; i < stopCount; i++) {
+			TransitStopFacility stopFacility = schedule.getFacilities().get(getId(data.getInt(), TransitStopFacility.class));
+			TransitRouteStop.Builder<?> builder = factory.createTransitRouteStopBuilder(stopFacility);
+			double arrivalOffset = data.getDouble();
+			if (!Double.isNaN(arrivalOffset)) {
+				builder.arrivalOffset(arrivalOffset);
+			}
+			double departureOffset = data.getDouble();
+			if (!Double.isNaN(departureOffset)) {
+				builder.departureOffset(departureOffset);
+			}
+			builder.awaitDepartureTime(data.get() != 0);
+			stops.add(builder.build());
+		}
+
+		TransitRoute route = factory.createTransitRoute(routeId, networkRoute, stops, mode);
+		if (description != null) {
+			route.setDescription(description);
+		}
+		for (Map.Entry<String, Object> e : attributes.getAsMap().entrySet()) {
+			route.getAttributes().putAttribute(e.getKey(), e.getValue());
+		}
+
+		int departureCount = data.getInt();
+		for (int i = 0; i < departureCount; i++) {
+			Departure departure = factory.createDeparture(getId(data.getInt(), Departure.class), data.getDouble());
+			departure.setVehicleId(getId(data.getInt(), Vehicle.class));
+			readAttributes(data, departure.getAttributes());
+			route.addDeparture(departure);
+		}
+		return route;
+	}
+
+	private void readPersons(ByteBuffer data, Population population) {
+		PopulationFactory factory = population.getFactory();
+		int personCount = data.getInt();
+		for (int p = 0; p < personCount; p++) {
+			Person person = factory.createPerson(getId(data.getInt(), Person.class));
+			readAttributes(data, person.getAttributes());
+			int planCount = data.getInt();
+			int selectedPlan = data.getInt();
+			for (int i = 0; i < planCount; i++) {
+				Plan plan = readPlan(data, factory);
+				person.addPlan(plan);
+				if (i == selectedPlan) {
+					person.setSelectedPlan(plan);
+				}
+			}
+			population.addPerson(person);
+		}
+	}
+
+	private Plan readPlan(ByteBuffer data, PopulationFactory factory) {
+		Plan plan = factory.createPlan();
+		String type = getString(data.getInt());
+		if (type != null) {
+			plan.setType(type);
+		}
+		boolean hasScore = data.get() != 0;
+		double score = data.getDouble();
+		if (hasScore) {
+			plan.setScore(score);
+		}
+		readAttributes(data, plan.getAttributes());
+		int elementCount = data.getInt();
+		for (int i = 0; i < elementCount; i++) {
+			byte elementType = data.get();
+			if (elementType == ScenarioSnapshotFormat.ACTIVITY) {
+				plan.addActivity(readActivity(data, factory));
+			} else if (elementType == ScenarioSnapshotFormat.LEG) {
+				plan.addLeg(readLeg(data, factory));
+			} else {
+				throw new IllegalArgumentException("Unknown plan element type " + elementType + " in scenario snapshot.");
+			}
+		}
+		return plan;
+	}
+
+	private Activity readActivity(ByteBuffer data, PopulationFactory factory) {
+		String type = getString(data.getInt());
+		byte flags = data.get();
+		Coord coord = (flags & ScenarioSnapshotFormat.ACT_HAS_COORD) != 0 ? readCoord(data) : null;
+		Id<Link> linkId = (flags & ScenarioSnapshotFormat.ACT_HAS_LINK) != 0 ? getId(data.getInt(), Link.class) : null;
+		Id<ActivityFacility> facilityId = (flags & ScenarioSnapshotFormat.ACT_HAS_FACILITY) != 0 ? getId(data.getInt(), ActivityFacility.class) : null;
+
+		Activity act;
+		if (linkId != null) {
+			act = factory.createActivityFromLinkId(type, linkId);
+			act.setCoord(coord);
+			act.setFacilityId(facilityId);
+		} else if (coord != null) {
+			act = factory.createActivityFromCoord(type, coord);
+			act.setFacilityId(facilityId);
+		} else {
+			act = factory.createActivityFromActivityFacilityId(type, facilityId);
+		}
+
+		double startTime = data.getDouble();
+		if (Double.isNaN(startTime)) {
+			act.setStartTimeUndefined();
+		} else {
+			act.setStartTime(startTime);
+		}
+		double endTime = data.getDouble();
+		if (Double.isNaN(endTime)) {
+			act.setEndTimeUndefined();
+		} else {
+			act.setEndTime(endTime);
+		}
+		double maxDuration = data.getDouble();
+		if (Double.isNaN(maxDuration)) {
+			act.setMaximumDurationUndefined();
+		} else {
+			act.setMaximumDuration(maxDuration);
+		}
+		readAttributes(data, act.getAttributes());
+		return act;
+	}
+
+	private Leg readLeg(ByteBuffer data, PopulationFactory factory) {
+		Leg leg = factory.createLeg(getString(data.getInt()));
+		double departureTime = data.getDouble();
+		if (Double.isNaN(departureTime)) {
+			leg.setDepartureTimeUndefined();
+		} else {
+			leg.setDepartureTime(departureTime);
+		}
+		double travelTime = data.getDouble();
+		if (Double.isNaN(travelTime)) {
+			leg.setTravelTimeUndefined();
+		} else {
+			leg.setTravelTime(travelTime);
+		}
+		readAttributes(data, leg.getAttributes());
+
+		String routeType = getString(data.getInt());
+		if (routeType == null) {
+			return leg;
+		}
+		Id<Link> startLinkId = getId(data.getInt(), Link.class);
+		Id<Link> endLinkId = getId(data.getInt(), Link.class);
+		Class<? extends Route> routeClass = factory.getRouteFactories().getRouteClassForType(routeType);
+		Route route = factory.getRouteFactories().createRoute(routeClass, startLinkId, endLinkId);
+		double routeTravelTime = data.getDouble();
+		if (Double.isNaN(routeTravelTime)) {
+			route.setTravelTimeUndefined();
+		} else {
+			route.setTravelTime(routeTravelTime);
+		}
+		route.setDistance(data.getDouble());
+		byte routeContent = data.get();
+		if (routeContent == ScenarioSnapshotFormat.ROUTE_LINKS) {
+			if (!(route instanceof NetworkRoute)) {
+				throw new IllegalArgumentException("Route type " + routeType + " in scenario snapshot is not a network route.");
+			}
+			NetworkRoute networkRoute = (NetworkRoute) route;
+			Id<Vehicle> vehicleId = getId(data.getInt(), Vehicle.class);
+			networkRoute.setLinkIds(startLinkId, readLinkIds(data), endLinkId);
+			if (vehicleId != null) {
+				networkRoute.setVehicleId(vehicleId);
+			}
+		} else {
+			route.setRouteDescription(readString(data));
+		}
+		leg.setRoute(route);
+		return leg;
+	}
+
+	private List<Id<Link>> readLinkIds(ByteBuffer data) {
+		int count = data.getInt();
+		List<Id<Link>> linkIds = new ArrayList<>(count);
+		for (int i = 0; i < count; i++) {
+			linkIds.add(getId(data.getInt(), Link.class));
+		}
+		return linkIds;
+	}
+
+	private void readAttributes(ByteBuffer data, Attributes attributes) {
+		int count = data.getInt();
+		for (int i = 0; i < count; i++) {
+			String key = getString(data.getInt());
+			String className = getString(data.getInt());
+			String value = readString(data);
+			Object converted = this.attributesConverter.convert(className, value);
+			if (converted != null) {
+				attributes.putAttribute(key, converted);
+			}
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private <T> Id<T> getId(int index, Class<T> type) {
+		return index < 0 ? null : (Id<T>) this.ids.get(type)[index];
+	}
+
+	private String getString(int index) {
+		return index < 0 ? null : this.strings.get(index);
+	}
+
+	private Set<String> getModes(int index) {
+		return this.modes.computeIfAbsent(index, i -> {
+			String modes = getString(i);
+			return modes.isEmpty() ? new HashSet<>() : new HashSet<>(Arrays.asList(modes.split(",")));
+		});
+	}
+
+	private static int[] readInts(ByteBuffer data, int count) {
+		int[] values = new int[count];
+		data.asIntBuffer().get(values);
+		data.position(data.position() + 4 * count);
+		return values;
+	}
+
+	private static double[] readDoubles(ByteBuffer data, int count) {
+		double[] values = new double[count];
+		data.asDoubleBuffer().get(values);
+		data.position(data.position() + 8 * count);
+		return values;
+	}
+
+	private static Coord[] readCoords(ByteBuffer data, int count) {
+		double[] x = readDoubles(data, count);
+		double[] y = readDoubles(data, count);
+		double[] z = readDoubles(data, count);
+		Coord[] coords = new Coord[count];
+		for (int i = 0; i < count; i++) {
+			coords[i] = Double.isNaN(z[i]) ? new Coord(x[i], y[i]) : new Coord(x[i], y[i], z[i]);
+		}
+		return coords;
+	}
+
+	private static Coord readCoord(ByteBuffer data) {
+		double x = data.getDouble();
+		double y = data.getDouble();
+		double z = data.getDouble();
+		return Double.isNaN(z) ? new Coord(x, y) : new Coord(x, y, z);
+	}
+
+	private static String readString(ByteBuffer data) {
+		int length = data.getInt();
+		if (length < 0) {
+			return null;
+		}
+		byte[] bytes = new byte[length];
+		data.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+}
@@ -0,0 +1,473 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * ScenarioSnapshotWriter.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2022 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+
+package org.matsim.core.scenario;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.api.core.v01.population.Activity;
+import org.matsim.api.core.v01.population.Leg;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Plan;
+import org.matsim.api.core.v01.population.PlanElement;
+import org.matsim.api.core.v01.population.Population;
+import org.matsim.api.core.v01.population.Route;
+import org.matsim.core.population.routes.NetworkRoute;
+import org.matsim.core.utils.io.UncheckedIOException;
+import org.matsim.core.utils.misc.OptionalTime;
+import org.matsim.facilities.ActivityFacility;
+import org.matsim.pt.transitSchedule.api.Departure;
+import org.matsim.pt.transitSchedule.api.MinimalTransferTimes;
+import org.matsim.pt.transitSchedule.api.TransitLine;
+import org.matsim.pt.transitSchedule.api.TransitRoute;
+import org.matsim.pt.transitSchedule.api.TransitRouteStop;
+import org.matsim.pt.transitSchedule.api.TransitSchedule;
+import org.matsim.pt.transitSchedule.api.TransitStopFacility;
+import org.matsim.utils.objectattributes.AttributeConverter;
+import org.matsim.utils.objectattributes.ObjectAttributesConverter;
+import org.matsim.utils.objectattributes.attributable.Attributes;
+import org.matsim.vehicles.Vehicle;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes the network, the transit schedule and the population of a fully loaded scenario into a binary snapshot,
+ * which {@link ScenarioSnapshotReader} loads much faster than the corresponding XML files. See
+ * {@link ScenarioSnapshotFormat} for a description of the format.
+ * <p>
+ * The snapshot is not compressed, so it can be memory-mapped when reading. Facilities, vehicles, households, lanes and
+ * network change events are not part of the snapshot and are still read from their files.
+ */
+public final class ScenarioSnapshotWriter {
+
+	private static final Logger log = Logger.getLogger(ScenarioSnapshotWriter.class);
+
+	/** The types of the ids written into the snapshot, all other ids are stored as strings. */
+	static final Class<?>[] ID_TYPES = {Node.class, Link.class, TransitStopFacility.class, TransitLine.class, TransitRoute.class,
+			Departure.class, Vehicle.class, ActivityFacility.class, Person.class};
+
+	private static final int PERSONS_PER_SECTION = 10000;
+
+	private final Scenario scenario;
+	private final ObjectAttributesConverter attributesConverter = new ObjectAttributesConverter();
+	private final Map<String, Integer> strings = new HashMap<>();
+	private final List<String> newStrings = new ArrayList<>();
+
+	public ScenarioSnapshotWriter(Scenario scenario) {
+		this.scenario = scenario;
+	}
+
+	public <T> void putAttributeConverter(Class<T> clazz, AttributeConverter<T> converter) {
+		this.attributesConverter.putAttributeConverter(clazz, converter);
+	}
+
+	public void putAttributeConverters(Map<Class<?>, AttributeConverter<?>> converters) {
+		this.attributesConverter.putAttributeConverters(converters);
+	}
+
+	public void write(String filename) {
+		log.info("writing scenario snapshot to " + filename);
+		this.strings.clear();
+		this.newStrings.clear();
+		try (OutputStream out = new BufferedOutputStream(new FileOutputStream(filename), 1 << 16)) {
+			DataOutputStream header = new DataOutputStream(out);
+			header.write(ScenarioSnapshotFormat.MAGIC);
+			header.writeInt(ScenarioSnapshotFormat.VERSION);
+
+			writeSection(out, ScenarioSnapshotFormat.META, data -> writeString(data, this.scenario.getConfig().global().getCoordinateSystem()));
+			for (Class<?> type : ID_TYPES) {
+				if (Id.getNumberOfIds(type) > 0) {
+					writeSection(out, ScenarioSnapshotFormat.IDS, data -> writeIds(data, type));
+				}
+			}
+			writeSection(out, ScenarioSnapshotFormat.NETWORK, data -> writeNetwork(data, this.scenario.getNetwork()));
+			writeSection(out, ScenarioSnapshotFormat.TRANSIT_SCHEDULE, data -> writeTransitSchedule(data, this.scenario.getTransitSchedule()));
+
+			Population population = this.scenario.getPopulation();
+			writeSection(out, ScenarioSnapshotFormat.POPULATION, data -> {
+				writeString(data, population.getName());
+				writeAttributes(data, population.getAttributes());
+			});
+			List<Person> persons = new ArrayList<>(PERSONS_PER_SECTION);
+			for (Person person : population.getPersons().values()) {
+				persons.add(person);
+				if (persons.size() == PERSONS_PER_SECTION) {
+					writeSection(out, ScenarioSnapshotFormat.PERSONS, data -> writePersons(data, persons));
+					persons.clear();
+				}
+			}
+			if (!persons.isEmpty()) {
+				writeSection(out, ScenarioSnapshotFormat.PERSONS, data -> writePersons(data, persons));
+			}
+
+			out.write(ScenarioSnapshotFormat.END);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		log.info("scenario snapshot written.");
+	}
+
+	private interface SectionContent {
+		void write(DataOutputStream data) throws IOException;
+	}
+
+	private void writeSection(OutputStream out, byte type, SectionContent content) throws IOException {
+		ByteArrayOutputStream contentBytes = new ByteArrayOutputStream(1 << 16);
+		DataOutputStream data = new DataOutputStream(contentBytes);
+		content.write(data);
+		data.flush();
+
+		ByteArrayOutputStream payload = new ByteArrayOutputStream(contentBytes.size() + (1 << 12));
+		DataOutputStream payloadData = new DataOutputStream(payload);
+		payloadData.writeInt(this.newStrings.size());
+		for (String s : this.newStrings) {
+			writeString(payloadData, s);
+		}
+		this.newStrings.clear();
+		payloadData.flush();
+		contentBytes.writeTo(payload);
+
+		DataOutputStream header = new DataOutputStream(out);
+		header.writeByte(type);
+		header.writeInt(payload.size());
+		header.flush();
+		payload.writeTo(out);
+	}
+
+	private void writeIds(DataOutputStream data, Class<?> type) throws IOException {
+		int count = Id.getNumberOfIds(type);
+		writeString(data, type.getName());
+		data.writeInt(count);
+		for (int i = 0; i < count; i++) {
+			writeString(data, Id.get(i, type).toString());
+		}
+	}
+
+	private void writeNetwork(DataOutputStream data, Network network) throws IOException {
+		writeString(data, network.getName());
+		data.writeDouble(network.getCapacityPeriod());
+		data.writeDouble(network.getEffectiveCellSize());
+		data.writeDouble(network.getEffectiveLaneWidth());
+		writeAttributes(data, network.getAttributes());
+
+		List<Node> nodes = new ArrayList<>(network.getNodes().values());
+		data.writeInt(nodes.size());
+		for (Node node : nodes) {
+			data.writeInt(node.getId().index());
+		}
+		writeCoords(data, nodes.stream().map(Node::getCoord).toArray(Coord[]::new));
+		for (Node node : nodes) {
+			writeAttributes(data, node.getAttributes());
+		}
+
+		List<Link> links = new ArrayList<>(network.getLinks().values());
+		data.writeInt(links.size());
+		for (Link link : links) {
+			data.writeInt(link.getId().index());
+		}
+		for (Link link : links) {
+			data.writeInt(link.getFromNode().getId().index());
+		}
+		for (Link link : links) {
+			data.writeInt(link.getToNode().getId().index());
+		}
+		for (Link link : links) {
+			data.writeDouble(link.getLength());
+		}
+		for (Link link : links) {
+			data.writeDouble(link.getFreespeed());
+		}
+		for (Link link : links) {
+			data.writeDouble(link.getCapacity());
+		}
+		for (Link link : links) {
+			data.writeDouble(link.getNumberOfLanes());
+		}
+		for (Link link : links) {
+			data.writeInt(getStringIndex(String.join(",", link.getAllowedModes())));
+		}
+		for (Link link : links) {
+			writeAttributes(data, link.getAttributes());
+		}
+	}
+
+	private void writeTransitSchedule(DataOutputStream data, TransitSchedule schedule) throws IOException {
+		writeAttributes(data, schedule.getAttributes());
+
+		List<TransitStopFacility> stops = new ArrayList<>(schedule.getFacilities().values());
+		data.writeInt(stops.size());
+		for (TransitStopFacility stop : stops) {
+			data.writeInt(stop.getId().index());
+		}
+		writeCoords(data, stops.stream().map(TransitStopFacility::getCoord).toArray(Coord[]::new));
+		for (TransitStopFacility stop : stops) {
+			data.writeInt(getIdIndex(stop.getLinkId()));
+		}
+		for (TransitStopFacility stop : stops) {
+			data.writeInt(getStringIndex(stop.getName()));
+		}
+		for (TransitStopFacility stop : stops) {
+			data.writeBoolean(stop.getIsBlockingLane());
+		}
+		for (TransitStopFacility stop : stops) {
+			data.writeInt(getStringIndex(stop.getStopAreaId() == null ? null : stop.getStopAreaId().toString()));
+		}
+		for (TransitStopFacility stop : stops) {
+			writeAttributes(data, stop.getAttributes());
+		}
+
+		data.writeInt(schedule.getTransitLines().size());
+		for (TransitLine line : schedule.getTransitLines().values()) {
+			data.writeInt(line.getId().index());
+			writeString(data, line.getName());
+			writeAttributes(data, line.getAttributes());
+			data.writeInt(line.getRoutes().size());
+			for (TransitRoute route : line.getRoutes().values()) {
+				writeTransitRoute(data, route);
+			}
+		}
+
+		MinimalTransferTimes transferTimes = schedule.getMinimalTransferTimes();
+		int transferTimesCount = 0;
+		for (MinimalTransferTimes.MinimalTransferTimesIterator iter = transferTimes.iterator(); iter.hasNext(); ) {
+			iter.next();
+			transferTimesCount++;
+		}
+		data.writeInt(transferTimesCount);
+		for (MinimalTransferTimes.MinimalTransferTimesIterator iter = transferTimes.iterator(); iter.hasNext(); ) {
+			iter.next();
+			data.writeInt(iter.getFromStopId().index());
+			data.writeInt(iter.getToStopId().index());
+			data.writeDouble(iter.getSeconds());
+		}
+	}
+
+	private void writeTransitRoute(DataOutputStream data, TransitRoute route) throws IOException {
+		data.writeInt(route.getId().index());
+		data.writeInt(getStringIndex(route.getTransportMode()));
+		writeString(data, route.getDescription());
+		writeAttributes(data, route.getAttributes());
+
+		NetworkRoute networkRoute = route.getRoute();
+		data.writeBoolean(networkRoute != null);
+		if (networkRoute != null) {
+			data.writeInt(getIdIndex(networkRoute.getStartLinkId()));
+			data.writeInt(getIdIndex(networkRoute.getEndLinkId()));
+			writeLinkIds(data, networkRoute);
+		}
+
+		data.writeInt(route.getStops().size());
+		for (TransitRouteStop stop : route.getStops()) {
+			data.writeInt(stop.getStopFacility().getId().index());
+			data.writeDouble(toDouble(stop.getArrivalOffset()));
+			data.writeDouble(toDouble(stop.getDepartureOffset()));
+			data.writeBoolean(stop.isAwaitDepartureTime());
+		}
+
+		data.writeInt(route.getDepartures().size());
+		for (Departure departure : route.getDepartures().values()) {
+			data.writeInt(departure.getId().index());
+			data.writeDouble(departure.getDepartureTime());
+			data.writeInt(getIdIndex(departure.getVehicleId()));
+			writeAttributes(data, departure.getAttributes());
+		}
+	}
+
+	private void writePersons(DataOutputStream data, List<Person> persons) throws IOException {
+		data.writeInt(persons.size());
+		for (Person person : persons) {
+			data.writeInt(person.getId().index());
+			writeAttributes(data, person.getAttributes());
+			data.writeInt(person.getPlans().size());
+			data.writeInt(person.getPlans().indexOf(person.getSelectedPlan()));
+			for (Plan plan : person.getPlans()) {
+				writePlan(data, plan);
+			}
+		}
+	}
+
+	private void writePlan(DataOutputStream data, Plan plan) throws IOException {
+		data.writeInt(getStringIndex(plan.getType()));
+		Double score = plan.getScore();
+		data.writeBoolean(score != null);
+		data.writeDouble(score == null ? Double.NaN : score);
+		writeAttributes(data, plan.getAttributes());
+		data.writeInt(plan.getPlanElements().size());
+		for (PlanElement pe : plan.getPlanElements()) {
+			if (pe instanceof Activity) {
+				data.writeByte(ScenarioSnapshotFormat.ACTIVITY);
+				writeActivity(data, (Activity) pe);
+			} else if (pe instanceof Leg) {
+				data.writeByte(ScenarioSnapshotFormat.LEG);
+				writeLeg(data, (Leg) pe);
+			} else {
+				throw new IllegalArgumentException("Unsupported plan element: " + pe.getClass().getName());
+			}
+		}
+	}
+
+	private void writeActivity(DataOutputStream data, Activity act) throws IOException {
+		data.writeInt(getStringIndex(act.getType()));
+		int flags = 0;
+		if (act.getCoord() != null) {
+			flags |= ScenarioSnapshotFormat.ACT_HAS_COORD;
+		}
+		if (act.getLinkId() != null) {
+			flags |= ScenarioSnapshotFormat.ACT_HAS_LINK;
+		}
+		if (act.getFacilityId() != null) {
+			flags |= ScenarioSnapshotFormat.ACT_HAS_FACILITY;
+		}
+		data.writeByte(flags);
+		if (act.getCoord() != null) {
+			writeCoord(data, act.getCoord());
+		}
+		if (act.getLinkId() != null) {
+			data.writeInt(act.getLinkId().index());
+		}
+		if (act.getFacilityId() != null) {
+			data.writeInt(act.getFacilityId().index());
+		}
+		data.writeDouble(toDouble(act.getStartTime()));
+		data.writeDouble(toDouble(act.getEndTime()));
+		data.writeDouble(toDouble(act.getMaximumDuration()));
+		writeAttributes(data, act.getAttributes());
+	}
+
+	private void writeLeg(DataOutputStream data, Leg leg) throws IOException {
+		data.writeInt(getStringIndex(leg.getMode()));
+		data.writeDouble(toDouble(leg.getDepartureTime()));
+		data.writeDouble(toDouble(leg.getTravelTime()));
+		writeAttributes(data, leg.getAttributes());
+
+		Route route = leg.getRoute();
+		if (route == null) {
+			data.writeInt(-1);
+			return;
+		}
+		data.writeInt(getStringIndex(route.getRouteType()));
+		data.writeInt(getIdIndex(route.getStartLinkId()));
+		data.writeInt(getIdIndex(route.getEndLinkId()));
+		data.writeDouble(toDouble(route.getTravelTime()));
+		data.writeDouble(route.getDistance());
+		if (route instanceof NetworkRoute) {
+			NetworkRoute networkRoute = (NetworkRoute) route;
+			data.writeByte(ScenarioSnapshotFormat.ROUTE_LINKS);
+			data.writeInt(getIdIndex(networkRoute.getVehicleId()));
+			writeLinkIds(data, networkRoute);
+		} else {
+			data.writeByte(ScenarioSnapshotFormat.ROUTE_DESCRIPTION);
+			writeString(data, route.getRouteDescription());
+		}
+	}
+
+	private static void writeLinkIds(DataOutputStream data, NetworkRoute route) throws IOException {
+		List<Id<Link>> linkIds = route.getLinkIds();
+		data.writeInt(linkIds.size());
+		for (Id<Link> linkId : linkIds) {
+			data.writeInt(linkId.index());
+		}
+	}
+
+	private static void writeCoords(DataOutputStream data, Coord[] coords) throws IOException {
+		for (Coord coord : coords) {
+			data.writeDouble(coord.getX());
+		}
+		for (Coord coord : coords) {
+			data.writeDouble(coord.getY());
+		}
+		for (Coord coord : coords) {
+			data.writeDouble(coord.hasZ() ? coord.getZ() : Double.NaN);
+		}
+	}
+
+	private static void writeCoord(DataOutputStream data, Coord coord) throws IOException {
+		data.writeDouble(coord.getX());
+		data.writeDouble(coord.getY());
+		data.writeDouble(coord.hasZ() ? coord.getZ() : Double.NaN);
+	}
+
+	private void writeAttributes(DataOutputStream data, Attributes attributes) throws IOException {
+		// attributes without converter are skipped, so they must be converted before writing the count
+		List<Map.Entry<String, Object>> entries = new ArrayList<>();
+		List<String> values = new ArrayList<>();
+		for (Map.Entry<String, Object> e : attributes.getAsMap().entrySet()) {
+			String value = this.attributesConverter.convertToString(e.getValue());
+			if (value != null) {
+				entries.add(e);
+				values.add(value);
+			}
+		}
+		data.writeInt(entries.size());
+		for (int i = 0; i < entries.size(); i++) {
+			data.writeInt(getStringIndex(entries.get(i).getKey()));
+			data.writeInt(getStringIndex(entries.get(i).getValue().getClass().getName()));
+			writeString(data, values.get(i));
+		}
+	}
+
+	private int getStringIndex(String s) {
+		if (s == null) {
+			return -1;
+		}
+		Integer index = this.strings.get(s);
+		if (index == null) {
+			index = this.strings.size();
+			this.strings.put(s, index);
+			this.newStrings.add(s);
+		}
+		return index;
+	}
+
+	private static int getIdIndex(Id<?> id) {
+		return id == null ? -1 : id.index();
+	}
+
+	private static double toDouble(OptionalTime time) {
+		return time.isDefined() ? time.seconds() : Double.NaN;
+	}
+
+	private static void writeString(DataOutputStream data, String s) throws IOException {
+		if (s == null) {
+			data.writeInt(-1);
+			return;
+		}
+		byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+		data.writeInt(bytes.length);
+		data.write(bytes);
+	}
+
+}
@@ -163,6 +163,15 @@ public final class EventsToLegs
 		this.network = network;
 	}
 
+	/**
+	 * Creates a new instance without any state or leg handlers, working on the same network and transit schedule as this one.
+	 */
+	EventsToLegs createEmptyCopy() {
+		EventsToLegs copy = new EventsToLegs(this.network);
+		copy.transitSchedule = this.transitSchedule;
+		return copy;
+	}
+
 	@Override
 	public void reset(int iteration) {
 		legs.clear();
@@ -27,11 +27,17 @@ import gnu.trove.list.array.TDoubleArrayList;
 import org.apache.log4j.Logger;
 import org.matsim.api.core.v01.Id;
 import org.matsim.api.core.v01.IdMap;
+import org.matsim.api.core.v01.events.ActivityEndEvent;
+import org.matsim.api.core.v01.events.ActivityStartEvent;
 import org.matsim.api.core.v01.events.Event;
 import org.matsim.api.core.v01.events.LinkEnterEvent;
+import org.matsim.api.core.v01.events.PersonArrivalEvent;
+import org.matsim.api.core.v01.events.PersonDepartureEvent;
+import org.matsim.api.core.v01.events.PersonEntersVehicleEvent;
 import org.matsim.api.core.v01.events.PersonMoneyEvent;
 import org.matsim.api.core.v01.events.PersonScoreEvent;
 import org.matsim.api.core.v01.events.PersonStuckEvent;
+import org.matsim.api.core.v01.events.TransitDriverStartsEvent;
 import org.matsim.api.core.v01.events.VehicleEntersTrafficEvent;
 import org.matsim.api.core.v01.events.VehicleLeavesTrafficEvent;
 import org.matsim.api.core.v01.population.Activity;
@@ -40,9 +46,15 @@ import org.matsim.api.core.v01.population.Person;
 import org.matsim.api.core.v01.population.Plan;
 import org.matsim.api.core.v01.population.Population;
 import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.api.experimental.events.TeleportationArrivalEvent;
+import org.matsim.core.api.experimental.events.VehicleArrivesAtFacilityEvent;
 import org.matsim.core.api.internal.HasPersonId;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.groups.ParallelEventHandlingConfigGroup;
 import org.matsim.core.controler.ControlerListenerManager;
+import org.matsim.core.controler.events.AfterMobsimEvent;
 import org.matsim.core.controler.events.IterationStartsEvent;
+import org.matsim.core.controler.listener.AfterMobsimListener;
 import org.matsim.core.controler.listener.IterationStartsListener;
 import org.matsim.core.events.algorithms.Vehicle2DriverEventHandler;
 import org.matsim.core.events.handler.BasicEventHandler;
@@ -54,6 +66,7 @@ import org.matsim.vehicles.Vehicle;
 
 import java.io.BufferedWriter;
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map.Entry;
 import java.util.concurrent.atomic.AtomicReference;
@@ -64,6 +77,12 @@ import static org.matsim.core.router.TripStructureUtils.Trip;
  * This class helps EventsToScore by keeping ScoringFunctions for the entire Population - one per Person -, and dispatching Activities
  * and Legs to the ScoringFunctions. It also gives out the ScoringFunctions, so they can be given other events by EventsToScore.
  * It is not independently useful. Please do not make public.
+ * <p>
+ * The persons can be split into several shards by the index of their id (see {@link ParallelEventHandlingConfigGroup#getNumberOfScoringShards()}).
+ * Every shard owns the scoring functions, partial scores and trip records of its persons as well as its own {@link EventsToActivities}
+ * and {@link EventsToLegs}, and is registered as separate event handler, so a parallel events manager can score the shards concurrently
+ * without any shared state.  The results do not depend on the number of shards, as every person is handled by exactly one shard and
+ * sees its events in the same order as before.
  * 
  * @author michaz
  *
@@ -77,24 +96,26 @@ import static org.matsim.core.router.TripStructureUtils.Trip;
 	private final static Logger log = Logger.getLogger(ScoringFunctionsForPopulation.class);
 	private final Population population;
 	private final ScoringFunctionFactory scoringFunctionFactory;
-	
-	/*
-	 * Replaced List with TDoubleCollection (TDoubleArrayList) in the partialScores map. This collection allows
-	 * storing primitive objects, i.e. its double entries don't have to be wrapped into Double objects which
-	 * should be faster and reduce the memory overhead.
-	 *
-	 * cdobler, nov'15
-	 */
-	private final IdMap<Person, ScoringFunction> agentScorers = new IdMap<>(Person.class);
-	private final IdMap<Person, TDoubleCollection> partialScores = new IdMap<>(Person.class);
+	private final Shard[] shards;
 	private final AtomicReference<Throwable> exception = new AtomicReference<>();
-	private final IdMap<Person, Plan> tripRecords = new IdMap<>(Person.class);
-	
-	private Vehicle2DriverEventHandler vehicles2Drivers = new Vehicle2DriverEventHandler();
 
-	@Inject
 	ScoringFunctionsForPopulation( ControlerListenerManager controlerListenerManager, EventsManager eventsManager, EventsToActivities eventsToActivities, EventsToLegs eventsToLegs,
 						 Population population, ScoringFunctionFactory scoringFunctionFactory) {
+		this(controlerListenerManager, eventsManager, eventsToActivities, eventsToLegs, population, scoringFunctionFactory, 1);
+	}
+
+	@Inject
+	ScoringFunctionsForPopulation( ControlerListenerManager controlerListenerManager, EventsManager eventsManager, EventsToActivities eventsToActivities, EventsToLegs eventsToLegs,
+						 Population population, ScoringFunctionFactory scoringFunctionFactory, Config config) {
+		this(controlerListenerManager, eventsManager, eventsToActivities, eventsToLegs, population, scoringFunctionFactory,
+				config.parallelEventHandling().getNumberOfScoringShards());
+	}
+
+	ScoringFunctionsForPopulation( ControlerListenerManager controlerListenerManager, EventsManager eventsManager, EventsToActivities eventsToActivities, EventsToLegs eventsToLegs,
+						 Population population, ScoringFunctionFactory scoringFunctionFactory, int numberOfShards) {
+		if (numberOfShards < 1) {
+			throw new IllegalArgumentException("number of scoring shards must be at least 1, but is " + numberOfShards);
+		}
 		controlerListenerManager.addControlerListener(new IterationStartsListener() {
 			@Override
 			public void notifyIterationStarts(IterationStartsEvent event) {
@@ -103,129 +124,59 @@ import static org.matsim.core.router.TripStructureUtils.Trip;
 		});
 		this.population = population;
 		this.scoringFunctionFactory = scoringFunctionFactory;
-		eventsManager.addHandler(this);
-		eventsToActivities.addActivityHandler(this);
-		eventsToLegs.addLegHandler(this);
+		this.shards = new Shard[numberOfShards];
+		for (int i = 0; i < numberOfShards; i++) {
+			// with a single shard, the activities and legs come from the (shared) instances passed in
+			this.shards[i] = numberOfShards == 1 ? new Shard(i, null, null) : new Shard(i, new EventsToActivities(), eventsToLegs.createEmptyCopy());
+		}
+		if (numberOfShards == 1) {
+			eventsManager.addHandler(this);
+			eventsToActivities.addActivityHandler(this);
+			eventsToLegs.addLegHandler(this);
+		} else {
+			// every shard gets all events, but only handles those of its own persons
+			for (Shard shard : this.shards) {
+				eventsManager.addHandler(shard);
+			}
+			controlerListenerManager.addControlerListener(new AfterMobsimListener() {
+				@Override
+				public void notifyAfterMobsim(AfterMobsimEvent event) {
+					// pass on the last activities, as the shared EventsToActivities would do it
+					for (Shard shard : shards) {
+						shard.eventsToActivities.finish();
+					}
+				}
+			});
+		}
 	}
 
 	private void init() {
 		for (Person person : this.population.getPersons().values()) {
 			ScoringFunction data = this.scoringFunctionFactory.createNewScoringFunction(person);
-			this.agentScorers.put(person.getId(), data);
-			this.partialScores.put(person.getId(), new TDoubleArrayList());
-			this.tripRecords.put(person.getId(), PopulationUtils.createPlan());
+			getShard(person.getId()).init(person.getId(), data);
 		}
 	}
 
-	@Override
-	synchronized public void handleEvent(Event o) {
-		// this is for the stuff that is directly based on events.
-		// note that this passes on _all_ person events, even those which are aggregated into legs and activities.
-		// for the time being, not all PersonEvents may "implement HasPersonId".
-		// link enter/leave events are NOT passed on, for performance reasons.
-		// kai/dominik, dec'12
-		if (o instanceof HasPersonId) {
-			ScoringFunction scoringFunction = getScoringFunctionForAgent(((HasPersonId) o).getPersonId());
-			if (scoringFunction != null) {
-				if (o instanceof PersonStuckEvent) {
-					scoringFunction.agentStuck(o.getTime());
-				} else if (o instanceof PersonMoneyEvent) {
-					scoringFunction.addMoney(((PersonMoneyEvent) o).getAmount());
-					// yy looking at this, I am a bit skeptic if it truly makes sense to not pass this additionally into the general events handling function below.
-					// A use case might be different utilities of money by money transaction type (e.g. toll, fare, reimbursement, ...).  kai, mar'17
-				} else if (o instanceof PersonScoreEvent) {
-					scoringFunction.addScore(((PersonScoreEvent) o).getAmount());
-				}
-//				else {
-					scoringFunction.handleEvent(o);
-					// passing this on in any case, see comment above.  kai, mar'17
-//				}
-			}
-		}
+	private Shard getShard(Id<Person> personId) {
+		return this.shards[personId.index() % this.shards.length];
+	}
 
-		// Establish and end connection between driver and vehicle
-		if (o instanceof VehicleEntersTrafficEvent) {
-			this.vehicles2Drivers.handleEvent((VehicleEntersTrafficEvent) o);
-		}
-		if (o instanceof VehicleLeavesTrafficEvent) {
-			this.vehicles2Drivers.handleEvent((VehicleLeavesTrafficEvent) o);
-		}
-		// Pass LinkEnterEvent to person scoring, required e.g. for bicycle where link attributes are observed in scoring
-		/*
-		 * (This shouldn't really be more expensive than passing the link events to the router: here, we have a map lookup
-		 * for agentId, there we have a map lookup for linkId. Should be somewhat similar in terms of average
-		 * computational complexity. In BetaTravelTest, 194sec w/ "false", 193sec w/ "true". However, the experienced
-		 * plans service in fact does the same thing, so we should be able to get away without having to do this twice.
-		 * kai, mar'17)
-		 */
-		if ( o instanceof LinkEnterEvent ) {
-			Id<Vehicle> vehicleId = ((LinkEnterEvent)o).getVehicleId();
-			Id<Person> driverId = this.vehicles2Drivers.getDriverOfVehicle(vehicleId);
-			ScoringFunction scoringFunction = getScoringFunctionForAgent( driverId );
-			// (this will NOT do the scoring function lookup twice since LinkEnterEvent is not an instance of HasPersonId.  kai, mar'17)
-			if (scoringFunction != null) {
-				scoringFunction.handleEvent(o);
-			}
+	@Override
+	public void handleEvent(Event o) {
+		// only called directly if there is a single shard, or if someone passes events by hand
+		for (Shard shard : this.shards) {
+			shard.handleEvent(o);
 		}
 	}
 
 	@Override
-	synchronized public void handleLeg(PersonExperiencedLeg o) {
-		Id<Person> agentId = o.getAgentId();
-		Leg leg = o.getLeg();
-		ScoringFunction scoringFunction = ScoringFunctionsForPopulation.this.getScoringFunctionForAgent(agentId);
-		if (scoringFunction != null) {
-			scoringFunction.handleLeg(leg);
-			TDoubleCollection partialScoresForAgent = this.partialScores.get(agentId);
-			partialScoresForAgent.add(scoringFunction.getScore());
-		}
-		Plan plan = this.tripRecords.get( agentId ) ; // as container for trip
-		if ( plan!=null ) {
-			plan.addLeg( leg );
-		}
+	public void handleLeg(PersonExperiencedLeg o) {
+		getShard(o.getAgentId()).handleLeg(o);
 	}
 
 	@Override
-	synchronized public void handleActivity(PersonExperiencedActivity o) {
-		Id<Person> agentId = o.getAgentId();
-		Activity activity = o.getActivity();
-		ScoringFunction scoringFunction = ScoringFunctionsForPopulation.this.getScoringFunctionForAgent(agentId);
-		if (scoringFunction != null) {
-			scoringFunction.handleActivity(activity);
-			TDoubleCollection partialScoresForAgent = this.partialScores.get(agentId);
-			partialScoresForAgent.add(scoringFunction.getScore());
-		}
-		
-		Plan plan = this.tripRecords.get( agentId ); // as container for trip
-		if ( plan!= null ) {
-			if ( !plan.getPlanElements().isEmpty() ) {
-				// plan != null, meaning we already have pre-existing material
-				if (StageActivityTypeIdentifier.isStageActivity( activity.getType() ) ) {
-					// we are at a stage activity.  Don't do anything ; activity will be added later
-				} else {
-					// we are at a real activity, which is not the first one we see for this agent.  output the trip ...
-					plan.addActivity( activity );
-					final List<Trip> trips = TripStructureUtils.getTrips( plan );
-					// yyyyyy should in principle only return one trip.  There are, however, situations where
-					// it returns two trips, in particular in conjunction with the minibus raptor.  Possibly
-					// something that has to do with not alternativing between acts and legs.
-					// (To make matters worse, it passes on my local machine, but fails in jenkins.  Possibly,
-					// the byte buffer memory management in the minibus raptor implementation has
-					// issues--???)
-					// kai, sep'18
-					
-					for ( Trip trip : trips ) {
-						if ( trip != null ) {
-							scoringFunction.handleTrip( trip );
-						}
-					}
-					
-					// ... and clean out the intermediate plan:
-					plan.getPlanElements().clear();
-				}
-			}
-			plan.addActivity( activity );
-		}
+	public void handleActivity(PersonExperiencedActivity o) {
+		getShard(o.getAgentId()).handleActivity(o);
 	}
 
 	/**
@@ -239,7 +190,7 @@ import static org.matsim.core.router.TripStructureUtils.Trip;
 	 * @return The scoring function for the specified agent.
 	 */
 	public ScoringFunction getScoringFunctionForAgent(final Id<Person> agentId) {
-		return this.agentScorers.get(agentId);
+		return getShard(agentId).agentScorers.get(agentId);
 	}
 
 	public void finishScoringFunctions() {
@@ -252,17 +203,22 @@ import static org.matsim.core.router.TripStructureUtils.Trip;
 				throw new RuntimeException(throwable);
 			}
 		}
-		for (ScoringFunction sf : this.agentScorers.values()) {
-			sf.finish();
-		}
-		for (Entry<Id<Person>, TDoubleCollection> entry : this.partialScores.entrySet()) {
-			entry.getValue().add(this.getScoringFunctionForAgent(entry.getKey()).getScore());
+		if (this.shards.length == 1) {
+			this.shards[0].finish();
+		} else {
+			// the shards have disjoint persons, so they can be finished concurrently
+			Arrays.stream(this.shards).parallel().forEach(Shard::finish);
 		}
 	}
 
 	public void writePartialScores(String iterationFilename) {
+		// merge the shards, so the persons are written in the same order independent of the number of shards
+		IdMap<Person, TDoubleCollection> partialScores = new IdMap<>(Person.class);
+		for (Shard shard : this.shards) {
+			partialScores.putAll(shard.partialScores);
+		}
 		try ( BufferedWriter out = IOUtils.getBufferedWriter(iterationFilename) ) {
-			for (Entry<Id<Person>, TDoubleCollection> entry : this.partialScores.entrySet()) {
+			for (Entry<Id<Person>, TDoubleCollection> entry : partialScores.entrySet()) {
 				out.write(entry.getKey().toString());
 				TDoubleIterator iterator = entry.getValue().iterator();
 				while (iterator.hasNext()) {
@@ -281,4 +237,224 @@ import static org.matsim.core.router.TripStructureUtils.Trip;
 
 	}
 
+	/**
+	 * The state of all persons with <code>id.index() % shards.length == shardIndex</code>.
+	 */
+	private final class Shard implements BasicEventHandler {
+
+		private final int shardIndex;
+
+		// only set if there is more than one shard, otherwise the activities and legs come from the shared instances
+		private final EventsToActivities eventsToActivities;
+		private final EventsToLegs eventsToLegs;
+
+		/*
+		 * Replaced List with TDoubleCollection (TDoubleArrayList) in the partialScores map. This collection allows
+		 * storing primitive objects, i.e. its double entries don't have to be wrapped into Double objects which
+		 * should be faster and reduce the memory overhead.
+		 *
+		 * cdobler, nov'15
+		 */
+		private final IdMap<Person, ScoringFunction> agentScorers = new IdMap<>(Person.class);
+		private final IdMap<Person, TDoubleCollection> partialScores = new IdMap<>(Person.class);
+		private final IdMap<Person, Plan> tripRecords = new IdMap<>(Person.class);
+
+		// only knows the vehicles driven by persons of this shard
+		private final Vehicle2DriverEventHandler vehicles2Drivers = new Vehicle2DriverEventHandler();
+
+		Shard(int shardIndex, EventsToActivities eventsToActivities, EventsToLegs eventsToLegs) {
+			this.shardIndex = shardIndex;
+			this.eventsToActivities = eventsToActivities;
+			this.eventsToLegs = eventsToLegs;
+			if (eventsToActivities != null) {
+				eventsToActivities.addActivityHandler(this::handleActivity);
+				eventsToLegs.addLegHandler(this::handleLeg);
+			}
+		}
+
+		private boolean isResponsible(Id<Person> personId) {
+			return shards.length == 1 || (personId != null && personId.index() % shards.length == this.shardIndex);
+		}
+
+		synchronized void init(Id<Person> personId, ScoringFunction scoringFunction) {
+			this.agentScorers.put(personId, scoringFunction);
+			this.partialScores.put(personId, new TDoubleArrayList());
+			this.tripRecords.put(personId, PopulationUtils.createPlan());
+		}
+
+		@Override
+		synchronized public void handleEvent(Event o) {
+			// this is for the stuff that is directly based on events.
+			// note that this passes on _all_ person events, even those which are aggregated into legs and activities.
+			// for the time being, not all PersonEvents may "implement HasPersonId".
+			// link enter/leave events are NOT passed on, for performance reasons.
+			// kai/dominik, dec'12
+			Id<Person> personId = o instanceof HasPersonId ? ((HasPersonId) o).getPersonId() : null;
+			boolean responsible = o instanceof HasPersonId && isResponsible(personId);
+			if (responsible) {
+				ScoringFunction scoringFunction = this.agentScorers.get(personId);
+				if (scoringFunction != null) {
+					if (o instanceof PersonStuckEvent) {
+						scoringFunction.agentStuck(o.getTime());
+					} else if (o instanceof PersonMoneyEvent) {
+						scoringFunction.addMoney(((PersonMoneyEvent) o).getAmount());
+						// yy looking at this, I am a bit skeptic if it truly makes sense to not pass this additionally into the general events handling function below.
+						// A use case might be different utilities of money by money transaction type (e.g. toll, fare, reimbursement, ...).  kai, mar'17
+					} else if (o instanceof PersonScoreEvent) {
+						scoringFunction.addScore(((PersonScoreEvent) o).getAmount());
+					}
+	//				else {
+						scoringFunction.handleEvent(o);
+						// passing this on in any case, see comment above.  kai, mar'17
+	//				}
+				}
+			}
+
+			// Establish and end connection between driver and vehicle
+			if (responsible && o instanceof VehicleEntersTrafficEvent) {
+				this.vehicles2Drivers.handleEvent((VehicleEntersTrafficEvent) o);
+			}
+			if (responsible && o instanceof VehicleLeavesTrafficEvent) {
+				this.vehicles2Drivers.handleEvent((VehicleLeavesTrafficEvent) o);
+			}
+			// Pass LinkEnterEvent to person scoring, required e.g. for bicycle where link attributes are observed in scoring
+			/*
+			 * (This shouldn't really be more expensive than passing the link events to the router: here, we have a map lookup
+			 * for agentId, there we have a map lookup for linkId. Should be somewhat similar in terms of average
+			 * computational complexity. In BetaTravelTest, 194sec w/ "false", 193sec w/ "true". However, the experienced
+			 * plans service in fact does the same thing, so we should be able to get away without having to do this twice.
+			 * kai, mar'17)
+			 */
+			if ( o instanceof LinkEnterEvent ) {
+				Id<Vehicle> vehicleId = ((LinkEnterEvent)o).getVehicleId();
+				Id<Person> driverId = this.vehicles2Drivers.getDriverOfVehicle(vehicleId);
+				// (a shard only knows the drivers of its own persons, vehicles of other shards are skipped)
+				ScoringFunction scoringFunction = driverId == null ? null : this.agentScorers.get( driverId );
+				if (scoringFunction != null) {
+					scoringFunction.handleEvent(o);
+				}
+			}
+
+			if (this.eventsToLegs != null) {
+				handleExperiencedPlanElementEvent(o, responsible);
+			}
+		}
+
+		/**
+		 * Builds the activities and legs of the persons of this shard.  The vehicle and transit events are passed on in any case, as
+		 * persons of this shard may travel as passengers in vehicles driven by persons of other shards.
+		 */
+		private void handleExperiencedPlanElementEvent(Event o, boolean responsible) {
+			if (o instanceof ActivityEndEvent) {
+				if (responsible) {
+					this.eventsToActivities.handleEvent((ActivityEndEvent) o);
+				}
+			} else if (o instanceof ActivityStartEvent) {
+				if (responsible) {
+					this.eventsToActivities.handleEvent((ActivityStartEvent) o);
+				}
+			} else if (o instanceof PersonDepartureEvent) {
+				if (responsible) {
+					this.eventsToLegs.handleEvent((PersonDepartureEvent) o);
+				}
+			} else if (o instanceof PersonArrivalEvent) {
+				if (responsible) {
+					this.eventsToLegs.handleEvent((PersonArrivalEvent) o);
+				}
+			} else if (o instanceof PersonEntersVehicleEvent) {
+				if (responsible) {
+					this.eventsToLegs.handleEvent((PersonEntersVehicleEvent) o);
+				}
+			} else if (o instanceof TeleportationArrivalEvent) {
+				if (responsible) {
+					this.eventsToLegs.handleEvent((TeleportationArrivalEvent) o);
+				}
+			} else if (o instanceof LinkEnterEvent) {
+				this.eventsToLegs.handleEvent((LinkEnterEvent) o);
+			} else if (o instanceof VehicleEntersTrafficEvent) {
+				this.eventsToLegs.handleEvent((VehicleEntersTrafficEvent) o);
+			} else if (o instanceof VehicleLeavesTrafficEvent) {
+				this.eventsToLegs.handleEvent((VehicleLeavesTrafficEvent) o);
+			} else if (o instanceof VehicleArrivesAtFacilityEvent) {
+				this.eventsToLegs.handleEvent((VehicleArrivesAtFacilityEvent) o);
+			} else if (o instanceof TransitDriverStartsEvent) {
+				this.eventsToLegs.handleEvent((TransitDriverStartsEvent) o);
+			}
+		}
+
+		synchronized void handleLeg(PersonExperiencedLeg o) {
+			Id<Person> agentId = o.getAgentId();
+			Leg leg = o.getLeg();
+			ScoringFunction scoringFunction = this.agentScorers.get(agentId);
+			if (scoringFunction != null) {
+				scoringFunction.handleLeg(leg);
+				TDoubleCollection partialScoresForAgent = this.partialScores.get(agentId);
+				partialScoresForAgent.add(scoringFunction.getScore());
+			}
+			Plan plan = this.tripRecords.get( agentId ) ; // as container for trip
+			if ( plan!=null ) {
+				plan.addLeg( leg );
+			}
+		}
+
+		synchronized void handleActivity(PersonExperiencedActivity o) {
+			Id<Person> agentId = o.getAgentId();
+			Activity activity = o.getActivity();
+			ScoringFunction scoringFunction = this.agentScorers.get(agentId);
+			if (scoringFunction != null) {
+				scoringFunction.handleActivity(activity);
+				TDoubleCollection partialScoresForAgent = this.partialScores.get(agentId);
+				partialScoresForAgent.add(scoringFunction.getScore());
+			}
+			
+			Plan plan = this.tripRecords.get( agentId ); // as container for trip
+			if ( plan!= null ) {
+				if ( !plan.getPlanElements().isEmpty() ) {
+					// plan != null, meaning we already have pre-existing material
+					if (StageActivityTypeIdentifier.isStageActivity( activity.getType() ) ) {
+						// we are at a stage activity.  Don't do anything ; activity will be added later
+					} else {
+						// we are at a real activity, which is not the first one we see for this agent.  output the trip ...
+						plan.addActivity( activity );
+						final List<Trip> trips = TripStructureUtils.getTrips( plan );
+						// yyyyyy should in principle only return one trip.  There are, however, situations where
+						// it returns two trips, in particular in conjunction with the minibus raptor.  Possibly
+						// something that has to do with not alternativing between acts and legs.
+						// (To make matters worse, it passes on my local machine, but fails in jenkins.  Possibly,
+						// the byte buffer memory management in the minibus raptor implementation has
+						// issues--???)
+						// kai, sep'18
+						
+						for ( Trip trip : trips ) {
+							if ( trip != null ) {
+								scoringFunction.handleTrip( trip );
+							}
+						}
+						
+						// ... and clean out the intermediate plan:
+						plan.getPlanElements().clear();
+					}
+				}
+				plan.addActivity( activity );
+			}
+		}
+
+		synchronized void finish() {
+			for (ScoringFunction sf : this.agentScorers.values()) {
+				sf.finish();
+			}
+			for (Entry<Id<Person>, TDoubleCollection> entry : this.partialScores.entrySet()) {
+				entry.getValue().add(this.agentScorers.get(entry.getKey()).getScore());
+			}
+		}
+
+		@Override
+		public void reset(int iteration) {
+			if (this.eventsToLegs != null) {
+				this.eventsToActivities.reset(iteration);
+				this.eventsToLegs.reset(iteration);
+			}
+		}
+	}
+
 }
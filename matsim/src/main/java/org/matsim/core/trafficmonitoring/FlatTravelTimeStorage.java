@@ -0,0 +1,195 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * FlatTravelTimeStorage.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2022 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.trafficmonitoring;
+
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+
+import java.util.Arrays;
+
+/**
+ * Stores the travel times of all links (and optionally of all turns, i.e. pairs of consecutive links) in a single
+ * array each, indexed by {@link Id#index()} of the link and the time slot. The data is encoded in the same way as in
+ * {@link TravelTimeDataArray}.
+ * <p></p>
+ * All storage is allocated upfront for the links of the network, so handling an event does neither allocate memory
+ * nor require a hash lookup.
+ *
+ * @see org.matsim.core.config.groups.TravelTimeCalculatorConfigGroup.TravelTimeCalculatorType#TravelTimeCalculatorFlatArray
+ */
+final class FlatTravelTimeStorage implements DataContainerProvider {
+
+	private final int numSlots;
+	private final long[] linkData;
+	private final LinkData[] links;
+
+	// turns: for each from-link the range [turnFirst[link], turnFirst[link + 1]) in turnToLink
+	private final int[] turnFirst;
+	private final int[] turnToLink;
+	private final long[] turnData;
+	private final LinkData[] turns;
+
+	FlatTravelTimeStorage(final Network network, final int numSlots, final boolean calculateTurns) {
+		this.numSlots = numSlots;
+		int maxIndex = -1;
+		for (Link link : network.getLinks().values()) {
+			maxIndex = Math.max(maxIndex, link.getId().index());
+		}
+		this.linkData = new long[(maxIndex + 1) * numSlots];
+		this.links = new LinkData[maxIndex + 1];
+		for (Link link : network.getLinks().values()) {
+			int index = link.getId().index();
+			this.links[index] = new LinkData(this.linkData, index * numSlots, numSlots, link);
+		}
+
+		if (calculateTurns) {
+			this.turnFirst = new int[maxIndex + 2];
+			for (int index = 0; index <= maxIndex; index++) {
+				Link link = this.links[index] == null ? null : this.links[index].link;
+				this.turnFirst[index + 1] = this.turnFirst[index] + (link == null ? 0 : link.getToNode().getOutLinks().size());
+			}
+			int turnCount = this.turnFirst[maxIndex + 1];
+			this.turnToLink = new int[turnCount];
+			this.turnData = new long[turnCount * numSlots];
+			this.turns = new LinkData[turnCount];
+			for (int index = 0; index <= maxIndex; index++) {
+				if (this.links[index] == null) {
+					continue;
+				}
+				Link link = this.links[index].link;
+				int turn = this.turnFirst[index];
+				for (Link toLink : link.getToNode().getOutLinks().values()) {
+					this.turnToLink[turn] = toLink.getId().index();
+					// as in the map based implementation, the free speed travel time of the from-link is used if no data is available
+					this.turns[turn] = new LinkData(this.turnData, turn * numSlots, numSlots, link);
+					turn++;
+				}
+			}
+		} else {
+			this.turnFirst = null;
+			this.turnToLink = null;
+			this.turnData = null;
+			this.turns = null;
+		}
+		reset();
+	}
+
+	void reset() {
+		Arrays.fill(this.linkData, TravelTimeDataArray.encode(0, -1.0));
+		for (LinkData data : this.links) {
+			if (data != null) {
+				data.setNeedsConsolidation(false);
+			}
+		}
+		if (this.turnData != null) {
+			Arrays.fill(this.turnData, TravelTimeDataArray.encode(0, -1.0));
+			for (LinkData data : this.turns) {
+				data.setNeedsConsolidation(false);
+			}
+		}
+	}
+
+	/**
+	 * @return the data of the link, or <code>null</code> if the link is not part of the network.
+	 */
+	TravelTimeData getTravelTimeData(final int linkIndex) {
+		return linkIndex < this.links.length ? this.links[linkIndex] : null;
+	}
+
+	/**
+	 * @return the data of the turn, or <code>null</code> if the to-link does not start where the from-link ends.
+	 */
+	TravelTimeData getTurnTravelTimeData(final int fromLinkIndex, final int toLinkIndex) {
+		if (fromLinkIndex + 1 >= this.turnFirst.length) {
+			return null;
+		}
+		for (int turn = this.turnFirst[fromLinkIndex], end = this.turnFirst[fromLinkIndex + 1]; turn < end; turn++) {
+			if (this.turnToLink[turn] == toLinkIndex) {
+				return this.turns[turn];
+			}
+		}
+		return null;
+	}
+
+	@Override
+	public TravelTimeData getTravelTimeData(final Id<Link> linkId, final boolean createIfMissing) {
+		return getTravelTimeData(linkId.index());
+	}
+
+	@Override
+	public TravelTimeData getTravelTimeData(final Link link, final boolean createIfMissing) {
+		return getTravelTimeData(link.getId().index());
+	}
+
+	int getNumSlots() {
+		return this.numSlots;
+	}
+
+	/**
+	 * A view on the part of the shared array belonging to one link or turn.
+	 */
+	private static final class LinkData extends TravelTimeData {
+
+		private final long[] data;
+		private final int offset;
+		private final int numSlots;
+		private final Link link;
+
+		LinkData(final long[] data, final int offset, final int numSlots, final Link link) {
+			this.data = data;
+			this.offset = offset;
+			this.numSlots = numSlots;
+			this.link = link;
+		}
+
+		@Override
+		public void resetTravelTimes() {
+			Arrays.fill(this.data, this.offset, this.offset + this.numSlots, TravelTimeDataArray.encode(0, -1.0));
+		}
+
+		@Override
+		void setTravelTime(final int timeSlot, final double traveltime) {
+			this.data[this.offset + timeSlot] = TravelTimeDataArray.encode(1, traveltime);
+		}
+
+		@Override
+		void addTravelTime(final int timeSlot, final double traveltime) {
+			long val = this.data[this.offset + timeSlot];
+			int cnt = TravelTimeDataArray.count(val);
+			double sum = TravelTimeDataArray.traveltime(val) * cnt + traveltime;
+			cnt++;
+			this.data[this.offset + timeSlot] = TravelTimeDataArray.encode(cnt, sum / cnt);
+		}
+
+		@Override
+		double getTravelTime(final int timeSlot, final double now) {
+			long val = this.data[this.offset + timeSlot];
+			double ttime = TravelTimeDataArray.traveltime(val);
+			if (ttime >= 0.0) return ttime; // negative values are invalid.
+
+			double freespeed = this.link.getLength() / this.link.getFreespeed(now);
+			this.data[this.offset + timeSlot] = TravelTimeDataArray.encode(0, freespeed);
+			return freespeed;
+		}
+	}
+
+}
@@ -49,6 +49,7 @@ import org.matsim.core.utils.collections.Tuple;
 import org.matsim.vehicles.Vehicle;
 import org.matsim.vehicles.VehicleType;
 
+import java.util.Arrays;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
@@ -86,10 +87,15 @@ public final class TravelTimeCalculator implements LinkEnterEventHandler, LinkLe
 
 	private Map<Tuple<Id<Link>, Id<Link>>, TravelTimeData> linkToLinkData;
 
-	private final DataContainerProvider dataContainerProvider;
+	private DataContainerProvider dataContainerProvider;
 
 	private final Map<Id<Vehicle>, LinkEnterEvent> linkEnterEvents;
 
+	// only used with TravelTimeCalculatorFlatArray: link travel times in flat arrays, pending link enters per vehicle index
+	private FlatTravelTimeStorage flatStorage = null;
+	private double[] enterTimes = null;
+	private int[] enterLinks = null;
+
 	private final Set<Id<Vehicle>> vehiclesToIgnore;
 	private final Set<String> analyzedModes;
 
@@ -123,6 +129,9 @@ public final class TravelTimeCalculator implements LinkEnterEventHandler, LinkLe
 			case TravelTimeCalculatorHashMap:
 				calculator.ttDataFactory = new TravelTimeDataHashMapFactory(network);
 				break;
+			case TravelTimeCalculatorFlatArray:
+				calculator.useFlatStorage(network);
+				break;
 			default:
 				throw new RuntimeException(config.getTravelTimeCalculatorType() + " is unknown!");
 		}
@@ -265,12 +274,59 @@ public final class TravelTimeCalculator implements LinkEnterEventHandler, LinkLe
 		this.reset(0);
 	}
 
+	private void useFlatStorage(Network network) {
+		this.flatStorage = new FlatTravelTimeStorage(network, this.numSlots, this.calculateLinkToLinkTravelTimes);
+		this.dataContainerProvider = this.flatStorage;
+		this.enterTimes = new double[Math.max(16, Id.getNumberOfIds(Vehicle.class))];
+		this.enterLinks = new int[this.enterTimes.length];
+		Arrays.fill(this.enterTimes, Double.NaN);
+	}
+
+	private void setEnterTime(int vehicleIndex, int linkIndex, double time) {
+		if (vehicleIndex >= this.enterTimes.length) {
+			int oldLength = this.enterTimes.length;
+			int newLength = Math.max(vehicleIndex + 1, oldLength * 2);
+			this.enterTimes = Arrays.copyOf(this.enterTimes, newLength);
+			this.enterLinks = Arrays.copyOf(this.enterLinks, newLength);
+			Arrays.fill(this.enterTimes, oldLength, newLength, Double.NaN);
+		}
+		this.enterTimes[vehicleIndex] = time;
+		this.enterLinks[vehicleIndex] = linkIndex;
+	}
+
+	/**
+	 * @return the time the vehicle entered its current link, or NaN if unknown.
+	 */
+	private double getEnterTime(int vehicleIndex) {
+		return vehicleIndex < this.enterTimes.length ? this.enterTimes[vehicleIndex] : Double.NaN;
+	}
+
+	private void removeEnterTime(int vehicleIndex) {
+		if (vehicleIndex < this.enterTimes.length) {
+			this.enterTimes[vehicleIndex] = Double.NaN;
+		}
+	}
+
 	@Override
 	public void handleEvent(final LinkEnterEvent e) {
 		/* if only some modes are analyzed, we check whether the vehicles
 		 * performs a trip with one of those modes. if not, we skip the event. */
 		if (filterAnalyzedModes && vehiclesToIgnore.contains(e.getVehicleId())) return;
 
+		if (this.flatStorage != null) {
+			int vehicleIndex = e.getVehicleId().index();
+			double enterTime = getEnterTime(vehicleIndex);
+			if (!Double.isNaN(enterTime) && this.calculateLinkToLinkTravelTimes) {
+				TravelTimeData data = this.flatStorage.getTurnTravelTimeData(this.enterLinks[vehicleIndex], e.getLinkId().index());
+				if (data != null) { // otherwise, the links are not connected
+					data.addTravelTime(this.aggregator.getTimeSlotIndex(enterTime), e.getTime() - enterTime);
+					data.setNeedsConsolidation( true );
+				}
+			}
+			setEnterTime(vehicleIndex, e.getLinkId().index(), e.getTime());
+			return;
+		}
+
 		LinkEnterEvent oldEvent = this.linkEnterEvents.put(e.getVehicleId(), e);
 		if ((oldEvent != null) && this.calculateLinkToLinkTravelTimes) {
 			Tuple<Id<Link>, Id<Link>> fromToLink = new Tuple<>(oldEvent.getLinkId(), e.getLinkId());
@@ -285,7 +341,14 @@ public final class TravelTimeCalculator implements LinkEnterEventHandler, LinkLe
 
 	@Override
 	public void handleEvent(final LinkLeaveEvent e) {
-		if (this.calculateLinkTravelTimes) {
+		if (this.calculateLinkTravelTimes && this.flatStorage != null) {
+			double enterTime = getEnterTime(e.getVehicleId().index());
+			TravelTimeData data = this.flatStorage.getTravelTimeData(e.getLinkId().index());
+			if (!Double.isNaN(enterTime) && data != null) {
+				data.addTravelTime(this.aggregator.getTimeSlotIndex(enterTime), e.getTime() - enterTime);
+				data.setNeedsConsolidation( true );
+			}
+		} else if (this.calculateLinkTravelTimes) {
 			LinkEnterEvent oldEvent = this.linkEnterEvents.get(e.getVehicleId());
 			if (oldEvent != null) {
 				TravelTimeData data = this.dataContainerProvider.getTravelTimeData(e.getLinkId(), true);
@@ -313,7 +376,11 @@ public final class TravelTimeCalculator implements LinkEnterEventHandler, LinkLe
 		/* remove EnterEvents from list when a vehicle arrives.
 		 * otherwise, the activity duration would counted as travel time, when the
 		 * vehicle departs again and leaves the link! */
-		this.linkEnterEvents.remove(event.getVehicleId());
+		if (this.flatStorage != null) {
+			removeEnterTime(event.getVehicleId().index());
+		} else {
+			this.linkEnterEvents.remove(event.getVehicleId());
+		}
 
 		// try to remove vehicles from set with filtered vehicles
 		if (filterAnalyzedModes) this.vehiclesToIgnore.remove(event.getVehicleId());
@@ -324,14 +391,29 @@ public final class TravelTimeCalculator implements LinkEnterEventHandler, LinkLe
 		/* remove EnterEvents from list when a bus stops on a link.
 		 * otherwise, the stop time would counted as travel time, when the
 		 * bus departs again and leaves the link! */
-		this.linkEnterEvents.remove(event.getVehicleId());
+		if (this.flatStorage != null) {
+			removeEnterTime(event.getVehicleId().index());
+		} else {
+			this.linkEnterEvents.remove(event.getVehicleId());
+		}
 	}
 
 	@Override
 	public void handleEvent(VehicleAbortsEvent event) {
-		LinkEnterEvent e = this.linkEnterEvents.remove(event.getVehicleId());
-		if (e != null) {
-			TravelTimeData data = this.dataContainerProvider.getTravelTimeData(e.getLinkId(), true);
+		TravelTimeData data = null;
+		if (this.flatStorage != null) {
+			int vehicleIndex = event.getVehicleId().index();
+			if (!Double.isNaN(getEnterTime(vehicleIndex))) {
+				data = this.flatStorage.getTravelTimeData(this.enterLinks[vehicleIndex]);
+				removeEnterTime(vehicleIndex);
+			}
+		} else {
+			LinkEnterEvent e = this.linkEnterEvents.remove(event.getVehicleId());
+			if (e != null) {
+				data = this.dataContainerProvider.getTravelTimeData(e.getLinkId(), true);
+			}
+		}
+		if (data != null) {
 			data.setNeedsConsolidation( true );
 
 			//			this.aggregator.addStuckEventTravelTime(data, e.getTime(), event.getTime());
@@ -369,6 +451,10 @@ public final class TravelTimeCalculator implements LinkEnterEventHandler, LinkLe
 		if (this.calculateLinkTravelTimes) {
 
 			TravelTimeData data = this.dataContainerProvider.getTravelTimeData(link, true);
+			if ( data == null ) {
+				// only with the flat storage, for links that are not part of the network
+				return link.getLength() / link.getFreespeed(time);
+			}
 			if ( data.isNeedingConsolidation() ) {
 				consolidateData(data);
 			}
@@ -406,12 +492,21 @@ public final class TravelTimeCalculator implements LinkEnterEventHandler, LinkLe
 								    "if calculation is switched off by config option!");
 	}
 
-	private double getLinkToLinkTravelTime(final Id<Link> fromLinkId, final Id<Link> toLinkId, double time) {
+	private double getLinkToLinkTravelTime(final Link fromLink, final Link toLink, double time) {
 		if (!this.calculateLinkToLinkTravelTimes) {
 			throw new IllegalStateException("No link to link travel time is available " +
 									    "if calculation is switched off by config option!");
 		}
-		TravelTimeData data = this.getLinkToLinkTravelTimeData(new Tuple<>(fromLinkId, toLinkId) );
+		TravelTimeData data;
+		if (this.flatStorage != null) {
+			data = this.flatStorage.getTurnTravelTimeData(fromLink.getId().index(), toLink.getId().index());
+			if (data == null) {
+				// not a turn, so there cannot be any data
+				return fromLink.getLength() / fromLink.getFreespeed(time);
+			}
+		} else {
+			data = this.getLinkToLinkTravelTimeData(new Tuple<>(fromLink.getId(), toLink.getId()) );
+		}
 		if ( data.isNeedingConsolidation() ) {
 			consolidateData(data);
 		}
@@ -432,6 +527,10 @@ public final class TravelTimeCalculator implements LinkEnterEventHandler, LinkLe
 				data.setNeedsConsolidation( false );
 			}
 		}
+		if (this.flatStorage != null) {
+			this.flatStorage.reset();
+			Arrays.fill(this.enterTimes, Double.NaN);
+		}
 		this.linkEnterEvents.clear();
 		this.vehiclesToIgnore.clear();
 	}
@@ -540,7 +639,7 @@ public final class TravelTimeCalculator implements LinkEnterEventHandler, LinkLe
 						linkTtimeFromVehicle = fromLink.getLength() / vehicleType.getMaximumVelocity();
 					}
 				}
-				double linkTTimeFromObservation = TravelTimeCalculator.this.getLinkToLinkTravelTime(fromLink.getId(), toLink.getId(), time);
+				double linkTTimeFromObservation = TravelTimeCalculator.this.getLinkToLinkTravelTime(fromLink, toLink, time);
 				
 				return Math.max(linkTTimeFromObservation, linkTtimeFromVehicle);
 			}
@@ -0,0 +1,570 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * PackedKDTree.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2022 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+
+package org.matsim.core.utils.collections;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * An immutable, bulk-loaded alternative to {@link QuadTree} for nearest-neighbour and range queries on data that does
+ * not change after it is created, e.g. links, nodes or transit stops.
+ * <p>
+ * The points are stored as an implicit KD-tree in primitive arrays: the elements of the range <code>[lo, hi)</code>
+ * are split at their median <code>m = (lo + hi) / 2</code>, alternating between x and y with every level, so all
+ * elements left of <code>m</code> have a smaller or equal and all elements right of it a larger or equal coordinate.
+ * Ranges of at most {@link #LEAF_SIZE} elements are not split further and are scanned linearly. No tree nodes are
+ * stored, and the queries walk the arrays without creating objects. Large trees are built in parallel.
+ * <p>
+ * The query methods have the same semantics as the ones of {@link QuadTree}. In addition,
+ * {@link #getKClosest(double, double, int, double, Object[], double[])} finds the k nearest elements without
+ * allocating memory. All queries are thread-safe.
+ *
+ * @param <T> The type of data to be stored in the tree.
+ */
+public final class PackedKDTree<T> {
+
+	static final int LEAF_SIZE = 8;
+	private static final int PARALLEL_THRESHOLD = 1 << 14;
+
+	private final double[] xs;
+	private final double[] ys;
+	private final Object[] values;
+	private final int size;
+	private final double minX;
+	private final double minY;
+	private final double maxX;
+	private final double maxY;
+
+	/**
+	 * Creates the tree for the given points. The value <code>values.get(i)</code> is located at
+	 * <code>x[i]/y[i]</code>. The same value may be located at several points.
+	 */
+	public PackedKDTree(final double[] x, final double[] y, final List<? extends T> values) {
+		if (x.length != y.length || x.length != values.size()) {
+			throw new IllegalArgumentException("x, y and values must have the same length: " + x.length + ", " + y.length + ", " + values.size());
+		}
+		this.size = x.length;
+		int[] order = new int[this.size];
+		double minX = Double.POSITIVE_INFINITY;
+		double minY = Double.POSITIVE_INFINITY;
+		double maxX = Double.NEGATIVE_INFINITY;
+		double maxY = Double.NEGATIVE_INFINITY;
+		for (int i = 0; i < this.size; i++) {
+			order[i] = i;
+			minX = Math.min(minX, x[i]);
+			minY = Math.min(minY, y[i]);
+			maxX = Math.max(maxX, x[i]);
+			maxY = Math.max(maxY, y[i]);
+		}
+		this.minX = minX;
+		this.minY = minY;
+		this.maxX = maxX;
+		this.maxY = maxY;
+
+		if (this.size > PARALLEL_THRESHOLD) {
+			ForkJoinPool.commonPool().invoke(new BuildTask(order, x, y, 0, this.size, 0));
+		} else {
+			build(order, x, y, 0, this.size, 0);
+		}
+
+		this.xs = new double[this.size];
+		this.ys = new double[this.size];
+		this.values = new Object[this.size];
+		for (int i = 0; i < this.size; i++) {
+			this.xs[i] = x[order[i]];
+			this.ys[i] = y[order[i]];
+			this.values[i] = values.get(order[i]);
+		}
+	}
+
+	/**
+	 * Gets the object closest to x/y
+	 *
+	 * @param x easting, left-right location, longitude
+	 * @param y northing, up-down location, latitude
+	 * @return the object found closest to x/y, <code>null</code> if the tree is empty
+	 */
+	@SuppressWarnings("unchecked")
+	public T getClosest(final double x, final double y) {
+		if (this.size == 0) {
+			return null;
+		}
+		int best = closest(0, this.size, 0, x, y, 0);
+		return (T) this.values[best];
+	}
+
+	/**
+	 * Finds the <code>k</code> objects closest to x/y, sorted by increasing distance, and stores them together with
+	 * their distances in the given buffers. Does not allocate any memory.
+	 *
+	 * @param k the maximal number of objects to find
+	 * @param maxDistance only objects within this distance are returned
+	 * @param values buffer for the found objects, must have at least <code>k</code> elements
+	 * @param distances buffer for the distances of the found objects, must have at least <code>k</code> elements
+	 * @return the number of objects found, the buffers are only written up to this number
+	 */
+	public int getKClosest(final double x, final double y, final int k, final double maxDistance, final T[] values, final double[] distances) {
+		if (values.length < k || distances.length < k) {
+			throw new IllegalArgumentException("the buffers must be able to hold k=" + k + " elements.");
+		}
+		if (k <= 0 || this.size == 0) {
+			return 0;
+		}
+		int count = kClosest(0, this.size, 0, x, y, k, maxDistance * maxDistance, values, distances, 0);
+		for (int i = 0; i < count; i++) {
+			distances[i] = Math.sqrt(distances[i]);
+		}
+		return count;
+	}
+
+	public int getKClosest(final double x, final double y, final int k, final T[] values, final double[] distances) {
+		return getKClosest(x, y, k, Double.POSITIVE_INFINITY, values, distances);
+	}
+
+	/**
+	 * Gets all objects within a certain distance around x/y
+	 *
+	 * @param x left-right location, longitude
+	 * @param y up-down location, latitude
+	 * @param distance the maximal distance returned objects can be away from x/y
+	 * @return the objects found within distance to x/y
+	 */
+	public Collection<T> getDisk(final double x, final double y, final double distance) {
+		return getDisk(x, y, distance, new ArrayList<>());
+	}
+
+	/**
+	 * Same as {@link #getDisk(double, double, double)}, but stores the found objects in the given collection.
+	 *
+	 * @return <code>values</code>
+	 */
+	public Collection<T> getDisk(final double x, final double y, final double distance, final Collection<T> values) {
+		collect(0, this.size, 0, this.minX, this.minY, this.maxX, this.maxY, new Disk(x, y, distance), values);
+		return values;
+	}
+
+	/**
+	 * Gets all objects within a linear ring (including borders).
+	 *
+	 * @param x left-right location, longitude
+	 * @param y up-down location, latitude
+	 * @param r_min inner ring radius
+	 * @param r_max outer rind radius
+	 * @return objects within the ring
+	 */
+	public Collection<T> getRing(final double x, final double y, final double r_min, final double r_max) {
+		List<T> result = new ArrayList<>();
+		collect(0, this.size, 0, this.minX, this.minY, this.maxX, this.maxY, new Ring(x, y, r_min, r_max), result);
+		return result;
+	}
+
+	/**
+	 * Gets all objects within an elliptical region.
+	 *
+	 * @param x1 first focus, longitude
+	 * @param y1 first focus, latitude
+	 * @param x2 second focus, longitude
+	 * @param y2 second focus, latitude
+	 * @param distance the maximal sum of the distances between an object and the two foci
+	 * @return the objects found in the elliptical region
+	 * @throws IllegalArgumentException if the distance is shorter than the distance between the foci
+	 */
+	public Collection<T> getElliptical(final double x1, final double y1, final double x2, final double y2, final double distance) {
+		if (distance * distance < (x1 - x2) * (x1 - x2) + (y1 - y2) * (y1 - y2)) {
+			throw new IllegalArgumentException("wrong ellipse specification: distance must be greater than distance between foci."
+					+ " x1=" + x1 + " y1=" + y1 + " x2=" + x2 + " y2=" + y2 + " distance=" + distance);
+		}
+		List<T> result = new ArrayList<>();
+		collect(0, this.size, 0, this.minX, this.minY, this.maxX, this.maxY, new Ellipse(x1, y1, x2, y2, distance), result);
+		return result;
+	}
+
+	/**
+	 * Gets all objects inside the specified boundary. Objects on the maximal border of the boundary are not included,
+	 * as with {@link QuadTree.Rect#contains(double, double)}.
+	 *
+	 * @param bounds The bounds of the area of interest.
+	 * @param values A collection to store the found objects in.
+	 * @return The objects found within the area.
+	 */
+	public Collection<T> getRectangle(final QuadTree.Rect bounds, final Collection<T> values) {
+		collect(0, this.size, 0, this.minX, this.minY, this.maxX, this.maxY, new Rectangle(bounds), values);
+		return values;
+	}
+
+	public Collection<T> getRectangle(final double minX, final double minY, final double maxX, final double maxY, final Collection<T> values) {
+		return getRectangle(new QuadTree.Rect(minX, minY, maxX, maxY), values);
+	}
+
+	/**
+	 * @return the number of entries in this tree.
+	 */
+	public int size() {
+		return this.size;
+	}
+
+	/** @return the minimum x coordinate (left-right, longitude, easting) of all entries. */
+	public double getMinEasting() {
+		return this.minX;
+	}
+
+	/** @return the maximum x coordinate (left-right, longitude, easting) of all entries. */
+	public double getMaxEasting() {
+		return this.maxX;
+	}
+
+	/** @return the minimum y coordinate (up-down, latitude, northing) of all entries. */
+	public double getMinNorthing() {
+		return this.minY;
+	}
+
+	/** @return the maximum y coordinate (up-down, latitude, northing) of all entries. */
+	public double getMaxNorthing() {
+		return this.maxY;
+	}
+
+	/**
+	 * @return an unmodifiable view of all values, in the order of the tree.
+	 */
+	@SuppressWarnings("unchecked")
+	public List<T> values() {
+		return Collections.unmodifiableList((List<T>) Arrays.asList(this.values));
+	}
+
+	// --- queries
+
+	private double distanceSquared(int i, double x, double y) {
+		double dx = this.xs[i] - x;
+		double dy = this.ys[i] - y;
+		return dx * dx + dy * dy;
+	}
+
+	private int closest(int lo, int hi, int depth, double x, double y, int best) {
+		if (hi - lo <= LEAF_SIZE) {
+			double bestDistance = distanceSquared(best, x, y);
+			for (int i = lo; i < hi; i++) {
+				double d = distanceSquared(i, x, y);
+				if (d < bestDistance) {
+					bestDistance = d;
+					best = i;
+				}
+			}
+			return best;
+		}
+		int m = (lo + hi) >>> 1;
+		if (distanceSquared(m, x, y) < distanceSquared(best, x, y)) {
+			best = m;
+		}
+		double diff = (depth & 1) == 0 ? x - this.xs[m] : y - this.ys[m];
+		if (diff < 0) {
+			best = closest(lo, m, depth + 1, x, y, best);
+			if (diff * diff < distanceSquared(best, x, y)) {
+				best = closest(m + 1, hi, depth + 1, x, y, best);
+			}
+		} else {
+			best = closest(m + 1, hi, depth + 1, x, y, best);
+			if (diff * diff < distanceSquared(best, x, y)) {
+				best = closest(lo, m, depth + 1, x, y, best);
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * @param distances contains the squared distances of the <code>count</code> elements found so far
+	 * @return the new number of found elements
+	 */
+	private int kClosest(int lo, int hi, int depth, double x, double y, int k, double maxDistanceSquared, Object[] found, double[] distances, int count) {
+		if (hi - lo <= LEAF_SIZE) {
+			for (int i = lo; i < hi; i++) {
+				count = offer(i, distanceSquared(i, x, y), k, maxDistanceSquared, found, distances, count);
+			}
+			return count;
+		}
+		int m = (lo + hi) >>> 1;
+		count = offer(m, distanceSquared(m, x, y), k, maxDistanceSquared, found, distances, count);
+		double diff = (depth & 1) == 0 ? x - this.xs[m] : y - this.ys[m];
+		if (diff < 0) {
+			count = kClosest(lo, m, depth + 1, x, y, k, maxDistanceSquared, found, distances, count);
+			if (diff * diff <= (count < k ? maxDistanceSquared : distances[k - 1])) {
+				count = kClosest(m + 1, hi, depth + 1, x, y, k, maxDistanceSquared, found, distances, count);
+			}
+		} else {
+			count = kClosest(m + 1, hi, depth + 1, x, y, k, maxDistanceSquared, found, distances, count);
+			if (diff * diff <= (count < k ? maxDistanceSquared : distances[k - 1])) {
+				count = kClosest(lo, m, depth + 1, x, y, k, maxDistanceSquared, found, distances, count);
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Inserts element <code>i</code> into the sorted buffers if it is among the k closest elements found so far.
+	 */
+	private int offer(int i, double distanceSquared, int k, double maxDistanceSquared, Object[] found, double[] distances, int count) {
+		if (distanceSquared > maxDistanceSquared || (count == k && distanceSquared >= distances[k - 1])) {
+			return count;
+		}
+		int pos = count < k ? count : k - 1;
+		while (pos > 0 && distances[pos - 1] > distanceSquared) {
+			distances[pos] = distances[pos - 1];
+			found[pos] = found[pos - 1];
+			pos--;
+		}
+		distances[pos] = distanceSquared;
+		found[pos] = this.values[i];
+		return count < k ? count + 1 : count;
+	}
+
+	/**
+	 * Adds all elements of the range within the region to <code>result</code>. The bounds are those of the
+	 * subtree, so whole subtrees outside of the region can be skipped.
+	 */
+	@SuppressWarnings("unchecked")
+	private void collect(int lo, int hi, int depth, double bMinX, double bMinY, double bMaxX, double bMaxY, Region region, Collection<T> result) {
+		if (lo >= hi || !region.mayIntersect(bMinX, bMinY, bMaxX, bMaxY)) {
+			return;
+		}
+		if (hi - lo <= LEAF_SIZE) {
+			for (int i = lo; i < hi; i++) {
+				if (region.contains(this.xs[i], this.ys[i])) {
+					result.add((T) this.values[i]);
+				}
+			}
+			return;
+		}
+		int m = (lo + hi) >>> 1;
+		if (region.contains(this.xs[m], this.ys[m])) {
+			result.add((T) this.values[m]);
+		}
+		if ((depth & 1) == 0) {
+			collect(lo, m, depth + 1, bMinX, bMinY, this.xs[m], bMaxY, region, result);
+			collect(m + 1, hi, depth + 1, this.xs[m], bMinY, bMaxX, bMaxY, region, result);
+		} else {
+			collect(lo, m, depth + 1, bMinX, bMinY, bMaxX, this.ys[m], region, result);
+			collect(m + 1, hi, depth + 1, bMinX, this.ys[m], bMaxX, bMaxY, region, result);
+		}
+	}
+
+	private interface Region {
+		/** May return true for boxes not intersecting the region, but never false for intersecting boxes. */
+		boolean mayIntersect(double minX, double minY, double maxX, double maxY);
+
+		boolean contains(double x, double y);
+	}
+
+	private static double minDistance(double x, double y, double minX, double minY, double maxX, double maxY) {
+		double dx = x < minX ? minX - x : (x > maxX ? x - maxX : 0);
+		double dy = y < minY ? minY - y : (y > maxY ? y - maxY : 0);
+		return Math.sqrt(dx * dx + dy * dy);
+	}
+
+	private static double maxDistance(double x, double y, double minX, double minY, double maxX, double maxY) {
+		double dx = Math.max(Math.abs(minX - x), Math.abs(maxX - x));
+		double dy = Math.max(Math.abs(minY - y), Math.abs(maxY - y));
+		return Math.sqrt(dx * dx + dy * dy);
+	}
+
+	private static final class Disk implements Region {
+		private final double x;
+		private final double y;
+		private final double distance;
+
+		Disk(double x, double y, double distance) {
+			this.x = x;
+			this.y = y;
+			this.distance = distance;
+		}
+
+		@Override
+		public boolean mayIntersect(double minX, double minY, double maxX, double maxY) {
+			return minDistance(this.x, this.y, minX, minY, maxX, maxY) <= this.distance;
+		}
+
+		@Override
+		public boolean contains(double x, double y) {
+			return Math.sqrt((x - this.x) * (x - this.x) + (y - this.y) * (y - this.y)) <= this.distance;
+		}
+	}
+
+	private static final class Ring implements Region {
+		private final double x;
+		private final double y;
+		private final double rMin;
+		private final double rMax;
+
+		Ring(double x, double y, double rMin, double rMax) {
+			this.x = x;
+			this.y = y;
+			this.rMin = rMin;
+			this.rMax = rMax;
+		}
+
+		@Override
+		public boolean mayIntersect(double minX, double minY, double maxX, double maxY) {
+			return minDistance(this.x, this.y, minX, minY, maxX, maxY) <= this.rMax
+					&& maxDistance(this.x, this.y, minX, minY, maxX, maxY) >= this.rMin;
+		}
+
+		@Override
+		public boolean contains(double x, double y) {
+			double distance = Math.sqrt((x - this.x) * (x - this.x) + (y - this.y) * (y - this.y));
+			return distance <= this.rMax && distance >= this.rMin;
+		}
+	}
+
+	private static final class Ellipse implements Region {
+		private final double x1;
+		private final double y1;
+		private final double x2;
+		private final double y2;
+		private final double distance;
+
+		Ellipse(double x1, double y1, double x2, double y2, double distance) {
+			this.x1 = x1;
+			this.y1 = y1;
+			this.x2 = x2;
+			this.y2 = y2;
+			this.distance = distance;
+		}
+
+		@Override
+		public boolean mayIntersect(double minX, double minY, double maxX, double maxY) {
+			return minDistance(this.x1, this.y1, minX, minY, maxX, maxY) + minDistance(this.x2, this.y2, minX, minY, maxX, maxY) <= this.distance;
+		}
+
+		@Override
+		public boolean contains(double x, double y) {
+			double distance1 = Math.sqrt((x - this.x1) * (x - this.x1) + (y - this.y1) * (y - this.y1));
+			double distance2 = Math.sqrt((x - this.x2) * (x - this.x2) + (y - this.y2) * (y - this.y2));
+			return distance1 + distance2 <= this.distance;
+		}
+	}
+
+	private static final class Rectangle implements Region {
+		private final QuadTree.Rect bounds;
+
+		Rectangle(QuadTree.Rect bounds) {
+			this.bounds = bounds;
+		}
+
+		@Override
+		public boolean mayIntersect(double minX, double minY, double maxX, double maxY) {
+			return maxX >= this.bounds.minX && maxY >= this.bounds.minY && minX <= this.bounds.maxX && minY <= this.bounds.maxY;
+		}
+
+		@Override
+		public boolean contains(double x, double y) {
+			return this.bounds.contains(x, y);
+		}
+	}
+
+	// --- bulk loading
+
+	private static void build(int[] order, double[] x, double[] y, int lo, int hi, int depth) {
+		if (hi - lo <= LEAF_SIZE) {
+			return;
+		}
+		int m = (lo + hi) >>> 1;
+		select(order, (depth & 1) == 0 ? x : y, lo, hi, m);
+		build(order, x, y, lo, m, depth + 1);
+		build(order, x, y, m + 1, hi, depth + 1);
+	}
+
+	private static final class BuildTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+		private final int[] order;
+		private final double[] x;
+		private final double[] y;
+		private final int lo;
+		private final int hi;
+		private final int depth;
+
+		BuildTask(int[] order, double[] x, double[] y, int lo, int hi, int depth) {
+			this.order = order;
+			this.x = x;
+			this.y = y;
+			this.lo = lo;
+			this.hi = hi;
+			this.depth = depth;
+		}
+
+		@Override
+		protected void compute() {
+			if (this.hi - this.lo <= PARALLEL_THRESHOLD) {
+				build(this.order, this.x, this.y, this.lo, this.hi, this.depth);
+				return;
+			}
+			int m = (this.lo + this.hi) >>> 1;
+			select(this.order, (this.depth & 1) == 0 ? this.x : this.y, this.lo, this.hi, m);
+			invokeAll(new BuildTask(this.order, this.x, this.y, this.lo, m, this.depth + 1),
+					new BuildTask(this.order, this.x, this.y, m + 1, this.hi, this.depth + 1));
+		}
+	}
+
+	/**
+	 * Partially sorts <code>order[lo, hi)</code> by <code>keys</code>, so that position <code>k</code> holds the
+	 * element that would be there if the range were sorted, with smaller or equal elements before and larger or equal
+	 * elements after it. Uses a three-way partitioning, so many equal coordinates do not degrade the performance.
+	 */
+	static void select(int[] order, double[] keys, int lo, int hi, int k) {
+		while (hi - lo > 1) {
+			double a = keys[order[lo]];
+			double b = keys[order[(lo + hi) >>> 1]];
+			double c = keys[order[hi - 1]];
+			double pivot = Math.max(Math.min(a, b), Math.min(Math.max(a, b), c));
+			int lt = lo;
+			int i = lo;
+			int gt = hi;
+			// [lo, lt) < pivot, [lt, i) == pivot, [gt, hi) > pivot
+			while (i < gt) {
+				double v = keys[order[i]];
+				if (v < pivot) {
+					swap(order, lt++, i++);
+				} else if (v > pivot) {
+					swap(order, i, --gt);
+				} else {
+					i++;
+				}
+			}
+			if (k < lt) {
+				hi = lt;
+			} else if (k >= gt) {
+				lo = gt;
+			} else {
+				return;
+			}
+		}
+	}
+
+	private static void swap(int[] order, int i, int j) {
+		int tmp = order[i];
+		order[i] = order[j];
+		order[j] = tmp;
+	}
+
+}
@@ -20,7 +20,9 @@
 
 package org.matsim.core.utils.collections;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
 import java.util.function.Function;
 
 import org.matsim.api.core.v01.BasicLocation;
@@ -68,4 +70,20 @@ public class QuadTrees {
 		}
 		return quadTree;
 	}
+
+	public static <E extends BasicLocation> PackedKDTree<E> createPackedKDTree(Collection<E> elements) {
+		return createPackedKDTree(elements, BasicLocation::getCoord);
+	}
+
+	public static <E> PackedKDTree<E> createPackedKDTree(Collection<E> elements, Function<E, Coord> coordFunction) {
+		List<E> values = new ArrayList<>(elements);
+		double[] x = new double[values.size()];
+		double[] y = new double[values.size()];
+		for (int i = 0; i < x.length; i++) {
+			Coord c = coordFunction.apply(values.get(i));
+			x[i] = c.getX();
+			y[i] = c.getY();
+		}
+		return new PackedKDTree<>(x, y, values);
+	}
 }
@@ -21,6 +21,8 @@
 package org.matsim.core.utils.io;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
 import java.util.Locale;
 
 import javax.xml.parsers.ParserConfigurationException;
@@ -28,6 +30,7 @@ import javax.xml.parsers.SAXParser;
 import javax.xml.parsers.SAXParserFactory;
 
 import org.apache.log4j.Logger;
+import org.matsim.core.events.BinaryEventsFormat;
 import org.xml.sax.Attributes;
 import org.xml.sax.InputSource;
 import org.xml.sax.SAXException;
@@ -98,6 +101,8 @@ public class MatsimFileTypeGuesser extends DefaultHandler {
 			this.fileType = FileType.OTFVis;
 		} else if (name.endsWith(".veh.gz") || name.endsWith(".veh")) {
 			this.fileType = FileType.TransimsVehicle;
+		} else if (hasBinaryEventsHeader(fileName)) {
+			this.fileType = FileType.Events;
 		}
 	}
 
@@ -121,6 +126,27 @@ public class MatsimFileTypeGuesser extends DefaultHandler {
 		return this.xmlSystemId;
 	}
 
+	/**
+	 * Binary events files are recognized by their content, see {@link BinaryEventsFormat}.
+	 */
+	private static boolean hasBinaryEventsHeader(final String fileName) {
+		byte[] magic = new byte[BinaryEventsFormat.MAGIC.length];
+		try (InputStream in = IOUtils.getInputStream(IOUtils.resolveFileOrResource(fileName))) {
+			int read = 0;
+			while (read < magic.length) {
+				int n = in.read(magic, read, magic.length - read);
+				if (n < 0) {
+					return false;
+				}
+				read += n;
+			}
+		} catch (IOException | UncheckedIOException e) {
+			log.debug("could not read header of " + fileName, e);
+			return false;
+		}
+		return Arrays.equals(magic, BinaryEventsFormat.MAGIC);
+	}
+
 	private void guessFileTypeXml(final String fileName) throws UncheckedIOException {
 		SAXParserFactory factory = SAXParserFactory.newInstance();
 		factory.setValidating(false);
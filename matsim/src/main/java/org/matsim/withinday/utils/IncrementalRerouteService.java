@@ -0,0 +1,241 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * IncrementalRerouteService.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2022 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.withinday.utils;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.population.PopulationUtils;
+import org.matsim.core.router.speedy.IncrementalLeastCostPathTree;
+import org.matsim.core.router.speedy.SpeedyGraph;
+import org.matsim.core.router.util.LeastCostPathCalculator;
+import org.matsim.core.router.util.TravelDisutility;
+import org.matsim.core.router.util.TravelTime;
+import org.matsim.vehicles.Vehicle;
+
+/**
+ * A {@link LeastCostPathCalculator} for within-day replanning, which keeps one least-cost path tree per destination node
+ * and repairs it when the travel times change, instead of running a new query for every agent.
+ * <p>
+ * During incidents or evacuations, many agents are rerouted towards few destinations at the same time.  Every tree answers
+ * the queries of all agents heading to its destination by following the stored links.  The link costs are evaluated for all
+ * links at most once per <code>updateInterval</code>, and only the parts of the trees which use a link whose cost changed are
+ * recalculated (see {@link IncrementalLeastCostPathTree}).  The least recently used trees are dropped if there are more than
+ * <code>maxTrees</code> destinations.
+ * <p>
+ * The costs are evaluated at the time of the update for a placeholder person and without vehicle, so routes do not depend
+ * on the person or on the time of day while traveling along the route.  This fits the {@link org.matsim.withinday.trafficmonitoring.WithinDayTravelTime},
+ * which provides the currently observed travel times independent of the time of day, but not person-specific travel disutilities.
+ * <p>
+ * This class is thread-safe, so one instance can be used by all replanners of a
+ * {@link org.matsim.withinday.replanning.parallel.ParallelDuringLegReplanner}.  Queries towards the same destination are
+ * serialized, so the first query in a time step repairs the tree, and all other agents with the same destination profit from it.
+ */
+public final class IncrementalRerouteService implements LeastCostPathCalculator {
+
+	private static final Logger log = Logger.getLogger(IncrementalRerouteService.class);
+
+	private static final int MAX_LOGGED_UPDATES = 100;
+
+	private final SpeedyGraph graph;
+	private final Link[] links;
+	private final TravelTime travelTime;
+	private final TravelDisutility travelDisutility;
+	private final Person person;
+	private final double updateInterval;
+	private final Map<Integer, DestinationTree> trees;
+	private final ThreadLocal<IncrementalLeastCostPathTree.Workspace> workspaces;
+	private final Deque<LinkCostChanges> changes = new ArrayDeque<>();
+	private final AtomicInteger fullCalculations = new AtomicInteger();
+
+	private volatile LinkCosts linkCosts = null;
+
+	public IncrementalRerouteService(Network network, TravelTime travelTime, TravelDisutility travelDisutility, double updateInterval, int maxTrees) {
+		this.graph = new SpeedyGraph(network);
+		this.links = new Link[Id.getNumberOfIds(Link.class)];
+		for (Link link : network.getLinks().values()) {
+			this.links[link.getId().index()] = link;
+		}
+		this.travelTime = travelTime;
+		this.travelDisutility = travelDisutility;
+		this.person = PopulationUtils.getFactory().createPerson(Id.createPersonId("incrementalReroute"));
+		this.updateInterval = updateInterval;
+		this.trees = new LinkedHashMap<Integer, DestinationTree>(16, 0.75f, true) {
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Integer, DestinationTree> eldest) {
+				return size() > maxTrees;
+			}
+		};
+		this.workspaces = ThreadLocal.withInitial(() -> new IncrementalLeastCostPathTree.Workspace(this.graph));
+	}
+
+	@Override
+	public Path calcLeastCostPath(Node fromNode, Node toNode, double starttime, Person person, Vehicle vehicle) {
+		LinkCosts costs = getLinkCosts(starttime);
+		DestinationTree destinationTree;
+		synchronized (this.trees) {
+			destinationTree = this.trees.computeIfAbsent(toNode.getId().index(),
+					nodeIndex -> new DestinationTree(new IncrementalLeastCostPathTree(this.graph, nodeIndex)));
+		}
+		synchronized (destinationTree) {
+			// the tree might already be newer if another thread updated the costs in the meantime
+			if (destinationTree.version < costs.version) {
+				IncrementalLeastCostPathTree.Workspace workspace = this.workspaces.get();
+				int[] changedLinks = destinationTree.version < 0 ? null : getChangedLinks(destinationTree.version, costs.version);
+				if (changedLinks == null) {
+					destinationTree.tree.calculate(costs.costs, workspace);
+					this.fullCalculations.incrementAndGet();
+				} else if (changedLinks.length > 0) {
+					destinationTree.tree.repair(costs.costs, changedLinks, workspace);
+				}
+				destinationTree.version = costs.version;
+			}
+			return destinationTree.tree.getPath(fromNode.getId().index(), costs.travelTimes);
+		}
+	}
+
+	private LinkCosts getLinkCosts(double time) {
+		LinkCosts costs = this.linkCosts;
+		if (costs != null && time < costs.time + this.updateInterval) {
+			return costs;
+		}
+		synchronized (this) {
+			costs = this.linkCosts;
+			if (costs != null && time < costs.time + this.updateInterval) {
+				return costs;
+			}
+			double[] newCosts = new double[this.links.length];
+			double[] newTravelTimes = new double[this.links.length];
+			int[] changedLinks = new int[this.links.length];
+			int changedCount = 0;
+			for (int i = 0; i < this.links.length; i++) {
+				Link link = this.links[i];
+				if (link != null) {
+					newCosts[i] = this.travelDisutility.getLinkTravelDisutility(link, time, this.person, null);
+					newTravelTimes[i] = this.travelTime.getLinkTravelTime(link, time, this.person, null);
+					if (costs != null && newCosts[i] != costs.costs[i]) {
+						changedLinks[changedCount++] = i;
+					}
+				}
+			}
+			int version = costs == null ? 0 : costs.version + 1;
+			if (costs != null) {
+				this.changes.addLast(new LinkCostChanges(version, Arrays.copyOf(changedLinks, changedCount)));
+				if (this.changes.size() > MAX_LOGGED_UPDATES) {
+					this.changes.removeFirst();
+				}
+				log.debug("time=" + time + ": costs of " + changedCount + " links changed.");
+			}
+			this.linkCosts = new LinkCosts(time, version, newCosts, newTravelTimes);
+			return this.linkCosts;
+		}
+	}
+
+	/**
+	 * @return all links whose costs changed after <code>fromVersion</code> up to <code>toVersion</code>, or <code>null</code>
+	 * 		if a tree of <code>fromVersion</code> should rather be calculated from scratch
+	 */
+	private synchronized int[] getChangedLinks(int fromVersion, int toVersion) {
+		if (this.changes.isEmpty() || this.changes.getFirst().version > fromVersion + 1) {
+			// the changes are not logged anymore
+			return null;
+		}
+		int count = 0;
+		for (LinkCostChanges c : this.changes) {
+			if (c.version > fromVersion && c.version <= toVersion) {
+				count += c.links.length;
+			}
+		}
+		if (count > this.links.length / 4) {
+			// too many changes for a repair to pay off
+			return null;
+		}
+		int[] changedLinks = new int[count];
+		int offset = 0;
+		for (LinkCostChanges c : this.changes) {
+			if (c.version > fromVersion && c.version <= toVersion) {
+				System.arraycopy(c.links, 0, changedLinks, offset, c.links.length);
+				offset += c.links.length;
+			}
+		}
+		return changedLinks;
+	}
+
+	/**
+	 * @return the number of trees which were calculated from scratch instead of being repaired, for tests
+	 */
+	int getNumberOfFullCalculations() {
+		return this.fullCalculations.get();
+	}
+
+	/**
+	 * @return whether a tree towards the given destination is kept, for tests
+	 */
+	boolean hasTree(Node toNode) {
+		synchronized (this.trees) {
+			return this.trees.containsKey(toNode.getId().index());
+		}
+	}
+
+	private static final class LinkCosts {
+		final double time;
+		final int version;
+		final double[] costs;
+		final double[] travelTimes;
+
+		LinkCosts(double time, int version, double[] costs, double[] travelTimes) {
+			this.time = time;
+			this.version = version;
+			this.costs = costs;
+			this.travelTimes = travelTimes;
+		}
+	}
+
+	private static final class LinkCostChanges {
+		final int version;
+		final int[] links;
+
+		LinkCostChanges(int version, int[] links) {
+			this.version = version;
+			this.links = links;
+		}
+	}
+
+	private static final class DestinationTree {
+		final IncrementalLeastCostPathTree tree;
+		int version = -1;
+
+		DestinationTree(IncrementalLeastCostPathTree tree) {
+			this.tree = tree;
+		}
+	}
+
+}
@@ -13,8 +13,10 @@ import org.matsim.core.utils.misc.Time;
 import org.matsim.pt.transitSchedule.api.TransitStopFacility;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Tests for the tree-calculating functionality of SwissRailRaptor
@@ -385,6 +387,78 @@ public class SwissRailRaptorTreeTest {
         Assert.assertNull(stage5.line); // egress_walk
     }
 
+    @Test
+    public void testProfileTree() {
+        Fixture f = new Fixture();
+        f.init();
+
+        RaptorStaticConfig config = RaptorUtils.createStaticConfig(f.config);
+        config.setOptimization(RaptorStaticConfig.RaptorOptimization.OneToAllRouting);
+        SwissRailRaptorData data = SwissRailRaptorData.create(f.scenario.getTransitSchedule(), null, config, f.scenario.getNetwork(), null);
+        SwissRailRaptor raptor = new SwissRailRaptor.Builder(data, f.scenario.getConfig()).build();
+        RaptorParameters raptorParams = RaptorUtils.createParameters(f.config);
+
+        TransitStopFacility fromStop = f.schedule.getFacilities().get(Id.create(23, TransitStopFacility.class));
+        Map<Id<TransitStopFacility>, List<TravelInfo>> profiles = raptor.calcProfileTree(Collections.singletonList(fromStop), 7*3600 + 40*60, 8*3600 + 10*60, raptorParams, null);
+
+        // the first departure is the same as in the single tree query
+        List<TravelInfo> profile18 = profiles.get(Id.create(18, TransitStopFacility.class));
+        Assert.assertNotNull("Stop 18 is not reachable.", profile18);
+        Assert.assertEquals(Time.parseTime("07:41:00"), Math.floor(profile18.get(0).ptDepartureTime), 0.0);
+        Assert.assertEquals(Time.parseTime("07:50:00"), Math.floor(profile18.get(0).ptArrivalTime), 0.0);
+        Assert.assertTrue("expected more than one departure in the time window", profile18.size() > 1);
+
+        for (Map.Entry<Id<TransitStopFacility>, List<TravelInfo>> e : profiles.entrySet()) {
+            List<TravelInfo> profile = e.getValue();
+            for (int i = 0; i < profile.size(); i++) {
+                TravelInfo info = profile.get(i);
+                Assert.assertTrue(info.ptArrivalTime >= info.ptDepartureTime);
+                if (i > 0) {
+                    Assert.assertTrue("profile of stop " + e.getKey() + " is not sorted", info.ptDepartureTime >= profile.get(i - 1).ptDepartureTime);
+                }
+                for (TravelInfo other : profile) {
+                    boolean dominated = other != info
+                            && other.transferCount <= info.transferCount
+                            && other.ptDepartureTime >= info.ptDepartureTime
+                            && other.ptArrivalTime <= info.ptArrivalTime;
+                    Assert.assertFalse("dominated connection in profile of stop " + e.getKey(), dominated);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testProfileTrees_parallel() {
+        Fixture f = new Fixture();
+        f.init();
+
+        RaptorStaticConfig config = RaptorUtils.createStaticConfig(f.config);
+        config.setOptimization(RaptorStaticConfig.RaptorOptimization.OneToAllRouting);
+        SwissRailRaptorData data = SwissRailRaptorData.create(f.scenario.getTransitSchedule(), null, config, f.scenario.getNetwork(), null);
+        SwissRailRaptor raptor = new SwissRailRaptor.Builder(data, f.scenario.getConfig()).build();
+        RaptorParameters raptorParams = RaptorUtils.createParameters(f.config);
+
+        double earliest = 7*3600 + 30*60;
+        double latest = 8*3600;
+        Map<TransitStopFacility, Map<Id<TransitStopFacility>, List<TravelInfo>>> parallel = new ConcurrentHashMap<>();
+        raptor.calcProfileTrees(f.schedule.getFacilities().values(), earliest, latest, raptorParams, null, 3, parallel::put);
+
+        Assert.assertEquals(f.schedule.getFacilities().size(), parallel.size());
+        for (TransitStopFacility fromStop : f.schedule.getFacilities().values()) {
+            Map<Id<TransitStopFacility>, List<TravelInfo>> expected = raptor.calcProfileTree(Collections.singletonList(fromStop), earliest, latest, raptorParams, null);
+            Map<Id<TransitStopFacility>, List<TravelInfo>> actual = parallel.get(fromStop);
+            Assert.assertEquals(expected.keySet(), actual.keySet());
+            for (Map.Entry<Id<TransitStopFacility>, List<TravelInfo>> e : expected.entrySet()) {
+                List<TravelInfo> actualProfile = actual.get(e.getKey());
+                Assert.assertEquals(e.getValue().size(), actualProfile.size());
+                for (int i = 0; i < actualProfile.size(); i++) {
+                    Assert.assertEquals(e.getValue().get(i).ptDepartureTime, actualProfile.get(i).ptDepartureTime, 0.0);
+                    Assert.assertEquals(e.getValue().get(i).ptArrivalTime, actualProfile.get(i).ptArrivalTime, 0.0);
+                }
+            }
+        }
+    }
+
     private void assertTravelInfo(Map<Id<TransitStopFacility>, TravelInfo> map, int stopId, String expectedDepartureStop, int expectedTransfers, String expectedDepartureTime, String expectedArrivalTime) {
         TravelInfo info = map.get(Id.create(stopId, TransitStopFacility.class));
         Assert.assertNotNull("Stop " + stopId + " is not reachable.", info);
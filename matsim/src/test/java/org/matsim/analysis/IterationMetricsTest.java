@@ -0,0 +1,158 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * IterationMetricsTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2022 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+
+package org.matsim.analysis;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.matsim.core.utils.io.IOUtils;
+import org.matsim.testcases.MatsimTestUtils;
+
+public class IterationMetricsTest {
+
+	@Rule
+	public MatsimTestUtils utils = new MatsimTestUtils();
+
+	@Test
+	public void testDisabled() {
+		IterationMetrics metrics = new IterationMetrics();
+		metrics.beginIteration(0);
+		metrics.addTime("a", 1000);
+		metrics.addValue("b", 1.0);
+		metrics.endIteration();
+		Assert.assertNull(metrics.getValues(0));
+	}
+
+	@Test
+	public void testAggregation() {
+		IterationMetrics metrics = new IterationMetrics();
+		metrics.setEnabled(true);
+
+		metrics.beginIteration(3);
+		metrics.addTime("time", 2_000_000);
+		metrics.addTime("time", 6_000_000);
+		metrics.addValue("value", 5.0);
+		metrics.addValue("value", -1.0);
+		metrics.addValue("value", 2.0);
+		metrics.endIteration();
+
+		metrics.beginIteration(4);
+		metrics.addValue("value", 7.0);
+		metrics.endIteration();
+
+		Map<String, IterationMetrics.Values> it3 = metrics.getValues(3);
+		IterationMetrics.Values time = it3.get("time");
+		Assert.assertEquals(IterationMetrics.Kind.time, time.getKind());
+		Assert.assertEquals(2, time.getCount());
+		Assert.assertEquals(8.0, time.getTotal(), 1e-9); // milliseconds
+		Assert.assertEquals(4.0, time.getMean(), 1e-9);
+		Assert.assertEquals(2.0, time.getMin(), 1e-9);
+		Assert.assertEquals(6.0, time.getMax(), 1e-9);
+
+		IterationMetrics.Values value = it3.get("value");
+		Assert.assertEquals(IterationMetrics.Kind.value, value.getKind());
+		Assert.assertEquals(3, value.getCount());
+		Assert.assertEquals(6.0, value.getTotal(), 1e-9);
+		Assert.assertEquals(-1.0, value.getMin(), 1e-9);
+		Assert.assertEquals(5.0, value.getMax(), 1e-9);
+
+		Assert.assertTrue(it3.containsKey(IterationMetrics.GC_COUNT));
+		Assert.assertTrue(it3.containsKey(IterationMetrics.GC_TIME));
+		Assert.assertTrue(it3.get(IterationMetrics.HEAP_USED).getTotal() > 0);
+
+		Map<String, IterationMetrics.Values> it4 = metrics.getValues(4);
+		Assert.assertFalse(it4.containsKey("time"));
+		Assert.assertEquals(1, it4.get("value").getCount());
+		Assert.assertEquals(7.0, it4.get("value").getMax(), 1e-9);
+	}
+
+	@Test
+	public void testConcurrentRecording() throws InterruptedException {
+		IterationMetrics metrics = new IterationMetrics();
+		metrics.setEnabled(true);
+		metrics.beginIteration(0);
+		List<Thread> threads = new ArrayList<>();
+		for (int t = 0; t < 4; t++) {
+			Thread thread = new Thread(() -> {
+				for (int i = 0; i < 10000; i++) {
+					metrics.addTime("routing.car", 1000);
+					metrics.addValue("v" + (i % 10), i);
+				}
+			});
+			threads.add(thread);
+			thread.start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		metrics.endIteration();
+		Assert.assertEquals(40000, metrics.getValues(0).get("routing.car").getCount());
+		Assert.assertEquals(4000, metrics.getValues(0).get("v3").getCount());
+	}
+
+	@Test
+	public void testWriteFiles() throws IOException {
+		IterationMetrics metrics = new IterationMetrics();
+		metrics.setEnabled(true);
+		for (int iteration = 0; iteration < 2; iteration++) {
+			metrics.beginIteration(iteration);
+			metrics.addTime("phase.mobsim", 1_500_000);
+			metrics.endIteration();
+		}
+		String filename = this.utils.getOutputDirectory() + "iteration_metrics";
+		metrics.writeCsvFile(filename, ";");
+		metrics.writeJsonFile(filename);
+
+		int mobsimLines = 0;
+		try (BufferedReader reader = IOUtils.getBufferedReader(filename + ".csv")) {
+			Assert.assertEquals("iteration;metric;kind;count;total;mean;min;max", reader.readLine());
+			String line;
+			while ((line = reader.readLine()) != null) {
+				String[] parts = line.split(";");
+				if (parts[1].equals("phase.mobsim")) {
+					Assert.assertEquals(String.valueOf(mobsimLines), parts[0]);
+					Assert.assertEquals("time", parts[2]);
+					Assert.assertEquals(1.5, Double.parseDouble(parts[4]), 1e-9);
+					mobsimLines++;
+				}
+			}
+		}
+		Assert.assertEquals(2, mobsimLines);
+
+		StringBuilder json = new StringBuilder();
+		try (BufferedReader reader = IOUtils.getBufferedReader(filename + ".json")) {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				json.append(line);
+			}
+		}
+		Assert.assertTrue(json.toString().contains("\"phase.mobsim\""));
+		Assert.assertTrue(json.toString().contains("\"iteration\" : 1"));
+	}
+
+}
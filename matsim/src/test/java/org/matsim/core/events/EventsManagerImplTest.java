@@ -68,6 +68,38 @@ public class EventsManagerImplTest {
 		}
 	}
 
+	@Test
+	public void testProcessEvent_HandlerSharedByManagers() throws InterruptedException {
+		CountingMyEventHandler handler = new CountingMyEventHandler();
+		EventsManagerImpl.HandlerRegistrations registrations = new EventsManagerImpl.HandlerRegistrations();
+		EventsManagerImpl manager1 = new EventsManagerImpl(registrations);
+		EventsManagerImpl manager2 = new EventsManagerImpl(registrations);
+		manager1.addHandler(handler);
+		manager2.addHandler(handler);
+
+		// the handler is not thread-safe, so the managers need to lock it
+		Thread thread1 = new Thread(() -> {
+			for (int i = 0; i < 10000; i++) {
+				manager1.processEvent(new MyEvent(i));
+			}
+		});
+		Thread thread2 = new Thread(() -> {
+			for (int i = 0; i < 10000; i++) {
+				manager2.processEvent(new MyEvent(i));
+			}
+		});
+		thread1.start();
+		thread2.start();
+		thread1.join();
+		thread2.join();
+		Assert.assertEquals(20000, handler.counter);
+
+		manager2.removeHandler(handler);
+		manager1.processEvent(new MyEvent(123.45));
+		manager2.processEvent(new MyEvent(123.45));
+		Assert.assertEquals(20001, handler.counter);
+	}
+
 	/*package*/ static class MyEvent extends Event {
 		public MyEvent(final double time) {
 			super(time);
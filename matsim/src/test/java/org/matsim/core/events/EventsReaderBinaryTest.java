@@ -0,0 +1,145 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * EventsReaderBinaryTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2022 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+
+package org.matsim.core.events;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.events.ActivityEndEvent;
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.api.core.v01.events.GenericEvent;
+import org.matsim.api.core.v01.events.LinkEnterEvent;
+import org.matsim.api.core.v01.events.PersonMoneyEvent;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.config.groups.ControlerConfigGroup;
+import org.matsim.core.events.algorithms.EventWriterBinary;
+import org.matsim.core.utils.io.MatsimFileTypeGuesser;
+import org.matsim.testcases.MatsimTestUtils;
+import org.matsim.testcases.utils.EventsCollector;
+
+public class EventsReaderBinaryTest {
+
+	@Rule
+	public MatsimTestUtils utils = new MatsimTestUtils();
+
+	private static List<Event> createEvents() {
+		List<Event> events = new ArrayList<>();
+		for (int i = 0; i < 1000; i++) {
+			double time = 6 * 3600 + i;
+			events.add(new LinkEnterEvent(time, Id.createVehicleId("v" + (i % 10)), Id.createLinkId(i % 50)));
+			events.add(new ActivityEndEvent(time, Id.createPersonId(i % 10), Id.createLinkId(i % 50), null, "home"));
+			if (i % 100 == 0) {
+				events.add(new PersonMoneyEvent(time + 0.25, Id.createPersonId(i % 10), -1.5 * i, "toll", null));
+				GenericEvent generic = new GenericEvent("custom", time + 0.5);
+				generic.getAttributes().put("integer", Integer.toString(-i));
+				generic.getAttributes().put("leadingZero", "007");
+				generic.getAttributes().put("double", "1.25");
+				generic.getAttributes().put("notExactDouble", "1.250");
+				generic.getAttributes().put("text", "hello world " + i);
+				events.add(generic);
+			}
+		}
+		return events;
+	}
+
+	private static List<Event> read(byte[] data, double fromTime, double toTime) {
+		EventsManager eventsManager = EventsUtils.createEventsManager();
+		EventsCollector collector = new EventsCollector();
+		eventsManager.addHandler(collector);
+		eventsManager.initProcessing();
+		new EventsReaderBinary(eventsManager).parse(new ByteArrayInputStream(data), fromTime, toTime);
+		eventsManager.finishProcessing();
+		return collector.getEvents();
+	}
+
+	private static byte[] write(List<Event> events, int blockSize) {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		EventWriterBinary writer = new EventWriterBinary(out, blockSize);
+		events.forEach(writer::handleEvent);
+		writer.closeFile();
+		return out.toByteArray();
+	}
+
+	@Test
+	public void testWriteRead() {
+		List<Event> events = createEvents();
+		List<Event> read = read(write(events, 128), Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY);
+
+		assertEquals(events.size(), read.size());
+		for (int i = 0; i < events.size(); i++) {
+			assertEquals(events.get(i).getClass(), read.get(i).getClass());
+			assertEquals(events.get(i).getAttributes(), read.get(i).getAttributes());
+		}
+	}
+
+	@Test
+	public void testTimeRange() {
+		List<Event> events = createEvents();
+		byte[] data = write(events, 64);
+		double fromTime = 6 * 3600 + 300;
+		double toTime = 6 * 3600 + 400.5;
+
+		List<Event> expected = new ArrayList<>();
+		for (Event event : events) {
+			if (event.getTime() >= fromTime && event.getTime() <= toTime) {
+				expected.add(event);
+			}
+		}
+		List<Event> read = read(data, fromTime, toTime);
+		assertEquals(expected.size(), read.size());
+		for (int i = 0; i < expected.size(); i++) {
+			assertEquals(expected.get(i).getAttributes(), read.get(i).getAttributes());
+		}
+	}
+
+	@Test
+	public void testFileAndFormatDetection() {
+		String filename = this.utils.getOutputDirectory() + "events.bin";
+		EventWriterBinary writer = new EventWriterBinary(filename);
+		createEvents().forEach(writer::handleEvent);
+		writer.closeFile();
+
+		assertEquals(MatsimFileTypeGuesser.FileType.Events, new MatsimFileTypeGuesser(filename).getGuessedFileType());
+
+		EventsManager eventsManager = EventsUtils.createEventsManager();
+		EventsCollector collector = new EventsCollector();
+		eventsManager.addHandler(collector);
+		eventsManager.initProcessing();
+		new MatsimEventsReader(eventsManager).readFile(filename);
+		eventsManager.finishProcessing();
+		assertEquals(createEvents().size(), collector.getEvents().size());
+
+		collector.reset(0);
+		eventsManager.initProcessing();
+		new MatsimEventsReader(eventsManager).readStream(new ByteArrayInputStream(write(createEvents(), 1000)), ControlerConfigGroup.EventsFileFormat.binary);
+		eventsManager.finishProcessing();
+		assertEquals(createEvents().size(), collector.getEvents().size());
+	}
+
+}
@@ -0,0 +1,212 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * RingBufferEventsManagerTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2022 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+
+package org.matsim.core.events;
+
+import static org.hamcrest.collection.IsIterableContainingInOrder.contains;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThat;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.events.LinkEnterEvent;
+import org.matsim.api.core.v01.events.LinkLeaveEvent;
+import org.matsim.api.core.v01.events.PersonStuckEvent;
+import org.matsim.api.core.v01.events.handler.LinkEnterEventHandler;
+import org.matsim.api.core.v01.events.handler.LinkLeaveEventHandler;
+import org.matsim.api.core.v01.events.handler.PersonStuckEventHandler;
+import org.matsim.testcases.utils.EventsCollector;
+
+public class RingBufferEventsManagerTest {
+
+	@Test
+	public void testEventHandlerCanProduceAdditionalEventLateInSimStep() {
+		final RingBufferEventsManager events = new RingBufferEventsManager(8, 1024, true);
+		events.addHandler(new LinkEnterEventHandler() {
+			@Override
+			public void handleEvent(LinkEnterEvent event) {
+				try {
+					Thread.sleep(10);
+				} catch (InterruptedException e) {
+					e.printStackTrace();
+				}
+				events.processEvent(new PersonStuckEvent(event.getTime(), Id.createPersonId(0), Id.createLinkId(0), "car"));
+			}
+
+			@Override
+			public void reset(int iteration) {}
+		});
+		EventsCollector collector = new EventsCollector();
+		events.addHandler(collector);
+		events.initProcessing();
+		events.processEvent(new LinkEnterEvent(0.0, Id.createVehicleId(0), Id.createLinkId(0)));
+		events.processEvent(new LinkLeaveEvent(0.0, Id.createVehicleId(0), Id.createLinkId(0)));
+		events.afterSimStep(0.0);
+		events.processEvent(new LinkEnterEvent(1.0, Id.createVehicleId(0), Id.createLinkId(0)));
+		events.processEvent(new LinkLeaveEvent(1.0, Id.createVehicleId(0), Id.createLinkId(0)));
+		events.afterSimStep(1.0);
+		events.finishProcessing();
+
+		assertThat(collector.getEvents(),
+			contains(
+					new LinkEnterEvent(0.0, Id.createVehicleId(0), Id.createLinkId(0)),
+					new LinkLeaveEvent(0.0, Id.createVehicleId(0), Id.createLinkId(0)),
+					new PersonStuckEvent(0.0, Id.createPersonId(0), Id.createLinkId(0), "car"),
+					new LinkEnterEvent(1.0, Id.createVehicleId(0), Id.createLinkId(0)),
+					new LinkLeaveEvent(1.0, Id.createVehicleId(0), Id.createLinkId(0)),
+					new PersonStuckEvent(1.0, Id.createPersonId(0), Id.createLinkId(0), "car")));
+	}
+
+	@Test
+	public void testAllGroupsSeeAllEventsInOrder() {
+		// a small buffer, so the producer has to wait for the handlers most of the time
+		RingBufferEventsManager events = new RingBufferEventsManager(4, 16, false);
+		OrderCheckingHandler[] handlers = new OrderCheckingHandler[6];
+		for (int i = 0; i < handlers.length; i++) {
+			handlers[i] = new OrderCheckingHandler();
+			events.addHandler(handlers[i]);
+		}
+
+		for (int iteration = 0; iteration < 2; iteration++) {
+			events.resetHandlers(iteration);
+			events.initProcessing();
+			for (int i = 0; i < 10000; i++) {
+				events.processEvent(new LinkLeaveEvent(i, Id.createVehicleId(0), Id.createLinkId(0)));
+				events.afterSimStep(i);
+			}
+			events.finishProcessing();
+
+			for (OrderCheckingHandler handler : handlers) {
+				assertEquals(10000, handler.counter);
+			}
+		}
+
+		// after the iteration, events are processed in the calling thread
+		events.processEvent(new LinkLeaveEvent(10000, Id.createVehicleId(0), Id.createLinkId(0)));
+		for (OrderCheckingHandler handler : handlers) {
+			assertEquals(10001, handler.counter);
+		}
+	}
+
+	@Test
+	public void testEventHandlersProduceEventsIntoFullBuffer() {
+		for (boolean syncOnSimSteps : new boolean[] {false, true}) {
+			// a small buffer and a fast producer, so the buffer is full whenever the handlers create their events
+			final RingBufferEventsManager events = new RingBufferEventsManager(3, 8, syncOnSimSteps);
+			events.addHandler(new LinkLeaveEventHandler() {
+				@Override
+				public void handleEvent(LinkLeaveEvent event) {
+					events.processEvent(new LinkEnterEvent(event.getTime(), Id.createVehicleId(0), Id.createLinkId(0)));
+				}
+			});
+			events.addHandler(new LinkLeaveEventHandler() {
+				@Override
+				public void handleEvent(LinkLeaveEvent event) {
+					events.processEvent(new PersonStuckEvent(event.getTime(), Id.createPersonId(0), Id.createLinkId(0), "car"));
+				}
+			});
+			CountingHandler counter = new CountingHandler();
+			events.addHandler(counter);
+
+			events.initProcessing();
+			for (int i = 0; i < 10000; i++) {
+				events.processEvent(new LinkLeaveEvent(i / 10, Id.createVehicleId(0), Id.createLinkId(0)));
+				if (i % 10 == 9) {
+					events.afterSimStep(i / 10);
+				}
+			}
+			events.finishProcessing();
+
+			assertEquals(10000, counter.linkEnterCount);
+			assertEquals(10000, counter.stuckCount);
+		}
+	}
+
+	@Test
+	public void testExceptionInEventHandler() {
+		RingBufferEventsManager events = new RingBufferEventsManager(2, 16, true);
+		events.addHandler(new LinkLeaveEventHandler() {
+			@Override
+			public void handleEvent(LinkLeaveEvent event) {
+				throw new IllegalStateException("crash");
+			}
+
+			@Override
+			public void reset(int iteration) {}
+		});
+		events.initProcessing();
+		try {
+			for (int i = 0; i < 100; i++) {
+				events.processEvent(new LinkLeaveEvent(i, Id.createVehicleId(0), Id.createLinkId(0)));
+				events.afterSimStep(i);
+			}
+			Assert.fail("expected exception, but got none.");
+		} catch (RuntimeException e) {
+			// expected
+		}
+		try {
+			events.finishProcessing();
+			Assert.fail("expected exception, but got none.");
+		} catch (RuntimeException e) {
+			// expected
+		}
+	}
+
+	private static class OrderCheckingHandler implements LinkLeaveEventHandler {
+
+		private int counter = 0;
+
+		@Override
+		public void handleEvent(LinkLeaveEvent event) {
+			Assert.assertEquals(this.counter, event.getTime(), 0.0);
+			this.counter++;
+		}
+
+		@Override
+		public void reset(int iteration) {
+			this.counter = 0;
+		}
+	}
+
+	private static class CountingHandler implements LinkEnterEventHandler, PersonStuckEventHandler {
+
+		private int linkEnterCount = 0;
+		private int stuckCount = 0;
+
+		@Override
+		public void handleEvent(LinkEnterEvent event) {
+			this.linkEnterCount++;
+		}
+
+		@Override
+		public void handleEvent(PersonStuckEvent event) {
+			this.stuckCount++;
+		}
+
+		@Override
+		public void reset(int iteration) {
+			this.linkEnterCount = 0;
+			this.stuckCount = 0;
+		}
+	}
+
+}
@@ -944,6 +944,52 @@ public class HermesTest {
 		// besides this, the important thing is that no (Runtime)Exception is thrown during this test
 	}
 
+	/**
+	 * Runs the same population once with a single realm and once with the network split into two realms, and checks
+	 * that both runs produce the same events. Link 3 is owned by a different realm than links 1 and 2, and the
+	 * agents are congested on link 2, so agents have to wait at the realm boundary.
+	 */
+	@Test
+	public void testMultipleRealms() {
+		List<String> singleRealm = runWithRealms(1);
+		ScenarioImporter.flush();
+		List<String> twoRealms = runWithRealms(2);
+
+		Assert.assertFalse(singleRealm.isEmpty());
+		Assert.assertEquals(singleRealm, twoRealms);
+	}
+
+	private static List<String> runWithRealms(int numberOfRealms) {
+		Fixture f = new Fixture();
+		f.config.hermes().setNumberOfRealms(numberOfRealms);
+		for (int i = 0; i < 100; i++) {
+			Person person = PopulationUtils.getFactory().createPerson(Id.create(i, Person.class));
+			Plan plan = PersonUtils.createAndAddPlan(person, true);
+			Activity a1 = PopulationUtils.createAndAddActivityFromLinkId(plan, "h", f.link1.getId());
+			a1.setEndTime(6*3600 + i);
+			Leg leg = PopulationUtils.createAndAddLeg( plan, TransportMode.car );
+			TripStructureUtils.setRoutingMode( leg, TransportMode.car );
+			NetworkRoute route = f.scenario.getPopulation().getFactory().getRouteFactories().createRoute(NetworkRoute.class, f.link1.getId(), f.link3.getId());
+			route.setLinkIds(f.link1.getId(), f.linkIds2, f.link3.getId());
+			leg.setRoute(route);
+			PopulationUtils.createAndAddActivityFromLinkId(plan, "w", f.link3.getId());
+			f.plans.addPerson(person);
+		}
+
+		EventsManager events = EventsUtils.createEventsManager();
+		EventsCollector collector = new EventsCollector();
+		events.addHandler(collector);
+		createHermes(f, events).run();
+
+		// events within the same second may be ordered differently
+		List<String> result = new ArrayList<>();
+		for (Event event : collector.getEvents()) {
+			result.add(String.format("%08.0f %s", event.getTime(), event.toString()));
+		}
+		Collections.sort(result);
+		return result;
+	}
+
 	/*package*/ final static class FirstLastEventCollector implements BasicEventHandler {
 		public Event firstEvent = null;
 		public Event lastEvent = null;
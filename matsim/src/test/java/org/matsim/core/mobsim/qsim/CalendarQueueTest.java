@@ -0,0 +1,79 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * CalendarQueueTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2022 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.mobsim.qsim;
+
+import java.util.Comparator;
+import java.util.PriorityQueue;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.core.utils.collections.Tuple;
+
+public class CalendarQueueTest {
+
+	@Test
+	public void testSameOrderAsPriorityQueue() {
+		Comparator<Tuple<Double, Integer>> order = Comparator.comparingDouble((Tuple<Double, Integer> t) -> t.getFirst())
+				.thenComparing(t -> -t.getSecond());
+		PriorityQueue<Tuple<Double, Integer>> expected = new PriorityQueue<>(order);
+		CalendarQueue<Integer> actual = new CalendarQueue<>((i0, i1) -> i1.compareTo(i0));
+
+		Random random = new Random(2022);
+		for (int i = 0; i < 2000; i++) {
+			double time = random.nextBoolean() ? random.nextInt(600) : random.nextDouble() * 600;
+			expected.add(new Tuple<>(time, i));
+			actual.add(time, i);
+		}
+		actual.add(Double.POSITIVE_INFINITY, -1);
+		Assert.assertEquals(2001, actual.size());
+
+		for (double now = 0; now < 700; now += (random.nextBoolean() ? 1 : 0.25)) {
+			while (!expected.isEmpty() && expected.peek().getFirst() <= now) {
+				Assert.assertEquals(expected.poll().getSecond(), actual.poll(now));
+			}
+			Assert.assertNull(actual.poll(now));
+		}
+		Assert.assertEquals(1, actual.size());
+		Assert.assertEquals(-1, (int) actual.getAll().get(0));
+	}
+
+	@Test
+	public void testAddAndRemoveWhilePolling() {
+		CalendarQueue<String> queue = new CalendarQueue<>(Comparator.naturalOrder());
+		queue.add(10, "a");
+		queue.add(10, "b");
+		queue.add(10, "c");
+		queue.add(20, "d");
+
+		Assert.assertEquals("a", queue.poll(10));
+		Assert.assertTrue(queue.removeFirst("b"::equals));
+		queue.add(10, "e"); // becomes due while the current batch is polled
+		Assert.assertEquals("c", queue.poll(10));
+		Assert.assertEquals("e", queue.poll(10));
+		Assert.assertNull(queue.poll(10));
+		Assert.assertFalse(queue.removeFirst("b"::equals));
+
+		Assert.assertEquals("d", queue.poll(1000));
+		Assert.assertTrue(queue.isEmpty());
+	}
+
+}
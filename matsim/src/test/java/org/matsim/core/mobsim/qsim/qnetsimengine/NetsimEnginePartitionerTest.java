@@ -0,0 +1,134 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * NetsimEnginePartitionerTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2022 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.mobsim.qsim.qnetsimengine;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.core.network.NetworkUtils;
+
+public class NetsimEnginePartitionerTest {
+
+	/**
+	 * 10x10 grid with bidirectional links between neighbouring nodes.
+	 */
+	private static List<Node> createGrid(int size) {
+		Network network = NetworkUtils.createNetwork();
+		Node[][] nodes = new Node[size][size];
+		for (int x = 0; x < size; x++) {
+			for (int y = 0; y < size; y++) {
+				nodes[x][y] = NetworkUtils.createAndAddNode(network, Id.createNodeId(x + "_" + y), new Coord(x * 100, y * 100));
+			}
+		}
+		int l = 0;
+		for (int x = 0; x < size; x++) {
+			for (int y = 0; y < size; y++) {
+				if (x + 1 < size) {
+					NetworkUtils.createAndAddLink(network, Id.create(l++, Link.class), nodes[x][y], nodes[x + 1][y], 100, 10, 1000, 1);
+					NetworkUtils.createAndAddLink(network, Id.create(l++, Link.class), nodes[x + 1][y], nodes[x][y], 100, 10, 1000, 1);
+				}
+				if (y + 1 < size) {
+					NetworkUtils.createAndAddLink(network, Id.create(l++, Link.class), nodes[x][y], nodes[x][y + 1], 100, 10, 1000, 1);
+					NetworkUtils.createAndAddLink(network, Id.create(l++, Link.class), nodes[x][y + 1], nodes[x][y], 100, 10, 1000, 1);
+				}
+			}
+		}
+		return new ArrayList<>(network.getNodes().values());
+	}
+
+	private static int countCutLinks(List<Node> nodes, int[] runners) {
+		int cut = 0;
+		for (int i = 0; i < nodes.size(); i++) {
+			for (Link link : nodes.get(i).getOutLinks().values()) {
+				if (runners[i] != runners[nodes.indexOf(link.getToNode())]) {
+					cut++;
+				}
+			}
+		}
+		return cut;
+	}
+
+	private static void assertBalanced(int[] runners, int numberOfRunners, int expectedPerRunner, int tolerance) {
+		int[] counts = new int[numberOfRunners];
+		for (int runner : runners) {
+			counts[runner]++;
+		}
+		for (int count : counts) {
+			Assert.assertEquals(Arrays.toString(counts), expectedPerRunner, count, tolerance);
+		}
+	}
+
+	@Test
+	public void testRoundRobin() {
+		List<Node> nodes = createGrid(10);
+		double[] weights = new double[nodes.size()];
+		Arrays.fill(weights, 1.0);
+		int[] runners = new RoundRobinNetsimEnginePartitioner().partition(nodes, weights, 4);
+		assertBalanced(runners, 4, 25, 0);
+	}
+
+	@Test
+	public void testGeometricBisection() {
+		List<Node> nodes = createGrid(10);
+		double[] weights = new double[nodes.size()];
+		Arrays.fill(weights, 1.0);
+		int[] runners = new GeometricBisectionNetsimEnginePartitioner().partition(nodes, weights, 4);
+		assertBalanced(runners, 4, 25, 0);
+		// four quadrants: 2 cuts of 10 node pairs with links in both directions
+		Assert.assertEquals(40, countCutLinks(nodes, runners));
+		Assert.assertTrue(countCutLinks(nodes, runners) < countCutLinks(nodes, new RoundRobinNetsimEnginePartitioner().partition(nodes, weights, 4)));
+	}
+
+	@Test
+	public void testGraphBisection() {
+		List<Node> nodes = createGrid(10);
+		double[] weights = new double[nodes.size()];
+		Arrays.fill(weights, 1.0);
+		int[] runners = new GraphBisectionNetsimEnginePartitioner().partition(nodes, weights, 4);
+		assertBalanced(runners, 4, 25, 3);
+		Assert.assertTrue(countCutLinks(nodes, runners) < countCutLinks(nodes, new RoundRobinNetsimEnginePartitioner().partition(nodes, weights, 4)));
+	}
+
+	@Test
+	public void testWeights() {
+		List<Node> nodes = createGrid(10);
+		double[] weights = new double[nodes.size()];
+		Arrays.fill(weights, 1.0);
+		// one very heavy node should end up (almost) alone
+		weights[0] = 99.0;
+		int[] runners = new GeometricBisectionNetsimEnginePartitioner().partition(nodes, weights, 2);
+		int sameRunner = 0;
+		for (int runner : runners) {
+			if (runner == runners[0]) {
+				sameRunner++;
+			}
+		}
+		Assert.assertTrue("heavy node shares its runner with " + (sameRunner - 1) + " nodes", sameRunner <= 2);
+	}
+}
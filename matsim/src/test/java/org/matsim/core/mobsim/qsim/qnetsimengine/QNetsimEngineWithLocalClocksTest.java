@@ -0,0 +1,134 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * QNetsimEngineWithLocalClocksTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2022 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.mobsim.qsim.qnetsimengine;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.api.core.v01.events.PersonArrivalEvent;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.api.core.v01.population.Activity;
+import org.matsim.api.core.v01.population.Leg;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Plan;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.config.groups.QSimConfigGroup.NetsimEnginePartitioning;
+import org.matsim.core.config.groups.QSimConfigGroup.NetsimEngineSynchronization;
+import org.matsim.core.controler.PrepareForSimUtils;
+import org.matsim.core.events.EventsUtils;
+import org.matsim.core.gbl.MatsimRandom;
+import org.matsim.core.mobsim.qsim.QSimBuilder;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.population.PopulationUtils;
+import org.matsim.core.population.routes.NetworkRoute;
+import org.matsim.core.population.routes.RouteUtils;
+import org.matsim.core.scenario.ScenarioUtils;
+import org.matsim.testcases.utils.EventsCollector;
+
+public class QNetsimEngineWithLocalClocksTest {
+
+	/**
+	 * Agents drive in both directions along a corridor that is split onto four threads. The results must not depend
+	 * on how the threads are synchronized.
+	 */
+	@Test
+	public void testSameEventsAsWithBarrier() {
+		List<String> barrier = run(NetsimEngineSynchronization.barrier);
+		List<String> localClocks = run(NetsimEngineSynchronization.localClocks);
+
+		int arrivals = 0;
+		for (String event : barrier) {
+			if (event.contains("type=\"" + PersonArrivalEvent.EVENT_TYPE + "\"")) {
+				arrivals++;
+			}
+		}
+		Assert.assertEquals(200, arrivals);
+		Assert.assertEquals(barrier, localClocks);
+	}
+
+	private static List<String> run(NetsimEngineSynchronization synchronization) {
+		MatsimRandom.reset();
+		Scenario scenario = ScenarioUtils.createScenario(ConfigUtils.createConfig());
+		scenario.getConfig().qsim().setNumberOfThreads(4);
+		scenario.getConfig().qsim().setNetsimEngineSynchronization(synchronization);
+		scenario.getConfig().qsim().setNetsimEnginePartitioning(NetsimEnginePartitioning.geometricBisection);
+
+		Network network = scenario.getNetwork();
+		network.setCapacityPeriod(3600.0);
+		int size = 20;
+		Node[] nodes = new Node[size];
+		List<Id<Link>> forward = new ArrayList<>();
+		List<Id<Link>> backward = new ArrayList<>();
+		for (int i = 0; i < size; i++) {
+			nodes[i] = NetworkUtils.createAndAddNode(network, Id.createNodeId(i), new Coord(i * 100, 0));
+		}
+		for (int i = 0; i + 1 < size; i++) {
+			Link f = NetworkUtils.createAndAddLink(network, Id.createLinkId("f" + i), nodes[i], nodes[i + 1], 100, 10, 900, 1);
+			Link b = NetworkUtils.createAndAddLink(network, Id.createLinkId("b" + i), nodes[i + 1], nodes[i], 100, 10, 900, 1);
+			forward.add(f.getId());
+			backward.add(0, b.getId());
+		}
+
+		for (int i = 0; i < 200; i++) {
+			List<Id<Link>> links = i % 2 == 0 ? forward : backward;
+			Person person = PopulationUtils.getFactory().createPerson(Id.createPersonId(i));
+			Plan plan = PopulationUtils.createPlan();
+			Activity home = PopulationUtils.createActivityFromLinkId("h", links.get(0));
+			home.setEndTime(6 * 3600 + i);
+			plan.addActivity(home);
+			Leg leg = PopulationUtils.createLeg("car");
+			NetworkRoute route = RouteUtils.createLinkNetworkRouteImpl(links.get(0), links.get(links.size() - 1));
+			route.setLinkIds(links.get(0), links.subList(1, links.size() - 1), links.get(links.size() - 1));
+			leg.setRoute(route);
+			plan.addLeg(leg);
+			plan.addActivity(PopulationUtils.createActivityFromLinkId("w", links.get(links.size() - 1)));
+			person.addPlan(plan);
+			scenario.getPopulation().addPerson(person);
+		}
+
+		EventsManager events = EventsUtils.createEventsManager();
+		EventsCollector collector = new EventsCollector();
+		events.addHandler(collector);
+		PrepareForSimUtils.createDefaultPrepareForSim(scenario).run();
+		new QSimBuilder(scenario.getConfig()) //
+				.useDefaults() //
+				.build(scenario, events) //
+				.run();
+
+		// threads might produce the events of one time step in a different order
+		List<String> result = new ArrayList<>();
+		for (Event event : collector.getEvents()) {
+			result.add(event.toString());
+		}
+		Collections.sort(result);
+		return result;
+	}
+}
@@ -0,0 +1,89 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * RingBufferVehicleQTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2022 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.mobsim.qsim.qnetsimengine.vehicleq;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.api.core.v01.Id;
+import org.matsim.core.mobsim.qsim.qnetsimengine.QVehicle;
+import org.matsim.core.mobsim.qsim.qnetsimengine.QVehicleImpl;
+import org.matsim.vehicles.Vehicle;
+import org.matsim.vehicles.VehicleType;
+import org.matsim.vehicles.VehicleUtils;
+
+public class RingBufferVehicleQTest {
+
+	@Test
+	public void testSameBehaviorAsFIFOVehicleQ() {
+		VehicleType type = VehicleUtils.createVehicleType(Id.create("car", VehicleType.class));
+		List<QVehicle> vehicles = new ArrayList<>();
+		for (int i = 0; i < 50; i++) {
+			vehicles.add(new QVehicleImpl(VehicleUtils.createVehicle(Id.create(i, Vehicle.class), type)));
+		}
+
+		Random random = new Random(4711);
+		VehicleQ<QVehicle> expected = new FIFOVehicleQ();
+		VehicleQ<QVehicle> actual = new RingBufferVehicleQ();
+		for (int step = 0; step < 10000; step++) {
+			QVehicle veh = vehicles.get(random.nextInt(vehicles.size()));
+			switch (random.nextInt(6)) {
+				case 0:
+				case 1:
+					Assert.assertEquals(expected.offer(veh), actual.offer(veh));
+					break;
+				case 2:
+					expected.addFirst(veh);
+					actual.addFirst(veh);
+					break;
+				case 3:
+					Assert.assertSame(expected.poll(), actual.poll());
+					break;
+				case 4:
+					Assert.assertEquals(expected.remove(veh), actual.remove(veh));
+					break;
+				case 5:
+					Iterator<QVehicle> expectedIter = expected.iterator();
+					Iterator<QVehicle> actualIter = actual.iterator();
+					while (expectedIter.hasNext()) {
+						Assert.assertSame(expectedIter.next(), actualIter.next());
+						if (random.nextInt(10) == 0) {
+							expectedIter.remove();
+							actualIter.remove();
+						}
+					}
+					Assert.assertFalse(actualIter.hasNext());
+					break;
+			}
+			Assert.assertEquals(expected.size(), actual.size());
+			Assert.assertSame(expected.peek(), actual.peek());
+		}
+
+		actual.clear();
+		Assert.assertTrue(actual.isEmpty());
+		Assert.assertNull(actual.poll());
+	}
+
+}
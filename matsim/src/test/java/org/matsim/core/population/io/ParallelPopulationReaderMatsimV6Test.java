@@ -0,0 +1,200 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * ParallelPopulationReaderMatsimV6Test.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2022 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+
+package org.matsim.core.population.io;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.population.Activity;
+import org.matsim.api.core.v01.population.Leg;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Plan;
+import org.matsim.api.core.v01.population.Population;
+import org.matsim.api.core.v01.population.PopulationFactory;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.population.PopulationUtils;
+import org.matsim.core.population.routes.NetworkRoute;
+import org.matsim.core.population.routes.RouteUtils;
+import org.matsim.core.scenario.ScenarioUtils;
+import org.matsim.testcases.MatsimTestUtils;
+import org.matsim.vehicles.Vehicle;
+
+public class ParallelPopulationReaderMatsimV6Test {
+
+	@Rule
+	public final MatsimTestUtils utils = new MatsimTestUtils();
+
+	@Test
+	public void testSameResultAsSequentialReader() {
+		Population population = createPopulation(2345);
+		String file = this.utils.getOutputDirectory() + "population.xml";
+		new PopulationWriter(population).writeV6(file);
+
+		Scenario sequential = ScenarioUtils.createScenario(ConfigUtils.createConfig());
+		new PopulationReaderMatsimV6(null, null, sequential).readFile(file);
+
+		Scenario parallel = ScenarioUtils.createScenario(ConfigUtils.createConfig());
+		// small chunks, so the persons are distributed to many chunks
+		new ParallelPopulationReaderMatsimV6(null, null, parallel, 4, 100).readFile(file);
+
+		Assert.assertEquals(population.getPersons().size(), parallel.getPopulation().getPersons().size());
+		Assert.assertEquals("test population", parallel.getPopulation().getName());
+		Assert.assertEquals("some value", parallel.getPopulation().getAttributes().getAttribute("populationAttribute"));
+
+		// the persons must be in the same order as in the file
+		Iterator<Id<Person>> expectedIds = population.getPersons().keySet().iterator();
+		for (Id<Person> personId : parallel.getPopulation().getPersons().keySet()) {
+			Assert.assertEquals(expectedIds.next(), personId);
+		}
+		Assert.assertTrue(PopulationUtils.equalPopulation(sequential.getPopulation(), parallel.getPopulation()));
+	}
+
+	@Test
+	public void testPopulationReaderUsesParallelReader() {
+		Population population = createPopulation(250);
+		String file = this.utils.getOutputDirectory() + "population.xml";
+		new PopulationWriter(population).writeV6(file);
+
+		Scenario scenario = ScenarioUtils.createScenario(ConfigUtils.createConfig());
+		scenario.getConfig().global().setNumberOfThreads(3);
+		scenario.getConfig().plans().setUsingParallelReader(true);
+		new PopulationReader(scenario).readFile(file);
+
+		Assert.assertTrue(PopulationUtils.equalPopulation(population, scenario.getPopulation()));
+	}
+
+	@Test
+	public void testSameIdOrderAsSequentialReader() throws IOException {
+		Population population = PopulationUtils.createPopulation(ConfigUtils.createConfig());
+		PopulationFactory pf = population.getFactory();
+		Random random = new Random(4711);
+		for (int i = 0; i < 500; i++) {
+			Person person = pf.createPerson(Id.createPersonId("idorder_p" + ((i * 7919) % 500)));
+			Plan plan = pf.createPlan();
+			plan.addActivity(pf.createActivityFromLinkId("home", Id.createLinkId("idorder_l" + random.nextInt(2000))));
+			Leg leg = pf.createLeg("car");
+			NetworkRoute route = RouteUtils.createLinkNetworkRouteImpl(Id.createLinkId("idorder_l" + random.nextInt(2000)),
+					Arrays.asList(Id.createLinkId("idorder_l" + random.nextInt(2000)), Id.createLinkId("idorder_l" + random.nextInt(2000))),
+					Id.createLinkId("idorder_l" + random.nextInt(2000)));
+			route.setVehicleId(Id.createVehicleId("idorder_v" + random.nextInt(2000)));
+			leg.setRoute(route);
+			plan.addLeg(leg);
+			plan.addActivity(pf.createActivityFromLinkId("work", Id.createLinkId("idorder_l" + random.nextInt(2000))));
+			person.addPlan(plan);
+			population.addPerson(person);
+		}
+		String file = this.utils.getOutputDirectory() + "population_ids.xml";
+		new PopulationWriter(population).writeV6(file);
+
+		// use ids which do not exist yet, so their indices are assigned while reading
+		String content = new String(Files.readAllBytes(Paths.get(file)), StandardCharsets.UTF_8);
+		String sequentialFile = this.utils.getOutputDirectory() + "population_sequential.xml";
+		String parallelFile = this.utils.getOutputDirectory() + "population_parallel.xml";
+		Files.write(Paths.get(sequentialFile), content.replace("idorder_", "seq_").getBytes(StandardCharsets.UTF_8));
+		Files.write(Paths.get(parallelFile), content.replace("idorder_", "par_").getBytes(StandardCharsets.UTF_8));
+
+		new PopulationReaderMatsimV6(null, null, ScenarioUtils.createScenario(ConfigUtils.createConfig())).readFile(sequentialFile);
+		new ParallelPopulationReaderMatsimV6(null, null, ScenarioUtils.createScenario(ConfigUtils.createConfig()), 4, 10).readFile(parallelFile);
+
+		Assert.assertEquals(500, getIdsInIndexOrder(Person.class, "seq_").size());
+		Assert.assertEquals(getIdsInIndexOrder(Person.class, "seq_"), getIdsInIndexOrder(Person.class, "par_"));
+		Assert.assertEquals(getIdsInIndexOrder(Link.class, "seq_"), getIdsInIndexOrder(Link.class, "par_"));
+		Assert.assertEquals(getIdsInIndexOrder(Vehicle.class, "seq_"), getIdsInIndexOrder(Vehicle.class, "par_"));
+	}
+
+	private static <T> List<String> getIdsInIndexOrder(Class<T> type, String prefix) {
+		List<String> ids = new ArrayList<>();
+		for (int index = 0; index < Id.getNumberOfIds(type); index++) {
+			String id = Id.get(index, type).toString();
+			if (id.startsWith(prefix)) {
+				ids.add(id.substring(prefix.length()));
+			}
+		}
+		return ids;
+	}
+
+	@Test(expected = NumberFormatException.class)
+	public void testExceptionInWorkerIsPassedOn() throws IOException {
+		String file = this.utils.getOutputDirectory() + "population.xml";
+		new PopulationWriter(createPopulation(10)).writeV6(file);
+		// invalid scores are only detected when the persons are interpreted by the worker threads
+		Path brokenFile = Paths.get(this.utils.getOutputDirectory() + "population_broken.xml");
+		List<String> lines = new ArrayList<>();
+		for (String line : Files.readAllLines(Paths.get(file))) {
+			lines.add(line.replaceAll("score=\"[^\"]*\"", "score=\"high\""));
+		}
+		Files.write(brokenFile, lines);
+
+		Scenario scenario = ScenarioUtils.createScenario(ConfigUtils.createConfig());
+		new ParallelPopulationReaderMatsimV6(null, null, scenario, 2, 3).readFile(brokenFile.toString());
+	}
+
+	private static Population createPopulation(int size) {
+		Population population = PopulationUtils.createPopulation(ConfigUtils.createConfig());
+		population.setName("test population");
+		population.getAttributes().putAttribute("populationAttribute", "some value");
+		PopulationFactory pf = population.getFactory();
+		for (int i = 0; i < size; i++) {
+			// ids are not sorted, so the order is not restored by accident
+			Person person = pf.createPerson(Id.createPersonId("p" + ((i * 7919) % size)));
+			person.getAttributes().putAttribute("age", i % 90);
+			person.getAttributes().putAttribute("subpopulation", i % 2 == 0 ? "a" : "b");
+			for (int p = 0; p < 2; p++) {
+				Plan plan = pf.createPlan();
+				plan.setScore(i + 0.5 * p);
+				Activity home = pf.createActivityFromCoord("home", new Coord(i, 2 * i));
+				home.setEndTime(6 * 3600 + i);
+				plan.addActivity(home);
+				Leg leg = pf.createLeg(p == 0 ? "car" : "walk");
+				if (p == 0) {
+					leg.setRoute(RouteUtils.createLinkNetworkRouteImpl(Id.create("1", Link.class),
+							Arrays.asList(Id.create("2", Link.class), Id.create(String.valueOf(i), Link.class)), Id.create("3", Link.class)));
+				}
+				leg.getAttributes().putAttribute("legAttribute", i);
+				plan.addLeg(leg);
+				Activity work = pf.createActivityFromLinkId("work", Id.create("3", Link.class));
+				work.setStartTime(7 * 3600 + i);
+				plan.addActivity(work);
+				person.addPlan(plan);
+			}
+			person.setSelectedPlan(person.getPlans().get(i % 2));
+			population.addPerson(person);
+		}
+		return population;
+	}
+
+}
@@ -0,0 +1,131 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * ParallelPopulationWriterTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2022 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+
+package org.matsim.core.population.io;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.population.Activity;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Plan;
+import org.matsim.api.core.v01.population.Population;
+import org.matsim.api.core.v01.population.PopulationFactory;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.population.PopulationUtils;
+import org.matsim.core.scenario.ScenarioUtils;
+import org.matsim.core.utils.geometry.transformations.IdentityTransformation;
+import org.matsim.core.utils.io.IOUtils;
+import org.matsim.testcases.MatsimTestUtils;
+
+public class ParallelPopulationWriterTest {
+
+	@Rule
+	public final MatsimTestUtils utils = new MatsimTestUtils();
+
+	@Test
+	public void testSameContentAsPopulationWriter() throws IOException {
+		Population population = createPopulation(1234);
+		for (String extension : new String[] {".xml", ".xml.gz", ".xml.zst", ".xml.lz4"}) {
+			String expectedFile = this.utils.getOutputDirectory() + "expected" + extension;
+			String actualFile = this.utils.getOutputDirectory() + "actual" + extension;
+			new PopulationWriter(population).writeV6(expectedFile);
+			new ParallelPopulationWriter(new IdentityTransformation(), population, 3, 100).write(actualFile);
+
+			Assert.assertEquals("different content in " + extension + " file", readFile(expectedFile), readFile(actualFile));
+
+			Scenario scenario = ScenarioUtils.createScenario(ConfigUtils.createConfig());
+			new PopulationReader(scenario).readFile(actualFile);
+			Assert.assertTrue(PopulationUtils.equalPopulation(population, scenario.getPopulation()));
+		}
+	}
+
+	@Test
+	public void testSameContentWithMoreChunksThanPending() throws IOException {
+		// one person per chunk, so the queue of the file writer is full most of the time
+		Population population = createPopulation(300);
+		String expectedFile = this.utils.getOutputDirectory() + "expected.xml.gz";
+		String actualFile = this.utils.getOutputDirectory() + "actual.xml.gz";
+		new PopulationWriter(population).writeV6(expectedFile);
+		new ParallelPopulationWriter(new IdentityTransformation(), population, 2, 1).write(actualFile);
+
+		Assert.assertEquals(readFile(expectedFile), readFile(actualFile));
+	}
+
+	@Test
+	public void testWriteAsync_populationCanBeModified()throws IOException, InterruptedException, ExecutionException {
+		Population population = createPopulation(500);
+		String expectedFile = this.utils.getOutputDirectory() + "expected.xml.gz";
+		String actualFile = this.utils.getOutputDirectory() + "actual.xml.gz";
+		new PopulationWriter(population).writeV6(expectedFile);
+
+		Future<?> dump = new ParallelPopulationWriter(population, 2).writeAsync(actualFile);
+		// all persons are formatted when writeAsync returns
+		for (Person person : population.getPersons().values()) {
+			person.getSelectedPlan().setScore(-1.0);
+		}
+		dump.get();
+
+		Assert.assertEquals(readFile(expectedFile), readFile(actualFile));
+	}
+
+	private static String readFile(String filename) throws IOException {
+		try (InputStream in = IOUtils.getInputStream(IOUtils.getFileUrl(filename))) {
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			byte[] buffer = new byte[8192];
+			int length;
+			while ((length = in.read(buffer)) > 0) {
+				out.write(buffer, 0, length);
+			}
+			return out.toString("UTF-8");
+		}
+	}
+
+	private static Population createPopulation(int size) {
+		Population population = PopulationUtils.createPopulation(ConfigUtils.createConfig());
+		population.getAttributes().putAttribute("description", "parallel writer test");
+		PopulationFactory pf = population.getFactory();
+		for (int i = 0; i < size; i++) {
+			Person person = pf.createPerson(Id.createPersonId(i));
+			person.getAttributes().putAttribute("income", i * 100.0);
+			Plan plan = pf.createPlan();
+			plan.setScore((double) i);
+			Activity home = pf.createActivityFromCoord("home", new Coord(i, -i));
+			home.setEndTime(8 * 3600);
+			plan.addActivity(home);
+			plan.addLeg(pf.createLeg("walk"));
+			plan.addActivity(pf.createActivityFromCoord("work", new Coord(2 * i, 0)));
+			person.addPlan(plan);
+			population.addPerson(person);
+		}
+		return population;
+	}
+
+}
@@ -20,12 +20,18 @@
 
 package org.matsim.core.replanning.modules;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
 import org.apache.log4j.Logger;
 import org.junit.Assert;
 import org.junit.Test;
 import org.matsim.api.core.v01.population.Plan;
 import org.matsim.core.config.Config;
 import org.matsim.core.config.groups.GlobalConfigGroup;
+import org.matsim.core.config.groups.GlobalConfigGroup.MultithreadedModuleScheduling;
+import org.matsim.core.population.PopulationUtils;
 import org.matsim.core.population.algorithms.PlanAlgorithm;
 
 /**
@@ -60,6 +66,57 @@ public class AbstractMultithreadedModuleTest {
 
 	}
 
+	@Test
+	public void testCrashingThread_workStealing() {
+		try {
+			DummyCrashingModule testee = new DummyCrashingModule(2, MultithreadedModuleScheduling.workStealing);
+			testee.prepareReplanning(null);
+			testee.handlePlan(null);
+			testee.handlePlan(null);
+			testee.handlePlan(null);
+			testee.finishReplanning();
+			Assert.fail("expected exception, got none.");
+		} catch (Exception e) {
+			log.info("Catched expected exception.", e);
+		}
+	}
+
+	@Test
+	public void testWorkStealing_allPlansHandled() {
+		CountingModule testee = new CountingModule(3, false);
+		List<Plan> plans = new ArrayList<>();
+		for (int i = 0; i < 1000; i++) {
+			plans.add(PopulationUtils.createPlan());
+		}
+		for (int iteration = 0; iteration < 2; iteration++) {
+			testee.prepareReplanning(null);
+			for (Plan plan : plans) {
+				testee.handlePlan(plan);
+			}
+			testee.finishReplanning();
+			Assert.assertEquals(1000, testee.getStatistics().getNumberOfPlans());
+		}
+		for (Plan plan : plans) {
+			Assert.assertEquals("every plan must be handled exactly once per iteration", 2, plan.getScore(), 0.0);
+		}
+		Assert.assertTrue("new instances are expected in every iteration", testee.instances.get() >= 6);
+	}
+
+	@Test
+	public void testWorkStealing_reusingPlanAlgoInstances() {
+		CountingModule testee = new CountingModule(2, true);
+		for (int iteration = 0; iteration < 3; iteration++) {
+			testee.prepareReplanning(null);
+			for (int i = 0; i < 10; i++) {
+				testee.handlePlan(PopulationUtils.createPlan());
+			}
+			testee.finishReplanning();
+		}
+		// an additional instance may be created for the calling thread in each iteration
+		Assert.assertTrue(testee.instances.get() >= 2);
+		Assert.assertTrue(testee.instances.get() <= 2 + 3);
+	}
+
 	private static class DummyAbstractMultithreadedModule extends AbstractMultithreadedModule {
 		public DummyAbstractMultithreadedModule(GlobalConfigGroup globalConfigGroup) {
 			super(globalConfigGroup);
@@ -74,12 +131,38 @@ public class AbstractMultithreadedModuleTest {
 		public DummyCrashingModule(final int nOfThreads) {
 			super(nOfThreads);
 		}
+		public DummyCrashingModule(final int nOfThreads, final MultithreadedModuleScheduling scheduling) {
+			super(nOfThreads, scheduling);
+		}
 		@Override
 		public PlanAlgorithm getPlanAlgoInstance() {
 			return new CrashingPlanAlgo();
 		}
 	}
 
+	private static class CountingModule extends AbstractMultithreadedModule {
+		private final boolean reuse;
+		private final AtomicInteger instances = new AtomicInteger(0);
+		public CountingModule(final int nOfThreads, final boolean reuse) {
+			super(nOfThreads, MultithreadedModuleScheduling.workStealing);
+			this.reuse = reuse;
+		}
+		@Override
+		protected boolean isReusingPlanAlgoInstances() {
+			return this.reuse;
+		}
+		@Override
+		public PlanAlgorithm getPlanAlgoInstance() {
+			this.instances.incrementAndGet();
+			return plan -> {
+				synchronized (plan) {
+					Double score = plan.getScore();
+					plan.setScore(score == null ? 1.0 : score + 1.0);
+				}
+			};
+		}
+	}
+
 	private static class CrashingPlanAlgo implements PlanAlgorithm {
 		@Override
 		public void run(Plan plan) {
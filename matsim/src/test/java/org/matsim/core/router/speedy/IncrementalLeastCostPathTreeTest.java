@@ -0,0 +1,87 @@
+package org.matsim.core.router.speedy;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.router.util.LeastCostPathCalculator.Path;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+public class IncrementalLeastCostPathTreeTest {
+
+	@Test
+	public void testRepair_sameCostsAsCalculate() {
+		Network network = NetworkUtils.createNetwork();
+		Random random = new Random(20221019);
+		int size = 10;
+		Node[][] nodes = new Node[size][size];
+		for (int x = 0; x < size; x++) {
+			for (int y = 0; y < size; y++) {
+				nodes[x][y] = NetworkUtils.createAndAddNode(network, Id.createNodeId("incr_" + x + "_" + y), new Coord(x * 100, y * 100));
+			}
+		}
+		List<Link> links = new ArrayList<>();
+		for (int x = 0; x < size; x++) {
+			for (int y = 0; y < size; y++) {
+				if (x + 1 < size) {
+					links.add(addLink(network, nodes[x][y], nodes[x + 1][y]));
+					links.add(addLink(network, nodes[x + 1][y], nodes[x][y]));
+				}
+				if (y + 1 < size) {
+					links.add(addLink(network, nodes[x][y], nodes[x][y + 1]));
+					links.add(addLink(network, nodes[x][y + 1], nodes[x][y]));
+				}
+			}
+		}
+
+		SpeedyGraph graph = new SpeedyGraph(network);
+		IncrementalLeastCostPathTree.Workspace workspace = new IncrementalLeastCostPathTree.Workspace(graph);
+		double[] linkCosts = new double[Id.getNumberOfIds(Link.class)];
+		for (Link link : links) {
+			linkCosts[link.getId().index()] = 10 + random.nextInt(100);
+		}
+		int destination = nodes[3][7].getId().index();
+		IncrementalLeastCostPathTree tree = new IncrementalLeastCostPathTree(graph, destination);
+		tree.calculate(linkCosts, workspace);
+
+		for (int round = 0; round < 50; round++) {
+			int[] changedLinks = new int[10];
+			for (int i = 0; i < changedLinks.length; i++) {
+				Link link = links.get(random.nextInt(links.size()));
+				changedLinks[i] = link.getId().index();
+				// some links get closed, so parts of the network might become unreachable
+				linkCosts[changedLinks[i]] = random.nextDouble() < 0.1 ? Double.POSITIVE_INFINITY : 10 + random.nextInt(100);
+			}
+			tree.repair(linkCosts, changedLinks, workspace);
+
+			IncrementalLeastCostPathTree expected = new IncrementalLeastCostPathTree(graph, destination);
+			expected.calculate(linkCosts, workspace);
+
+			for (Node node : network.getNodes().values()) {
+				int nodeIndex = node.getId().index();
+				Assert.assertEquals("round " + round + ", node " + node.getId(), expected.getCost(nodeIndex), tree.getCost(nodeIndex), 1e-9);
+				Path path = tree.getPath(nodeIndex, linkCosts);
+				if (Double.isInfinite(expected.getCost(nodeIndex))) {
+					Assert.assertNull(path);
+				} else {
+					// the travel times are the link costs here, so the path must be consistent with its cost
+					Assert.assertEquals(tree.getCost(nodeIndex), path.travelTime, 1e-9);
+					Assert.assertEquals(node, path.getFromNode());
+					Assert.assertEquals(nodes[3][7], path.getToNode());
+				}
+			}
+		}
+	}
+
+	private static Link addLink(Network network, Node from, Node to) {
+		return NetworkUtils.createAndAddLink(network, Id.create(from.getId() + "-" + to.getId(), Link.class), from, to, 100, 10, 1000, 1);
+	}
+
+}
@@ -0,0 +1,140 @@
+package org.matsim.core.router.speedy;
+
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.core.config.groups.PlanCalcScoreConfigGroup;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.router.AbstractLeastCostPathCalculatorTest;
+import org.matsim.core.router.costcalculators.FreespeedTravelTimeAndDisutility;
+import org.matsim.core.router.costcalculators.TravelDisutilityFactory;
+import org.matsim.core.router.util.LeastCostPathCalculator;
+import org.matsim.core.router.util.LeastCostPathCalculator.Path;
+
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class SpeedyCHTest extends AbstractLeastCostPathCalculatorTest {
+
+	@Override
+	protected LeastCostPathCalculator getLeastCostPathCalculator(final Network network) {
+		FreespeedTravelTimeAndDisutility travelTimeCostCalculator = new FreespeedTravelTimeAndDisutility(new PlanCalcScoreConfigGroup());
+		return new SpeedyCHFactory().createPathCalculator(network, travelTimeCostCalculator, travelTimeCostCalculator);
+	}
+
+	public void testCalcLeastCostPath_sameCostsAsDijkstra() {
+		Network network = NetworkUtils.createNetwork();
+		Random random = new Random(20221018);
+		int size = 12;
+		Node[][] nodes = new Node[size][size];
+		for (int x = 0; x < size; x++) {
+			for (int y = 0; y < size; y++) {
+				nodes[x][y] = NetworkUtils.createAndAddNode(network, Id.createNodeId(x + "_" + y), new Coord(x * 100, y * 100));
+			}
+		}
+		int linkId = 0;
+		for (int x = 0; x < size; x++) {
+			for (int y = 0; y < size; y++) {
+				if (x + 1 < size) {
+					addLink(network, linkId++, nodes[x][y], nodes[x + 1][y], random);
+					addLink(network, linkId++, nodes[x + 1][y], nodes[x][y], random);
+				}
+				if (y + 1 < size && random.nextDouble() < 0.8) {
+					// some one-way streets
+					addLink(network, linkId++, nodes[x][y], nodes[x][y + 1], random);
+					if (random.nextBoolean()) {
+						addLink(network, linkId++, nodes[x][y + 1], nodes[x][y], random);
+					}
+				}
+			}
+		}
+
+		FreespeedTravelTimeAndDisutility tc = new FreespeedTravelTimeAndDisutility(new PlanCalcScoreConfigGroup());
+		LeastCostPathCalculator dijkstra = new SpeedyDijkstra(new SpeedyGraph(network), tc, tc);
+		LeastCostPathCalculator ch = new SpeedyCHFactory().createPathCalculator(network, tc, tc);
+
+		for (int i = 0; i < 200; i++) {
+			Node from = nodes[random.nextInt(size)][random.nextInt(size)];
+			Node to = nodes[random.nextInt(size)][random.nextInt(size)];
+			Path expected = dijkstra.calcLeastCostPath(from, to, 8 * 3600, null, null);
+			Path actual = ch.calcLeastCostPath(from, to, 8 * 3600, null, null);
+			if (expected == null) {
+				assertNull(actual);
+				continue;
+			}
+			assertNotNull("no path from " + from.getId() + " to " + to.getId(), actual);
+			assertEquals(expected.travelCost, actual.travelCost, 1e-3);
+			assertEquals(from, actual.nodes.get(0));
+			assertEquals(to, actual.nodes.get(actual.nodes.size() - 1));
+			for (int l = 0; l < actual.links.size(); l++) {
+				assertEquals(actual.nodes.get(l), actual.links.get(l).getFromNode());
+				assertEquals(actual.nodes.get(l + 1), actual.links.get(l).getToNode());
+			}
+		}
+	}
+
+	public void testContraction_failsWhenExceedingEdgeLimit() {
+		Network network = NetworkUtils.createNetwork();
+		int size = 100;
+		Node[][] nodes = new Node[size][size];
+		for (int x = 0; x < size; x++) {
+			for (int y = 0; y < size; y++) {
+				nodes[x][y] = NetworkUtils.createAndAddNode(network, Id.createNodeId("limit_" + x + "_" + y), new Coord(x * 100, y * 100));
+			}
+		}
+		for (int x = 0; x < size; x++) {
+			for (int y = 0; y < size; y++) {
+				if (x + 1 < size) {
+					NetworkUtils.createAndAddLink(network, Id.create("limit_" + x + "_" + y + "_x", Link.class), nodes[x][y], nodes[x + 1][y], 100, 10, 1000, 1);
+				}
+				if (y + 1 < size) {
+					NetworkUtils.createAndAddLink(network, Id.create("limit_" + x + "_" + y + "_y", Link.class), nodes[x][y], nodes[x][y + 1], 100, 10, 1000, 1);
+				}
+			}
+		}
+
+		// the hierarchy has at least one edge per pair of neighbouring nodes, which is more than the smallest limit
+		FreespeedTravelTimeAndDisutility tc = new FreespeedTravelTimeAndDisutility(new PlanCalcScoreConfigGroup());
+		try {
+			new SpeedyCHFactory(3600, 1, 0.0).createPathCalculator(network, tc, tc);
+			fail("expected the contraction to fail.");
+		} catch (RuntimeException e) {
+			assertTrue(e.getMessage().contains("limit"));
+		}
+	}
+
+	public void testCustomization_sharedPerTravelDisutilityFactory() {
+		Network network = NetworkUtils.createNetwork();
+		Node node1 = NetworkUtils.createAndAddNode(network, Id.createNodeId("shared_1"), new Coord(0, 0));
+		Node node2 = NetworkUtils.createAndAddNode(network, Id.createNodeId("shared_2"), new Coord(100, 0));
+		NetworkUtils.createAndAddLink(network, Id.create("shared_12", Link.class), node1, node2, 100, 10, 1000, 1);
+		NetworkUtils.createAndAddLink(network, Id.create("shared_21", Link.class), node2, node1, 100, 10, 1000, 1);
+
+		FreespeedTravelTimeAndDisutility tc = new FreespeedTravelTimeAndDisutility(new PlanCalcScoreConfigGroup());
+		AtomicInteger createdDisutilities = new AtomicInteger();
+		TravelDisutilityFactory disutilityFactory = travelTime -> {
+			createdDisutilities.incrementAndGet();
+			return tc;
+		};
+		SpeedyCHFactory factory = new SpeedyCHFactory();
+
+		// one disutility for the customization, one for each path calculator
+		factory.createPathCalculator(network, disutilityFactory, tc);
+		assertEquals(2, createdDisutilities.get());
+		LeastCostPathCalculator ch = factory.createPathCalculator(network, disutilityFactory, tc);
+		assertEquals(3, createdDisutilities.get());
+		assertEquals(1, ch.calcLeastCostPath(node1, node2, 8 * 3600, null, null).links.size());
+
+		// the travel times might have changed, so the customization is repeated
+		factory.notifyIterationStarts(null);
+		factory.createPathCalculator(network, disutilityFactory, tc);
+		assertEquals(5, createdDisutilities.get());
+	}
+
+	private static void addLink(Network network, int id, Node from, Node to, Random random) {
+		NetworkUtils.createAndAddLink(network, Id.create(id, Link.class), from, to, 100 + random.nextInt(400), 5 + random.nextInt(25), 1000, 1);
+	}
+
+}
@@ -0,0 +1,162 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * ScenarioSnapshotTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2022 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+
+package org.matsim.core.scenario;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.TransportMode;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.population.Activity;
+import org.matsim.api.core.v01.population.Leg;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Plan;
+import org.matsim.api.core.v01.population.PopulationFactory;
+import org.matsim.api.core.v01.population.Route;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.population.PopulationUtils;
+import org.matsim.core.population.routes.NetworkRoute;
+import org.matsim.core.population.routes.RouteUtils;
+import org.matsim.core.utils.io.IOUtils;
+import org.matsim.examples.ExamplesUtils;
+import org.matsim.pt.transitSchedule.api.TransitScheduleWriter;
+import org.matsim.testcases.MatsimTestUtils;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+public class ScenarioSnapshotTest {
+
+	@Rule public MatsimTestUtils utils = new MatsimTestUtils();
+
+	@Test
+	public void testLoadScenario_fromSnapshot() {
+		URL configUrl = IOUtils.extendUrl(ExamplesUtils.getTestScenarioURL("pt-tutorial"), "0.config.xml");
+		Scenario scenario = ScenarioUtils.loadScenario(ConfigUtils.loadConfig(configUrl));
+		addRoutedPerson(scenario);
+
+		String snapshotFile = new File(this.utils.getOutputDirectory() + "scenario.snapshot").getAbsolutePath();
+		new ScenarioSnapshotWriter(scenario).write(snapshotFile);
+
+		Config config = ConfigUtils.loadConfig(configUrl);
+		config.scenario().setSnapshotFile(snapshotFile);
+		Scenario fromSnapshot = ScenarioUtils.loadScenario(config);
+
+		Assert.assertEquals(scenario.getNetwork().getLinks().size(), fromSnapshot.getNetwork().getLinks().size());
+		Assert.assertEquals(scenario.getTransitSchedule().getTransitLines().size(), fromSnapshot.getTransitSchedule().getTransitLines().size());
+		Assert.assertEquals(scenario.getPopulation().getPersons().size(), fromSnapshot.getPopulation().getPersons().size());
+		// transit vehicles are not part of the snapshot, but still loaded from their file
+		Assert.assertEquals(scenario.getTransitVehicles().getVehicles().size(), fromSnapshot.getTransitVehicles().getVehicles().size());
+
+		String dir = this.utils.getOutputDirectory();
+		NetworkUtils.writeNetwork(scenario.getNetwork(), dir + "network.xml");
+		NetworkUtils.writeNetwork(fromSnapshot.getNetwork(), dir + "network_snapshot.xml");
+		MatsimTestUtils.compareFilesBasedOnCRC(dir + "network.xml", dir + "network_snapshot.xml");
+
+		new TransitScheduleWriter(scenario.getTransitSchedule()).writeFile(dir + "schedule.xml");
+		new TransitScheduleWriter(fromSnapshot.getTransitSchedule()).writeFile(dir + "schedule_snapshot.xml");
+		MatsimTestUtils.compareFilesBasedOnCRC(dir + "schedule.xml", dir + "schedule_snapshot.xml");
+
+		PopulationUtils.writePopulation(scenario.getPopulation(), dir + "plans.xml");
+		PopulationUtils.writePopulation(fromSnapshot.getPopulation(), dir + "plans_snapshot.xml");
+		MatsimTestUtils.compareFilesBasedOnCRC(dir + "plans.xml", dir + "plans_snapshot.xml");
+
+		Person person = fromSnapshot.getPopulation().getPersons().get(Id.createPersonId("snapshot"));
+		Assert.assertEquals(2, person.getPlans().size());
+		Assert.assertSame(person.getPlans().get(1), person.getSelectedPlan());
+		Assert.assertNull(person.getPlans().get(1).getScore());
+		Leg carLeg = (Leg) person.getPlans().get(0).getPlanElements().get(1);
+		Assert.assertEquals(Id.createVehicleId("car1"), ((NetworkRoute) carLeg.getRoute()).getVehicleId());
+	}
+
+	@Test
+	public void testRead_notASnapshot() throws IOException {
+		String filename = this.utils.getOutputDirectory() + "notASnapshot.bin";
+		try (OutputStream out = new FileOutputStream(filename)) {
+			out.write(new byte[] {'<', '?', 'x', 'm', 'l', ' ', 'v', 'e', 'r', 's', 'i', 'o', 'n'});
+		}
+		try {
+			new ScenarioSnapshotReader(ScenarioUtils.createScenario(ConfigUtils.createConfig())).readFile(filename);
+			Assert.fail("expected exception");
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+	}
+
+	private static void addRoutedPerson(Scenario scenario) {
+		PopulationFactory pf = scenario.getPopulation().getFactory();
+		List<Link> links = new ArrayList<>(scenario.getNetwork().getLinks().values());
+		Link startLink = links.get(0);
+		Link endLink = links.get(links.size() - 1);
+
+		Person person = pf.createPerson(Id.createPersonId("snapshot"));
+		person.getAttributes().putAttribute("age", 42);
+
+		Plan plan = pf.createPlan();
+		plan.setScore(12.5);
+		plan.setType("routed");
+		Activity home = pf.createActivityFromLinkId("h", startLink.getId());
+		home.setCoord(new Coord(1, 2, 3));
+		home.setEndTime(7 * 3600);
+		plan.addActivity(home);
+		Leg car = pf.createLeg(TransportMode.car);
+		car.setDepartureTime(7 * 3600);
+		car.setTravelTime(600);
+		car.getAttributes().putAttribute("routingMode", TransportMode.car);
+		NetworkRoute networkRoute = RouteUtils.createLinkNetworkRouteImpl(startLink.getId(),
+				Collections.singletonList(links.get(1).getId()), endLink.getId());
+		networkRoute.setVehicleId(Id.createVehicleId("car1"));
+		networkRoute.setDistance(1234.5);
+		networkRoute.setTravelTime(600);
+		car.setRoute(networkRoute);
+		plan.addLeg(car);
+		Activity work = pf.createActivityFromCoord("w", new Coord(100, 200));
+		work.setMaximumDuration(8 * 3600);
+		plan.addActivity(work);
+		Leg walk = pf.createLeg(TransportMode.walk);
+		Route genericRoute = pf.getRouteFactories().createRoute(Route.class, endLink.getId(), startLink.getId());
+		genericRoute.setRouteDescription("some description");
+		walk.setRoute(genericRoute);
+		plan.addLeg(walk);
+		plan.addActivity(pf.createActivityFromLinkId("h", startLink.getId()));
+		person.addPlan(plan);
+
+		Plan unscoredPlan = pf.createPlan();
+		unscoredPlan.addActivity(pf.createActivityFromLinkId("h", startLink.getId()));
+		person.addPlan(unscoredPlan);
+		person.setSelectedPlan(unscoredPlan);
+
+		scenario.getPopulation().addPerson(person);
+	}
+
+}
@@ -22,32 +22,62 @@
  package org.matsim.core.scoring;
 
 import org.junit.Assert;
+import org.junit.Rule;
 import org.junit.Test;
 import org.matsim.api.core.v01.Coord;
 import org.matsim.api.core.v01.Id;
 import org.matsim.api.core.v01.Scenario;
 import org.matsim.api.core.v01.TransportMode;
+import org.matsim.api.core.v01.events.ActivityEndEvent;
+import org.matsim.api.core.v01.events.ActivityStartEvent;
 import org.matsim.api.core.v01.events.Event;
+import org.matsim.api.core.v01.events.LinkEnterEvent;
+import org.matsim.api.core.v01.events.LinkLeaveEvent;
+import org.matsim.api.core.v01.events.PersonArrivalEvent;
+import org.matsim.api.core.v01.events.PersonDepartureEvent;
+import org.matsim.api.core.v01.events.PersonEntersVehicleEvent;
+import org.matsim.api.core.v01.events.PersonLeavesVehicleEvent;
 import org.matsim.api.core.v01.events.PersonMoneyEvent;
 import org.matsim.api.core.v01.events.PersonScoreEvent;
+import org.matsim.api.core.v01.events.VehicleEntersTrafficEvent;
+import org.matsim.api.core.v01.events.VehicleLeavesTrafficEvent;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
 import org.matsim.api.core.v01.population.Activity;
 import org.matsim.api.core.v01.population.Leg;
 import org.matsim.api.core.v01.population.Person;
 import org.matsim.api.core.v01.population.Population;
 import org.matsim.api.core.v01.population.PopulationFactory;
 import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.api.experimental.events.TeleportationArrivalEvent;
+import org.matsim.core.config.Config;
 import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.config.groups.PlanCalcScoreConfigGroup.ActivityParams;
 import org.matsim.core.controler.ControlerListenerManagerImpl;
 import org.matsim.core.events.EventsUtils;
+import org.matsim.core.events.ParallelEventsManagerImpl;
+import org.matsim.core.network.NetworkUtils;
 import org.matsim.core.population.PopulationUtils;
 import org.matsim.core.router.TripStructureUtils;
 import org.matsim.core.scenario.ScenarioUtils;
+import org.matsim.core.scoring.functions.CharyparNagelScoringFunctionFactory;
+import org.matsim.testcases.MatsimTestUtils;
+import org.matsim.vehicles.Vehicle;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
 
 /**
  * @author mrieser / Simunto GmbH
  */
 public class ScoringFunctionsForPopulationTest {
 
+	@Rule
+	public MatsimTestUtils utils = new MatsimTestUtils();
+
 	@Test
 	public void testTripScoring() {
 		Scenario scenario = ScenarioUtils.createScenario(ConfigUtils.createConfig());
@@ -126,6 +156,129 @@ public class ScoringFunctionsForPopulationTest {
 		Assert.assertEquals(1.234+2.345, rsf.separateScoreSum, 1e-7);
 	}
 
+	@Test
+	public void testShardedScoring() {
+		Scenario scenario = ScenarioUtils.createScenario(ConfigUtils.createConfig());
+		Population population = scenario.getPopulation();
+		PopulationFactory pf = population.getFactory();
+		for (int i = 0; i < 10; i++) {
+			population.addPerson(pf.createPerson(Id.create("shard" + i, Person.class)));
+		}
+
+		ControlerListenerManagerImpl controlerListenerManager = new ControlerListenerManagerImpl();
+		EventsManager eventsManager = EventsUtils.createEventsManager();
+
+		EventsToActivities eventsToActivities = new EventsToActivities();
+		EventsToLegs eventsToLegs = new EventsToLegs(scenario);
+		ScoringFunctionFactory scoringFunctionFactory = agentId -> new RecordingScoringFunction();
+
+		ScoringFunctionsForPopulation sf = new ScoringFunctionsForPopulation(controlerListenerManager, eventsManager, eventsToActivities, eventsToLegs, population, scoringFunctionFactory, 3);
+		controlerListenerManager.fireControlerIterationStartsEvent(0, false);
+
+		eventsManager.initProcessing();
+		for (int i = 0; i < 10; i++) {
+			Id<Person> personId = Id.create("shard" + i, Person.class);
+			eventsManager.processEvent(new PersonScoreEvent(7*3600, personId, i, "testing"));
+			eventsManager.processEvent(new PersonScoreEvent(8*3600, personId, 0.5, "testing"));
+		}
+		eventsManager.processEvent(new PersonScoreEvent(9*3600, Id.create("xyz", Person.class), 2.345, "testing"));
+		eventsManager.finishProcessing();
+
+		for (int i = 0; i < 10; i++) {
+			RecordingScoringFunction rsf = (RecordingScoringFunction) sf.getScoringFunctionForAgent(Id.create("shard" + i, Person.class));
+			Assert.assertEquals(2, rsf.separateScoreCounter);
+			Assert.assertEquals(i + 0.5, rsf.separateScoreSum, 1e-7);
+		}
+	}
+
+	@Test
+	public void testShardedScoringWithParallelEvents() throws IOException {
+		Config config = ConfigUtils.createConfig();
+		config.planCalcScore().addActivityParams(new ActivityParams("home").setTypicalDuration(12 * 3600));
+		config.planCalcScore().addActivityParams(new ActivityParams("work").setTypicalDuration(8 * 3600));
+		config.planCalcScore().getModes().get(TransportMode.ride).setMarginalUtilityOfDistance(-0.001);
+		Scenario scenario = ScenarioUtils.createScenario(config);
+		Network network = scenario.getNetwork();
+		Node node1 = NetworkUtils.createAndAddNode(network, Id.create("n1", Node.class), new Coord(0, 0));
+		Node node2 = NetworkUtils.createAndAddNode(network, Id.create("n2", Node.class), new Coord(1000, 0));
+		Node node3 = NetworkUtils.createAndAddNode(network, Id.create("n3", Node.class), new Coord(2000, 0));
+		NetworkUtils.createAndAddLink(network, Id.create("l1", Link.class), node1, node2, 1000.0, 10.0, 3600.0, 1);
+		NetworkUtils.createAndAddLink(network, Id.create("l2", Link.class), node2, node3, 1000.0, 10.0, 3600.0, 1);
+		// every second person is a passenger in the vehicle of the person before, which belongs to another shard
+		PopulationFactory pf = scenario.getPopulation().getFactory();
+		for (int i = 0; i < 12; i++) {
+			scenario.getPopulation().addPerson(pf.createPerson(Id.create("parallel" + i, Person.class)));
+		}
+
+		String partialScores1 = this.utils.getOutputDirectory() + "partialscores_1.txt";
+		String partialScores3 = this.utils.getOutputDirectory() + "partialscores_3.txt";
+		ScoringFunctionsForPopulation sf1 = scoreWithParallelEvents(scenario, 1, partialScores1);
+		ScoringFunctionsForPopulation sf3 = scoreWithParallelEvents(scenario, 3, partialScores3);
+
+		for (Person person : scenario.getPopulation().getPersons().values()) {
+			double score = sf1.getScoringFunctionForAgent(person.getId()).getScore();
+			Assert.assertNotEquals(0.0, score, 1e-7);
+			Assert.assertEquals(score, sf3.getScoringFunctionForAgent(person.getId()).getScore(), 0.0);
+		}
+		Assert.assertEquals(Files.readAllLines(Paths.get(partialScores1)), Files.readAllLines(Paths.get(partialScores3)));
+	}
+
+	private static ScoringFunctionsForPopulation scoreWithParallelEvents(Scenario scenario, int numberOfShards, String partialScoresFile) {
+		ControlerListenerManagerImpl controlerListenerManager = new ControlerListenerManagerImpl();
+		EventsManager eventsManager = new ParallelEventsManagerImpl(4);
+
+		EventsToActivities eventsToActivities = new EventsToActivities(controlerListenerManager);
+		EventsToLegs eventsToLegs = new EventsToLegs(scenario);
+		eventsManager.addHandler(new EventsToLegsAndActivities(eventsToLegs, eventsToActivities));
+		ScoringFunctionsForPopulation sf = new ScoringFunctionsForPopulation(controlerListenerManager, eventsManager, eventsToActivities, eventsToLegs,
+				scenario.getPopulation(), new CharyparNagelScoringFunctionFactory(scenario), numberOfShards);
+		controlerListenerManager.fireControlerIterationStartsEvent(0, false);
+
+		Id<Link> link1 = Id.create("l1", Link.class);
+		Id<Link> link2 = Id.create("l2", Link.class);
+		eventsManager.initProcessing();
+		for (int i = 0; i < 12; i += 2) {
+			Id<Person> driverId = Id.create("parallel" + i, Person.class);
+			Id<Person> passengerId = Id.create("parallel" + (i + 1), Person.class);
+			Id<Vehicle> vehicleId = Id.create("parallel" + i, Vehicle.class);
+			double time = 6 * 3600 + i * 60;
+			for (Id<Person> personId : Arrays.asList(driverId, passengerId)) {
+				eventsManager.processEvent(new ActivityEndEvent(time, personId, link1, null, "home"));
+			}
+			eventsManager.processEvent(new PersonDepartureEvent(time, driverId, link1, TransportMode.car));
+			eventsManager.processEvent(new PersonDepartureEvent(time, passengerId, link1, TransportMode.ride));
+			eventsManager.processEvent(new PersonEntersVehicleEvent(time, driverId, vehicleId));
+			eventsManager.processEvent(new PersonEntersVehicleEvent(time, passengerId, vehicleId));
+			eventsManager.processEvent(new VehicleEntersTrafficEvent(time, driverId, link1, vehicleId, TransportMode.car, 1.0));
+			eventsManager.processEvent(new LinkLeaveEvent(time + 100, vehicleId, link1));
+			eventsManager.processEvent(new LinkEnterEvent(time + 100, vehicleId, link2));
+			eventsManager.processEvent(new VehicleLeavesTrafficEvent(time + 200 + i, driverId, link2, vehicleId, TransportMode.car, 1.0));
+			eventsManager.processEvent(new PersonLeavesVehicleEvent(time + 200 + i, driverId, vehicleId));
+			eventsManager.processEvent(new PersonLeavesVehicleEvent(time + 200 + i, passengerId, vehicleId));
+			for (Id<Person> personId : Arrays.asList(driverId, passengerId)) {
+				String mode = personId == driverId ? TransportMode.car : TransportMode.ride;
+				eventsManager.processEvent(new PersonArrivalEvent(time + 200 + i, personId, link2, mode));
+				eventsManager.processEvent(new ActivityStartEvent(time + 200 + i, personId, link2, null, "work"));
+			}
+		}
+		// the passengers walk home, the drivers stay at work until the end
+		for (int i = 1; i < 12; i += 2) {
+			Id<Person> personId = Id.create("parallel" + i, Person.class);
+			double time = 16 * 3600 + i * 60;
+			eventsManager.processEvent(new ActivityEndEvent(time, personId, link2, null, "work"));
+			eventsManager.processEvent(new PersonDepartureEvent(time, personId, link2, TransportMode.walk));
+			eventsManager.processEvent(new TeleportationArrivalEvent(time + 1200, personId, 1500 + i, TransportMode.walk));
+			eventsManager.processEvent(new PersonArrivalEvent(time + 1200, personId, link1, TransportMode.walk));
+			eventsManager.processEvent(new ActivityStartEvent(time + 1200, personId, link1, null, "home"));
+		}
+		eventsManager.finishProcessing();
+
+		controlerListenerManager.fireControlerAfterMobsimEvent(0, false);
+		sf.finishScoringFunctions();
+		sf.writePartialScores(partialScoresFile);
+		return sf;
+	}
+
 	private static class RecordingScoringFunction implements ScoringFunction {
 
 		int tripCounter = 0;
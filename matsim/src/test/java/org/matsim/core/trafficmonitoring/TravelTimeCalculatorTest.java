@@ -576,4 +576,45 @@ public class TravelTimeCalculatorTest extends MatsimTestCase {
 		Assert.assertEquals("Filtering analyzed transport modes is enabled, but no modes set. Therefore, use default (=car)", 100.0, 
 				ttc.getLinkTravelTimes().getLinkTravelTime(link2, 200, null, null), 1e-8);
 	}
+
+	public void testTravelTimeCalculator_FlatArray_sameAsArray() {
+		Scenario scenario = ScenarioUtils.createScenario(ConfigUtils.createConfig());
+		Network network = scenario.getNetwork();
+		new MatsimNetworkReader(network).readFile(getClassInputDirectory() + "link10_network.xml");
+
+		TravelTimeCalculatorConfigGroup arrayConfig = new TravelTimeCalculatorConfigGroup();
+		arrayConfig.setTravelTimeCalculatorType(TravelTimeCalculatorConfigGroup.TravelTimeCalculatorType.TravelTimeCalculatorArray.toString());
+		TravelTimeCalculator arrayCalc = TravelTimeCalculator.create(network, arrayConfig);
+
+		TravelTimeCalculatorConfigGroup flatConfig = new TravelTimeCalculatorConfigGroup();
+		flatConfig.setTravelTimeCalculatorType(TravelTimeCalculatorConfigGroup.TravelTimeCalculatorType.TravelTimeCalculatorFlatArray.toString());
+		TravelTimeCalculator flatCalc = TravelTimeCalculator.create(network, flatConfig);
+
+		EventsManager events = EventsUtils.createEventsManager();
+		events.addHandler(arrayCalc);
+		events.addHandler(flatCalc);
+		events.initProcessing();
+		new MatsimEventsReader(events).readFile(getClassInputDirectory() + "link10_events.xml");
+		// events on links which are not part of the network must not break the flat storage
+		Id<Vehicle> vehId = Id.create("unknownLinkVeh", Vehicle.class);
+		Id<Link> unknownLinkId = Id.create("doesNotExist", Link.class);
+		events.processEvent(new LinkEnterEvent(7 * 3600, vehId, unknownLinkId));
+		events.processEvent(new LinkLeaveEvent(7 * 3600 + 100, vehId, unknownLinkId));
+		events.finishProcessing();
+
+		int timeBinSize = arrayConfig.getTraveltimeBinSize();
+		for (Link link : network.getLinks().values()) {
+			for (int i = 0; i < 4 * 24; i++) {
+				double time = i * timeBinSize;
+				assertEquals("different travel times on link " + link.getId() + " at " + time,
+						arrayCalc.getLinkTravelTimes().getLinkTravelTime(link, time, null, null),
+						flatCalc.getLinkTravelTimes().getLinkTravelTime(link, time, null, null), 1e-3);
+			}
+		}
+
+		// after a reset, only free speed travel times are left
+		flatCalc.reset(1);
+		Link link10 = network.getLinks().get(Id.create("10", Link.class));
+		assertEquals(NetworkUtils.getFreespeedTravelTime(link10), flatCalc.getLinkTravelTimes().getLinkTravelTime(link10, 6.25 * 3600, null, null), EPSILON);
+	}
 }
@@ -0,0 +1,171 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * PackedKDTreeTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2022 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+
+package org.matsim.core.utils.collections;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Compares the results of {@link PackedKDTree} to those of a {@link QuadTree} with the same points.
+ */
+public class PackedKDTreeTest {
+
+	private static final class Point {
+		final double x;
+		final double y;
+
+		Point(double x, double y) {
+			this.x = x;
+			this.y = y;
+		}
+	}
+
+	private static List<Point> createPoints(Random random, int count) {
+		List<Point> points = new ArrayList<>();
+		for (int i = 0; i < count; i++) {
+			// rounded coordinates, so some points share their location or one coordinate
+			points.add(new Point(Math.round(random.nextDouble() * 1000), Math.round(random.nextDouble() * 1000)));
+		}
+		return points;
+	}
+
+	private static PackedKDTree<Point> createTree(List<Point> points) {
+		double[] x = points.stream().mapToDouble(p -> p.x).toArray();
+		double[] y = points.stream().mapToDouble(p -> p.y).toArray();
+		return new PackedKDTree<>(x, y, points);
+	}
+
+	private static QuadTree<Point> createQuadTree(List<Point> points) {
+		QuadTree<Point> qt = new QuadTree<>(0, 0, 1000, 1000);
+		for (Point p : points) {
+			qt.put(p.x, p.y, p);
+		}
+		return qt;
+	}
+
+	private static double distance(Point p, double x, double y) {
+		return Math.sqrt((p.x - x) * (p.x - x) + (p.y - y) * (p.y - y));
+	}
+
+	@Test
+	public void testQueries_sameAsQuadTree() {
+		Random random = new Random(20221018);
+		List<Point> points = createPoints(random, 5000);
+		PackedKDTree<Point> tree = createTree(points);
+		QuadTree<Point> qt = createQuadTree(points);
+		Assert.assertEquals(points.size(), tree.size());
+		Assert.assertEquals(new HashSet<>(points), new HashSet<>(tree.values()));
+
+		for (int i = 0; i < 200; i++) {
+			double x = random.nextDouble() * 1200 - 100;
+			double y = random.nextDouble() * 1200 - 100;
+
+			Point closest = tree.getClosest(x, y);
+			Assert.assertEquals(distance(qt.getClosest(x, y), x, y), distance(closest, x, y), 1e-9);
+
+			double r = random.nextDouble() * 100;
+			assertSameElements(qt.getDisk(x, y, r), tree.getDisk(x, y, r));
+			assertSameElements(qt.getRing(x, y, r / 2, r), tree.getRing(x, y, r / 2, r));
+
+			double x2 = x + random.nextDouble() * 100;
+			double y2 = y + random.nextDouble() * 100;
+			double d = Math.sqrt((x2 - x) * (x2 - x) + (y2 - y) * (y2 - y)) + 50;
+			assertSameElements(qt.getElliptical(x, y, x2, y2, d), tree.getElliptical(x, y, x2, y2, d));
+
+			assertSameElements(qt.getRectangle(x, y, x2, y2, new ArrayList<>()), tree.getRectangle(x, y, x2, y2, new ArrayList<>()));
+		}
+	}
+
+	@Test
+	public void testGetKClosest() {
+		Random random = new Random(4711);
+		List<Point> points = createPoints(random, 1000);
+		PackedKDTree<Point> tree = createTree(points);
+		Point[] found = new Point[10];
+		double[] distances = new double[10];
+
+		for (int i = 0; i < 100; i++) {
+			double x = random.nextDouble() * 1000;
+			double y = random.nextDouble() * 1000;
+			double[] expected = points.stream().mapToDouble(p -> distance(p, x, y)).sorted().toArray();
+
+			int count = tree.getKClosest(x, y, 10, found, distances);
+			Assert.assertEquals(10, count);
+			for (int k = 0; k < count; k++) {
+				Assert.assertEquals(expected[k], distances[k], 1e-9);
+				Assert.assertEquals(distances[k], distance(found[k], x, y), 1e-9);
+			}
+
+			double maxDistance = expected[3];
+			count = tree.getKClosest(x, y, 10, maxDistance, found, distances);
+			long expectedCount = Arrays.stream(expected).filter(dist -> dist <= maxDistance).limit(10).count();
+			Assert.assertEquals(expectedCount, count);
+		}
+
+		Assert.assertEquals(0, createTree(new ArrayList<>()).getKClosest(0, 0, 3, found, distances));
+		Assert.assertNull(createTree(new ArrayList<>()).getClosest(0, 0));
+	}
+
+	@Test
+	public void testParallelBuild() {
+		Random random = new Random(42);
+		List<Point> points = createPoints(random, 100000);
+		PackedKDTree<Point> tree = createTree(points);
+		QuadTree<Point> qt = createQuadTree(points);
+		for (int i = 0; i < 200; i++) {
+			double x = random.nextDouble() * 1000;
+			double y = random.nextDouble() * 1000;
+			Assert.assertEquals(distance(qt.getClosest(x, y), x, y), distance(tree.getClosest(x, y), x, y), 1e-9);
+			assertSameElements(qt.getDisk(x, y, 20), tree.getDisk(x, y, 20));
+		}
+	}
+
+	@Test
+	public void testSelect_manyEqualKeys() {
+		int[] order = new int[1000];
+		double[] keys = new double[1000];
+		for (int i = 0; i < order.length; i++) {
+			order[i] = i;
+			keys[i] = i % 3;
+		}
+		PackedKDTree.select(order, keys, 0, order.length, 500);
+		for (int i = 0; i < 500; i++) {
+			Assert.assertTrue(keys[order[i]] <= keys[order[500]]);
+		}
+		for (int i = 501; i < order.length; i++) {
+			Assert.assertTrue(keys[order[i]] >= keys[order[500]]);
+		}
+	}
+
+	private static void assertSameElements(Collection<Point> expected, Collection<Point> actual) {
+		Assert.assertEquals(expected.size(), actual.size());
+		Assert.assertEquals(new HashSet<>(expected), new HashSet<>(actual));
+	}
+
+}
@@ -0,0 +1,279 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * IncrementalRerouteServiceTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2022 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.withinday.utils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.router.DijkstraFactory;
+import org.matsim.core.router.costcalculators.OnlyTimeDependentTravelDisutility;
+import org.matsim.core.router.util.LeastCostPathCalculator;
+import org.matsim.core.router.util.LeastCostPathCalculator.Path;
+import org.matsim.core.router.util.TravelDisutility;
+import org.matsim.core.router.util.TravelTime;
+import org.matsim.vehicles.Vehicle;
+
+public class IncrementalRerouteServiceTest {
+
+	private static final double UPDATE_INTERVAL = 60;
+	private static final int SIZE = 6;
+
+	private final Network network = NetworkUtils.createNetwork();
+	private final Node[][] nodes = new Node[SIZE][SIZE];
+	private final List<Link> links = new ArrayList<>();
+	private final ChangeableTravelTime travelTime = new ChangeableTravelTime();
+	private final TravelDisutility travelDisutility = new OnlyTimeDependentTravelDisutility(this.travelTime);
+
+	public IncrementalRerouteServiceTest() {
+		for (int x = 0; x < SIZE; x++) {
+			for (int y = 0; y < SIZE; y++) {
+				this.nodes[x][y] = NetworkUtils.createAndAddNode(this.network, Id.createNodeId("irs_" + x + "_" + y), new Coord(x * 100, y * 100));
+			}
+		}
+		for (int x = 0; x < SIZE; x++) {
+			for (int y = 0; y < SIZE; y++) {
+				if (x + 1 < SIZE) {
+					addLinks(this.nodes[x][y], this.nodes[x + 1][y]);
+				}
+				if (y + 1 < SIZE) {
+					addLinks(this.nodes[x][y], this.nodes[x][y + 1]);
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testCalcLeastCostPath_sameAsDijkstraAfterTravelTimeChanges() {
+		Random random = new Random(20221101);
+		IncrementalRerouteService service = new IncrementalRerouteService(this.network, this.travelTime, this.travelDisutility, UPDATE_INTERVAL, 10);
+		Node[] destinations = {this.nodes[0][0], this.nodes[3][4], this.nodes[5][1]};
+
+		for (int interval = 0; interval < 20; interval++) {
+			for (int i = 0; i < 3; i++) {
+				Link link = this.links.get(random.nextInt(this.links.size()));
+				this.travelTime.set(link, 1 + random.nextInt(50));
+			}
+			double time = interval * UPDATE_INTERVAL + 5;
+			for (Node toNode : destinations) {
+				for (int i = 0; i < 5; i++) {
+					Node fromNode = this.nodes[random.nextInt(SIZE)][random.nextInt(SIZE)];
+					if (fromNode != toNode) {
+						assertSameCostAsDijkstra(service, fromNode, toNode, time);
+					}
+				}
+			}
+		}
+		// every destination was calculated once, afterwards the trees were repaired
+		Assert.assertEquals(destinations.length, service.getNumberOfFullCalculations());
+	}
+
+	@Test
+	public void testCalcLeastCostPath_costsOnlyUpdatedAfterUpdateInterval() {
+		IncrementalRerouteService service = new IncrementalRerouteService(this.network, this.travelTime, this.travelDisutility, UPDATE_INTERVAL, 10);
+		Node fromNode = this.nodes[0][0];
+		Node toNode = this.nodes[0][5];
+		Path before = service.calcLeastCostPath(fromNode, toNode, 0, null, null);
+		Assert.assertEquals(50, before.travelCost, 1e-9);
+
+		for (Link link : before.links) {
+			this.travelTime.set(link, 1000);
+		}
+		// still the costs of the first update
+		Path cached = service.calcLeastCostPath(fromNode, toNode, UPDATE_INTERVAL - 1, null, null);
+		Assert.assertEquals(50, cached.travelCost, 1e-9);
+		Assert.assertEquals(before.links, cached.links);
+
+		// the new costs are used after the update interval, taking a detour
+		Path after = assertSameCostAsDijkstra(service, fromNode, toNode, UPDATE_INTERVAL);
+		Assert.assertEquals(70, after.travelCost, 1e-9);
+	}
+
+	@Test
+	public void testCalcLeastCostPath_fullCalculationIfChangesNotLogged() {
+		IncrementalRerouteService service = new IncrementalRerouteService(this.network, this.travelTime, this.travelDisutility, UPDATE_INTERVAL, 10);
+		Node fromNode = this.nodes[5][5];
+		Node toNode = this.nodes[1][2];
+		Node otherNode = this.nodes[4][0];
+		double time = 0;
+		assertSameCostAsDijkstra(service, fromNode, toNode, time);
+		Assert.assertEquals(1, service.getNumberOfFullCalculations());
+
+		// few changes are repaired
+		this.travelTime.set(this.links.get(3), 25);
+		time += UPDATE_INTERVAL;
+		assertSameCostAsDijkstra(service, fromNode, toNode, time);
+		Assert.assertEquals(1, service.getNumberOfFullCalculations());
+
+		// if the costs of many links changed, the tree is calculated again
+		Random random = new Random(20221102);
+		for (Link link : this.links) {
+			this.travelTime.set(link, 1 + random.nextInt(50));
+		}
+		time += UPDATE_INTERVAL;
+		assertSameCostAsDijkstra(service, fromNode, toNode, time);
+		Assert.assertEquals(2, service.getNumberOfFullCalculations());
+
+		// after more updates than are logged, the changes since the last query towards toNode are not known anymore
+		for (int i = 0; i < 101; i++) {
+			this.travelTime.set(this.links.get(random.nextInt(this.links.size())), 1 + random.nextInt(50));
+			time += UPDATE_INTERVAL;
+			assertSameCostAsDijkstra(service, fromNode, otherNode, time);
+		}
+		Assert.assertEquals(3, service.getNumberOfFullCalculations());
+		assertSameCostAsDijkstra(service, fromNode, toNode, time);
+		Assert.assertEquals(4, service.getNumberOfFullCalculations());
+	}
+
+	@Test
+	public void testCalcLeastCostPath_leastRecentlyUsedTreeDropped() {
+		IncrementalRerouteService service = new IncrementalRerouteService(this.network, this.travelTime, this.travelDisutility, UPDATE_INTERVAL, 2);
+		Node fromNode = this.nodes[2][2];
+		Node nodeA = this.nodes[0][0];
+		Node nodeB = this.nodes[5][0];
+		Node nodeC = this.nodes[0][5];
+
+		service.calcLeastCostPath(fromNode, nodeA, 0, null, null);
+		service.calcLeastCostPath(fromNode, nodeB, 0, null, null);
+		service.calcLeastCostPath(fromNode, nodeA, 0, null, null);
+		service.calcLeastCostPath(fromNode, nodeC, 0, null, null);
+		Assert.assertTrue(service.hasTree(nodeA));
+		Assert.assertFalse(service.hasTree(nodeB));
+		Assert.assertTrue(service.hasTree(nodeC));
+		Assert.assertEquals(3, service.getNumberOfFullCalculations());
+
+		// the dropped tree is calculated again, and replaces the least recently used one
+		assertSameCostAsDijkstra(service, fromNode, nodeB, 0);
+		Assert.assertEquals(4, service.getNumberOfFullCalculations());
+		Assert.assertFalse(service.hasTree(nodeA));
+		Assert.assertTrue(service.hasTree(nodeB));
+		Assert.assertTrue(service.hasTree(nodeC));
+	}
+
+	@Test
+	public void testCalcLeastCostPath_concurrentQueriesToOneDestination() throws Exception {
+		int numberOfThreads = 4;
+		Random random = new Random(20221103);
+		IncrementalRerouteService service = new IncrementalRerouteService(this.network, this.travelTime, this.travelDisutility, UPDATE_INTERVAL, 10);
+		Node toNode = this.nodes[2][3];
+		List<Node> fromNodes = new ArrayList<>(this.network.getNodes().values());
+		fromNodes.remove(toNode);
+
+		ExecutorService executor = Executors.newFixedThreadPool(numberOfThreads);
+		try {
+			for (int interval = 0; interval < 20; interval++) {
+				for (int i = 0; i < 5; i++) {
+					this.travelTime.set(this.links.get(random.nextInt(this.links.size())), 1 + random.nextInt(50));
+				}
+				double time = interval * UPDATE_INTERVAL;
+
+				// all threads query the same destination, each in a different order
+				List<Future<Map<Node, Path>>> results = new ArrayList<>();
+				for (int thread = 0; thread < numberOfThreads; thread++) {
+					List<Node> order = new ArrayList<>(fromNodes);
+					Collections.shuffle(order, new Random(random.nextLong()));
+					results.add(executor.submit(() -> {
+						Map<Node, Path> paths = new ConcurrentHashMap<>();
+						for (Node fromNode : order) {
+							paths.put(fromNode, service.calcLeastCostPath(fromNode, toNode, time, null, null));
+						}
+						return paths;
+					}));
+				}
+
+				LeastCostPathCalculator dijkstra = new DijkstraFactory().createPathCalculator(this.network, this.travelDisutility, this.travelTime);
+				for (Future<Map<Node, Path>> result : results) {
+					Map<Node, Path> paths = result.get();
+					for (Node fromNode : fromNodes) {
+						Path expected = dijkstra.calcLeastCostPath(fromNode, toNode, time, null, null);
+						Path actual = paths.get(fromNode);
+						Assert.assertEquals("interval " + interval + ", from " + fromNode.getId(), expected.travelCost, actual.travelCost, 1e-9);
+						assertConsistent(actual, fromNode, toNode);
+					}
+				}
+			}
+		} finally {
+			executor.shutdown();
+		}
+		Assert.assertEquals(1, service.getNumberOfFullCalculations());
+	}
+
+	private Path assertSameCostAsDijkstra(IncrementalRerouteService service, Node fromNode, Node toNode, double time) {
+		LeastCostPathCalculator dijkstra = new DijkstraFactory().createPathCalculator(this.network, this.travelDisutility, this.travelTime);
+		Path expected = dijkstra.calcLeastCostPath(fromNode, toNode, time, null, null);
+		Path actual = service.calcLeastCostPath(fromNode, toNode, time, null, null);
+		Assert.assertEquals("time " + time + ", from " + fromNode.getId() + " to " + toNode.getId(), expected.travelCost, actual.travelCost, 1e-9);
+		assertConsistent(actual, fromNode, toNode);
+		return actual;
+	}
+
+	private void assertConsistent(Path path, Node fromNode, Node toNode) {
+		Assert.assertEquals(fromNode, path.getFromNode());
+		Assert.assertEquals(toNode, path.getToNode());
+		double travelTime = 0;
+		Node node = fromNode;
+		for (Link link : path.links) {
+			Assert.assertEquals(node, link.getFromNode());
+			travelTime += this.travelTime.getLinkTravelTime(link, 0, null, null);
+			node = link.getToNode();
+		}
+		Assert.assertEquals(toNode, node);
+		Assert.assertEquals(path.travelCost, travelTime, 1e-9);
+		Assert.assertEquals(path.travelTime, travelTime, 1e-9);
+	}
+
+	private void addLinks(Node a, Node b) {
+		this.links.add(NetworkUtils.createAndAddLink(this.network, Id.createLinkId(a.getId() + "-" + b.getId()), a, b, 100, 10, 1000, 1));
+		this.links.add(NetworkUtils.createAndAddLink(this.network, Id.createLinkId(b.getId() + "-" + a.getId()), b, a, 100, 10, 1000, 1));
+	}
+
+	/**
+	 * Travel times which do not depend on the time of day, but can be changed by the test.
+	 */
+	private static final class ChangeableTravelTime implements TravelTime {
+		private final Map<Id<Link>, Double> travelTimes = new ConcurrentHashMap<>();
+
+		void set(Link link, double travelTime) {
+			this.travelTimes.put(link.getId(), travelTime);
+		}
+
+		@Override
+		public double getLinkTravelTime(Link link, double time, Person person, Vehicle vehicle) {
+			return this.travelTimes.getOrDefault(link.getId(), link.getLength() / link.getFreespeed());
+		}
+	}
+
+}